@@ -18,6 +18,7 @@ import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
 import jiconfont.swing.IconFontSwing;
 import lombok.NonNull;
 import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeIcons;
 import net.in.rrrekin.ittoolbox.events.BlockingApplicationErrorEvent;
 import net.in.rrrekin.ittoolbox.gui.MainWindow;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodesTreeModelFacade;
@@ -73,6 +74,7 @@ public class ItToolboxApplication {
     // Start application
     log.info("Starting {} Application", APPLICATION_NAME);
     IconFontSwing.register(GoogleMaterialDesignIcons.getIconFont());
+    NodeIcons.preload();
     final Injector injector = Guice.createInjector(new ItToolboxInfrastructure(appDirectory));
     final ItToolboxApplication application = injector.getInstance(ItToolboxApplication.class);
 
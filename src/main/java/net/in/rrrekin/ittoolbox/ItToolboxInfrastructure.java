@@ -12,9 +12,11 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService;
 import net.in.rrrekin.ittoolbox.gui.EdtInvokeService;
 import net.in.rrrekin.ittoolbox.gui.MainWindow;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodesTreeModelFacade;
+import net.in.rrrekin.ittoolbox.gui.nodetree.NodeDetailsCache;
 import net.in.rrrekin.ittoolbox.infrastructure.BlockingApplicationEventsHandler;
 import net.in.rrrekin.ittoolbox.infrastructure.SystemWrapper;
 import net.in.rrrekin.ittoolbox.infrastructure.UnhandledMessagesLogger;
@@ -46,9 +48,11 @@ public class ItToolboxInfrastructure extends AbstractModule {
     bind(File.class).annotatedWith(Names.named(APP_DIRECTORY)).toInstance(appDirectory);
     bind(ConfigurationManager.class).asEagerSingleton();
     bind(NodeFactory.class).asEagerSingleton();
+    bind(NodeSearchService.class).asEagerSingleton();
     bind(UnhandledMessagesLogger.class).asEagerSingleton();
     bind(BlockingApplicationEventsHandler.class).asEagerSingleton();
     bind(NetworkNodesTreeModelFacade.class).asEagerSingleton();
+    bind(NodeDetailsCache.class).asEagerSingleton();
     bind(MainWindow.class).asEagerSingleton();
     bind(EdtInvokeService.class).asEagerSingleton();
   }
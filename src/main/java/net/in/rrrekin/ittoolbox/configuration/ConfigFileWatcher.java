@@ -0,0 +1,167 @@
+package net.in.rrrekin.ittoolbox.configuration;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Watches directories of the configuration files for changes of those files. Bursts of file system
+ * events (e.g. editor writing file in several steps) are reported once, after no event was received
+ * for the debounce period.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+class ConfigFileWatcher implements Closeable {
+  private static final String WATCHER_THREAD_NAME = "ConfigFileWatcher";
+
+  private final @NonNull WatchService watchService;
+  private final @NonNull Set<Path> files;
+  private final long debounceMs;
+  private final @NonNull Runnable changeListener;
+  private final @NotNull Thread thread;
+
+  private ConfigFileWatcher(
+      final @NonNull WatchService watchService,
+      final @NonNull Set<Path> files,
+      final long debounceMs,
+      final @NonNull Runnable changeListener) {
+    this.watchService = watchService;
+    this.files = files;
+    this.debounceMs = debounceMs;
+    this.changeListener = changeListener;
+    thread = new Thread(this::run, WATCHER_THREAD_NAME);
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Starts watching the file.
+   *
+   * @param file the watched file
+   * @param debounceMs time without file system events after which change is reported
+   * @param changeListener the listener called on watcher thread when file was changed
+   * @return the watcher or null if directory of the file cannot be watched
+   */
+  static @Nullable ConfigFileWatcher start(
+      final @NonNull File file, final long debounceMs, final @NonNull Runnable changeListener) {
+    return start(Collections.singleton(file), debounceMs, changeListener);
+  }
+
+  /**
+   * Starts watching the files, e.g. configuration file and files included by it.
+   *
+   * @param files the watched files
+   * @param debounceMs time without file system events after which change is reported
+   * @param changeListener the listener called on watcher thread when any of files was changed
+   * @return the watcher or null if directories of the files cannot be watched
+   */
+  static @Nullable ConfigFileWatcher start(
+      final @NonNull Collection<File> files,
+      final long debounceMs,
+      final @NonNull Runnable changeListener) {
+    final Set<Path> paths =
+        files.stream()
+            .map(file -> file.toPath().toAbsolutePath().normalize())
+            .collect(Collectors.toSet());
+    WatchService watchService = null;
+    try {
+      for (final Path directory :
+          paths.stream().map(Path::getParent).collect(Collectors.toSet())) {
+        if (watchService == null) {
+          watchService = directory.getFileSystem().newWatchService();
+        }
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      }
+      if (watchService == null) {
+        return null;
+      }
+      final ConfigFileWatcher watcher =
+          new ConfigFileWatcher(watchService, paths, debounceMs, changeListener);
+      watcher.thread.start();
+      log.info("Watching configuration files {} for changes", files);
+      return watcher;
+    } catch (final IOException | UnsupportedOperationException e) {
+      log.warn("Cannot watch configuration files {} for changes: {}", files, e.toString());
+      if (watchService != null) {
+        try {
+          watchService.close();
+        } catch (final IOException ex) {
+          log.debug("Failed to close watch service", ex);
+        }
+      }
+      return null;
+    }
+  }
+
+  /** Stops watching the file. */
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (final IOException e) {
+      log.warn("Failed to close configuration file watcher", e);
+    }
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        boolean changed = isFileChanged(watchService.take());
+        WatchKey key;
+        while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+          changed |= isFileChanged(key);
+        }
+        if (changed) {
+          notifyListener();
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ClosedWatchServiceException e) {
+      // Watcher closed
+    }
+    log.debug("Configuration file watcher stopped");
+  }
+
+  private boolean isFileChanged(final @NotNull WatchKey key) {
+    final Path directory = (Path) key.watchable();
+    boolean changed = false;
+    for (final WatchEvent<?> event : key.pollEvents()) {
+      changed |=
+          event.kind() == OVERFLOW || files.contains(directory.resolve((Path) event.context()));
+    }
+    if (!key.reset()) {
+      log.warn("Configuration directory is no longer watched");
+    }
+    return changed;
+  }
+
+  private void notifyListener() {
+    try {
+      log.debug("Configuration files {} changed", files);
+      changeListener.run();
+    } catch (final Throwable e) {
+      // Watcher thread would stop and changes would not be reported anymore
+      log.warn("Exception in configuration file change listener", e);
+    }
+  }
+}
@@ -28,7 +28,9 @@ class ConfigSyncTask extends TimerTask {
       log.debug("Syncing configuration with file");
       configurationManager.saveIfDirty();
       configurationManager.loadIfChanged();
-    } catch (final Exception e) {
+    } catch (final Throwable e) {
+      // Timer thread stops on any throwable, e.g. InternalError of mapped file read, and no task
+      // could be run anymore
       log.warn("Exception in ConfigurationManager task", e);
     }
   }
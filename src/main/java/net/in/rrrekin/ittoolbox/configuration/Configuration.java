@@ -1,24 +1,104 @@
 package net.in.rrrekin.ittoolbox.configuration;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import java.util.List;
 import java.util.Map;
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * Object representing application configuration.
+ * Object representing application configuration. Configuration published by {@link
+ * ConfigurationManager} is never modified, changes are published as new configuration objects that
+ * share unchanged nodes with previous ones.
  *
  * @author michal.rudewicz @gmail.com
  */
-@AllArgsConstructor
 @Slf4j
 @EqualsAndHashCode
 public class Configuration {
 
   @Getter private final @NotNull List<NetworkNode> networkNodes;
   @Getter private final @NotNull Map<String, Map<String, String>> modules;
+
+  /**
+   * Instantiates a new Configuration.
+   *
+   * @param networkNodes the top level network nodes, the list is copied
+   * @param modules the module configurations
+   */
+  public Configuration(
+      final @NonNull List<NetworkNode> networkNodes,
+      final @NonNull Map<String, Map<String, String>> modules) {
+    this.networkNodes = ImmutableList.copyOf(networkNodes);
+    this.modules = modules;
+  }
+
+  /**
+   * Creates configuration with include nodes replaced by other nodes. Only groups on the path to
+   * replaced nodes are copied, other nodes are shared with this configuration, which is not
+   * modified.
+   *
+   * @param oldNodes the replaced include nodes
+   * @param newNodes the new include nodes, in the same order as replaced ones
+   * @return the new configuration
+   */
+  public @NotNull Configuration withIncludes(
+      final @NonNull List<IncludeNode> oldNodes, final @NonNull List<IncludeNode> newNodes) {
+    final Map<NetworkNode, NetworkNode> replacements = Maps.newIdentityHashMap();
+    for (int i = 0; i < oldNodes.size(); i++) {
+      replacements.put(oldNodes.get(i), newNodes.get(i));
+    }
+    return new Configuration(replaceNodes(networkNodes, replacements), modules);
+  }
+
+  /**
+   * Creates configuration with single node level change applied. Only groups on the path of the
+   * change are copied, other nodes are shared with this configuration, which is not modified.
+   *
+   * @param change the change
+   * @param factory the node factory
+   * @return the new configuration
+   * @throws InvalidConfigurationException when changed node cannot be created
+   * @throws IllegalArgumentException when change does not match the nodes
+   * @throws IndexOutOfBoundsException when change does not match the nodes
+   */
+  public @NotNull Configuration withChange(
+      final @NonNull JournalEntry change, final @NonNull NodeFactory factory)
+      throws InvalidConfigurationException {
+    return new Configuration(change.applyCopyOnWrite(networkNodes, factory), modules);
+  }
+
+  private static @NotNull List<NetworkNode> replaceNodes(
+      final @NotNull List<NetworkNode> nodes,
+      final @NotNull Map<NetworkNode, NetworkNode> replacements) {
+    List<NetworkNode> response = null;
+    for (int i = 0; i < nodes.size(); i++) {
+      final NetworkNode node = nodes.get(i);
+      NetworkNode newNode = replacements.get(node);
+      if (newNode == null && node instanceof GroupingNode && !(node instanceof IncludeNode)) {
+        final List<NetworkNode> childNodes = replaceNodes(node.getChildNodes(), replacements);
+        if (childNodes != node.getChildNodes()) {
+          newNode = ((GroupingNode) node).withChildNodes(childNodes);
+        }
+      }
+      if (newNode != null) {
+        if (response == null) {
+          response = Lists.newArrayList(nodes);
+        }
+        response.set(i, newNode);
+      }
+    }
+    return response == null ? nodes : response;
+  }
 }
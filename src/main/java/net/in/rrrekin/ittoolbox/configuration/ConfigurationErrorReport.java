@@ -0,0 +1,181 @@
+package net.in.rrrekin.ittoolbox.configuration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.in.rrrekin.ittoolbox.utilities.LocaleUtil.localMessage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent;
+import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Aggregated errors found while reading configuration. Errors are counted by their code and only
+ * first few errors of each code are kept, so memory used by the report and the size of its summary
+ * do not depend on the number of errors. All errors are written to the report file, which is
+ * rewritten when first error is added after the report is cleared.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+final class ConfigurationErrorReport implements Closeable {
+
+  /** Number of errors of each code kept in the report. */
+  static final int SAMPLES_PER_CODE = 5;
+
+  @Getter private final @NonNull File reportFile;
+  private final Map<Code, Integer> counts = new EnumMap<>(Code.class);
+  private final List<ConfigurationErrorEvent> samples = Lists.newArrayList();
+  private int totalCount = 0;
+  private @Nullable Writer writer = null;
+  /** True if all errors were written to the report file. */
+  private boolean reportComplete = false;
+
+  /**
+   * Instantiates a new configuration error report.
+   *
+   * @param reportFile the file all errors are written to
+   */
+  ConfigurationErrorReport(final @NonNull File reportFile) {
+    this.reportFile = reportFile;
+  }
+
+  /**
+   * Adds error to the report.
+   *
+   * @param error the error
+   */
+  synchronized void add(final @NonNull ConfigurationErrorEvent error) {
+    final int count = counts.merge(error.getCode(), 1, Integer::sum);
+    if (count <= SAMPLES_PER_CODE) {
+      samples.add(error);
+    }
+    totalCount++;
+    if (totalCount == 1) {
+      openReportFile();
+    }
+    if (writer != null) {
+      try {
+        writer.write(error.getCode().name());
+        writer.write(": ");
+        writer.write(error.singleLineError());
+        writer.write(System.lineSeparator());
+      } catch (final IOException e) {
+        log.warn("Failed to write configuration error report {}: {}", reportFile, e.toString());
+        reportComplete = false;
+        closeReportFile();
+      }
+    }
+  }
+
+  synchronized boolean isEmpty() {
+    return totalCount == 0;
+  }
+
+  synchronized int getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Gets number of errors with given code.
+   *
+   * @param code the error code
+   * @return the number of errors
+   */
+  synchronized int getCount(final @NonNull Code code) {
+    return counts.getOrDefault(code, 0);
+  }
+
+  /**
+   * Gets errors kept in the report, at most {@link #SAMPLES_PER_CODE} of each code, in the order
+   * they were added.
+   *
+   * @return the errors
+   */
+  synchronized @NotNull List<ConfigurationErrorEvent> getSamples() {
+    return ImmutableList.copyOf(samples);
+  }
+
+  /**
+   * Gets summary of the errors for the user: errors kept in the report grouped by code, number of
+   * other errors of each code and location of the report file if some errors are not shown. Report
+   * file is flushed, so it is complete when the summary is shown.
+   *
+   * @return the summary, one error per line
+   */
+  synchronized @NotNull String getSummary() {
+    final List<String> lines = Lists.newArrayList();
+    for (final Map.Entry<Code, Integer> entry : counts.entrySet()) {
+      int shown = 0;
+      for (final ConfigurationErrorEvent sample : samples) {
+        if (sample.getCode() == entry.getKey()) {
+          lines.add(sample.singleLineError());
+          shown++;
+        }
+      }
+      if (entry.getValue() > shown) {
+        lines.add(localMessage("CFG_ERRORS_MORE", entry.getValue() - shown));
+      }
+    }
+    if (writer != null) {
+      try {
+        writer.flush();
+      } catch (final IOException e) {
+        log.warn("Failed to write configuration error report {}: {}", reportFile, e.toString());
+        reportComplete = false;
+        closeReportFile();
+      }
+    }
+    if (reportComplete && totalCount > samples.size()) {
+      lines.add(localMessage("CFG_ERRORS_REPORT", totalCount, reportFile));
+    }
+    return String.join("\n", lines);
+  }
+
+  /** Removes all errors from the report. Report file is kept until next error is added. */
+  synchronized void clear() {
+    counts.clear();
+    samples.clear();
+    totalCount = 0;
+    reportComplete = false;
+    closeReportFile();
+  }
+
+  @Override
+  public synchronized void close() {
+    closeReportFile();
+  }
+
+  private void openReportFile() {
+    try {
+      writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8);
+      reportComplete = true;
+    } catch (final IOException e) {
+      log.warn("Failed to create configuration error report {}: {}", reportFile, e.toString());
+    }
+  }
+
+  private void closeReportFile() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (final IOException e) {
+        log.warn("Failed to close configuration error report {}: {}", reportFile, e.toString());
+        reportComplete = false;
+      }
+      writer = null;
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package net.in.rrrekin.ittoolbox.configuration;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newConcurrentMap;
 import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newLinkedHashSet;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.FAILED;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.MISSING;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.NEW;
@@ -11,31 +14,92 @@ import static net.in.rrrekin.ittoolbox.utilities.LocaleUtil.localMessage;
 
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import net.in.rrrekin.ittoolbox.ItToolboxApplication;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.FailedConfigurationSaveException;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.MissingConfigurationException;
+import net.in.rrrekin.ittoolbox.configuration.history.ConfigurationHistory;
+import net.in.rrrekin.ittoolbox.configuration.history.HistoryVersion;
+import net.in.rrrekin.ittoolbox.configuration.journal.ChangeJournal;
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
+import net.in.rrrekin.ittoolbox.configuration.remote.RemoteInventory;
+import net.in.rrrekin.ittoolbox.configuration.snapshot.ConfigurationSnapshotService;
+import net.in.rrrekin.ittoolbox.configuration.store.NodeStore;
 import net.in.rrrekin.ittoolbox.events.BlockingApplicationErrorEvent;
 import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent;
 import net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent;
 import net.in.rrrekin.ittoolbox.utilities.ErrorCode;
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Class responsible for managing saving/loading configuration depending on changes and providing
  * access to configuration to other classes.
  *
+ * <p>Binary snapshot of the configuration is kept next to the configuration file. It is used on
+ * startup instead of parsing configuration file, as long as the configuration file was not changed
+ * since the snapshot was made.
+ *
+ * <p>External changes of the configuration file are detected by file system watcher. Periodic
+ * check of file modification time is kept as a fallback for file systems that do not report
+ * changes. Configuration is reloaded only if file content was actually changed.
+ *
+ * <p>Node changes made in the application are appended to the change journal and the
+ * configuration file is rewritten only when the journal grows large or after a while. Journal
+ * entries left after application crash are applied to the configuration on startup.
+ *
+ * <p>Files included by the configuration file are watched as well. When only included files are
+ * changed, just those files are read again and their nodes replace old ones in current
+ * configuration. Snapshot is not used for configuration with included files.
+ *
+ * <p>Configuration is kept in the node store instead of the YAML file when the node store file
+ * exists in the application directory, see {@link ConfigurationPersistenceService#convert(File,
+ * File)}. Node store is read quickly and saves only changed nodes, so snapshot is not used for it.
+ *
+ * <p>Errors found while reading configuration are aggregated by their code, so the user sees a
+ * summary of bounded size and all errors are written to the error report file in the application
+ * directory.
+ *
+ * <p>Every loaded or saved content of the configuration file is recorded in the compressed
+ * configuration history, so previous version can be restored with {@link #restoreVersion(long)}.
+ * Included files are not part of the history.
+ *
+ * <p>Include node may refer to a remote inventory served over HTTP(S), see {@link
+ * #subscribe(URL, String)}. Remote inventories are polled with conditional requests, so unchanged
+ * inventory is not downloaded nor parsed, and only changed subtrees of its nodes are replaced.
+ * Nodes of remote inventories are read-only, they are not saved with the configuration. Slow
+ * inventories are polled in separate thread, so they do not delay saving and reloading of the
+ * configuration file.
+ *
  * @author michal.rudewicz @gmail.com
  */
 @Slf4j
@@ -45,18 +109,65 @@ public class ConfigurationManager {
   public static final String APP_DIRECTORY = "appDirectory";
 
   private static final String CONFIG_SYNC_TIMER_NAME = "ConfigSyncTimer";
+  private static final String REMOTE_POLL_THREAD_NAME = "RemoteInventoryPoller";
   private static final String CONFIG_FILE_NAME =
       ItToolboxApplication.APPLICATION_ID + "-config.yml";
+  private static final String STORE_FILE_NAME =
+      ItToolboxApplication.APPLICATION_ID + "-config" + NodeStore.FILE_EXTENSION;
+  private static final String SNAPSHOT_FILE_NAME =
+      ItToolboxApplication.APPLICATION_ID + "-config.snapshot";
+  private static final String JOURNAL_FILE_NAME =
+      ItToolboxApplication.APPLICATION_ID + "-config.journal";
+  private static final String HISTORY_FILE_NAME =
+      ItToolboxApplication.APPLICATION_ID + "-config.history";
+  private static final String ERROR_REPORT_FILE_NAME =
+      ItToolboxApplication.APPLICATION_ID + "-config-errors.log";
+  private static final int HISTORY_SIZE = 50;
   private static final long CONFIG_DELAY_SYNC_MS = 5000;
+  private static final long CONFIG_FALLBACK_SYNC_MS = 60000;
+  private static final long CONFIG_WATCH_DEBOUNCE_MS = 300;
+  private static final long JOURNAL_COMPACTION_DELAY_MS = 60000;
+  private static final long JOURNAL_COMPACTION_SIZE = 256 * 1024;
+  private static final long REMOTE_POLL_MS = 60000;
 
   private final @NonNull EventBus eventBus;
   private final @NonNull ConfigurationPersistenceService persistenceService;
+  private final @NonNull ConfigurationSnapshotService snapshotService;
+  private final @NonNull NodeFactory nodeFactory;
   private final @NotNull File configurationFile;
+  private final @NotNull File snapshotFile;
+  private final @NotNull ChangeJournal changeJournal;
+  private final @NotNull ConfigurationHistory history;
   private final @NonNull AtomicReference<Configuration> configuration =
       new AtomicReference<>(new Configuration(newArrayList(), newHashMap()));
   private final Timer configChangeTimer = new Timer(CONFIG_SYNC_TIMER_NAME, true);
   private final Object configFileAccessMonitor = new Object();
-  private final List<ConfigurationErrorEvent> loadErrors = newArrayList();
+  /**
+   * Guards the journal and its base. It is held only for short time, never while files are read or
+   * written, so changes are journalled without waiting for save or reload. It may be taken while
+   * holding {@link #configFileAccessMonitor}, never the other way round.
+   */
+  private final Object journalMonitor = new Object();
+  private final @NotNull ConfigurationErrorReport loadErrors;
+  private final AtomicBoolean saveScheduled = new AtomicBoolean(false);
+  private final ExecutorService remotePoller =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat(REMOTE_POLL_THREAD_NAME)
+              .setDaemon(true)
+              .build());
+  private final AtomicBoolean remotePollScheduled = new AtomicBoolean(false);
+  /** Watcher of configuration and included files, guarded by {@link #configFileAccessMonitor}. */
+  private @Nullable ConfigFileWatcher configFileWatcher;
+  private @Nullable HashCode lastLoadedHash;
+  private @Nullable HashCode journalBase;
+  private @NotNull Set<File> watchedFiles = Collections.emptySet();
+  private final Map<String, RemoteInventory> remoteInventories = newConcurrentMap();
+  private final Set<String> failedRemoteInventories =
+      Collections.newSetFromMap(newConcurrentMap());
+
+  /** False disables watching configuration file, so only periodic checks are made. */
+  boolean watchConfigurationFile = true;
 
   /** Returns timestamp of last loaded config file. */
   @Getter private long lastLoadedChangeTs = 0L;
@@ -64,24 +175,36 @@ public class ConfigurationManager {
   @Getter private boolean active = false;
   /** True if configuration needs to be saved. */
   // TODO: Provide proper synchronization with saving / reading code
-  @Getter @Setter private boolean dirty = false;
+  @Getter private boolean dirty = false;
 
   /**
    * Instantiates a new Configuration manager.
    *
    * @param eventBus the event bus
    * @param persistenceService the persistence service
+   * @param snapshotService the snapshot service
+   * @param nodeFactory the node factory
    * @param appDirectory the app directory
    */
   @Inject
   public ConfigurationManager(
       final @NonNull EventBus eventBus,
       final @NonNull ConfigurationPersistenceService persistenceService,
+      final @NonNull ConfigurationSnapshotService snapshotService,
+      final @NonNull NodeFactory nodeFactory,
       @Named(APP_DIRECTORY) final @NonNull File appDirectory) {
     log.info("Creating ConfigurationManager");
     this.eventBus = eventBus;
     this.persistenceService = persistenceService;
-    configurationFile = new File(appDirectory, CONFIG_FILE_NAME);
+    this.snapshotService = snapshotService;
+    this.nodeFactory = nodeFactory;
+    final File storeFile = new File(appDirectory, STORE_FILE_NAME);
+    configurationFile =
+        storeFile.exists() ? storeFile : new File(appDirectory, CONFIG_FILE_NAME);
+    snapshotFile = new File(appDirectory, SNAPSHOT_FILE_NAME);
+    changeJournal = new ChangeJournal(new File(appDirectory, JOURNAL_FILE_NAME));
+    history = new ConfigurationHistory(new File(appDirectory, HISTORY_FILE_NAME), HISTORY_SIZE);
+    loadErrors = new ConfigurationErrorReport(new File(appDirectory, ERROR_REPORT_FILE_NAME));
   }
 
   /** Init. */
@@ -89,9 +212,20 @@ public class ConfigurationManager {
     log.info("Initializing ConfigurationManager");
     eventBus.register(this);
     load();
-    configChangeTimer.schedule(
-        new ConfigSyncTask(this), CONFIG_DELAY_SYNC_MS, CONFIG_DELAY_SYNC_MS);
+    final boolean watched;
+    synchronized (configFileAccessMonitor) {
+      if (watchConfigurationFile) {
+        watchConfigurationFiles();
+      }
+      watched = configFileWatcher != null;
+    }
+    final long syncPeriod = watched ? CONFIG_FALLBACK_SYNC_MS : CONFIG_DELAY_SYNC_MS;
+    configChangeTimer.schedule(new ConfigSyncTask(this), syncPeriod, syncPeriod);
     active = true;
+    if (hasRemoteIncludes()) {
+      // Remote inventories are not read with the configuration file
+      schedulePoll();
+    }
   }
 
   /** Shutdown. */
@@ -99,13 +233,99 @@ public class ConfigurationManager {
     log.info("Stopping ConfigurationManager");
     saveIfDirty();
     active = false;
+    synchronized (configFileAccessMonitor) {
+      if (configFileWatcher != null) {
+        configFileWatcher.close();
+        configFileWatcher = null;
+        watchedFiles = Collections.emptySet();
+      }
+    }
     configChangeTimer.cancel();
     configChangeTimer.purge();
+    remotePoller.shutdownNow();
+    try {
+      changeJournal.close();
+    } catch (final IOException e) {
+      log.warn("Failed to close configuration change journal: {}", e.toString());
+    }
+    loadErrors.close();
     eventBus.unregister(this);
   }
 
   /**
-   * Gets current configuration.
+   * Marks configuration as changed (or not) by the application. Changed configuration is saved
+   * after short delay, so a series of changes results in a single save.
+   *
+   * @param dirty true if configuration needs to be saved
+   */
+  public void setDirty(final boolean dirty) {
+    this.dirty = dirty;
+    if (dirty) {
+      scheduleSave(CONFIG_DELAY_SYNC_MS);
+    }
+  }
+
+  /**
+   * Records node change made by the application. Change is published at once as new version of the
+   * configuration, which shares unchanged nodes with the previous one. Change is also appended to
+   * the journal, so it is not lost on application crash, and configuration file is saved later. If
+   * change cannot be written to the journal, configuration file is saved after short delay.
+   *
+   * <p>Changes that cannot be applied, e.g. changes of nodes of remote inventories, are rejected
+   * and not journalled.
+   *
+   * @param entry the change
+   * @return true if the change was published
+   */
+  public boolean recordChange(final @NonNull JournalEntry entry) {
+    return publishAndJournal(null, entry);
+  }
+
+  /**
+   * Records node change made in given configuration version, e.g. the one shown to the user, see
+   * {@link #recordChange(JournalEntry)}. Nothing is changed if configuration was changed in
+   * meantime, as paths of the change may be outdated.
+   *
+   * @param expected the configuration the change was made in
+   * @param entry the change
+   * @return true if the change was published
+   */
+  public boolean recordChange(
+      final @NonNull Configuration expected, final @NonNull JournalEntry entry) {
+    return publishAndJournal(expected, entry);
+  }
+
+  /**
+   * Publishes the change and appends it to the journal, or schedules save if it cannot be
+   * journalled.
+   */
+  private boolean publishAndJournal(
+      final @Nullable Configuration expected, final @NotNull JournalEntry entry) {
+    // Change is journalled together with publishing, so the journal has changes in order they were
+    // published and saved version of configuration is always either before or after the change
+    synchronized (journalMonitor) {
+      if (!publishChange(expected, entry)) {
+        return false;
+      }
+      if (journalBase != null) {
+        try {
+          changeJournal.append(journalBase, entry);
+          dirty = true;
+          scheduleSave(
+              changeJournal.size() < JOURNAL_COMPACTION_SIZE ? JOURNAL_COMPACTION_DELAY_MS : 0);
+          return true;
+        } catch (final IOException e) {
+          log.warn("Failed to write configuration change journal: {}", e.toString());
+        }
+      }
+    }
+    setDirty(true);
+    return true;
+  }
+
+  /**
+   * Gets current configuration. Returned configuration is never modified, so it can be read by any
+   * thread without locking. Changes are published as new configuration objects.
    *
    * @return the configuration
    */
@@ -113,6 +333,105 @@ public class ConfigurationManager {
     return configuration.get();
   }
 
+  /**
+   * Replaces current configuration with equivalent one. Nothing is replaced if configuration was
+   * changed in meantime.
+   *
+   * @param expected the current configuration
+   * @param equivalent the configuration with the same content as current one
+   * @return true if configuration was replaced
+   */
+  public boolean replaceConfig(
+      final @NonNull Configuration expected, final @NonNull Configuration equivalent) {
+    return configuration.compareAndSet(expected, equivalent);
+  }
+
+  /**
+   * Replaces current configuration with changed one, e.g. with nodes imported from an inventory,
+   * and saves it at once. Nothing is replaced if configuration was changed in meantime.
+   *
+   * @param expected the current configuration
+   * @param changed the changed configuration
+   * @return true if configuration was replaced
+   */
+  public boolean commitChange(
+      final @NonNull Configuration expected, final @NonNull Configuration changed) {
+    if (!configuration.compareAndSet(expected, changed)) {
+      return false;
+    }
+    eventBus.post(new ConfigurationFileSyncEvent(OK, localMessage("CFG_CONFIG_CHANGED")));
+    dirty = true;
+    saveIfDirty();
+    return true;
+  }
+
+  /**
+   * Adds remote inventory as a top level include node and reads it at once. Nodes of the inventory
+   * are read-only and are updated in the background when the inventory changes. Only the include
+   * node is saved in the configuration file.
+   *
+   * @param url the HTTP(S) URL of the inventory
+   * @param name the name of the include node
+   * @return true if the inventory was added, false if configuration was changed in meantime
+   */
+  public boolean subscribe(final @NonNull URL url, final @NonNull String name) {
+    final String location = url.toString();
+    checkArgument(RemoteInventory.isRemote(location), "Not an HTTP URL: %s", location);
+    final Configuration expected = configuration.get();
+    final List<NetworkNode> nodes = newArrayList(expected.getNetworkNodes());
+    nodes.add(new IncludeNode(name, "", location, newArrayList(), newArrayList()));
+    if (!commitChange(expected, new Configuration(nodes, expected.getModules()))) {
+      return false;
+    }
+    log.info("Subscribed to remote inventory {}", location);
+    pollRemoteIncludes(true);
+    return true;
+  }
+
+  /**
+   * Gets versions of the configuration file kept in the history, the oldest first.
+   *
+   * @return the versions or empty list if history cannot be read
+   */
+  public @NotNull List<HistoryVersion> getHistory() {
+    try {
+      return history.getVersions();
+    } catch (final IOException e) {
+      log.warn("Failed to read configuration history: {}", e.toString());
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Replaces the configuration file with its version from the history and loads it. Changes not
+   * saved yet are discarded. Restored content becomes the newest version, so restore can be undone
+   * the same way.
+   *
+   * @param number the version number
+   * @return true if the configuration file was restored
+   */
+  public boolean restoreVersion(final long number) {
+    synchronized (configFileAccessMonitor) {
+      try {
+        FileUtils.writeAtomically(configurationFile, history.restore(number));
+      } catch (final IOException e) {
+        log.warn("Failed to restore configuration version {}", number, e);
+        eventBus.post(
+            new ConfigurationFileSyncEvent(
+                FAILED,
+                localMessage("CFG_HISTORY_RESTORE_FAILURE", number, e.getLocalizedMessage())));
+        return false;
+      }
+      log.info("Configuration version {} restored", number);
+      // Force reload even if the file content was not changed, to discard unsaved changes
+      dirty = false;
+      lastLoadedHash = null;
+      lastLoadedChangeTs = 0;
+      loadIfChanged();
+    }
+    return true;
+  }
+
   /**
    * Handle configuration read errors.
    *
@@ -124,18 +443,40 @@ public class ConfigurationManager {
     loadErrors.add(event);
   }
 
-  /** Blocking initial configuration load. */
+  /** Blocking initial configuration load. Uses configuration snapshot if it is up to date. */
   void load() {
     log.trace("ConfigurationManager#load");
     if (configurationFile.exists()) {
       try {
         final Configuration newConfig;
+        final boolean journalReplayed;
         synchronized (configFileAccessMonitor) {
           loadErrors.clear();
-          newConfig = persistenceService.load(configurationFile);
+          final FileFingerprint fingerprint = fingerprintConfigurationFile();
+          final Configuration snapshot =
+              fingerprint == null || NodeStore.isStoreFile(configurationFile)
+                  ? null
+                  : snapshotService.load(snapshotFile, fingerprint);
+          final Configuration loadedConfig =
+              snapshot == null ? persistenceService.load(configurationFile) : snapshot;
+          lastLoadedHash = fingerprint == null ? null : fingerprint.getHash();
+          recordHistory(fingerprint);
+          synchronized (journalMonitor) {
+            updateJournalBase(loadedConfig);
+          }
+          if (loadErrors.isEmpty() && snapshot == null) {
+            saveSnapshot(fingerprint, loadedConfig);
+          }
+          // Journal is replayed before configuration is published
+          synchronized (journalMonitor) {
+            newConfig = replayJournal(loadedConfig);
+            journalReplayed = newConfig != loadedConfig;
+            if (loadErrors.isEmpty()) {
+              configuration.set(newConfig);
+              dirty = journalReplayed;
+            }
+          }
           if (loadErrors.isEmpty()) {
-            configuration.set(newConfig);
-            dirty = false;
             lastLoadedChangeTs = configurationFile.lastModified();
           }
         }
@@ -148,14 +489,10 @@ public class ConfigurationManager {
                   ErrorCode.LOAD_ERROR,
                   localMessage("CFG_LOAD_ERROR_TITLE"),
                   localMessage(
-                      "CFG_LOAD_ERRORS_QUESTION",
-                      configurationFile,
-                      loadErrors.stream()
-                          .map(ConfigurationErrorEvent::singleLineError)
-                          .collect(Collectors.joining("\n"))),
+                      "CFG_LOAD_ERRORS_QUESTION", configurationFile, loadErrors.getSummary()),
                   false));
           configuration.set(newConfig);
-          dirty = false;
+          dirty = journalReplayed;
           lastLoadedChangeTs = configurationFile.lastModified();
           loadErrors.clear();
           eventBus.post(
@@ -186,7 +523,11 @@ public class ConfigurationManager {
     }
   }
 
-  /** Non blocking configuration reload. */
+  /**
+   * Non blocking configuration reload. Configuration is reloaded if modification time of the
+   * configuration file was changed and the file has different content than previously loaded.
+   * Otherwise only changed included files are read again. Remote inventories are polled afterwards.
+   */
   void loadIfChanged() {
     log.trace("ConfigurationManager#loadIfChanged");
     if (active && configurationFile.exists()) {
@@ -195,15 +536,36 @@ public class ConfigurationManager {
         synchronized (configFileAccessMonitor) {
           loadErrors.clear();
           final long lastChangeTs = configurationFile.lastModified();
+          boolean configurationFileChanged = false;
           if (lastChangeTs > lastLoadedChangeTs) {
-            final Configuration newConfig = persistenceService.load(configurationFile);
-            if (loadErrors.isEmpty()) {
-              configuration.set(newConfig);
-              dirty = false;
-              lastLoadedChangeTs = configurationFile.lastModified();
-              loaded = true;
+            final FileFingerprint fingerprint = fingerprintConfigurationFile();
+            if (fingerprint != null && fingerprint.getHash().equals(lastLoadedHash)) {
+              log.debug("Content of configuration file {} not changed", configurationFile);
+              lastLoadedChangeTs = lastChangeTs;
+            } else {
+              configurationFileChanged = true;
+              final Configuration newConfig = persistenceService.load(configurationFile);
+              lastLoadedHash = fingerprint == null ? null : fingerprint.getHash();
+              recordHistory(fingerprint);
+              if (loadErrors.isEmpty()) {
+                synchronized (journalMonitor) {
+                  configuration.set(newConfig);
+                  dirty = false;
+                  updateJournalBase(newConfig);
+                  clearJournal();
+                }
+                lastLoadedChangeTs = configurationFile.lastModified();
+                loaded = true;
+                saveSnapshot(fingerprint, newConfig);
+              }
             }
           }
+          if (!configurationFileChanged) {
+            loaded = reloadChangedIncludes();
+          }
+          if (loaded && configFileWatcher != null) {
+            watchConfigurationFiles();
+          }
         }
         if (loaded) {
           eventBus.post(new ConfigurationFileSyncEvent(OK, localMessage("CFG_CONFIG_LOADED")));
@@ -215,11 +577,7 @@ public class ConfigurationManager {
               new ConfigurationFileSyncEvent(
                   FAILED,
                   localMessage(
-                      "CFG_CONFIG_LOAD_FAILURE",
-                      configurationFile,
-                      loadErrors.stream()
-                          .map(ConfigurationErrorEvent::singleLineError)
-                          .collect(Collectors.joining("\n")))));
+                      "CFG_CONFIG_LOAD_FAILURE", configurationFile, loadErrors.getSummary())));
           loadErrors.clear();
         }
       } catch (final InvalidConfigurationException e) {
@@ -240,18 +598,45 @@ public class ConfigurationManager {
                 MISSING, localMessage("CFG_MISSING_CFG_FILE_ERROR", configurationFile)));
       }
     }
+    if (active) {
+      schedulePoll();
+    }
   }
 
   /** Save configuration if dirty. */
   void saveIfDirty() {
     log.trace("ConfigurationManager#saveIfDirty");
+    saveScheduled.set(false);
     if (active && (dirty || !configurationFile.exists())) {
       try {
         synchronized (configFileAccessMonitor) {
           if (dirty || !configurationFile.exists()) {
-            persistenceService.save(configurationFile, configuration.get());
+            // Saved version is used for the journal base and snapshot, even if changed meantime
+            final Configuration config;
+            synchronized (journalMonitor) {
+              config = configuration.get();
+            }
+            final Configuration saved =
+                persistenceService.save(configurationFile, config, lastLoadedHash);
             lastLoadedChangeTs = configurationFile.lastModified();
-            dirty = false;
+            final FileFingerprint fingerprint = fingerprintConfigurationFile();
+            lastLoadedHash = fingerprint == null ? null : fingerprint.getHash();
+            synchronized (journalMonitor) {
+              // Changes journalled while saving are not in the file, they are saved again soon
+              dirty = configuration.get() != config;
+              if (saved != null && saved != config) {
+                publishSavedIncludes(config, saved);
+              }
+              updateJournalBase(saved == null ? config : saved);
+              clearJournal();
+            }
+            if (dirty) {
+              scheduleSave(CONFIG_DELAY_SYNC_MS);
+            }
+            if (saved != null) {
+              saveSnapshot(fingerprint, saved);
+              recordHistory(fingerprint);
+            }
           }
         }
         eventBus.post(new ConfigurationFileSyncEvent(SAVED, localMessage("CFG_CONFIG_SAVED")));
@@ -265,4 +650,422 @@ public class ConfigurationManager {
       }
     }
   }
+
+  /** Saves configuration changed in application, then reloads externally changed file. */
+  void sync() {
+    saveIfDirty();
+    loadIfChanged();
+  }
+
+  /**
+   * Publishes include nodes with fingerprints of written files in place of saved ones. Include
+   * nodes changed while saving are saved again later, so they are not replaced.
+   */
+  private void publishSavedIncludes(
+      final @NotNull Configuration config, final @NotNull Configuration saved) {
+    final List<IncludeNode> savedIncludes = IncludeNode.findAll(config.getNetworkNodes());
+    final List<IncludeNode> writtenIncludes = IncludeNode.findAll(saved.getNetworkNodes());
+    final List<IncludeNode> oldIncludes = newArrayList();
+    final List<IncludeNode> newIncludes = newArrayList();
+    for (int i = 0; i < savedIncludes.size(); i++) {
+      if (savedIncludes.get(i) != writtenIncludes.get(i)) {
+        oldIncludes.add(savedIncludes.get(i));
+        newIncludes.add(writtenIncludes.get(i));
+      }
+    }
+    Configuration current;
+    Configuration newConfig;
+    do {
+      current = configuration.get();
+      newConfig = current == config ? saved : current.withIncludes(oldIncludes, newIncludes);
+    } while (!configuration.compareAndSet(current, newConfig));
+  }
+
+  private void scheduleSave(final long delayMs) {
+    if (active && (delayMs == 0 || saveScheduled.compareAndSet(false, true))) {
+      configChangeTimer.schedule(new ConfigSyncTask(this), delayMs);
+    }
+  }
+
+  /**
+   * Reads again included files with changed content and replaces their nodes in current
+   * configuration. Included files that could not be read before are read again only with the
+   * configuration file.
+   *
+   * <p>Files are read without blocking changes made in the application. Nodes read are put into
+   * the configuration current at the moment of replacement, so such changes made in meantime are
+   * kept, except for changes of nodes of reloaded files. Unsaved changes are saved at once, because
+   * the journal was made for previous content of the included files.
+   *
+   * @return true if configuration was changed
+   */
+  private boolean reloadChangedIncludes() {
+    final Configuration config = configuration.get();
+    final List<IncludeNode> changedIncludes = newArrayList();
+    final Map<File, FileFingerprint> touchedFiles = newHashMap();
+    for (final IncludeNode include : IncludeNode.findAll(config.getNetworkNodes())) {
+      final FileFingerprint source = include.getSourceFingerprint();
+      final File file = include.resolve(configurationFile);
+      if (source != null && file.lastModified() != source.getLastModified()) {
+        final FileFingerprint fingerprint = fingerprintFile(file);
+        if (fingerprint != null && fingerprint.getHash().equals(source.getHash())) {
+          log.debug("Content of included file {} not changed", file);
+          touchedFiles.put(file, fingerprint);
+        } else {
+          changedIncludes.add(include);
+        }
+      }
+    }
+    if (changedIncludes.isEmpty() && touchedFiles.isEmpty()) {
+      return false;
+    }
+    final List<IncludeNode> reloadedIncludes =
+        changedIncludes.isEmpty()
+            ? Collections.emptyList()
+            : persistenceService.loadIncludes(configurationFile, changedIncludes);
+    if (!loadErrors.isEmpty()) {
+      return false;
+    }
+    final Map<File, IncludeNode> reloadedFiles = newHashMap();
+    for (final IncludeNode include : reloadedIncludes) {
+      reloadedFiles.put(include.resolve(configurationFile), include);
+    }
+    Configuration current;
+    Configuration newConfig;
+    synchronized (journalMonitor) {
+      do {
+        current = configuration.get();
+        final List<IncludeNode> oldIncludes = newArrayList();
+        final List<IncludeNode> newIncludes = newArrayList();
+        for (final IncludeNode include : IncludeNode.findAll(current.getNetworkNodes())) {
+          final File file = include.resolve(configurationFile);
+          final IncludeNode reloaded = reloadedFiles.get(file);
+          final FileFingerprint touched = touchedFiles.get(file);
+          if (reloaded != null) {
+            oldIncludes.add(include);
+            newIncludes.add(
+                include.withChildNodes(reloaded.getChildNodes(), reloaded.getSourceFingerprint()));
+          } else if (touched != null && isReadFrom(include, touched)) {
+            // Only modification time changed, nodes are published with fingerprint of the file
+            oldIncludes.add(include);
+            newIncludes.add(include.withChildNodes(include.getChildNodes(), touched));
+          }
+        }
+        if (oldIncludes.isEmpty()) {
+          return false;
+        }
+        newConfig = current.withIncludes(oldIncludes, newIncludes);
+      } while (!configuration.compareAndSet(current, newConfig));
+      if (reloadedFiles.isEmpty()) {
+        return false;
+      }
+      if (dirty) {
+        scheduleSave(0);
+      } else {
+        updateJournalBase(newConfig);
+      }
+    }
+    log.info("Reloaded {} included configuration files", changedIncludes.size());
+    return true;
+  }
+
+  private static boolean isReadFrom(
+      final @NotNull IncludeNode include, final @NotNull FileFingerprint fingerprint) {
+    final FileFingerprint source = include.getSourceFingerprint();
+    return source != null && source.getHash().equals(fingerprint.getHash());
+  }
+
+  /**
+   * Polls remote inventories in the poller thread, unless the poll is already scheduled. Requests
+   * to slow inventories may take long, so they must not block the configuration sync timer.
+   */
+  private void schedulePoll() {
+    if (active && remotePollScheduled.compareAndSet(false, true)) {
+      try {
+        remotePoller.execute(
+            () -> {
+              remotePollScheduled.set(false);
+              try {
+                pollRemoteIncludes(false);
+              } catch (final RuntimeException e) {
+                log.warn("Failed to poll remote inventories", e);
+              }
+            });
+      } catch (final RejectedExecutionException e) {
+        log.debug("Remote inventories not polled after shutdown");
+      }
+    }
+  }
+
+  /**
+   * Polls remote inventories of include nodes, if poll period elapsed, and updates child nodes of
+   * include nodes which are not up to date. Inventories are read without holding the configuration
+   * lock. Child nodes are replaced only if configuration was not changed in meantime, otherwise
+   * they are replaced on next poll.
+   *
+   * @param force true to poll all inventories regardless of poll period
+   */
+  void pollRemoteIncludes(final boolean force) {
+    final List<IncludeNode> includes = remoteIncludes(configuration.get());
+    if (includes.isEmpty()) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    final Set<RemoteInventory> polled = newLinkedHashSet();
+    for (final IncludeNode include : includes) {
+      final RemoteInventory inventory = remoteInventory(include.getFile());
+      if (inventory != null
+          && !polled.contains(inventory)
+          && (force || inventory.isDue(now, REMOTE_POLL_MS))) {
+        polled.add(inventory);
+        pollRemoteInventory(inventory);
+      }
+    }
+    final Configuration config = configuration.get();
+    final List<IncludeNode> changedIncludes = newArrayList();
+    final List<IncludeNode> updatedIncludes = newArrayList();
+    for (final IncludeNode include : remoteIncludes(config)) {
+      final RemoteInventory inventory = remoteInventories.get(include.getFile());
+      if (inventory != null && !inventory.isCurrent(include.getChildNodes())) {
+        changedIncludes.add(include);
+        updatedIncludes.add(include.withChildNodes(newArrayList(inventory.getNodes()), null));
+      }
+    }
+    if (!changedIncludes.isEmpty()
+        && configuration.compareAndSet(
+            config, config.withIncludes(changedIncludes, updatedIncludes))) {
+      log.info("Updated nodes of {} remote inventories", changedIncludes.size());
+      eventBus.post(
+          new ConfigurationFileSyncEvent(OK, localMessage("CFG_REMOTE_INVENTORY_UPDATED")));
+    }
+  }
+
+  private void pollRemoteInventory(final @NotNull RemoteInventory inventory) {
+    final URL url = inventory.getUrl();
+    try {
+      inventory.poll(body -> persistenceService.readRemoteNodes(url, body));
+      failedRemoteInventories.remove(url.toString());
+    } catch (final IOException e) {
+      log.warn("Failed to read remote inventory {}: {}", url, e.toString());
+      // Failure is reported once, not on every poll
+      if (failedRemoteInventories.add(url.toString())) {
+        eventBus.post(
+            new ConfigurationFileSyncEvent(
+                FAILED,
+                localMessage("CFG_REMOTE_INVENTORY_FAILURE", url, e.getLocalizedMessage())));
+      }
+    }
+  }
+
+  private @Nullable RemoteInventory remoteInventory(final @NotNull String location) {
+    final RemoteInventory inventory = remoteInventories.get(location);
+    if (inventory != null) {
+      return inventory;
+    }
+    try {
+      final URL url = new URL(location);
+      return remoteInventories.computeIfAbsent(location, key -> new RemoteInventory(url));
+    } catch (final MalformedURLException e) {
+      log.warn("Invalid URL of remote inventory '{}': {}", location, e.getMessage());
+      if (failedRemoteInventories.add(location)) {
+        eventBus.post(
+            new ConfigurationFileSyncEvent(
+                FAILED,
+                localMessage("CFG_REMOTE_INVENTORY_FAILURE", location, e.getLocalizedMessage())));
+      }
+      return null;
+    }
+  }
+
+  private boolean hasRemoteIncludes() {
+    return !remoteIncludes(configuration.get()).isEmpty();
+  }
+
+  private static @NotNull List<IncludeNode> remoteIncludes(final @NotNull Configuration config) {
+    return IncludeNode.findAll(config.getNetworkNodes()).stream()
+        .filter(include -> RemoteInventory.isRemote(include.getFile()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Journal entries apply to content of the configuration file and all included files, so hash of
+   * all of them identifies the journal. Remote inventories are not part of the journal base.
+   */
+  private void updateJournalBase(final @NotNull Configuration config) {
+    final List<IncludeNode> includes =
+        IncludeNode.findAll(config.getNetworkNodes()).stream()
+            .filter(include -> !RemoteInventory.isRemote(include.getFile()))
+            .collect(Collectors.toList());
+    if (lastLoadedHash == null || includes.isEmpty()) {
+      journalBase = lastLoadedHash;
+      return;
+    }
+    final List<HashCode> hashes = newArrayList(lastLoadedHash);
+    for (final IncludeNode include : includes) {
+      if (include.getSourceFingerprint() == null) {
+        journalBase = null;
+        return;
+      }
+      hashes.add(include.getSourceFingerprint().getHash());
+    }
+    journalBase = Hashing.combineOrdered(hashes);
+  }
+
+  /**
+   * Watches configuration file and files included by current configuration. Previous watcher is
+   * closed if watched files changed. Must be called holding {@link #configFileAccessMonitor}, so
+   * watchers started by concurrent reloads are not leaked.
+   */
+  private void watchConfigurationFiles() {
+    final Set<File> files = newLinkedHashSet();
+    files.add(configurationFile);
+    for (final IncludeNode include : IncludeNode.findAll(configuration.get().getNetworkNodes())) {
+      if (!RemoteInventory.isRemote(include.getFile())) {
+        files.add(include.resolve(configurationFile));
+      }
+    }
+    if (!files.equals(watchedFiles)) {
+      if (configFileWatcher != null) {
+        configFileWatcher.close();
+      }
+      configFileWatcher = ConfigFileWatcher.start(files, CONFIG_WATCH_DEBOUNCE_MS, this::sync);
+      watchedFiles = files;
+    }
+  }
+
+  /**
+   * Publishes new configuration version with the change applied, by copying changed path only.
+   *
+   * @param expected the configuration the change was made in, null to apply it to any version
+   * @return false if the change cannot be applied to current configuration
+   */
+  private boolean publishChange(
+      final @Nullable Configuration expected, final @NotNull JournalEntry entry) {
+    while (true) {
+      final Configuration current = configuration.get();
+      if (expected != null && current != expected) {
+        return false;
+      }
+      final Configuration changed;
+      try {
+        changed = current.withChange(entry, nodeFactory);
+      } catch (final InvalidConfigurationException | RuntimeException e) {
+        log.warn("Failed to apply configuration change {}: {}", entry, e.toString());
+        return false;
+      }
+      // Target of a move is valid after the move, so it is checked in changed configuration
+      if (isRemoteNode(current.getNetworkNodes(), entry.getPath())
+          || (entry.getTarget() != null
+              && isRemoteNode(changed.getNetworkNodes(), entry.getTarget()))) {
+        log.warn("Rejected change of read-only node of remote inventory {}", entry);
+        return false;
+      }
+      if (configuration.compareAndSet(current, changed)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Checks if node at the path belongs to remote inventory. Such nodes are replaced on every poll
+   * of the inventory, so they cannot be changed.
+   */
+  private static boolean isRemoteNode(
+      final @NotNull List<NetworkNode> nodes, final @NotNull List<Integer> path) {
+    List<NetworkNode> siblings = nodes;
+    for (int i = 0; i < path.size() - 1; i++) {
+      final int index = path.get(i);
+      if (index < 0 || index >= siblings.size()) {
+        return false;
+      }
+      final NetworkNode parent = siblings.get(index);
+      if (parent instanceof IncludeNode
+          && RemoteInventory.isRemote(((IncludeNode) parent).getFile())) {
+        return true;
+      }
+      siblings = parent.getChildNodes();
+    }
+    return false;
+  }
+
+  /**
+   * Applies changes recorded in the journal to loaded configuration.
+   *
+   * @return the changed configuration, or given one if no change was applied
+   */
+  private @NotNull Configuration replayJournal(final @NotNull Configuration config) {
+    if (journalBase == null) {
+      return config;
+    }
+    final List<JournalEntry> entries;
+    try {
+      entries = changeJournal.read(journalBase);
+      if (entries.isEmpty()) {
+        changeJournal.clear();
+        return config;
+      }
+    } catch (final IOException e) {
+      log.warn("Failed to read configuration change journal: {}", e.toString());
+      return config;
+    }
+    Configuration changed = config;
+    int replayed = 0;
+    for (final JournalEntry entry : entries) {
+      try {
+        changed = changed.withChange(entry, nodeFactory);
+        replayed++;
+      } catch (final InvalidConfigurationException | RuntimeException e) {
+        log.warn("Failed to apply configuration change {}: {}", entry, e.toString());
+        break;
+      }
+    }
+    log.info("Applied {} of {} configuration changes from journal", replayed, entries.size());
+    if (replayed == 0) {
+      clearJournal();
+    }
+    return changed;
+  }
+
+  private void clearJournal() {
+    try {
+      changeJournal.clear();
+    } catch (final IOException e) {
+      log.warn("Failed to remove configuration change journal: {}", e.toString());
+    }
+  }
+
+  /** Adds current content of the configuration file to the history, unless it is there already. */
+  private void recordHistory(final @Nullable FileFingerprint fingerprint) {
+    try {
+      if (fingerprint == null || !history.isLatest(fingerprint.getHash())) {
+        history.record(Files.readAllBytes(configurationFile.toPath()));
+      }
+    } catch (final IOException e) {
+      log.warn("Failed to record configuration history: {}", e.toString());
+    }
+  }
+
+  private @Nullable FileFingerprint fingerprintConfigurationFile() {
+    return fingerprintFile(configurationFile);
+  }
+
+  private static @Nullable FileFingerprint fingerprintFile(final @NotNull File file) {
+    try {
+      return FileFingerprint.of(file);
+    } catch (final IOException e) {
+      log.warn("Failed to read configuration file '{}': {}", file, e.toString());
+      return null;
+    }
+  }
+
+  private void saveSnapshot(
+      final @Nullable FileFingerprint fingerprint, final @NotNull Configuration config) {
+    if (fingerprint == null
+        || NodeStore.isStoreFile(configurationFile)
+        || !IncludeNode.findAll(config.getNetworkNodes()).isEmpty()) {
+      snapshotService.delete(snapshotFile);
+    } else {
+      snapshotService.save(snapshotFile, fingerprint, config);
+    }
+  }
 }
@@ -1,5 +1,6 @@
 package net.in.rrrekin.ittoolbox.configuration;
 
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INCLUDE_FILE_UNREADABLE;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_MODULE_LIST;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_MODULE_OPTIONS;
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_SERVICES_SECTION;
@@ -7,45 +8,76 @@ import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVAL
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.SERVER_LIST_UNREADABLE;
 import static org.apache.commons.lang3.StringUtils.abbreviate;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
 import java.io.BufferedInputStream;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.codec.CodecException;
+import net.in.rrrekin.ittoolbox.configuration.codec.CodecRegistry;
+import net.in.rrrekin.ittoolbox.configuration.codec.ConfigurationCodec;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentReader;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import net.in.rrrekin.ittoolbox.configuration.codec.JacksonCodec;
+import net.in.rrrekin.ittoolbox.configuration.codec.YamlCodec;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.FailedConfigurationSaveException;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.MissingConfigurationException;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
+import net.in.rrrekin.ittoolbox.configuration.remote.RemoteInventory;
+import net.in.rrrekin.ittoolbox.configuration.store.NodeStore;
 import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent;
 import net.in.rrrekin.ittoolbox.services.ServiceDefinition;
 import net.in.rrrekin.ittoolbox.services.ServiceRegistry;
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
 import net.in.rrrekin.ittoolbox.utilities.LocaleUtil;
 import net.in.rrrekin.ittoolbox.utilities.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.error.YAMLException;
 
 /**
  * Service responsible for saving and loading application configuration.
  *
+ * <p>Server list may contain include nodes that refer to separate files (e.g. one file per site or
+ * per team). Each included file contains a list of nodes. Included files are read in parallel after
+ * the configuration file, and written together with it.
+ *
+ * <p>Format of each file is selected by its extension, see {@link CodecRegistry}. Files are in
+ * YAML by default, JSON ({@code .json}) and CBOR ({@code .cbor}) are parsed much faster, so they
+ * suit large generated inventories. Any format can be compressed with gzip ({@code .gz}).
+ *
+ * <p>Configuration file with {@link NodeStore#FILE_EXTENSION} extension is kept in {@link
+ * NodeStore} instead of YAML, which writes only changed nodes on save and indexes nodes for
+ * lookups. Configuration can be moved between both formats with {@link #convert(File, File)}.
+ *
+ * <p>Include node may refer to an HTTP(S) URL of a remote inventory instead of a file. Such nodes
+ * are read-only: their child nodes are provided by {@link ConfigurationManager}, which polls the
+ * inventory, and they are never written back.
+ *
  * @author michal.rudewicz @gmail.com
  */
 @Slf4j
@@ -59,10 +91,26 @@ public class ConfigurationPersistenceService {
   private static final String LOCALE_PROPERTY = "locale";
   private static final int YAML_LINE_WIDTH = 130;
   public static final int MAX_OBJECT_DESCRIPTION_WIDTH = 40;
+
+  /**
+   * Configuration files at least this large are memory-mapped and decoded in bulk. Smaller files
+   * are read faster as buffered streams, because mapping a file has fixed cost.
+   */
+  static final long MAPPED_READ_MIN_SIZE = 1024 * 1024;
+
+  /**
+   * File cannot be replaced on Windows until its mapping is released by garbage collector, and
+   * configuration file is replaced on each save.
+   */
+  private static final boolean MAPPED_READ_SUPPORTED =
+      !System.getProperty("os.name", "").startsWith("Windows");
+
   private final @NonNull DumperOptions yamlOptions;
+  private final @NonNull CodecRegistry codecs;
   private final @NonNull ServiceRegistry serviceRegistry;
   private final @NonNull NodeFactory nodeFactory;
   private final @NonNull EventBus eventBus;
+  private final @NotNull Map<File, NodeStore> nodeStores = Maps.newConcurrentMap();
 
   /**
    * Instantiates a new Configuration persistence service.
@@ -86,6 +134,8 @@ public class ConfigurationPersistenceService {
     yamlOptions.setVersion(DumperOptions.Version.V1_1);
     yamlOptions.setPrettyFlow(true);
     yamlOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+    codecs =
+        new CodecRegistry(new YamlCodec(yamlOptions), JacksonCodec.json(), JacksonCodec.cbor());
     this.serviceRegistry = serviceRegistry;
     this.nodeFactory = nodeFactory;
     this.eventBus = eventBus;
@@ -95,7 +145,11 @@ public class ConfigurationPersistenceService {
   // TODO: Introduce exceptions to reject reload of invalid configuration.
 
   /**
-   * Creates a new Configuration object based on a configuration YAML file.
+   * Creates a new Configuration object based on a configuration file. The file is read as a
+   * stream of document elements, so network nodes are built without intermediate DTO maps. Child
+   * nodes of include nodes are read from included files, see {@link #loadIncludes(File, List)}.
+   * Files of at least {@link #MAPPED_READ_MIN_SIZE} bytes are memory-mapped instead of read through
+   * a stream. Mapped file is read again through a stream if it was truncated while being read.
    *
    * @param configFile the config file
    * @return the configuration
@@ -106,149 +160,545 @@ public class ConfigurationPersistenceService {
       throws InvalidConfigurationException, MissingConfigurationException {
 
     log.info("Loading configuration from '{}'", configFile);
-    final Yaml yaml = new Yaml(yamlOptions);
-    final Map<String, ?> configurationDto;
-    try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(configFile))) {
-      configurationDto = yaml.load(inputStream);
+    if (NodeStore.isStoreFile(configFile)) {
+      return loadStore(configFile);
+    }
+    final ConfigurationCodec codec = codecs.forFile(configFile);
+    try {
+      Configuration config = null;
+      if (MAPPED_READ_SUPPORTED && configFile.length() >= MAPPED_READ_MIN_SIZE) {
+        try {
+          config = readMapped(configFile, codec);
+        } catch (final InternalError e) {
+          // Access to pages of mapped file truncated by other process is reported this way
+          log.warn(
+              "Mapped configuration file ({}) changed while read, reading it again: {}",
+              configFile,
+              e.toString());
+        }
+      }
+      if (config == null) {
+        try (final InputStream input = new BufferedInputStream(new FileInputStream(configFile))) {
+          config = readConfiguration(codec.openReader(input), configFile);
+        }
+      }
+      return withIncludes(configFile, config);
     } catch (final FileNotFoundException e) {
       log.warn("Configuration file ({}) not present.", configFile);
       throw new MissingConfigurationException("EX_MISSING_CFG_FILE", e, configFile);
-    } catch (final YAMLException | IOException | ClassCastException e) {
+    } catch (final YAMLException | CodecException | IOException e) {
       log.warn("Failed to read configuration file ({}): {}", configFile, e.getLocalizedMessage());
       throw new InvalidConfigurationException("EX_UNREADABLE_CFG_FILE", e, configFile);
     }
+  }
 
-    if (configurationDto == null) {
-      throw new InvalidConfigurationException("EX_UNREADABLE_CFG_FILE", configFile);
+  /**
+   * Reads configuration from memory-mapped file.
+   *
+   * @return the configuration or null if the file is too small or too large to be mapped
+   */
+  private @Nullable Configuration readMapped(
+      final @NotNull File configFile, final @NotNull ConfigurationCodec codec)
+      throws IOException, InvalidConfigurationException {
+    try (final FileInputStream input = new FileInputStream(configFile)) {
+      final FileChannel channel = input.getChannel();
+      final long size = channel.size();
+      if (size < MAPPED_READ_MIN_SIZE || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      return readConfiguration(
+          codec.openReader(channel.map(MapMode.READ_ONLY, 0, size)), configFile);
     }
+  }
 
-    if (configurationDto.get(LOCALE_PROPERTY) != null) {
-      LocaleUtil.setLocale(
-          Locale.forLanguageTag(String.valueOf(configurationDto.get(LOCALE_PROPERTY))));
+  private @NotNull Configuration loadStore(final @NotNull File storeFile)
+      throws InvalidConfigurationException, MissingConfigurationException {
+    try {
+      final NodeStore.Content content = getNodeStore(storeFile).load();
+      if (content.getLocaleCode() != null) {
+        LocaleUtil.setLocale(Locale.forLanguageTag(content.getLocaleCode()));
+      }
+      configureServices(content.getServices());
+      return withIncludes(
+          storeFile, new Configuration(content.getNetworkNodes(), content.getModules()));
+    } catch (final FileNotFoundException e) {
+      log.warn("Configuration file ({}) not present.", storeFile);
+      throw new MissingConfigurationException("EX_MISSING_CFG_FILE", e, storeFile);
+    } catch (final IOException e) {
+      log.warn("Failed to read configuration file ({}): {}", storeFile, e.getLocalizedMessage());
+      throw new InvalidConfigurationException("EX_UNREADABLE_CFG_FILE", e, storeFile);
     }
+  }
 
-    // TODO: simplify
-    final Object version = configurationDto.get(VERSION_PROPERTY);
-    if (VERSION.equals(version)) {
-      // Read Network nodes configuration
-      final List<NetworkNode> networkNodes;
-      final Object serversDto = configurationDto.get(SERVERS_PROPERTY);
-      if (serversDto instanceof List) {
-        networkNodes = nodeFactory.createNodeList((List<?>) serversDto, SERVERS_PROPERTY);
-      } else {
-        log.warn("Failed to read server list.");
-        eventBus.post(
-            new ConfigurationErrorEvent(
-                SERVER_LIST_UNREADABLE, LocaleUtil.localMessage("CFG_SERVER_LIST_UNREADABLE")));
-        networkNodes = Lists.newArrayList();
+  private @NotNull Configuration withIncludes(
+      final @NotNull File configFile, final @NotNull Configuration config) {
+    final List<IncludeNode> includes = IncludeNode.findAll(config.getNetworkNodes());
+    return includes.isEmpty()
+        ? config
+        : config.withIncludes(includes, loadIncludes(configFile, includes));
+  }
+
+  /**
+   * Gets node store of the file. The same store instance is always returned for the file, so
+   * nodes can be found in indexes of the store after configuration is loaded from it or saved to
+   * it.
+   *
+   * @param storeFile the node store file
+   * @return the node store
+   */
+  public @NotNull NodeStore getNodeStore(final @NonNull File storeFile) {
+    return nodeStores.computeIfAbsent(storeFile.getAbsoluteFile(), NodeStore::new);
+  }
+
+  /**
+   * Reads child nodes of include nodes from included files. Files are read in parallel, errors
+   * found in the files are posted in order of include nodes after all files are read. Include node
+   * of a file that cannot be read is returned without child nodes and without source fingerprint,
+   * so the file is not overwritten when configuration is saved. Include nodes of remote
+   * inventories are returned without child nodes, see {@link #readRemoteNodes(URL, InputStream)}.
+   *
+   * @param configFile the configuration file that contains include nodes
+   * @param includes the include nodes
+   * @return copies of include nodes with child nodes read from included files, in the same order
+   */
+  public @NotNull List<IncludeNode> loadIncludes(
+      final @NonNull File configFile, final @NonNull List<IncludeNode> includes) {
+    final List<LoadedInclude> loadedIncludes =
+        includes.parallelStream()
+            .map(include -> readInclude(configFile, include))
+            .collect(Collectors.toList());
+    final List<IncludeNode> response = Lists.newArrayListWithCapacity(loadedIncludes.size());
+    for (final LoadedInclude loadedInclude : loadedIncludes) {
+      loadedInclude.errors.forEach(eventBus::post);
+      response.add(loadedInclude.node);
+    }
+    return response;
+  }
+
+  private @NotNull LoadedInclude readInclude(
+      final @NotNull File configFile, final @NotNull IncludeNode include) {
+    final List<ConfigurationErrorEvent> errors = Lists.newArrayList();
+    if (RemoteInventory.isRemote(include.getFile())) {
+      return new LoadedInclude(include.withChildNodes(Lists.newArrayList(), null), errors);
+    }
+    final File file = include.resolve(configFile);
+    try {
+      // Modification time is read before the content, so later changes are always detected
+      final long lastModified = file.lastModified();
+      final byte[] content = Files.readAllBytes(file.toPath());
+      final FileFingerprint fingerprint =
+          new FileFingerprint(content.length, lastModified, Hashing.sha256().hashBytes(content));
+      final DocumentReader reader = codecs.forFile(file).openReader(ByteBuffer.wrap(content));
+      List<NetworkNode> childNodes = Lists.newArrayList();
+      if (reader.readDocumentStart()) {
+        if (!reader.isSequenceStart()) {
+          throw new CodecException("expected list of nodes");
+        }
+        childNodes = nodeFactory.withErrorSink(errors::add).readNodeList(reader, include.getFile());
+        reader.readDocumentEnd();
       }
+      log.debug("Included file '{}' loaded", file);
+      return new LoadedInclude(include.withChildNodes(childNodes, fingerprint), errors);
+    } catch (final IOException | YAMLException | CodecException e) {
+      log.warn("Failed to read included file ({}): {}", file, e.getLocalizedMessage());
+      errors.clear();
+      errors.add(
+          new ConfigurationErrorEvent(
+              INCLUDE_FILE_UNREADABLE,
+              LocaleUtil.localMessage(
+                  "CFG_INCLUDE_FILE_UNREADABLE", file, e.getLocalizedMessage())));
+      return new LoadedInclude(include.withChildNodes(Lists.newArrayList(), null), errors);
+    }
+  }
 
-      // Read application modules configuration
-      final Map<String, Map<String, String>> modules = Maps.newHashMap();
-      final Object modulesDto = configurationDto.get(MODULES_PROPERTY);
-      if (modulesDto instanceof Map) {
-        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) modulesDto).entrySet()) {
-          final String moduleId = StringUtils.toStringOrEmpty(entry.getKey());
-          final Object optionsDto = entry.getValue();
-          final Map<String, String> moduleConfig = Maps.newHashMap();
-          modules.put(moduleId, moduleConfig);
-          if (optionsDto instanceof Map) {
-            for (final Map.Entry<?, ?> optionEntry : ((Map<?, ?>) optionsDto).entrySet()) {
-              final String optionId = StringUtils.toStringOrEmpty(optionEntry.getKey());
-              final String optionValue = StringUtils.toStringOrEmpty(optionEntry.getValue());
-              moduleConfig.put(optionId, optionValue);
-            }
+  /**
+   * Reads nodes of a remote inventory. Content is parsed while it is received. Format is selected
+   * by the path of the URL, as for files. Content is either a list of nodes, like included files,
+   * or a mapping with the list of nodes in {@code servers} entry, like configuration file. Invalid
+   * nodes are skipped and logged.
+   *
+   * @param url the URL of the inventory
+   * @param body the content of the inventory
+   * @return the nodes
+   * @throws IOException when content cannot be read or does not contain list of nodes
+   */
+  public @NotNull List<NetworkNode> readRemoteNodes(
+      final @NonNull URL url, final @NonNull InputStream body) throws IOException {
+    final List<ConfigurationErrorEvent> errors = Lists.newArrayList();
+    final String location = url.toString();
+    final List<NetworkNode> nodes;
+    try {
+      final DocumentReader reader = codecs.forFile(new File(url.getPath())).openReader(body);
+      if (!reader.readDocumentStart()) {
+        return Lists.newArrayList();
+      }
+      if (reader.isSequenceStart()) {
+        nodes = nodeFactory.withErrorSink(errors::add).readNodeList(reader, location);
+      } else if (reader.isMappingStart()) {
+        List<NetworkNode> servers = null;
+        reader.readMappingStart();
+        while (!reader.isMappingEnd()) {
+          if (SERVERS_PROPERTY.equals(reader.readString()) && reader.isSequenceStart()) {
+            servers = nodeFactory.withErrorSink(errors::add).readNodeList(reader, location);
           } else {
-            log.warn("Failed to read options for module {}", moduleId);
-            eventBus.post(
-                new ConfigurationErrorEvent(
-                    INVALID_MODULE_OPTIONS,
-                    LocaleUtil.localMessage(
-                        "CFG_INVALID_MODULE_OPTIONS",
-                        moduleId,
-                        abbreviate(String.valueOf(optionsDto), MAX_OBJECT_DESCRIPTION_WIDTH))));
+            reader.skipValue();
           }
         }
+        reader.readMappingEnd();
+        if (servers == null) {
+          throw new CodecException("expected list of nodes");
+        }
+        nodes = servers;
       } else {
-        log.warn("Failed to read application modules configuration.");
-        eventBus.post(
-            new ConfigurationErrorEvent(
-                INVALID_MODULE_LIST, LocaleUtil.localMessage("CFG_INVALID_MODULE_LIST")));
+        throw new CodecException("expected list of nodes");
       }
+      reader.readDocumentEnd();
+    } catch (final YAMLException | CodecException e) {
+      throw new IOException(e.getLocalizedMessage(), e);
+    }
+    errors.forEach(
+        error -> log.warn("Invalid node in remote inventory {}: {}", url, error.singleLineError()));
+    return nodes;
+  }
+
+  private @NotNull Configuration readConfiguration(
+      final @NotNull DocumentReader reader, final @NotNull File configFile)
+      throws InvalidConfigurationException {
+    if (!reader.readDocumentStart() || !reader.isMappingStart()) {
+      throw new InvalidConfigurationException("EX_UNREADABLE_CFG_FILE", configFile);
+    }
 
-      // Read service configuration
-      final Object servicesDto = configurationDto.get(SERVICES_PROPERTY);
-      if (servicesDto instanceof Map) {
-        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) servicesDto).entrySet()) {
-          final String serviceId = StringUtils.toStringOrEmpty(entry.getKey());
-          final String serviceOptions = StringUtils.toStringOrEmpty(entry.getValue());
-          try {
-            serviceRegistry.configureService(serviceId, serviceOptions);
-          } catch (final Exception e) {
-            log.warn("Failed to configure service {}.", serviceId);
-            eventBus.post(
-                new ConfigurationErrorEvent(
-                    INVALID_SERVICE_CONFIGURATION,
-                    LocaleUtil.localMessage(
-                        "CFG_INVALID_SERVICE_CONFIGURATION",
-                        serviceId,
-                        abbreviate(String.valueOf(serviceOptions), MAX_OBJECT_DESCRIPTION_WIDTH))));
+    // Network nodes are built while reading, other sections are small and are processed at the end.
+    // Nothing is built nor applied before version is validated; if the node list comes before the
+    // version, it is read as DTOs and nodes are built after the validation. Errors of nodes are
+    // posted only when whole file is read, so they are not posted twice when mapped file is read
+    // again after failure.
+    final List<ConfigurationErrorEvent> nodeErrors = Lists.newArrayList();
+    final NodeFactory factory = nodeFactory.withErrorSink(nodeErrors::add);
+    Object version = null;
+    boolean versionRead = false;
+    List<NetworkNode> networkNodes = null;
+    List<?> networkNodeDtos = null;
+    Object locale = null;
+    Object modulesDto = null;
+    Object servicesDto = null;
+    reader.readMappingStart();
+    while (!reader.isMappingEnd()) {
+      final String property = reader.readString();
+      switch (property) {
+        case VERSION_PROPERTY:
+          version = reader.readValue();
+          versionRead = true;
+          validateVersion(version, configFile);
+          break;
+        case LOCALE_PROPERTY:
+          locale = reader.readValue();
+          break;
+        case SERVERS_PROPERTY:
+          networkNodes = null;
+          networkNodeDtos = null;
+          if (!reader.isSequenceStart()) {
+            reader.skipValue();
+          } else if (versionRead) {
+            networkNodes = factory.readNodeList(reader, SERVERS_PROPERTY);
+          } else {
+            final Object dtos = reader.readValue();
+            networkNodeDtos = dtos instanceof List ? (List<?>) dtos : null;
           }
-        }
-      } else {
-        log.warn("Failed to read services list.");
-        eventBus.post(
-            new ConfigurationErrorEvent(
-                INVALID_SERVICES_SECTION, LocaleUtil.localMessage("CFG_INVALID_SERVICES_SECTION")));
+          break;
+        case MODULES_PROPERTY:
+          modulesDto = reader.readValue();
+          break;
+        case SERVICES_PROPERTY:
+          servicesDto = reader.readValue();
+          break;
+        default:
+          reader.skipValue();
       }
+    }
+    reader.readMappingEnd();
+    reader.readDocumentEnd();
 
-      return new Configuration(networkNodes, modules);
+    validateVersion(version, configFile);
+    if (locale != null) {
+      LocaleUtil.setLocale(Locale.forLanguageTag(String.valueOf(locale)));
+    }
+    if (networkNodeDtos != null) {
+      networkNodes = factory.createNodeList(networkNodeDtos, SERVERS_PROPERTY);
+    }
+    nodeErrors.forEach(eventBus::post);
 
-    } else {
+    if (networkNodes == null) {
+      log.warn("Failed to read server list.");
+      eventBus.post(
+          new ConfigurationErrorEvent(
+              SERVER_LIST_UNREADABLE, LocaleUtil.localMessage("CFG_SERVER_LIST_UNREADABLE")));
+      networkNodes = Lists.newArrayList();
+    }
+    final Map<String, Map<String, String>> modules = readModules(modulesDto);
+    configureServices(servicesDto);
+
+    return new Configuration(networkNodes, modules);
+  }
+
+  private static void validateVersion(
+      final @Nullable Object version, final @NotNull File configFile)
+      throws InvalidConfigurationException {
+    if (!VERSION.equals(version)) {
       throw new InvalidConfigurationException("EX_UNKNOWN_VERSION", configFile, version);
     }
   }
 
+  private @NotNull Map<String, Map<String, String>> readModules(final @Nullable Object modulesDto) {
+    final Map<String, Map<String, String>> modules = Maps.newHashMap();
+    if (modulesDto instanceof Map) {
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) modulesDto).entrySet()) {
+        final String moduleId = StringUtils.toStringOrEmpty(entry.getKey());
+        final Object optionsDto = entry.getValue();
+        final Map<String, String> moduleConfig = Maps.newHashMap();
+        modules.put(moduleId, moduleConfig);
+        if (optionsDto instanceof Map) {
+          for (final Map.Entry<?, ?> optionEntry : ((Map<?, ?>) optionsDto).entrySet()) {
+            final String optionId = StringUtils.toStringOrEmpty(optionEntry.getKey());
+            final String optionValue = StringUtils.toStringOrEmpty(optionEntry.getValue());
+            moduleConfig.put(optionId, optionValue);
+          }
+        } else {
+          log.warn("Failed to read options for module {}", moduleId);
+          eventBus.post(
+              new ConfigurationErrorEvent(
+                  INVALID_MODULE_OPTIONS,
+                  LocaleUtil.localMessage(
+                      "CFG_INVALID_MODULE_OPTIONS",
+                      moduleId,
+                      abbreviate(String.valueOf(optionsDto), MAX_OBJECT_DESCRIPTION_WIDTH))));
+        }
+      }
+    } else {
+      log.warn("Failed to read application modules configuration.");
+      eventBus.post(
+          new ConfigurationErrorEvent(
+              INVALID_MODULE_LIST, LocaleUtil.localMessage("CFG_INVALID_MODULE_LIST")));
+    }
+    return modules;
+  }
+
+  private void configureServices(final @Nullable Object servicesDto) {
+    if (servicesDto instanceof Map) {
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) servicesDto).entrySet()) {
+        final String serviceId = StringUtils.toStringOrEmpty(entry.getKey());
+        final String serviceOptions = StringUtils.toStringOrEmpty(entry.getValue());
+        try {
+          serviceRegistry.configureService(serviceId, serviceOptions);
+        } catch (final Exception e) {
+          log.warn("Failed to configure service {}.", serviceId);
+          eventBus.post(
+              new ConfigurationErrorEvent(
+                  INVALID_SERVICE_CONFIGURATION,
+                  LocaleUtil.localMessage(
+                      "CFG_INVALID_SERVICE_CONFIGURATION",
+                      serviceId,
+                      abbreviate(String.valueOf(serviceOptions), MAX_OBJECT_DESCRIPTION_WIDTH))));
+        }
+      }
+    } else {
+      log.warn("Failed to read services list.");
+      eventBus.post(
+          new ConfigurationErrorEvent(
+              INVALID_SERVICES_SECTION, LocaleUtil.localMessage("CFG_INVALID_SERVICES_SECTION")));
+    }
+  }
+
   /**
-   * Save configuration to file.
+   * Save configuration to file. Network nodes are written directly to the output as document
+   * elements, so no copy of the node tree is built. Child nodes of include nodes are written to
+   * included files before the configuration file. Each file is replaced atomically and only if its
+   * content changes. Included file that exists but was not read is never overwritten, nor is
+   * remote inventory.
    *
    * @param configFile the config file
    * @param config the config
+   * @return true if any file was written, false if all files already had the same content
    * @throws FailedConfigurationSaveException when unable to save the configuration to the file
    */
-  public void save(final @NonNull File configFile, final @NonNull Configuration config)
+  public boolean save(final @NonNull File configFile, final @NonNull Configuration config)
       throws FailedConfigurationSaveException {
-    final Yaml yaml = new Yaml(yamlOptions);
-    try (final BufferedWriter output =
-        new BufferedWriter(
-            new OutputStreamWriter(new FileOutputStream(configFile), StandardCharsets.UTF_8))) {
-      yaml.dump(getDto(config), output);
-    } catch (final IOException e) {
+    return save(configFile, config, null) != null;
+  }
+
+  /**
+   * Save configuration to file, see {@link #save(File, Configuration)}. Configuration file with
+   * known content, e.g. loaded or saved before, is not read to check if its content changes.
+   * Given configuration is not modified, fingerprints of written included files are set in copies
+   * of include nodes.
+   *
+   * @param configFile the config file
+   * @param config the config
+   * @param configHash the SHA-256 hash of current content of the config file, null if not known
+   * @return the saved configuration with include nodes of written files replaced by ones with
+   *     fingerprint of written content, or null if all files already had the same content
+   * @throws FailedConfigurationSaveException when unable to save the configuration to the file
+   */
+  public @Nullable Configuration save(
+      final @NonNull File configFile,
+      final @NonNull Configuration config,
+      final @Nullable HashCode configHash)
+      throws FailedConfigurationSaveException {
+    final List<IncludeNode> oldIncludes = Lists.newArrayList();
+    final List<IncludeNode> newIncludes = Lists.newArrayList();
+    for (final IncludeNode include : IncludeNode.findAll(config.getNetworkNodes())) {
+      final IncludeNode saved = saveInclude(configFile, include);
+      if (saved != include) {
+        oldIncludes.add(include);
+        newIncludes.add(saved);
+      }
+    }
+    final Configuration saved =
+        oldIncludes.isEmpty() ? config : config.withIncludes(oldIncludes, newIncludes);
+    try {
+      final boolean written =
+          NodeStore.isStoreFile(configFile)
+              ? getNodeStore(configFile)
+                  .save(config, currentServiceConfiguration(), LocaleUtil.getLocaleCode())
+              : writeFile(configFile, configHash, writer -> writeConfiguration(writer, config));
+      return written || saved != config ? saved : null;
+    } catch (final IOException | YAMLException | CodecException e) {
       log.warn("Failed to write configuration file ({}): {}", configFile, e.getLocalizedMessage());
       throw new FailedConfigurationSaveException(
           "EX_CONFIG_SAVE_ERROR", e, configFile, e.getLocalizedMessage());
     }
   }
 
-  private @NotNull Map<String, ?> getDto(final @NotNull Configuration config) {
-    final List<Map<String, ?>> serversDto =
-        config.getNetworkNodes().stream()
-            .map(NetworkNode::getDtoProperties)
-            .collect(Collectors.toList());
-    final Map<String, String> services =
-        serviceRegistry.stream()
-            .collect(
-                Collectors.toMap(ServiceDefinition::getId, ServiceDefinition::getConfiguration));
+  /**
+   * Copies configuration between files, e.g. from YAML configuration file to node store or back.
+   * Format of each file depends on its extension. Included files are shared, unless the target is
+   * in other directory and include paths are relative.
+   *
+   * @param source the source configuration file
+   * @param target the target configuration file
+   * @return true if any file was written
+   * @throws InvalidConfigurationException when source configuration cannot be properly read
+   * @throws MissingConfigurationException when source configuration file is missing
+   * @throws FailedConfigurationSaveException when unable to save the target configuration
+   */
+  public boolean convert(final @NonNull File source, final @NonNull File target)
+      throws InvalidConfigurationException, MissingConfigurationException,
+          FailedConfigurationSaveException {
+    log.info("Converting configuration from '{}' to '{}'", source, target);
+    return save(target, load(source));
+  }
+
+  /**
+   * Writes child nodes of the include node to included file, if they changed.
+   *
+   * @return copy of the include node with fingerprint of written file, or the node itself if the
+   *     file was not written
+   */
+  private @NotNull IncludeNode saveInclude(
+      final @NotNull File configFile, final @NotNull IncludeNode include)
+      throws FailedConfigurationSaveException {
+    if (RemoteInventory.isRemote(include.getFile())) {
+      return include;
+    }
+    final File file = include.resolve(configFile);
+    if (include.getSourceFingerprint() == null && file.exists()) {
+      log.warn("Included file ({}) was not read, so it is not overwritten.", file);
+      return include;
+    }
+    try {
+      final FileFingerprint source = include.getSourceFingerprint();
+      final boolean written =
+          writeFile(
+              file,
+              source == null ? null : source.getHash(),
+              writer -> {
+                writer.startDocument();
+                writer.startSequence();
+                for (final NetworkNode node : include.getChildNodes()) {
+                  node.writeDtoProperties(writer);
+                }
+                writer.endSequence();
+                writer.endDocument();
+              });
+      return written || source == null
+          ? include.withChildNodes(include.getChildNodes(), FileFingerprint.of(file))
+          : include;
+    } catch (final IOException | YAMLException | CodecException e) {
+      log.warn("Failed to write included file ({}): {}", file, e.getLocalizedMessage());
+      throw new FailedConfigurationSaveException(
+          "EX_CONFIG_SAVE_ERROR", e, file, e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * Writes file in format selected by its name, if its content changes. Content is streamed to
+   * temporary file, so no copy of the whole file is kept in memory. File is read to compare the
+   * content only if hash of its current content is not known.
+   */
+  private boolean writeFile(
+      final @NotNull File file,
+      final @Nullable HashCode currentHash,
+      final @NotNull DocumentContent content)
+      throws IOException {
+    final boolean written =
+        FileUtils.writeContentAtomicallyIfChanged(
+            file,
+            currentHash,
+            output -> {
+              try (final DocumentWriter writer = codecs.forFile(file).openWriter(output)) {
+                content.writeTo(writer);
+              }
+            });
+    if (!written) {
+      log.debug("File ({}) not changed.", file);
+    }
+    return written;
+  }
 
-    final ImmutableMap.Builder<String, Object> responseBuilder = ImmutableMap.builder();
-    responseBuilder.put(VERSION_PROPERTY, VERSION);
+  /** Writes configuration in the same layout as dump of the former map based configuration DTO. */
+  private void writeConfiguration(
+      final @NotNull DocumentWriter writer, final @NotNull Configuration config)
+      throws IOException {
+    writer.startDocument();
+    writer.startMapping();
+    writer.writeEntry(VERSION_PROPERTY, VERSION);
     if (LocaleUtil.getLocaleCode() != null) {
-      responseBuilder.put(LOCALE_PROPERTY, LocaleUtil.getLocaleCode());
+      writer.writeEntry(LOCALE_PROPERTY, LocaleUtil.getLocaleCode());
     }
-    responseBuilder.put(SERVERS_PROPERTY, serversDto);
-    responseBuilder.put(SERVICES_PROPERTY, services);
-    responseBuilder.put(MODULES_PROPERTY, config.getModules());
+    writer.writeScalar(SERVERS_PROPERTY);
+    writer.startSequence();
+    for (final NetworkNode node : config.getNetworkNodes()) {
+      node.writeDtoProperties(writer);
+    }
+    writer.endSequence();
+    writer.writeScalar(SERVICES_PROPERTY);
+    writer.writeMapping(currentServiceConfiguration());
+    writer.writeScalar(MODULES_PROPERTY);
+    writer.startMapping();
+    for (final Map.Entry<String, Map<String, String>> module : config.getModules().entrySet()) {
+      writer.writeScalar(module.getKey());
+      writer.writeMapping(module.getValue());
+    }
+    writer.endMapping();
+    writer.endMapping();
+    writer.endDocument();
+  }
+
+  private @NotNull Map<String, String> currentServiceConfiguration() {
+    return serviceRegistry.stream()
+        .collect(Collectors.toMap(ServiceDefinition::getId, ServiceDefinition::getConfiguration));
+  }
+
+  /** Content of written file. */
+  @FunctionalInterface
+  private interface DocumentContent {
+    void writeTo(@NotNull DocumentWriter writer) throws IOException;
+  }
 
-    return responseBuilder.build();
+  /** Include node read from included file and errors found in that file. */
+  @RequiredArgsConstructor
+  private static final class LoadedInclude {
+    private final @NotNull IncludeNode node;
+    private final @NotNull List<ConfigurationErrorEvent> errors;
   }
 }
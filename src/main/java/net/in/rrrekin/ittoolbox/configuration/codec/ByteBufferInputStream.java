@@ -0,0 +1,59 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Input stream of bytes held in a byte buffer, e.g. a memory-mapped file, for codecs that read
+ * streams only. Position of given buffer is not changed.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class ByteBufferInputStream extends InputStream {
+
+  private final @NotNull ByteBuffer input;
+
+  /**
+   * Instantiates a new byte buffer input stream.
+   *
+   * @param input the bytes from position to limit of the buffer
+   */
+  ByteBufferInputStream(final @NonNull ByteBuffer input) {
+    this.input = input.duplicate();
+  }
+
+  @Override
+  public int read() {
+    return input.hasRemaining() ? input.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(final byte[] buffer, final int offset, final int length) {
+    checkPositionIndexes(offset, offset + length, buffer.length);
+    if (length == 0) {
+      return 0;
+    }
+    if (!input.hasRemaining()) {
+      return -1;
+    }
+    final int count = Math.min(length, input.remaining());
+    input.get(buffer, offset, count);
+    return count;
+  }
+
+  @Override
+  public long skip(final long count) {
+    final int skipped = (int) Math.max(0, Math.min(count, input.remaining()));
+    input.position(input.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return input.remaining();
+  }
+}
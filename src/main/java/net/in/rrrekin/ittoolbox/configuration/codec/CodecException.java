@@ -0,0 +1,33 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import lombok.NonNull;
+
+/**
+ * Unchecked exception reporting invalid content or read error of a configuration document read by
+ * {@link DocumentReader}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public class CodecException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Instantiates a new Codec exception.
+   *
+   * @param message the message
+   */
+  public CodecException(final @NonNull String message) {
+    super(message);
+  }
+
+  /**
+   * Instantiates a new Codec exception.
+   *
+   * @param message the message
+   * @param cause the cause
+   */
+  public CodecException(final @NonNull String message, final @NonNull Throwable cause) {
+    super(message, cause);
+  }
+}
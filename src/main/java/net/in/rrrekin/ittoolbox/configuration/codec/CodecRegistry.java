@@ -0,0 +1,64 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Selects codec of a configuration file by its extension. Any codec can be combined with gzip
+ * compression by adding {@link GzipCodec#EXTENSION} to the file name. Files with unknown extension
+ * use the default codec.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public class CodecRegistry {
+
+  private final @NotNull ConfigurationCodec defaultCodec;
+  private final @NotNull List<ConfigurationCodec> codecs;
+
+  /**
+   * Instantiates a new Codec registry.
+   *
+   * @param defaultCodec the codec of files with unknown extension
+   * @param otherCodecs the other codecs
+   */
+  public CodecRegistry(
+      final @NonNull ConfigurationCodec defaultCodec,
+      final @NonNull ConfigurationCodec... otherCodecs) {
+    this.defaultCodec = defaultCodec;
+    codecs =
+        ImmutableList.<ConfigurationCodec>builder().add(defaultCodec).add(otherCodecs).build();
+  }
+
+  /**
+   * Gets codec of the file.
+   *
+   * @param file the file
+   * @return the codec
+   */
+  public @NotNull ConfigurationCodec forFile(final @NonNull File file) {
+    final String name = file.getName().toLowerCase(Locale.ENGLISH);
+    if (name.endsWith(GzipCodec.EXTENSION)) {
+      final ConfigurationCodec codec =
+          find(name.substring(0, name.length() - GzipCodec.EXTENSION.length()));
+      return new GzipCodec(codec == null ? defaultCodec : codec);
+    }
+    final ConfigurationCodec codec = find(name);
+    return codec == null ? defaultCodec : codec;
+  }
+
+  private @Nullable ConfigurationCodec find(final @NotNull String name) {
+    for (final ConfigurationCodec codec : codecs) {
+      for (final String extension : codec.getExtensions()) {
+        if (name.endsWith(extension)) {
+          return codec;
+        }
+      }
+    }
+    return null;
+  }
+}
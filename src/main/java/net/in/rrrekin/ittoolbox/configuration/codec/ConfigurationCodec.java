@@ -0,0 +1,62 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Format of configuration files. Codec creates readers and writers of documents stored in given
+ * format, see {@link CodecRegistry} for selection of codec by file name.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public interface ConfigurationCodec {
+
+  /**
+   * Gets file name extensions of the format, in lower case, including leading dot.
+   *
+   * @return the extensions
+   */
+  @NotNull
+  List<String> getExtensions();
+
+  /**
+   * Creates reader of the document. Input is read while the document is read, so it has to be
+   * open until reading is finished.
+   *
+   * @param input the input
+   * @return the document reader
+   * @throws IOException on read errors
+   */
+  @NotNull
+  DocumentReader openReader(@NonNull InputStream input) throws IOException;
+
+  /**
+   * Creates reader of the document held in memory, e.g. in a memory-mapped file. Document is read
+   * from position to limit of the buffer, position of the buffer is not changed. Content of the
+   * buffer is used while the document is read, so it must not be modified until reading is
+   * finished. By default the buffer is read as a stream.
+   *
+   * @param content the content of the document
+   * @return the document reader
+   * @throws IOException on read errors
+   */
+  default @NotNull DocumentReader openReader(final @NonNull ByteBuffer content)
+      throws IOException {
+    return openReader(new ByteBufferInputStream(content));
+  }
+
+  /**
+   * Creates writer of the document. Closing the writer closes the output.
+   *
+   * @param output the output
+   * @return the document writer
+   * @throws IOException on write errors
+   */
+  @NotNull
+  DocumentWriter openWriter(@NonNull OutputStream output) throws IOException;
+}
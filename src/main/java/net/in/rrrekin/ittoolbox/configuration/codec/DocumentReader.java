@@ -0,0 +1,93 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cursor over a configuration document made of mappings, sequences and scalars. Allows reading the
+ * document element by element without composing it in memory. Errors are reported with unchecked
+ * exceptions specific to the format, e.g. {@link org.yaml.snakeyaml.error.YAMLException} or {@link
+ * CodecException}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public interface DocumentReader {
+
+  /**
+   * Reads document start. Returns false if the input does not contain any document.
+   *
+   * @return true if document is available
+   */
+  boolean readDocumentStart();
+
+  /** Reads document end. Fails if input contains more than one document. */
+  void readDocumentEnd();
+
+  /**
+   * Checks if next value is a scalar.
+   *
+   * @return true if next value is a scalar
+   */
+  boolean isScalar();
+
+  /**
+   * Checks if next value is a mapping.
+   *
+   * @return true if next value is a mapping
+   */
+  boolean isMappingStart();
+
+  /**
+   * Checks if current mapping is finished.
+   *
+   * @return true if there are no more entries in current mapping
+   */
+  boolean isMappingEnd();
+
+  /**
+   * Checks if next value is a sequence.
+   *
+   * @return true if next value is a sequence
+   */
+  boolean isSequenceStart();
+
+  /**
+   * Checks if current sequence is finished.
+   *
+   * @return true if there are no more elements in current sequence
+   */
+  boolean isSequenceEnd();
+
+  /** Consumes start of a mapping. */
+  void readMappingStart();
+
+  /** Consumes end of a mapping. */
+  void readMappingEnd();
+
+  /** Consumes start of a sequence. */
+  void readSequenceStart();
+
+  /** Consumes end of a sequence. */
+  void readSequenceEnd();
+
+  /**
+   * Reads next value of any kind and converts it to string the same way as {@link
+   * net.in.rrrekin.ittoolbox.utilities.StringUtils#toStringOrEmpty(Object)} does for DTO values.
+   *
+   * @return the string representation of the value
+   */
+  @NotNull
+  String readString();
+
+  /**
+   * Reads next value. Scalars are returned as Java objects, collections are composed into {@link
+   * java.util.ArrayList} and {@link java.util.LinkedHashMap} instances.
+   *
+   * @return the value
+   */
+  @Nullable
+  Object readValue();
+
+  /** Skips next value including all nested elements. */
+  void skipValue();
+}
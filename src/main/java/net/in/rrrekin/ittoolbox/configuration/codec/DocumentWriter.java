@@ -0,0 +1,119 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writer of a configuration document made of mappings, sequences and scalars. The document is
+ * written as a stream of elements, so it does not have to be built in memory. Entries of a mapping
+ * are written as a key followed by a value.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public interface DocumentWriter extends Closeable {
+
+  /**
+   * Writes start of the document.
+   *
+   * @throws IOException on write errors
+   */
+  void startDocument() throws IOException;
+
+  /**
+   * Writes end of the document.
+   *
+   * @throws IOException on write errors
+   */
+  void endDocument() throws IOException;
+
+  /**
+   * Writes start of a mapping.
+   *
+   * @throws IOException on write errors
+   */
+  void startMapping() throws IOException;
+
+  /**
+   * Writes end of a mapping.
+   *
+   * @throws IOException on write errors
+   */
+  void endMapping() throws IOException;
+
+  /**
+   * Writes start of a sequence.
+   *
+   * @throws IOException on write errors
+   */
+  void startSequence() throws IOException;
+
+  /**
+   * Writes end of a sequence.
+   *
+   * @throws IOException on write errors
+   */
+  void endSequence() throws IOException;
+
+  /**
+   * Writes string scalar, or a key when a mapping key is expected.
+   *
+   * @param value the value
+   * @throws IOException on write errors
+   */
+  void writeScalar(@NonNull String value) throws IOException;
+
+  /**
+   * Writes mapping entry with string value.
+   *
+   * @param key the key
+   * @param value the value
+   * @throws IOException on write errors
+   */
+  default void writeEntry(final @NonNull String key, final @NonNull String value)
+      throws IOException {
+    writeScalar(key);
+    writeScalar(value);
+  }
+
+  /**
+   * Writes mapping entry with a list of strings as value.
+   *
+   * @param key the key
+   * @param values the values
+   * @throws IOException on write errors
+   */
+  default void writeEntry(final @NonNull String key, final @NonNull Iterable<String> values)
+      throws IOException {
+    writeScalar(key);
+    startSequence();
+    for (final String value : values) {
+      writeScalar(value);
+    }
+    endSequence();
+  }
+
+  /**
+   * Writes a complete mapping of strings.
+   *
+   * @param map the map
+   * @throws IOException on write errors
+   */
+  default void writeMapping(final @NotNull Map<String, String> map) throws IOException {
+    startMapping();
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      writeEntry(entry.getKey(), entry.getValue());
+    }
+    endMapping();
+  }
+
+  /**
+   * Flushes written content and closes the output.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  void close() throws IOException;
+}
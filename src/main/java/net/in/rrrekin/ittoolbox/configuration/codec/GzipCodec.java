@@ -0,0 +1,56 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Gzip compression of files in format of other codec, e.g. {@code config.json.gz}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public class GzipCodec implements ConfigurationCodec {
+
+  /** Extension added to extensions of compressed format. */
+  public static final String EXTENSION = ".gz";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final @NonNull ConfigurationCodec codec;
+  private final @NonNull List<String> extensions;
+
+  /**
+   * Instantiates a new Gzip codec.
+   *
+   * @param codec the codec of compressed format
+   */
+  public GzipCodec(final @NonNull ConfigurationCodec codec) {
+    this.codec = codec;
+    extensions =
+        codec.getExtensions().stream()
+            .map(extension -> extension + EXTENSION)
+            .collect(Collectors.toList());
+  }
+
+  @Override
+  public @NotNull List<String> getExtensions() {
+    return extensions;
+  }
+
+  @Override
+  public @NotNull DocumentReader openReader(final @NonNull InputStream input) throws IOException {
+    return codec.openReader(new GZIPInputStream(input, BUFFER_SIZE));
+  }
+
+  @Override
+  public @NotNull DocumentWriter openWriter(final @NonNull OutputStream output)
+      throws IOException {
+    return codec.openWriter(new GZIPOutputStream(output, BUFFER_SIZE));
+  }
+}
@@ -0,0 +1,187 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import static net.in.rrrekin.ittoolbox.utilities.StringUtils.toStringOrEmpty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cursor over tokens of Jackson streaming parser. Keys of mappings are read as strings, numbers as
+ * {@link Integer}, {@link Long}, {@link java.math.BigInteger} or {@link Double}. Parser errors are
+ * reported as {@link CodecException}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class JacksonDocumentReader implements DocumentReader {
+
+  private final @NonNull JsonParser parser;
+  /** Token the parser is positioned at, if not consumed yet. */
+  private @Nullable JsonToken peeked = null;
+
+  JacksonDocumentReader(final @NonNull JsonParser parser) {
+    this.parser = parser;
+  }
+
+  @Override
+  public boolean readDocumentStart() {
+    peeked = nextToken();
+    return peeked != null;
+  }
+
+  @Override
+  public void readDocumentEnd() {
+    if (peeked != null || nextToken() != null) {
+      throw new CodecException("expected a single document");
+    }
+  }
+
+  @Override
+  public boolean isScalar() {
+    final JsonToken token = peek();
+    return token.isScalarValue() || token == JsonToken.FIELD_NAME;
+  }
+
+  @Override
+  public boolean isMappingStart() {
+    return peek() == JsonToken.START_OBJECT;
+  }
+
+  @Override
+  public boolean isMappingEnd() {
+    return peek() == JsonToken.END_OBJECT;
+  }
+
+  @Override
+  public boolean isSequenceStart() {
+    return peek() == JsonToken.START_ARRAY;
+  }
+
+  @Override
+  public boolean isSequenceEnd() {
+    return peek() == JsonToken.END_ARRAY;
+  }
+
+  @Override
+  public void readMappingStart() {
+    expect(JsonToken.START_OBJECT);
+  }
+
+  @Override
+  public void readMappingEnd() {
+    expect(JsonToken.END_OBJECT);
+  }
+
+  @Override
+  public void readSequenceStart() {
+    expect(JsonToken.START_ARRAY);
+  }
+
+  @Override
+  public void readSequenceEnd() {
+    expect(JsonToken.END_ARRAY);
+  }
+
+  @Override
+  public @NotNull String readString() {
+    return toStringOrEmpty(readValue());
+  }
+
+  @Override
+  public @Nullable Object readValue() {
+    final JsonToken token = next();
+    switch (token) {
+      case FIELD_NAME:
+        return parse(parser::getCurrentName);
+      case VALUE_STRING:
+        return parse(parser::getText);
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parse(parser::getNumberValue);
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      case VALUE_EMBEDDED_OBJECT:
+        return parse(parser::getEmbeddedObject);
+      case START_ARRAY:
+        final List<Object> list = Lists.newArrayList();
+        while (!isSequenceEnd()) {
+          list.add(readValue());
+        }
+        next();
+        return list;
+      case START_OBJECT:
+        final Map<Object, Object> map = Maps.newLinkedHashMap();
+        while (!isMappingEnd()) {
+          final Object key = readValue();
+          map.put(key, readValue());
+        }
+        next();
+        return map;
+      default:
+        throw new CodecException("unexpected token " + token);
+    }
+  }
+
+  @Override
+  public void skipValue() {
+    final JsonToken token = next();
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      parse(parser::skipChildren);
+    } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+      throw new CodecException("unexpected token " + token);
+    }
+  }
+
+  private @NotNull JsonToken peek() {
+    if (peeked == null) {
+      peeked = nextToken();
+      if (peeked == null) {
+        throw new CodecException("unexpected end of document");
+      }
+    }
+    return peeked;
+  }
+
+  /** Consumes the token, the parser stays positioned at it until next token is peeked. */
+  private @NotNull JsonToken next() {
+    final JsonToken token = peek();
+    peeked = null;
+    return token;
+  }
+
+  private void expect(final @NotNull JsonToken expected) {
+    final JsonToken token = next();
+    if (token != expected) {
+      throw new CodecException("expected " + expected + " but found " + token);
+    }
+  }
+
+  private @Nullable JsonToken nextToken() {
+    return parse(parser::nextToken);
+  }
+
+  private <T> T parse(final @NotNull ParserCall<T> call) {
+    try {
+      return call.call();
+    } catch (final IOException e) {
+      throw new CodecException(e.getMessage() == null ? e.toString() : e.getMessage(), e);
+    }
+  }
+
+  /** Call of parser method. */
+  @FunctionalInterface
+  private interface ParserCall<T> {
+    T call() throws IOException;
+  }
+}
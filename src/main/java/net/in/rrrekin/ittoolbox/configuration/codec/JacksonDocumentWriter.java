@@ -0,0 +1,104 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import lombok.NonNull;
+
+/**
+ * Writes document with Jackson streaming generator. Scalars written where mapping key is expected
+ * become field names.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class JacksonDocumentWriter implements DocumentWriter {
+
+  /** Position in the document, for each open collection. */
+  private enum Position {
+    ROOT,
+    SEQUENCE,
+    MAPPING_KEY,
+    MAPPING_VALUE
+  }
+
+  private final @NonNull JsonGenerator generator;
+  private final Deque<Position> positions = new ArrayDeque<>();
+
+  JacksonDocumentWriter(final @NonNull JsonGenerator generator) {
+    this.generator = generator;
+    positions.push(Position.ROOT);
+  }
+
+  @Override
+  public void startDocument() {
+    positions.clear();
+    positions.push(Position.ROOT);
+  }
+
+  @Override
+  public void endDocument() throws IOException {
+    generator.flush();
+  }
+
+  @Override
+  public void startMapping() throws IOException {
+    startCollection();
+    generator.writeStartObject();
+    positions.push(Position.MAPPING_KEY);
+  }
+
+  @Override
+  public void endMapping() throws IOException {
+    positions.pop();
+    generator.writeEndObject();
+  }
+
+  @Override
+  public void startSequence() throws IOException {
+    startCollection();
+    generator.writeStartArray();
+    positions.push(Position.SEQUENCE);
+  }
+
+  @Override
+  public void endSequence() throws IOException {
+    positions.pop();
+    generator.writeEndArray();
+  }
+
+  @Override
+  public void writeScalar(final @NonNull String value) throws IOException {
+    if (startValue()) {
+      generator.writeFieldName(value);
+    } else {
+      generator.writeString(value);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+  }
+
+  private void startCollection() throws IOException {
+    if (startValue()) {
+      throw new IOException("Mapping key has to be a scalar");
+    }
+  }
+
+  /** Moves to the next position in current collection. Returns true if mapping key is expected. */
+  private boolean startValue() {
+    final Position position = positions.peek();
+    if (position == Position.MAPPING_KEY) {
+      positions.pop();
+      positions.push(Position.MAPPING_VALUE);
+      return true;
+    }
+    if (position == Position.MAPPING_VALUE) {
+      positions.pop();
+      positions.push(Position.MAPPING_KEY);
+    }
+    return false;
+  }
+}
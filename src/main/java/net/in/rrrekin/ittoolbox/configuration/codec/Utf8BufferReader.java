@@ -0,0 +1,129 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reader of UTF-8 text held in a byte buffer, e.g. a memory-mapped file. Bytes are decoded in bulk
+ * straight into the array of the caller, without the intermediate char buffer of {@link
+ * java.io.InputStreamReader}. Bytes of direct buffers are copied to a heap buffer in large chunks
+ * first, because UTF-8 decoder is several times faster on arrays. Malformed input is reported as
+ * {@link java.nio.charset.CharacterCodingException}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class Utf8BufferReader extends Reader {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  /** Maximum length of UTF-8 encoded character. */
+  private static final int MAX_SEQUENCE_LENGTH = 4;
+
+  private final @NotNull ByteBuffer source;
+  /** Bytes being decoded, the source itself if it is a heap buffer. */
+  private final @NotNull ByteBuffer input;
+  private final @NotNull CharsetDecoder decoder =
+      UTF_8
+          .newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT);
+  /** Low surrogate left over when caller asked for single char of a surrogate pair. */
+  private final @NotNull CharBuffer pending = CharBuffer.allocate(2);
+
+  private boolean finished = false;
+
+  /**
+   * Instantiates a new UTF-8 buffer reader. Text is read from position to limit of the buffer,
+   * position of given buffer is not changed.
+   *
+   * @param input the UTF-8 encoded text
+   */
+  Utf8BufferReader(final @NonNull ByteBuffer input) {
+    source = input.duplicate();
+    if (source.hasArray()) {
+      this.input = source;
+    } else {
+      this.input = ByteBuffer.allocate(CHUNK_SIZE);
+      this.input.flip();
+    }
+    pending.flip();
+  }
+
+  @Override
+  public int read(final char[] buffer, final int offset, final int length) throws IOException {
+    checkPositionIndexes(offset, offset + length, buffer.length);
+    if (length == 0) {
+      return 0;
+    }
+    final CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+    if (pending.hasRemaining()) {
+      output.put(pending.get());
+    }
+    decode(output);
+    if (output.position() == offset && !finished) {
+      // Single char requested and next character needs a surrogate pair
+      pending.clear();
+      decode(pending);
+      pending.flip();
+      output.put(pending.get());
+    }
+    final int count = output.position() - offset;
+    return count == 0 ? -1 : count;
+  }
+
+  @Override
+  public boolean ready() {
+    return !finished || pending.hasRemaining();
+  }
+
+  @Override
+  public void close() {
+    finished = true;
+    source.position(source.limit());
+    input.position(input.limit());
+    pending.position(pending.limit());
+  }
+
+  private void decode(final @NotNull CharBuffer output) throws IOException {
+    while (!finished && output.hasRemaining()) {
+      final boolean endOfInput = refill();
+      CoderResult result = decoder.decode(input, output, endOfInput);
+      if (result.isUnderflow() && endOfInput) {
+        result = decoder.flush(output);
+        finished = result.isUnderflow();
+      }
+      if (result.isError()) {
+        result.throwException();
+      }
+      if (result.isOverflow()) {
+        return;
+      }
+    }
+  }
+
+  /** Copies next chunk of the source to the input if needed, returns true if all bytes are read. */
+  private boolean refill() {
+    if (input == source) {
+      return true;
+    }
+    if (input.remaining() < MAX_SEQUENCE_LENGTH && source.hasRemaining()) {
+      input.compact();
+      final int count = Math.min(input.remaining(), source.remaining());
+      final ByteBuffer chunk = source.duplicate();
+      chunk.limit(chunk.position() + count);
+      input.put(chunk);
+      source.position(chunk.position());
+      input.flip();
+    }
+    return !source.hasRemaining();
+  }
+}
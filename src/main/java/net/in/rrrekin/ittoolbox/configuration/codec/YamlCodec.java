@@ -0,0 +1,84 @@
+package net.in.rrrekin.ittoolbox.configuration.codec;
+
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventReader;
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventWriter;
+import org.jetbrains.annotations.NotNull;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+/**
+ * YAML format, easy to edit by humans. Documents are read and written as streams of SnakeYAML
+ * events. Documents held in memory are decoded from UTF-8 in bulk, other encodings recognized by
+ * byte order mark are read as streams.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public class YamlCodec implements ConfigurationCodec {
+
+  private static final List<String> EXTENSIONS = ImmutableList.of(".yml", ".yaml");
+  private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+  private static final byte[] UTF16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+  private static final byte[] UTF16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+  private final @NonNull DumperOptions options;
+
+  /**
+   * Instantiates a new YAML codec.
+   *
+   * @param options the options of written and parsed YAML
+   */
+  public YamlCodec(final @NonNull DumperOptions options) {
+    this.options = options;
+  }
+
+  @Override
+  public @NotNull List<String> getExtensions() {
+    return EXTENSIONS;
+  }
+
+  @Override
+  public @NotNull DocumentReader openReader(final @NonNull InputStream input) {
+    return new YamlEventReader(new Yaml(options).parse(new UnicodeReader(input)));
+  }
+
+  @Override
+  public @NotNull DocumentReader openReader(final @NonNull ByteBuffer content)
+      throws IOException {
+    final ByteBuffer text = content.duplicate();
+    if (startsWith(text, UTF8_BOM)) {
+      text.position(text.position() + UTF8_BOM.length);
+    } else if (startsWith(text, UTF16BE_BOM) || startsWith(text, UTF16LE_BOM)) {
+      return ConfigurationCodec.super.openReader(content);
+    }
+    return new YamlEventReader(new Yaml(options).parse(new Utf8BufferReader(text)));
+  }
+
+  @Override
+  public @NotNull DocumentWriter openWriter(final @NonNull OutputStream output) {
+    return new YamlEventWriter(
+        new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), options);
+  }
+
+  private static boolean startsWith(final @NotNull ByteBuffer content, final byte[] prefix) {
+    if (content.remaining() < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (content.get(content.position() + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
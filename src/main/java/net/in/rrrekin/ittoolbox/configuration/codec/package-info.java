@@ -0,0 +1,7 @@
+/**
+ * Codecs of configuration files. Codec is selected by file extension, all codecs give access to
+ * the same structure of mappings, sequences and scalars.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.codec;
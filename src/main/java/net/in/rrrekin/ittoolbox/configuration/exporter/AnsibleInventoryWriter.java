@@ -0,0 +1,116 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes nodes as Ansible inventory in INI format. Each group path becomes a group named with the
+ * path, where characters not allowed in group names are replaced with {@code _}, e.g. nodes of
+ * group {@code web} in group {@code dc-1} belong to {@code dc_1_web}. Top level nodes belong to
+ * {@code ungrouped} group. Address of a server is written as {@code ansible_host} variable,
+ * description and custom properties as host variables.
+ *
+ * <p>Section is started every time group path changes, so nodes are written in document order and
+ * a group may have several sections, which Ansible merges.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class AnsibleInventoryWriter implements InventoryWriter {
+
+  static final String UNGROUPED = "ungrouped";
+  static final String ADDRESS_VARIABLE = "ansible_host";
+  static final String DESCRIPTION_VARIABLE = "description";
+  private static final char LINE_END = '\n';
+
+  private final @NonNull Writer output;
+  private @Nullable String currentGroupPath = null;
+
+  AnsibleInventoryWriter(final @NonNull Writer output) {
+    this.output = output;
+  }
+
+  @Override
+  public void start(final @NonNull Collection<String> propertyNames) {
+    // Variables are written for each host
+  }
+
+  @Override
+  public void node(final @NonNull String groupPath, final @NonNull NetworkNode node)
+      throws IOException {
+    if (!groupPath.equals(currentGroupPath)) {
+      // Hosts written before first section are ungrouped too
+      if (currentGroupPath != null || !groupPath.isEmpty()) {
+        output.write('[');
+        output.write(groupPath.isEmpty() ? UNGROUPED : identifier(groupPath));
+        output.write(']');
+        output.write(LINE_END);
+      }
+      currentGroupPath = groupPath;
+    }
+    output.write(node.getName().replaceAll("\\s", "_"));
+    if (node instanceof Server) {
+      writeVariable(ADDRESS_VARIABLE, ((Server) node).getAddress());
+    }
+    writeVariable(DESCRIPTION_VARIABLE, node.getDescription());
+    for (final Map.Entry<String, String> property : node.getProperties().entrySet()) {
+      writeVariable(identifier(property.getKey()), property.getValue());
+    }
+    output.write(LINE_END);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    output.flush();
+  }
+
+  private void writeVariable(final @NotNull String name, final @NotNull String value)
+      throws IOException {
+    if (value.isEmpty()) {
+      return;
+    }
+    output.write(' ');
+    output.write(name);
+    output.write('=');
+    if (value.indexOf('"') < 0 && !needsQuotes(value)) {
+      output.write(value);
+    } else if (value.indexOf('\'') < 0) {
+      output.write('\'');
+      output.write(value);
+      output.write('\'');
+    } else {
+      output.write('"');
+      output.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+      output.write('"');
+    }
+  }
+
+  private static boolean needsQuotes(final @NotNull String value) {
+    for (int i = 0; i < value.length(); i++) {
+      final char current = value.charAt(i);
+      if (Character.isWhitespace(current) || current == '#' || current == '\'') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Replaces characters not allowed in Ansible group and variable names. */
+  static @NotNull String identifier(final @NotNull String name) {
+    final StringBuilder response = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char current = name.charAt(i);
+      response.append(
+          current < 128 && (Character.isLetterOrDigit(current) || current == '_')
+              ? current
+              : '_');
+    }
+    return response.toString();
+  }
+}
@@ -0,0 +1,126 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.ADDRESS_PROEPRTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.DESCRIPTION_PROPERTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.NAME_PROPERTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.PROPERTIES_PREFIX;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.SERVICES_PROPERTY;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes nodes as CSV with header row, as described in RFC 4180. Columns are name, address,
+ * description, group path, services separated by {@code ;} and custom properties named with
+ * {@code _} prefix, as in configuration file. The file can be imported back with {@link
+ * net.in.rrrekin.ittoolbox.configuration.importer.InventoryFormat#CSV}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class CsvInventoryWriter implements InventoryWriter {
+
+  static final String GROUP_COLUMN = "group";
+  private static final char SEPARATOR = ',';
+  private static final char QUOTE = '"';
+  private static final String LINE_END = "\r\n";
+  private static final Joiner SERVICES_JOINER = Joiner.on(';');
+
+  private final @NonNull Writer output;
+  private List<String> propertyNames = ImmutableList.of();
+
+  CsvInventoryWriter(final @NonNull Writer output) {
+    this.output = output;
+  }
+
+  @Override
+  public void start(final @NonNull Collection<String> propertyNames) throws IOException {
+    this.propertyNames = ImmutableList.copyOf(propertyNames);
+    output.write(NAME_PROPERTY);
+    output.write(SEPARATOR);
+    output.write(ADDRESS_PROEPRTY);
+    output.write(SEPARATOR);
+    output.write(DESCRIPTION_PROPERTY);
+    output.write(SEPARATOR);
+    output.write(GROUP_COLUMN);
+    output.write(SEPARATOR);
+    output.write(SERVICES_PROPERTY);
+    for (final String name : propertyNames) {
+      output.write(SEPARATOR);
+      writeField(PROPERTIES_PREFIX + name);
+    }
+    output.write(LINE_END);
+  }
+
+  @Override
+  public void node(final @NonNull String groupPath, final @NonNull NetworkNode node)
+      throws IOException {
+    writeField(node.getName());
+    output.write(SEPARATOR);
+    if (node instanceof Server) {
+      writeField(((Server) node).getAddress());
+    }
+    output.write(SEPARATOR);
+    writeField(node.getDescription());
+    output.write(SEPARATOR);
+    writeField(groupPath);
+    output.write(SEPARATOR);
+    writeField(SERVICES_JOINER.join(node.getServiceDescriptors()));
+    final Map<String, String> properties = node.getProperties();
+    for (final String name : propertyNames) {
+      output.write(SEPARATOR);
+      final String value = properties.get(name);
+      if (value != null) {
+        writeField(value);
+      }
+    }
+    output.write(LINE_END);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    output.flush();
+  }
+
+  /** Writes the field, quoted if it contains special characters or white space at its ends. */
+  private void writeField(final @NotNull String value) throws IOException {
+    if (!needsQuotes(value)) {
+      output.write(value);
+      return;
+    }
+    output.write(QUOTE);
+    for (int i = 0; i < value.length(); i++) {
+      final char current = value.charAt(i);
+      if (current == QUOTE) {
+        output.write(QUOTE);
+      }
+      output.write(current);
+    }
+    output.write(QUOTE);
+  }
+
+  private static boolean needsQuotes(final @NotNull String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    if (Character.isWhitespace(value.charAt(0))
+        || Character.isWhitespace(value.charAt(value.length() - 1))) {
+      return true;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      final char current = value.charAt(i);
+      if (current == SEPARATOR || current == QUOTE || current == '\n' || current == '\r') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,38 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import java.io.Writer;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Supported export formats.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@RequiredArgsConstructor
+public enum ExportFormat {
+  /** CSV with header row, see {@link CsvInventoryWriter}. */
+  CSV(".csv", CsvInventoryWriter::new),
+  /** JSON object per line, see {@link JsonLinesInventoryWriter}. */
+  JSON_LINES(".jsonl", JsonLinesInventoryWriter::new),
+  /** Ansible inventory in INI format, see {@link AnsibleInventoryWriter}. */
+  ANSIBLE_INI(".ini", AnsibleInventoryWriter::new);
+
+  /** Usual extension of exported files. */
+  @Getter private final @NonNull String extension;
+
+  private final @NonNull Function<Writer, InventoryWriter> writerFactory;
+
+  /**
+   * Creates new writer of this format.
+   *
+   * @param output the output
+   * @return the writer
+   */
+  public @NotNull InventoryWriter newWriter(final @NonNull Writer output) {
+    return writerFactory.apply(output);
+  }
+}
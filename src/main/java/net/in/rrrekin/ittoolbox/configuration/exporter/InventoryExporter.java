@@ -0,0 +1,115 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Exports network nodes of the configuration. Node tree is walked in document order and each
+ * node, except groups, is passed to the writer together with path of its group, so nodes are
+ * written one by one without creating their DTOs. Nodes of included files are exported as nodes
+ * of the include node.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class InventoryExporter {
+
+  /** Separator of group names in group path, the same as in location of nodes in errors. */
+  public static final char GROUP_PATH_SEPARATOR = '/';
+
+  /**
+   * Exports the configuration to the file. The file is replaced atomically, it is not changed if
+   * export fails.
+   *
+   * @param configuration the configuration
+   * @param format the export format
+   * @param file the target file
+   * @return number of exported nodes
+   * @throws IOException on write errors
+   */
+  public int export(
+      final @NonNull Configuration configuration,
+      final @NonNull ExportFormat format,
+      final @NonNull File file)
+      throws IOException {
+    final int[] count = {0};
+    FileUtils.writeContentAtomically(
+        file,
+        output -> {
+          final Writer writer =
+              new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+          count[0] = export(configuration, format.newWriter(writer));
+          writer.flush();
+        });
+    log.info("Exported {} nodes to {}", count[0], file);
+    return count[0];
+  }
+
+  /**
+   * Exports the configuration with given writer.
+   *
+   * @param configuration the configuration
+   * @param writer the writer
+   * @return number of exported nodes
+   * @throws IOException on write errors
+   */
+  public int export(
+      final @NonNull Configuration configuration, final @NonNull InventoryWriter writer)
+      throws IOException {
+    final Set<String> propertyNames = new TreeSet<>();
+    collectPropertyNames(configuration.getNetworkNodes(), propertyNames);
+    writer.start(propertyNames);
+    final int count = write(configuration.getNetworkNodes(), new StringBuilder(), writer);
+    writer.finish();
+    return count;
+  }
+
+  private static void collectPropertyNames(
+      final @NotNull List<NetworkNode> nodes, final @NotNull Set<String> propertyNames) {
+    for (final NetworkNode node : nodes) {
+      if (node instanceof GroupingNode) {
+        collectPropertyNames(node.getChildNodes(), propertyNames);
+      } else {
+        propertyNames.addAll(node.getProperties().keySet());
+      }
+    }
+  }
+
+  private static int write(
+      final @NotNull List<NetworkNode> nodes,
+      final @NotNull StringBuilder groupPath,
+      final @NotNull InventoryWriter writer)
+      throws IOException {
+    final String path = groupPath.toString();
+    int count = 0;
+    for (final NetworkNode node : nodes) {
+      if (node instanceof GroupingNode) {
+        final int length = groupPath.length();
+        if (length > 0) {
+          groupPath.append(GROUP_PATH_SEPARATOR);
+        }
+        groupPath.append(node.getName());
+        count += write(node.getChildNodes(), groupPath, writer);
+        groupPath.setLength(length);
+      } else {
+        writer.node(path, node);
+        count++;
+      }
+    }
+    return count;
+  }
+}
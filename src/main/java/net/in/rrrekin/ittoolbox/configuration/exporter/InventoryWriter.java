@@ -0,0 +1,39 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import java.io.IOException;
+import java.util.Collection;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writer of exported nodes. Nodes are passed one by one, so writer should not keep them.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public interface InventoryWriter {
+
+  /**
+   * Starts the export.
+   *
+   * @param propertyNames sorted names of all custom properties of exported nodes
+   * @throws IOException on write errors
+   */
+  void start(@NotNull Collection<String> propertyNames) throws IOException;
+
+  /**
+   * Writes the node. Child nodes of groups are passed separately.
+   *
+   * @param groupPath names of the groups containing the node separated by {@code /}, empty for top
+   *     level nodes
+   * @param node the node, never a group
+   * @throws IOException on write errors
+   */
+  void node(@NotNull String groupPath, @NotNull NetworkNode node) throws IOException;
+
+  /**
+   * Finishes the export and flushes written data. The output is not closed.
+   *
+   * @throws IOException on write errors
+   */
+  void finish() throws IOException;
+}
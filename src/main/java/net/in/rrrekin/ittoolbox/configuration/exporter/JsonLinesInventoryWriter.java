@@ -0,0 +1,77 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter;
+
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.ADDRESS_PROEPRTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.DESCRIPTION_PROPERTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.NAME_PROPERTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.PROPERTIES_PREFIX;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.SERVICES_PROPERTY;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.TYPE_PROPERTY;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+
+/**
+ * Writes each node as JSON object in separate line. Objects have the same fields as node entries
+ * of configuration file, with group path in {@code group} field instead of nesting.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class JsonLinesInventoryWriter implements InventoryWriter {
+
+  private static final JsonFactory FACTORY =
+      new JsonFactory()
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .setRootValueSeparator(null);
+  private static final char LINE_END = '\n';
+
+  private final @NonNull Writer output;
+  private JsonGenerator generator;
+
+  JsonLinesInventoryWriter(final @NonNull Writer output) {
+    this.output = output;
+  }
+
+  @Override
+  public void start(final @NonNull Collection<String> propertyNames) throws IOException {
+    generator = FACTORY.createGenerator(output);
+  }
+
+  @Override
+  public void node(final @NonNull String groupPath, final @NonNull NetworkNode node)
+      throws IOException {
+    generator.writeStartObject();
+    if (node instanceof Server) {
+      generator.writeStringField(TYPE_PROPERTY, NodeType.SERVER.getTypeName());
+      generator.writeStringField(NAME_PROPERTY, node.getName());
+      generator.writeStringField(ADDRESS_PROEPRTY, ((Server) node).getAddress());
+    } else {
+      generator.writeStringField(TYPE_PROPERTY, NodeType.GENERIC_NODE.getTypeName());
+      generator.writeStringField(NAME_PROPERTY, node.getName());
+    }
+    generator.writeStringField(DESCRIPTION_PROPERTY, node.getDescription());
+    generator.writeStringField(CsvInventoryWriter.GROUP_COLUMN, groupPath);
+    generator.writeArrayFieldStart(SERVICES_PROPERTY);
+    for (final String service : node.getServiceDescriptors()) {
+      generator.writeString(service);
+    }
+    generator.writeEndArray();
+    for (final Map.Entry<String, String> property : node.getProperties().entrySet()) {
+      generator.writeStringField(PROPERTIES_PREFIX + property.getKey(), property.getValue());
+    }
+    generator.writeEndObject();
+    generator.writeRaw(LINE_END);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    generator.flush();
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Streaming export of network nodes to formats used by other tools, e.g. CSV, JSON lines or
+ * Ansible inventory.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.exporter;
@@ -0,0 +1,439 @@
+package net.in.rrrekin.ittoolbox.configuration.history;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bounded history of previous versions of the configuration file, kept in a single append only
+ * file. Each version is a separately compressed record that contains either the whole file
+ * (keyframe) or its {@link Delta} against the previous version. Keyframe is written at least every
+ * {@link #KEYFRAME_INTERVAL} versions, so restoring any version decompresses one keyframe and a
+ * bounded number of deltas.
+ *
+ * <p>Only headers of the records are read to list versions. Records after the last complete one,
+ * e.g. left by interrupted write, are ignored and overwritten by the next version. When history
+ * grows over its limit, the oldest versions are dropped and the file is rewritten atomically,
+ * starting with a keyframe.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class ConfigurationHistory {
+
+  /** Maximal number of deltas between keyframes. */
+  static final int KEYFRAME_INTERVAL = 16;
+
+  private static final int MAGIC = 0x49544853; // "ITHS"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8;
+  /** Size of record payload before compressed data: kind, number, time, sizes and hash. */
+  private static final int META_SIZE = 1 + 8 + 8 + 4 + 4 + 32;
+  private static final byte KEYFRAME = 1;
+  private static final byte DELTA = 2;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The history file. */
+  @Getter private final @NonNull File file;
+
+  private final int maxVersions;
+  private final List<Entry> entries = Lists.newArrayList();
+  private long committedLength = 0;
+  /** Length and modification time of the file when it was indexed, -1 if not indexed. */
+  private long indexedLength = -1;
+  private long indexedModified = -1;
+  /** Content of the latest version, kept as long as memory is not needed for anything else. */
+  private @NotNull SoftReference<byte[]> latestContent = new SoftReference<>(null);
+
+  /**
+   * Instantiates a new Configuration history. Nothing is read until history is used.
+   *
+   * @param file the history file
+   * @param maxVersions the number of versions to keep
+   */
+  public ConfigurationHistory(final @NonNull File file, final int maxVersions) {
+    if (maxVersions < 1) {
+      throw new IllegalArgumentException("At least one version has to be kept");
+    }
+    this.file = file;
+    this.maxVersions = maxVersions;
+  }
+
+  /**
+   * Gets versions kept in the history, the oldest first.
+   *
+   * @return the versions
+   * @throws IOException on read errors or if the file is not a configuration history
+   */
+  public synchronized @NotNull List<HistoryVersion> getVersions() throws IOException {
+    ensureIndexed();
+    return entries.stream().map(entry -> entry.version).collect(Collectors.toList());
+  }
+
+  /**
+   * Checks if content with given SHA-256 hash is the latest version, so it does not have to be read
+   * to be recorded.
+   *
+   * @param hash the SHA-256 hash of the content
+   * @return true if the latest version has the same hash
+   * @throws IOException on read errors or if the file is not a configuration history
+   */
+  public synchronized boolean isLatest(final @NonNull HashCode hash) throws IOException {
+    ensureIndexed();
+    return !entries.isEmpty() && last().hash.equals(hash);
+  }
+
+  /**
+   * Adds new version to the history, unless it has the same content as the latest version.
+   *
+   * @param content the content of configuration file
+   * @return true if new version was added
+   * @throws IOException on read or write errors
+   */
+  public synchronized boolean record(final @NonNull byte[] content) throws IOException {
+    final HashCode hash = Hashing.sha256().hashBytes(content);
+    if (isLatest(hash)) {
+      return false;
+    }
+    byte kind = KEYFRAME;
+    byte[] data = content;
+    if (!entries.isEmpty() && deltasSinceKeyframe() < KEYFRAME_INTERVAL) {
+      final byte[] delta = Delta.encode(latestContent(), content);
+      // Delta of rewritten file is not worth the cost of applying it
+      if (delta.length < content.length / 2) {
+        kind = DELTA;
+        data = delta;
+      }
+    }
+    final long number = entries.isEmpty() ? 1 : last().version.getNumber() + 1;
+    final HistoryVersion version =
+        new HistoryVersion(number, System.currentTimeMillis(), content.length);
+    final byte[] payload = payload(kind, version, data.length, hash, compress(data));
+    append(payload);
+    entries.add(
+        new Entry(
+            committedLength - RECORD_HEADER_SIZE - payload.length,
+            payload.length,
+            kind,
+            version,
+            data.length,
+            hash));
+    latestContent = new SoftReference<>(content);
+    log.debug("Configuration version {} recorded as {} bytes", number, payload.length);
+    if (entries.size() > maxVersions + KEYFRAME_INTERVAL) {
+      trim();
+    }
+    return true;
+  }
+
+  /**
+   * Restores content of configuration file of given version.
+   *
+   * @param number the version number
+   * @return the content
+   * @throws IOException on read errors, if history is damaged or there is no such version
+   */
+  public synchronized @NotNull byte[] restore(final long number) throws IOException {
+    ensureIndexed();
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).version.getNumber() == number) {
+        return restoreEntry(i);
+      }
+    }
+    throw new IOException("Unknown configuration version " + number);
+  }
+
+  private @NotNull byte[] restoreEntry(final int index) throws IOException {
+    int keyframe = index;
+    while (entries.get(keyframe).kind != KEYFRAME) {
+      if (keyframe == 0) {
+        throw new IOException("Missing keyframe in configuration history " + file);
+      }
+      keyframe--;
+    }
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final Entry keyframeEntry = entries.get(keyframe);
+      byte[] content = decompress(keyframeEntry, readPayload(channel, keyframeEntry));
+      for (int i = keyframe + 1; i <= index; i++) {
+        final Entry entry = entries.get(i);
+        content =
+            Delta.apply(
+                content, decompress(entry, readPayload(channel, entry)), entry.version.getSize());
+      }
+      return content;
+    }
+  }
+
+  private @NotNull byte[] latestContent() throws IOException {
+    final byte[] content = latestContent.get();
+    if (content != null) {
+      return content;
+    }
+    final byte[] restored = restoreEntry(entries.size() - 1);
+    latestContent = new SoftReference<>(restored);
+    return restored;
+  }
+
+  private int deltasSinceKeyframe() {
+    int count = 0;
+    for (int i = entries.size() - 1; i >= 0 && entries.get(i).kind != KEYFRAME; i--) {
+      count++;
+    }
+    return count;
+  }
+
+  private @NotNull Entry last() {
+    return entries.get(entries.size() - 1);
+  }
+
+  /** Reads headers of all records, unless file was not changed since it was indexed. */
+  private void ensureIndexed() throws IOException {
+    if (file.length() == indexedLength && file.lastModified() == indexedModified) {
+      return;
+    }
+    entries.clear();
+    committedLength = 0;
+    latestContent = new SoftReference<>(null);
+    if (file.isFile()) {
+      final long fileLength = file.length();
+      try (final DataInputStream input =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+        if (fileLength < HEADER_SIZE
+            || input.readInt() != MAGIC
+            || input.readInt() != FORMAT_VERSION) {
+          throw new IOException("Not a configuration history file: " + file);
+        }
+        long position = HEADER_SIZE;
+        while (fileLength - position >= RECORD_HEADER_SIZE + META_SIZE) {
+          final int length = input.readInt();
+          input.readInt(); // checksum is verified when version is restored
+          if (length < META_SIZE || length > fileLength - position - RECORD_HEADER_SIZE) {
+            break;
+          }
+          final byte[] meta = new byte[META_SIZE];
+          input.readFully(meta);
+          ByteStreams.skipFully(input, length - META_SIZE);
+          final Entry entry = Entry.of(position, length, meta);
+          if (entry == null) {
+            break;
+          }
+          entries.add(entry);
+          position += RECORD_HEADER_SIZE + length;
+        }
+        committedLength = position;
+      }
+    }
+    indexedLength = file.length();
+    indexedModified = file.lastModified();
+  }
+
+  /** Appends record after the last complete one, dropping anything that follows it. */
+  private void append(final @NotNull byte[] payload) throws IOException {
+    final ByteArrayOutputStream buffer =
+        new ByteArrayOutputStream(HEADER_SIZE + RECORD_HEADER_SIZE + payload.length);
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      if (committedLength == 0) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+      }
+      writeRecord(output, payload);
+    }
+    final ByteBuffer content = ByteBuffer.wrap(buffer.toByteArray());
+    try (final FileChannel channel =
+        FileChannel.open(
+            file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.truncate(committedLength);
+      channel.position(committedLength);
+      while (content.hasRemaining()) {
+        channel.write(content);
+      }
+      channel.force(false);
+    }
+    committedLength += buffer.size();
+    indexedLength = file.length();
+    indexedModified = file.lastModified();
+  }
+
+  /** Drops the oldest versions, the oldest remaining version becomes a keyframe. */
+  private void trim() throws IOException {
+    final int first = entries.size() - maxVersions;
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (final DataOutputStream output = new DataOutputStream(buffer);
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      final Entry firstEntry = entries.get(first);
+      if (firstEntry.kind == KEYFRAME) {
+        writeRecord(output, readPayload(channel, firstEntry));
+      } else {
+        final byte[] content = restoreEntry(first);
+        final byte[] compressed = compress(content);
+        writeRecord(
+            output,
+            payload(KEYFRAME, firstEntry.version, content.length, firstEntry.hash, compressed));
+      }
+      for (int i = first + 1; i < entries.size(); i++) {
+        writeRecord(output, readPayload(channel, entries.get(i)));
+      }
+    }
+    final byte[] latest = latestContent.get();
+    FileUtils.writeAtomically(file, buffer.toByteArray());
+    indexedLength = -1;
+    ensureIndexed();
+    latestContent = new SoftReference<>(latest);
+    log.debug("Configuration history {} trimmed to {} versions", file, entries.size());
+  }
+
+  private @NotNull byte[] readPayload(
+      final @NotNull FileChannel channel, final @NotNull Entry entry) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + entry.length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of configuration history " + file);
+      }
+    }
+    buffer.flip();
+    buffer.getInt();
+    final int checksum = buffer.getInt();
+    final byte[] payload = new byte[entry.length];
+    buffer.get(payload);
+    if (checksum(payload) != checksum) {
+      throw new IOException(
+          "Damaged version " + entry.version.getNumber() + " in configuration history " + file);
+    }
+    return payload;
+  }
+
+  private static void writeRecord(
+      final @NotNull DataOutputStream output, final @NotNull byte[] payload) throws IOException {
+    output.writeInt(payload.length);
+    output.writeInt(checksum(payload));
+    output.write(payload);
+  }
+
+  private static @NotNull byte[] payload(
+      final byte kind,
+      final @NotNull HistoryVersion version,
+      final int dataSize,
+      final @NotNull HashCode hash,
+      final @NotNull byte[] compressed)
+      throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(META_SIZE + compressed.length);
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      output.writeByte(kind);
+      output.writeLong(version.getNumber());
+      output.writeLong(version.getTimestamp());
+      output.writeInt(version.getSize());
+      output.writeInt(dataSize);
+      output.write(hash.asBytes());
+      output.write(compressed);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static @NotNull byte[] compress(final @NotNull byte[] data) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+      final byte[] block = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        buffer.write(block, 0, deflater.deflate(block));
+      }
+      return buffer.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private @NotNull byte[] decompress(final @NotNull Entry entry, final @NotNull byte[] payload)
+      throws IOException {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(payload, META_SIZE, payload.length - META_SIZE);
+      final byte[] data = new byte[entry.dataSize];
+      int position = 0;
+      while (position < data.length && !inflater.finished()) {
+        final int count = inflater.inflate(data, position, data.length - position);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        position += count;
+      }
+      if (position != data.length) {
+        throw new IOException(
+            "Truncated version " + entry.version.getNumber() + " in configuration history " + file);
+      }
+      return data;
+    } catch (final DataFormatException e) {
+      throw new IOException(
+          "Damaged version " + entry.version.getNumber() + " in configuration history " + file, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static int checksum(final @NotNull byte[] payload) {
+    return Hashing.crc32().hashBytes(payload).asInt();
+  }
+
+  /** Position and header of a record. */
+  @RequiredArgsConstructor
+  private static final class Entry {
+    private final long offset;
+    private final int length;
+    private final byte kind;
+    private final @NotNull HistoryVersion version;
+    private final int dataSize;
+    private final @NotNull HashCode hash;
+
+    /** Creates entry of record with given header, returns null for invalid header. */
+    static @Nullable Entry of(
+        final long offset, final int length, final @NotNull byte[] meta) {
+      final ByteBuffer buffer = ByteBuffer.wrap(meta);
+      final byte kind = buffer.get();
+      final long number = buffer.getLong();
+      final long timestamp = buffer.getLong();
+      final int size = buffer.getInt();
+      final int dataSize = buffer.getInt();
+      final byte[] hash = new byte[META_SIZE - buffer.position()];
+      buffer.get(hash);
+      if ((kind != KEYFRAME && kind != DELTA) || size < 0 || dataSize < 0) {
+        return null;
+      }
+      return new Entry(
+          offset,
+          length,
+          kind,
+          new HistoryVersion(number, timestamp, size),
+          dataSize,
+          HashCode.fromBytes(hash));
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package net.in.rrrekin.ittoolbox.configuration.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Binary delta between two versions of a file: a sequence of instructions that copy ranges of the
+ * base version or insert new bytes. Base is indexed by hashes of aligned blocks, target is scanned
+ * with a rolling hash, so blocks moved within the file are found as well.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class Delta {
+
+  private static final int BLOCK_SIZE = 32;
+  private static final int HASH_BASE = 0x01000193;
+  private static final int HASH_MIX = 0x9E3779B1;
+  private static final byte COPY = 1;
+  private static final byte INSERT = 2;
+
+  private Delta() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Calculates delta that transforms base to target.
+   *
+   * @param base the base version
+   * @param target the target version
+   * @return the delta
+   */
+  static @NotNull byte[] encode(final @NonNull byte[] base, final @NonNull byte[] target) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final DataOutputStream output = new DataOutputStream(buffer);
+    try {
+      final BlockIndex index = new BlockIndex(base);
+      int literalStart = 0;
+      int position = 0;
+      int hash = target.length < BLOCK_SIZE ? 0 : hash(target, 0);
+      while (position + BLOCK_SIZE <= target.length) {
+        final int match = index.find(hash, target, position);
+        if (match < 0) {
+          if (position + BLOCK_SIZE < target.length) {
+            hash = roll(hash, target[position], target[position + BLOCK_SIZE]);
+          }
+          position++;
+          continue;
+        }
+        int start = position;
+        int baseStart = match;
+        while (start > literalStart && baseStart > 0 && base[baseStart - 1] == target[start - 1]) {
+          start--;
+          baseStart--;
+        }
+        int end = position + BLOCK_SIZE;
+        int baseEnd = match + BLOCK_SIZE;
+        while (end < target.length && baseEnd < base.length && base[baseEnd] == target[end]) {
+          end++;
+          baseEnd++;
+        }
+        writeInsert(output, target, literalStart, start);
+        output.writeByte(COPY);
+        output.writeInt(baseStart);
+        output.writeInt(end - start);
+        literalStart = end;
+        position = end;
+        if (position + BLOCK_SIZE <= target.length) {
+          hash = hash(target, position);
+        }
+      }
+      writeInsert(output, target, literalStart, target.length);
+      output.flush();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Unexpected error of in-memory stream", e);
+    }
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Rebuilds target version from base version and delta made by {@link #encode(byte[], byte[])}.
+   *
+   * @param base the base version
+   * @param delta the delta
+   * @param size the expected size of target version
+   * @return the target version
+   * @throws IOException if delta is invalid or does not match the base
+   */
+  static @NotNull byte[] apply(
+      final @NonNull byte[] base, final @NonNull byte[] delta, final int size) throws IOException {
+    final byte[] target = new byte[size];
+    final DataInputStream input = new DataInputStream(new ByteArrayInputStream(delta));
+    int position = 0;
+    while (input.available() > 0) {
+      final byte instruction = input.readByte();
+      if (instruction == COPY) {
+        final int offset = input.readInt();
+        final int length = input.readInt();
+        if (offset < 0
+            || length < 0
+            || offset > base.length - length
+            || length > size - position) {
+          throw new IOException("Invalid copy instruction");
+        }
+        System.arraycopy(base, offset, target, position, length);
+        position += length;
+      } else if (instruction == INSERT) {
+        final int length = input.readInt();
+        if (length < 0 || length > size - position || length > input.available()) {
+          throw new IOException("Invalid insert instruction");
+        }
+        input.readFully(target, position, length);
+        position += length;
+      } else {
+        throw new IOException("Unknown delta instruction " + instruction);
+      }
+    }
+    if (position != size) {
+      throw new IOException("Delta does not match version size");
+    }
+    return target;
+  }
+
+  private static void writeInsert(
+      final @NotNull DataOutputStream output,
+      final @NotNull byte[] target,
+      final int start,
+      final int end)
+      throws IOException {
+    if (end > start) {
+      output.writeByte(INSERT);
+      output.writeInt(end - start);
+      output.write(target, start, end - start);
+    }
+  }
+
+  private static int hash(final @NotNull byte[] data, final int offset) {
+    int hash = 0;
+    for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+      hash = hash * HASH_BASE + (data[i] & 0xff);
+    }
+    return hash;
+  }
+
+  private static int roll(final int hash, final byte removed, final byte added) {
+    return (hash - (removed & 0xff) * BlockIndex.TOP_FACTOR) * HASH_BASE + (added & 0xff);
+  }
+
+  /** Open addressing table of offsets of aligned blocks of the base by their hash. */
+  private static final class BlockIndex {
+    /** Factor of the first byte of the block in the block hash. */
+    private static final int TOP_FACTOR = topFactor();
+
+    private final @NotNull byte[] base;
+    private final @NotNull int[] offsets;
+    private final int shift;
+
+    BlockIndex(final @NotNull byte[] base) {
+      this.base = base;
+      final int blocks = base.length / BLOCK_SIZE;
+      final int bits = Math.max(4, 33 - Integer.numberOfLeadingZeros(Math.max(blocks, 1)));
+      shift = 32 - bits;
+      offsets = new int[1 << bits];
+      Arrays.fill(offsets, -1);
+      for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+        // Only the first of equal blocks is indexed, so repeated content does not fill the table
+        if (find(hash(base, offset), base, offset) < 0) {
+          int slot = slot(hash(base, offset));
+          while (offsets[slot] >= 0) {
+            slot = (slot + 1) & (offsets.length - 1);
+          }
+          offsets[slot] = offset;
+        }
+      }
+    }
+
+    /** Returns offset of base block equal to the block of data at given position or -1. */
+    int find(final int hash, final @NotNull byte[] data, final int position) {
+      int slot = slot(hash);
+      int offset;
+      while ((offset = offsets[slot]) >= 0) {
+        if (equal(data, position, offset)) {
+          return offset;
+        }
+        slot = (slot + 1) & (offsets.length - 1);
+      }
+      return -1;
+    }
+
+    private int slot(final int hash) {
+      return (hash * HASH_MIX) >>> shift;
+    }
+
+    private boolean equal(final @NotNull byte[] data, final int position, final int offset) {
+      for (int i = 0; i < BLOCK_SIZE; i++) {
+        if (base[offset + i] != data[position + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int topFactor() {
+      int factor = 1;
+      for (int i = 1; i < BLOCK_SIZE; i++) {
+        factor *= HASH_BASE;
+      }
+      return factor;
+    }
+  }
+}
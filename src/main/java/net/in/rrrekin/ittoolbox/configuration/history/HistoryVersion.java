@@ -0,0 +1,19 @@
+package net.in.rrrekin.ittoolbox.configuration.history;
+
+import lombok.Value;
+
+/**
+ * Version of the configuration file kept in {@link ConfigurationHistory}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class HistoryVersion {
+
+  /** Version number, greater for newer versions. */
+  long number;
+  /** Time the version was recorded, in milliseconds since epoch. */
+  long timestamp;
+  /** Size of the configuration file in bytes. */
+  int size;
+}
@@ -0,0 +1,6 @@
+/**
+ * Compressed history of previous versions of the configuration file.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.history;
@@ -0,0 +1,172 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parser of Ansible inventory in INI format. Hosts listed in {@code [group]} sections belong to
+ * that group, hosts listed before the first section have no group. Host variables become custom
+ * properties, except {@code ansible_host} that is the address of the host (host name is used as
+ * address if it is not given). Ranges in host names, e.g. {@code web[01:20].example.com} or {@code
+ * db-[a:c]}, are expanded. Sections with group variables ({@code [group:vars]}) and group children
+ * ({@code [group:children]}) are skipped.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class AnsibleIniInventoryParser implements InventoryParser {
+
+  static final String ADDRESS_VARIABLE = "ansible_host";
+  private static final Pattern SECTION = Pattern.compile("^\\[([^\\]:]+)(:[^\\]]*)?\\]$");
+  private static final Pattern RANGE = Pattern.compile("\\[([0-9]+|[a-z]):([0-9]+|[a-z])\\]");
+  /** Hosts with more expanded names are rejected. */
+  private static final int MAX_RANGE_SIZE = 100_000;
+
+  @Override
+  public void parse(final @NonNull Reader input, final @NonNull Handler handler)
+      throws IOException {
+    final BufferedReader reader =
+        input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+    String group = null;
+    boolean hostSection = true;
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#") || line.startsWith(";")) {
+        continue;
+      }
+      final Matcher section = SECTION.matcher(line);
+      if (section.matches()) {
+        group = section.group(1).trim();
+        hostSection = section.group(2) == null;
+        continue;
+      }
+      if (!hostSection) {
+        continue;
+      }
+      final List<String> tokens = splitTokens(line);
+      final Map<String, String> variables = new NodeProperties();
+      String invalidVariable = null;
+      for (final String token : tokens.subList(1, tokens.size())) {
+        final int separator = token.indexOf('=');
+        if (separator <= 0) {
+          invalidVariable = token;
+          break;
+        }
+        variables.put(token.substring(0, separator), token.substring(separator + 1));
+      }
+      if (invalidVariable != null) {
+        handler.invalidEntry("Line " + lineNumber + ": invalid host variable " + invalidVariable);
+        continue;
+      }
+      final List<String> names = expand(tokens.get(0));
+      if (names == null) {
+        handler.invalidEntry("Line " + lineNumber + ": invalid host range " + tokens.get(0));
+        continue;
+      }
+      for (final String name : names) {
+        handler.host(host(name, group, variables));
+      }
+    }
+  }
+
+  /** Creates host with given variables, the ones related to Ansible connection included. */
+  static @NotNull InventoryHost host(
+      final @NotNull String name,
+      final @Nullable String group,
+      final @NotNull Map<String, String> variables) {
+    final Map<String, String> properties = new NodeProperties(variables);
+    final String address = properties.remove(ADDRESS_VARIABLE);
+    return new InventoryHost(
+        name,
+        address == null ? name : address,
+        "",
+        group,
+        properties,
+        Lists.newArrayList());
+  }
+
+  /** Splits line on white space, except white space in quoted values, and removes quotes. */
+  static @NotNull List<String> splitTokens(final @NotNull String line) {
+    final List<String> tokens = Lists.newArrayList();
+    final StringBuilder token = new StringBuilder();
+    char quote = 0;
+    for (int i = 0; i < line.length(); i++) {
+      final char current = line.charAt(i);
+      if (quote != 0) {
+        if (current == quote) {
+          quote = 0;
+        } else {
+          token.append(current);
+        }
+      } else if (current == '"' || current == '\'') {
+        quote = current;
+      } else if (Character.isWhitespace(current)) {
+        if (token.length() > 0) {
+          tokens.add(token.toString());
+          token.setLength(0);
+        }
+      } else if (current == '#' && token.length() == 0) {
+        break;
+      } else {
+        token.append(current);
+      }
+    }
+    if (token.length() > 0) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  /** Expands ranges in host name pattern, returns null for invalid or too large ranges. */
+  static @Nullable List<String> expand(final @NotNull String pattern) {
+    final Matcher range = RANGE.matcher(pattern);
+    if (!range.find()) {
+      return Lists.newArrayList(pattern);
+    }
+    final String start = range.group(1);
+    final String end = range.group(2);
+    final List<String> values = Lists.newArrayList();
+    if (Character.isDigit(start.charAt(0)) && Character.isDigit(end.charAt(0))) {
+      final long first = Long.parseLong(start);
+      final long last = Long.parseLong(end);
+      if (last < first || last - first >= MAX_RANGE_SIZE) {
+        return null;
+      }
+      final String format = start.startsWith("0") ? "%0" + start.length() + "d" : "%d";
+      for (long i = first; i <= last; i++) {
+        values.add(String.format(format, i));
+      }
+    } else if (Character.isLetter(start.charAt(0)) && Character.isLetter(end.charAt(0))) {
+      if (end.charAt(0) < start.charAt(0)) {
+        return null;
+      }
+      for (char i = start.charAt(0); i <= end.charAt(0); i++) {
+        values.add(String.valueOf(i));
+      }
+    } else {
+      return null;
+    }
+    final List<String> names = Lists.newArrayList();
+    for (final String value : values) {
+      final List<String> expanded =
+          expand(pattern.substring(0, range.start()) + value + pattern.substring(range.end()));
+      if (expanded == null || names.size() + expanded.size() > MAX_RANGE_SIZE) {
+        return null;
+      }
+      names.addAll(expanded);
+    }
+    return names;
+  }
+}
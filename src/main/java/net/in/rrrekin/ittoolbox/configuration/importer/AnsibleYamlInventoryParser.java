@@ -0,0 +1,113 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import static net.in.rrrekin.ittoolbox.utilities.StringUtils.toStringOrEmpty;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Set;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+/**
+ * Parser of Ansible inventory in YAML format. Top level keys are groups, each of them may list
+ * its {@code hosts} with their variables and its {@code children} groups. Hosts belong to the
+ * innermost group that lists them, hosts of {@code all} and {@code ungrouped} groups have no
+ * group. Host variables are mapped as in {@link AnsibleIniInventoryParser}, group variables are
+ * skipped.
+ *
+ * <p>Inventory is read event by event, so only variables of single host are kept in memory.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class AnsibleYamlInventoryParser implements InventoryParser {
+
+  private static final String HOSTS_KEY = "hosts";
+  private static final String CHILDREN_KEY = "children";
+  private static final Set<String> NO_GROUP_NAMES = ImmutableSet.of("all", "ungrouped");
+
+  @Override
+  public void parse(final @NonNull Reader input, final @NonNull Handler handler)
+      throws IOException {
+    try {
+      final YamlEventReader reader = new YamlEventReader(new Yaml().parse(input));
+      if (reader.readDocumentStart()) {
+        if (reader.isMappingStart()) {
+          readGroups(reader, null, handler);
+        } else {
+          reader.skipValue();
+        }
+        reader.readDocumentEnd();
+      }
+    } catch (final YAMLException e) {
+      throw new IOException("Invalid Ansible inventory: " + e.getMessage(), e);
+    }
+  }
+
+  private void readGroups(
+      final @NotNull YamlEventReader reader,
+      final @Nullable String parentGroup,
+      final @NotNull Handler handler) {
+    reader.readMappingStart();
+    while (!reader.isMappingEnd()) {
+      final String name = reader.readString();
+      final String group = NO_GROUP_NAMES.contains(name) ? parentGroup : name;
+      if (reader.isMappingStart()) {
+        readGroup(reader, group, handler);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.readMappingEnd();
+  }
+
+  private void readGroup(
+      final @NotNull YamlEventReader reader,
+      final @Nullable String group,
+      final @NotNull Handler handler) {
+    reader.readMappingStart();
+    while (!reader.isMappingEnd()) {
+      final String key = reader.readString();
+      if (HOSTS_KEY.equals(key) && reader.isMappingStart()) {
+        readHosts(reader, group, handler);
+      } else if (CHILDREN_KEY.equals(key) && reader.isMappingStart()) {
+        readGroups(reader, group, handler);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.readMappingEnd();
+  }
+
+  private void readHosts(
+      final @NotNull YamlEventReader reader,
+      final @Nullable String group,
+      final @NotNull Handler handler) {
+    reader.readMappingStart();
+    while (!reader.isMappingEnd()) {
+      final String name = reader.readString();
+      final Object value = reader.readValue();
+      if (name.isEmpty()) {
+        handler.invalidEntry("Host without name in group " + group);
+        continue;
+      }
+      final Map<String, String> variables = new NodeProperties();
+      if (value instanceof Map) {
+        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          variables.put(toStringOrEmpty(entry.getKey()), toStringOrEmpty(entry.getValue()));
+        }
+      } else if (value != null) {
+        handler.invalidEntry("Host " + name + ": variables are not a mapping");
+        continue;
+      }
+      handler.host(AnsibleIniInventoryParser.host(name, group, variables));
+    }
+    reader.readMappingEnd();
+  }
+}
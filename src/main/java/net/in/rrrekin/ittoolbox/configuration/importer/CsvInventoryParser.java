@@ -0,0 +1,195 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.PROPERTIES_PREFIX;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parser of CSV inventory export with header row. Fields are separated by commas, or by
+ * semicolons if header contains no comma, and may be quoted as described in RFC 4180. Columns are
+ * recognized by their header (case insensitive):
+ *
+ * <ul>
+ *   <li>{@code name}, {@code hostname} or {@code host} - node name,
+ *   <li>{@code address}, {@code ip} or {@code ip_address} - server address,
+ *   <li>{@code description} - node description,
+ *   <li>{@code group} - name of the group of the node,
+ *   <li>{@code services} - service descriptors separated by {@code ;} or {@code |}.
+ * </ul>
+ *
+ * <p>Other columns become custom properties of the node, {@code _} prefix of column name is
+ * removed as in configuration file. Records are read one by one, so quoted fields may span
+ * multiple lines.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class CsvInventoryParser implements InventoryParser {
+
+  private static final Set<String> NAME_COLUMNS = ImmutableSet.of("name", "hostname", "host");
+  private static final Set<String> ADDRESS_COLUMNS =
+      ImmutableSet.of("address", "ip", "ip_address");
+  private static final String DESCRIPTION_COLUMN = "description";
+  private static final String GROUP_COLUMN = "group";
+  private static final String SERVICES_COLUMN = "services";
+  private static final Splitter SERVICES_SPLITTER =
+      Splitter.onPattern("[;|]").trimResults().omitEmptyStrings();
+  private static final int EOF = -1;
+  private static final char QUOTE = '"';
+
+  @Override
+  public void parse(final @NonNull Reader input, final @NonNull Handler handler)
+      throws IOException {
+    final RecordReader records = new RecordReader(input);
+    List<String> header = records.read();
+    if (header == null) {
+      return;
+    }
+    if (header.size() == 1 && header.get(0).indexOf(';') >= 0) {
+      records.separator = ';';
+      header = Lists.newArrayList(Splitter.on(';').trimResults().split(header.get(0)));
+    }
+    final Columns columns = new Columns(header);
+    int recordLine = records.line;
+    List<String> record;
+    while ((record = records.read()) != null) {
+      if (record.size() > 1 || !record.get(0).isEmpty()) {
+        final InventoryHost host = columns.toHost(record);
+        if (host == null) {
+          handler.invalidEntry("Line " + recordLine + ": missing host name and address");
+        } else {
+          handler.host(host);
+        }
+      }
+      recordLine = records.line;
+    }
+  }
+
+  /** Reader of CSV records. */
+  private static final class RecordReader {
+    private final @NotNull Reader input;
+    private char separator = ',';
+    private int next;
+    /** Number of line where next record starts. */
+    private int line = 1;
+
+    RecordReader(final @NotNull Reader input) throws IOException {
+      this.input = input;
+      next = input.read();
+    }
+
+    /** Reads fields of next record, returns null at the end of input. */
+    @Nullable
+    List<String> read() throws IOException {
+      if (next == EOF) {
+        return null;
+      }
+      final List<String> fields = Lists.newArrayList();
+      final StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      while (next != EOF) {
+        final char current = (char) next;
+        next = input.read();
+        if (quoted) {
+          if (current == QUOTE && next == QUOTE) {
+            field.append(QUOTE);
+            next = input.read();
+          } else if (current == QUOTE) {
+            quoted = false;
+          } else {
+            if (current == '\n') {
+              line++;
+            }
+            field.append(current);
+          }
+        } else if (current == QUOTE) {
+          quoted = true;
+        } else if (current == separator) {
+          fields.add(field.toString().trim());
+          field.setLength(0);
+        } else if (current == '\n') {
+          line++;
+          break;
+        } else if (current != '\r') {
+          field.append(current);
+        }
+      }
+      fields.add(field.toString().trim());
+      return fields;
+    }
+  }
+
+  /** Meaning of the columns, based on the header. */
+  private static final class Columns {
+    private int name = -1;
+    private int address = -1;
+    private int description = -1;
+    private int group = -1;
+    private int services = -1;
+    private final @NotNull List<String> headers;
+
+    Columns(final @NotNull List<String> headers) {
+      this.headers = headers;
+      for (int i = 0; i < headers.size(); i++) {
+        final String header = headers.get(i).toLowerCase(Locale.ENGLISH);
+        if (name < 0 && NAME_COLUMNS.contains(header)) {
+          name = i;
+        } else if (address < 0 && ADDRESS_COLUMNS.contains(header)) {
+          address = i;
+        } else if (description < 0 && DESCRIPTION_COLUMN.equals(header)) {
+          description = i;
+        } else if (group < 0 && GROUP_COLUMN.equals(header)) {
+          group = i;
+        } else if (services < 0 && SERVICES_COLUMN.equals(header)) {
+          services = i;
+        }
+      }
+    }
+
+    @Nullable
+    InventoryHost toHost(final @NotNull List<String> record) {
+      final String hostAddress = field(record, address);
+      final String hostName = field(record, name);
+      if (hostName.isEmpty() && hostAddress.isEmpty()) {
+        return null;
+      }
+      final Map<String, String> properties = new NodeProperties();
+      for (int i = 0; i < headers.size() && i < record.size(); i++) {
+        if (i != name && i != address && i != description && i != group && i != services) {
+          final String value = record.get(i);
+          final String header = headers.get(i);
+          final String propertyName =
+              header.startsWith(PROPERTIES_PREFIX)
+                  ? header.substring(PROPERTIES_PREFIX.length())
+                  : header;
+          if (!propertyName.isEmpty() && !value.isEmpty()) {
+            properties.put(propertyName, value);
+          }
+        }
+      }
+      final String hostGroup = field(record, group);
+      return new InventoryHost(
+          hostName.isEmpty() ? hostAddress : hostName,
+          hostAddress.isEmpty() ? null : hostAddress,
+          field(record, description),
+          hostGroup.isEmpty() ? null : hostGroup,
+          properties,
+          Lists.newArrayList(SERVICES_SPLITTER.split(field(record, services))));
+    }
+
+    private static @NotNull String field(final @NotNull List<String> record, final int column) {
+      return column >= 0 && column < record.size() ? record.get(column) : "";
+    }
+  }
+}
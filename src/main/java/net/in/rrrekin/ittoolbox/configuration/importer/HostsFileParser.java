@@ -0,0 +1,63 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parser of hosts file, e.g. {@code /etc/hosts}. Each entry becomes a host named with its first
+ * host name, other names are stored in {@code aliases} property. Loopback and multicast entries
+ * are skipped.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class HostsFileParser implements InventoryParser {
+
+  static final String ALIASES_PROPERTY = "aliases";
+  private static final Splitter SPLITTER = Splitter.onPattern("\\s+").omitEmptyStrings();
+  private static final Joiner JOINER = Joiner.on(' ');
+
+  @Override
+  public void parse(final @NonNull Reader input, final @NonNull Handler handler)
+      throws IOException {
+    final BufferedReader reader =
+        input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      final int comment = line.indexOf('#');
+      final List<String> tokens =
+          SPLITTER.splitToList(comment < 0 ? line : line.substring(0, comment));
+      if (tokens.isEmpty() || isSpecialAddress(tokens.get(0))) {
+        continue;
+      }
+      if (tokens.size() < 2) {
+        handler.invalidEntry("Line " + lineNumber + ": missing host name of " + tokens.get(0));
+        continue;
+      }
+      final Map<String, String> properties = new NodeProperties();
+      if (tokens.size() > 2) {
+        properties.put(ALIASES_PROPERTY, JOINER.join(tokens.subList(2, tokens.size())));
+      }
+      handler.host(
+          new InventoryHost(
+              tokens.get(1), tokens.get(0), "", null, properties, Lists.newArrayList()));
+    }
+  }
+
+  private static boolean isSpecialAddress(final @NotNull String address) {
+    return address.startsWith("127.")
+        || address.equals("::1")
+        || address.startsWith("fe00:")
+        || address.startsWith("ff0");
+  }
+}
@@ -0,0 +1,33 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import lombok.NonNull;
+import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
+
+/**
+ * Result of merging an inventory into configuration.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class ImportResult {
+  /** The configuration with imported hosts, the same instance as merged one if nothing changed. */
+  @NonNull Configuration configuration;
+  /** Number of hosts added as new nodes. */
+  int added;
+  /** Number of hosts that changed existing nodes. */
+  int updated;
+  /** Number of hosts already present in the configuration. */
+  int unchanged;
+  /** Number of invalid entries of the inventory and hosts that could not be converted to nodes. */
+  int rejected;
+
+  /**
+   * Checks if configuration was changed by the import.
+   *
+   * @return true if hosts were added or updated
+   */
+  public boolean isChanged() {
+    return added > 0 || updated > 0;
+  }
+}
@@ -0,0 +1,63 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Supported formats of external inventories.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@RequiredArgsConstructor
+public enum InventoryFormat {
+  /** CSV export with header row, e.g. from CMDB, see {@link CsvInventoryParser}. */
+  CSV(CsvInventoryParser::new),
+  /** Ansible inventory in INI format, see {@link AnsibleIniInventoryParser}. */
+  ANSIBLE_INI(AnsibleIniInventoryParser::new),
+  /** Ansible inventory in YAML format, see {@link AnsibleYamlInventoryParser}. */
+  ANSIBLE_YAML(AnsibleYamlInventoryParser::new),
+  /** OpenSSH client configuration, e.g. {@code ~/.ssh/config}, see {@link SshConfigParser}. */
+  SSH_CONFIG(SshConfigParser::new),
+  /** Hosts file, e.g. {@code /etc/hosts}, see {@link HostsFileParser}. */
+  HOSTS(HostsFileParser::new);
+
+  private final @NonNull Supplier<InventoryParser> parserFactory;
+
+  /**
+   * Creates new parser of this format.
+   *
+   * @return the parser
+   */
+  public @NotNull InventoryParser newParser() {
+    return parserFactory.get();
+  }
+
+  /**
+   * Guesses format of the inventory file from its name and location.
+   *
+   * @param file the inventory file
+   * @return the format or null if it cannot be guessed
+   */
+  public static @Nullable InventoryFormat detect(final @NonNull File file) {
+    final String name = file.getName().toLowerCase(Locale.ENGLISH);
+    final File parent = file.getAbsoluteFile().getParentFile();
+    final String parentName = parent == null ? "" : parent.getName().toLowerCase(Locale.ENGLISH);
+    if (name.endsWith(".csv")) {
+      return CSV;
+    } else if (name.endsWith(".yml") || name.endsWith(".yaml")) {
+      return ANSIBLE_YAML;
+    } else if (name.endsWith(".ini") || (name.equals("hosts") && parentName.equals("ansible"))) {
+      return ANSIBLE_INI;
+    } else if (name.equals("ssh_config") || (name.equals("config") && parentName.equals(".ssh"))) {
+      return SSH_CONFIG;
+    } else if (name.equals("hosts")) {
+      return HOSTS;
+    }
+    return null;
+  }
+}
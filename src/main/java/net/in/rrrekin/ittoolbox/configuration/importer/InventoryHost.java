@@ -0,0 +1,29 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Host read from external inventory.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class InventoryHost {
+
+  /** Name of the host. */
+  @NonNull String name;
+  /** Address of the host or null if inventory does not define it. */
+  @Nullable String address;
+  /** Description of the host, empty if inventory does not define it. */
+  @NonNull String description;
+  /** Name of the group the host belongs to or null for hosts without group. */
+  @Nullable String group;
+  /** Custom properties of the host. */
+  @NonNull Map<String, String> properties;
+  /** Service descriptors of the host. */
+  @NonNull List<String> services;
+}
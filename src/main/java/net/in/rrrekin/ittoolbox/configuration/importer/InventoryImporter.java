@@ -0,0 +1,343 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
+import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager;
+import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
+import net.in.rrrekin.ittoolbox.configuration.exporter.InventoryExporter;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+/**
+ * Imports network nodes from external inventories. Hosts are read one by one and merged into
+ * configuration: host matching a node by address (or by name, if no node has its address) updates
+ * that node, other hosts are added as new nodes, in group of the host if it has one. Group of the
+ * host may be given as path of group names separated by {@code /}, then its last element is
+ * used. Missing groups are created at top level. Nodes of included files are neither matched nor
+ * changed.
+ *
+ * <p>Merge does not modify the configuration. Changed nodes are copied, together with groups on
+ * the path to them, and the rest of the node tree is shared, so memory used by the import depends
+ * on size of the configuration and number of changes, not on size of the inventory.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class InventoryImporter {
+
+  private static final int COMMIT_ATTEMPTS = 3;
+
+  private final @NonNull NodeFactory nodeFactory;
+  private final @NonNull ConfigurationManager configurationManager;
+
+  /**
+   * Instantiates a new inventory importer.
+   *
+   * @param nodeFactory the node factory
+   * @param configurationManager the configuration manager
+   */
+  @Inject
+  public InventoryImporter(
+      final @NonNull NodeFactory nodeFactory,
+      final @NonNull ConfigurationManager configurationManager) {
+    this.nodeFactory = nodeFactory;
+    this.configurationManager = configurationManager;
+  }
+
+  /**
+   * Imports the inventory file into current configuration and saves it. The import is a single
+   * configuration change. If configuration is changed by other thread in meantime, the file is
+   * merged again.
+   *
+   * @param file the inventory file
+   * @param format the inventory format
+   * @return the import result
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public @NotNull ImportResult importFile(
+      final @NonNull File file, final @NonNull InventoryFormat format) throws IOException {
+    for (int attempt = 0; attempt < COMMIT_ATTEMPTS; attempt++) {
+      final Configuration configuration = configurationManager.getConfig();
+      final ImportResult result;
+      try (final Reader reader =
+          new BufferedReader(new UnicodeReader(new FileInputStream(file)))) {
+        result = merge(configuration, format.newParser(), reader, file.getName());
+      }
+      log.info(
+          "Imported {}: {} added, {} updated, {} unchanged, {} rejected",
+          file,
+          result.getAdded(),
+          result.getUpdated(),
+          result.getUnchanged(),
+          result.getRejected());
+      if (!result.isChanged()
+          || configurationManager.commitChange(configuration, result.getConfiguration())) {
+        return result;
+      }
+    }
+    throw new IOException("Configuration was changed during import of " + file);
+  }
+
+  /**
+   * Merges the inventory into the configuration.
+   *
+   * @param configuration the configuration, it is not modified
+   * @param parser the parser of the inventory
+   * @param input the inventory
+   * @param sourceName name of the inventory used in error messages
+   * @return the import result
+   * @throws IOException if the inventory cannot be read or parsed
+   */
+  public @NotNull ImportResult merge(
+      final @NonNull Configuration configuration,
+      final @NonNull InventoryParser parser,
+      final @NonNull Reader input,
+      final @NonNull String sourceName)
+      throws IOException {
+    final Merge merge = new Merge(configuration, sourceName);
+    parser.parse(input, merge);
+    return merge.result();
+  }
+
+  /** State of a single merge. */
+  private final class Merge implements InventoryParser.Handler {
+    private final @NotNull Configuration configuration;
+    private final @NotNull String sourceName;
+    private final Map<NetworkNode, GroupingNode> parents = Maps.newIdentityHashMap();
+    private final Map<String, NetworkNode> nodesByAddress = Maps.newHashMap();
+    private final Map<String, NetworkNode> nodesByName = Maps.newHashMap();
+    private final Map<String, GroupingNode> groupsByName = Maps.newHashMap();
+    /** Latest versions of changed nodes, of the configuration or added by the merge. */
+    private final Map<NetworkNode, NetworkNode> copies = Maps.newIdentityHashMap();
+    /** Groups with changed or added child nodes. */
+    private final Set<GroupingNode> changedGroups = Sets.newIdentityHashSet();
+    /** Nodes added to groups, of the configuration or created by the merge. */
+    private final Map<GroupingNode, List<NetworkNode>> additions = Maps.newIdentityHashMap();
+    private final List<NetworkNode> topLevelAdditions = newArrayList();
+    private int added = 0;
+    private int updated = 0;
+    private int unchanged = 0;
+    private int rejected = 0;
+
+    Merge(final @NotNull Configuration configuration, final @NotNull String sourceName) {
+      this.configuration = configuration;
+      this.sourceName = sourceName;
+      index(configuration.getNetworkNodes(), null);
+    }
+
+    private void index(
+        final @NotNull List<NetworkNode> nodes, final @Nullable GroupingNode parent) {
+      for (final NetworkNode node : nodes) {
+        if (parent != null) {
+          parents.put(node, parent);
+        }
+        if (node instanceof IncludeNode) {
+          continue;
+        }
+        if (node instanceof GroupingNode) {
+          groupsByName.putIfAbsent(node.getName(), (GroupingNode) node);
+          index(node.getChildNodes(), (GroupingNode) node);
+        } else {
+          nodesByName.putIfAbsent(node.getName(), node);
+          if (node instanceof Server) {
+            nodesByAddress.putIfAbsent(((Server) node).getAddress(), node);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void host(final @NotNull InventoryHost host) {
+      NetworkNode node = host.getAddress() == null ? null : nodesByAddress.get(host.getAddress());
+      if (node == null) {
+        node = nodesByName.get(host.getName());
+      }
+      if (node == null) {
+        add(host);
+      } else if (isUpToDate(current(node), host)) {
+        unchanged++;
+      } else {
+        replace(node, update(current(node), host));
+        updated++;
+      }
+    }
+
+    @Override
+    public void invalidEntry(final @NotNull String description) {
+      log.warn("Invalid entry in {}: {}", sourceName, description);
+      rejected++;
+    }
+
+    private void add(final @NotNull InventoryHost host) {
+      final NetworkNode node;
+      try {
+        node = nodeFactory.createNode(toDto(host), sourceName);
+      } catch (final InvalidConfigurationException e) {
+        log.warn("Cannot import host {} from {}: {}", host.getName(), sourceName, e.toString());
+        rejected++;
+        return;
+      }
+      final String groupName = groupName(host.getGroup());
+      if (groupName == null) {
+        topLevelAdditions.add(node);
+      } else {
+        GroupingNode group = groupsByName.get(groupName);
+        if (group == null) {
+          group = new GroupingNode(groupName, "", Collections.emptyList(), newArrayList());
+          groupsByName.put(groupName, group);
+          topLevelAdditions.add(group);
+        }
+        additions.computeIfAbsent(group, it -> newArrayList()).add(node);
+        markChanged(group);
+      }
+      nodesByName.putIfAbsent(node.getName(), node);
+      if (node instanceof Server) {
+        nodesByAddress.putIfAbsent(((Server) node).getAddress(), node);
+      }
+      added++;
+    }
+
+    /** Gets name of the innermost group of group path, e.g. exported by InventoryExporter. */
+    private @Nullable String groupName(final @Nullable String groupPath) {
+      if (groupPath == null) {
+        return null;
+      }
+      final String name =
+          groupPath.substring(groupPath.lastIndexOf(InventoryExporter.GROUP_PATH_SEPARATOR) + 1);
+      return name.isEmpty() ? null : name;
+    }
+
+    private @NotNull Map<String, Object> toDto(final @NotNull InventoryHost host) {
+      final Map<String, Object> dto = Maps.newLinkedHashMap();
+      if (host.getAddress() == null) {
+        dto.put(NetworkNode.TYPE_PROPERTY, NodeType.GENERIC_NODE.getTypeName());
+      } else {
+        dto.put(NetworkNode.TYPE_PROPERTY, NodeType.SERVER.getTypeName());
+        dto.put(NetworkNode.ADDRESS_PROEPRTY, host.getAddress());
+      }
+      dto.put(NetworkNode.NAME_PROPERTY, host.getName());
+      dto.put(NetworkNode.DESCRIPTION_PROPERTY, host.getDescription());
+      dto.put(NetworkNode.SERVICES_PROPERTY, host.getServices());
+      host.getProperties()
+          .forEach((name, value) -> dto.put(NetworkNode.PROPERTIES_PREFIX + name, value));
+      return dto;
+    }
+
+    private boolean isUpToDate(final @NotNull NetworkNode node, final @NotNull InventoryHost host) {
+      if (!host.getDescription().isEmpty()
+          && !host.getDescription().equals(node.getDescription())) {
+        return false;
+      }
+      if (node instanceof Server
+          && host.getAddress() != null
+          && !host.getAddress().equals(((Server) node).getAddress())) {
+        return false;
+      }
+      for (final Map.Entry<String, String> property : host.getProperties().entrySet()) {
+        if (!Objects.equals(property.getValue(), node.getProperties().get(property.getKey()))) {
+          return false;
+        }
+      }
+      return node.getServiceDescriptors().containsAll(host.getServices());
+    }
+
+    /** Creates new version of the node with data of the host, the node is not modified. */
+    private @NotNull NetworkNode update(
+        final @NotNull NetworkNode node, final @NotNull InventoryHost host) {
+      final String description =
+          host.getDescription().isEmpty() ? node.getDescription() : host.getDescription();
+      final Map<String, String> properties = new NodeProperties(node.getProperties());
+      properties.putAll(host.getProperties());
+      final List<String> services = newArrayList(node.getServiceDescriptors());
+      for (final String service : host.getServices()) {
+        if (!services.contains(service)) {
+          services.add(service);
+        }
+      }
+      if (node instanceof Server) {
+        final Server server = (Server) node;
+        return new Server(
+            server.getName(),
+            host.getAddress() == null ? server.getAddress() : host.getAddress(),
+            description,
+            properties,
+            services);
+      }
+      return new GenericNode(node.getName(), description, properties, services);
+    }
+
+    private @NotNull NetworkNode current(final @NotNull NetworkNode node) {
+      final NetworkNode copy = copies.get(node);
+      return copy == null ? node : copy;
+    }
+
+    /** Records new version of the node, the node is replaced when the tree is rebuilt. */
+    private void replace(final @NotNull NetworkNode node, final @NotNull NetworkNode newVersion) {
+      if (copies.put(node, newVersion) == null) {
+        markChanged(parents.get(node));
+      }
+    }
+
+    private void markChanged(final @Nullable GroupingNode group) {
+      GroupingNode current = group;
+      while (current != null && changedGroups.add(current)) {
+        current = parents.get(current);
+      }
+    }
+
+    @NotNull
+    ImportResult result() {
+      if (added == 0 && updated == 0) {
+        return new ImportResult(configuration, 0, 0, unchanged, rejected);
+      }
+      final List<NetworkNode> nodes = rebuild(configuration.getNetworkNodes());
+      nodes.addAll(rebuild(topLevelAdditions));
+      return new ImportResult(
+          new Configuration(nodes, configuration.getModules()),
+          added,
+          updated,
+          unchanged,
+          rejected);
+    }
+
+    /** Creates copy of the list with changed nodes, groups without changes are shared. */
+    private @NotNull List<NetworkNode> rebuild(final @NotNull List<NetworkNode> nodes) {
+      final List<NetworkNode> response = newArrayList();
+      for (final NetworkNode node : nodes) {
+        if (node instanceof GroupingNode && changedGroups.contains(node)) {
+          final List<NetworkNode> childNodes = rebuild(node.getChildNodes());
+          childNodes.addAll(rebuild(additions.getOrDefault(node, Collections.emptyList())));
+          response.add(((GroupingNode) node).withChildNodes(childNodes));
+        } else {
+          response.add(current(node));
+        }
+      }
+      return response;
+    }
+  }
+}
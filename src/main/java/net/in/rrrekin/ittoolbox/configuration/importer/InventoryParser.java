@@ -0,0 +1,41 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parser of external inventory. Hosts are passed to the handler as soon as they are read, so
+ * inventory of any size is parsed in constant memory.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public interface InventoryParser {
+
+  /**
+   * Parses the inventory. Invalid entries are reported to the handler and skipped.
+   *
+   * @param input the inventory content
+   * @param handler the handler of read hosts
+   * @throws IOException on read errors or if the input is not an inventory of this format
+   */
+  void parse(@NotNull Reader input, @NotNull Handler handler) throws IOException;
+
+  /** Receiver of parsed inventory entries. */
+  interface Handler {
+
+    /**
+     * Called for every host read from the inventory.
+     *
+     * @param host the host
+     */
+    void host(@NotNull InventoryHost host);
+
+    /**
+     * Called for every entry that was skipped, because it could not be parsed.
+     *
+     * @param description the description of the entry and the problem, e.g. with line number
+     */
+    void invalidEntry(@NotNull String description);
+  }
+}
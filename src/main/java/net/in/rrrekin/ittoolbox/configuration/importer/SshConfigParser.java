@@ -0,0 +1,120 @@
+package net.in.rrrekin.ittoolbox.configuration.importer;
+
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parser of OpenSSH client configuration, e.g. {@code ~/.ssh/config}. Every alias of a {@code
+ * Host} section becomes a host, except patterns with wildcards or negations. {@code HostName} is
+ * the address of the host (alias is used if it is not given), other options become custom
+ * properties with lower case names. Each host gets {@code ssh} service, with port given by {@code
+ * Port} option. As in OpenSSH, first value of an option wins. {@code Match} sections and {@code
+ * Include} directives are skipped.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class SshConfigParser implements InventoryParser {
+
+  private static final String HOST_KEYWORD = "host";
+  private static final String MATCH_KEYWORD = "match";
+  private static final String HOST_NAME_KEYWORD = "hostname";
+  private static final String PORT_KEYWORD = "port";
+  private static final String DEFAULT_PORT = "22";
+  private static final String SSH_SERVICE = "ssh";
+
+  @Override
+  public void parse(final @NonNull Reader input, final @NonNull Handler handler)
+      throws IOException {
+    final BufferedReader reader =
+        input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+    List<String> aliases = Lists.newArrayList();
+    Map<String, String> options = new NodeProperties();
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      final int separator = keywordEnd(line);
+      final String keyword = line.substring(0, separator).toLowerCase(Locale.ENGLISH);
+      final String value = value(line.substring(separator));
+      if (HOST_KEYWORD.equals(keyword) || MATCH_KEYWORD.equals(keyword)) {
+        emit(aliases, options, handler);
+        aliases = Lists.newArrayList();
+        options = new NodeProperties();
+        if (HOST_KEYWORD.equals(keyword)) {
+          for (final String alias : AnsibleIniInventoryParser.splitTokens(value)) {
+            if (alias.indexOf('*') < 0 && alias.indexOf('?') < 0 && !alias.startsWith("!")) {
+              aliases.add(alias);
+            }
+          }
+        }
+      } else if (value.isEmpty()) {
+        handler.invalidEntry("Line " + lineNumber + ": missing value of " + keyword);
+      } else if (!aliases.isEmpty()) {
+        options.putIfAbsent(keyword, value);
+      }
+    }
+    emit(aliases, options, handler);
+  }
+
+  private static void emit(
+      final @NotNull List<String> aliases,
+      final @NotNull Map<String, String> options,
+      final @NotNull Handler handler) {
+    if (aliases.isEmpty()) {
+      return;
+    }
+    final String hostName = options.remove(HOST_NAME_KEYWORD);
+    final String port = options.remove(PORT_KEYWORD);
+    final String service =
+        port == null || DEFAULT_PORT.equals(port) ? SSH_SERVICE : SSH_SERVICE + ":" + port;
+    for (final String alias : aliases) {
+      final Map<String, String> properties = new NodeProperties(options);
+      if (port != null) {
+        properties.put(PORT_KEYWORD, port);
+      }
+      handler.host(
+          new InventoryHost(
+              alias,
+              hostName == null ? alias : hostName,
+              "",
+              null,
+              properties,
+              Lists.newArrayList(service)));
+    }
+  }
+
+  /** Finds end of the keyword, that is followed by white space or equals sign. */
+  private static int keywordEnd(final @NotNull String line) {
+    int position = 0;
+    while (position < line.length()
+        && line.charAt(position) != '='
+        && !Character.isWhitespace(line.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  /** Strips separator, optional quotes and trailing comment from the value. */
+  private static @NotNull String value(final @NotNull String text) {
+    String value = text.trim();
+    if (value.startsWith("=")) {
+      value = value.substring(1).trim();
+    }
+    if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+      value = value.substring(1, value.length() - 1);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Streaming import of network nodes from external inventories, e.g. CMDB exports, Ansible
+ * inventories, SSH client configuration or hosts files.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.importer;
@@ -0,0 +1,173 @@
+package net.in.rrrekin.ittoolbox.configuration.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Append only journal of node changes made since configuration file was saved. Each entry is
+ * written as a single line YAML flow mapping and synchronized to the storage device, so changes
+ * survive application crash without rewriting the whole configuration file.
+ *
+ * <p>First line of the journal identifies (by SHA-256 hash) the configuration file the entries
+ * should be applied to. Journal made for different content of the configuration file is ignored.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class ChangeJournal implements Closeable {
+
+  @NonNls private static final String BASE_PROPERTY = "base";
+  private static final byte LINE_SEPARATOR = '\n';
+
+  private final @NonNull File journalFile;
+  private final @NotNull Yaml yaml;
+  private @Nullable FileChannel channel;
+
+  /**
+   * Instantiates a new Change journal.
+   *
+   * @param journalFile the journal file
+   */
+  public ChangeJournal(final @NonNull File journalFile) {
+    this.journalFile = journalFile;
+    final DumperOptions options = new DumperOptions();
+    options.setDefaultFlowStyle(DumperOptions.FlowStyle.FLOW);
+    options.setWidth(Integer.MAX_VALUE);
+    options.setSplitLines(false);
+    yaml = new Yaml(options);
+  }
+
+  /**
+   * Appends entry to the journal. Starts new journal if journal file does not exist.
+   *
+   * @param base the hash of configuration file the journal applies to
+   * @param entry the journal entry
+   * @throws IOException on write errors
+   */
+  public synchronized void append(final @NonNull HashCode base, final @NonNull JournalEntry entry)
+      throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(journalFile.toPath(), CREATE, WRITE, APPEND);
+    }
+    if (channel.size() == 0) {
+      write(Collections.singletonMap(BASE_PROPERTY, base.toString()));
+    }
+    write(entry.toDto());
+    channel.force(false);
+  }
+
+  /**
+   * Gets journal file size.
+   *
+   * @return the journal size in bytes
+   */
+  public long size() {
+    return journalFile.length();
+  }
+
+  /**
+   * Reads journal entries. Reading stops at the first incomplete entry (e.g. left by application
+   * crash while writing). Such entry and everything after it is removed from the journal, so
+   * entries appended later are not lost.
+   *
+   * @param base the hash of current configuration file
+   * @return the journal entries or empty list if there is no journal for given file content
+   * @throws IOException on read or write errors
+   */
+  public synchronized @NotNull List<JournalEntry> read(final @NonNull HashCode base)
+      throws IOException {
+    final List<JournalEntry> entries = Lists.newArrayList();
+    if (!journalFile.isFile()) {
+      return entries;
+    }
+    final byte[] content = Files.readAllBytes(journalFile.toPath());
+    int lineStart = 0;
+    int lineEnd;
+    while ((lineEnd = indexOfLineEnd(content, lineStart)) >= 0) {
+      final String line = new String(content, lineStart, lineEnd - lineStart, UTF_8);
+      try {
+        if (lineStart == 0) {
+          if (!isHeaderOf(line, base)) {
+            log.info("Ignoring journal {} made for other configuration file", journalFile);
+            return entries;
+          }
+        } else {
+          entries.add(JournalEntry.fromDto(yaml.load(line)));
+        }
+      } catch (final RuntimeException e) {
+        log.warn("Invalid entry in journal {}: {}", journalFile, e.toString());
+        break;
+      }
+      lineStart = lineEnd + 1;
+    }
+    if (lineStart < content.length) {
+      log.warn("Removing incomplete entries from the end of journal {}", journalFile);
+      close();
+      try (final FileChannel file = FileChannel.open(journalFile.toPath(), WRITE)) {
+        file.truncate(lineStart);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Removes all journal entries, e.g. after configuration file was saved.
+   *
+   * @throws IOException when journal file cannot be removed
+   */
+  public synchronized void clear() throws IOException {
+    close();
+    Files.deleteIfExists(journalFile.toPath());
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private void write(final @NotNull Object dto) throws IOException {
+    final ByteBuffer buffer = UTF_8.encode(yaml.dump(dto).trim() + (char) LINE_SEPARATOR);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static int indexOfLineEnd(final @NotNull byte[] content, final int start) {
+    for (int i = start; i < content.length; i++) {
+      if (content[i] == LINE_SEPARATOR) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isHeaderOf(final @NotNull String line, final @NotNull HashCode base) {
+    final Object header = yaml.load(line);
+    return header instanceof Map
+        && base.toString().equals(((Map<?, ?>) header).get(BASE_PROPERTY));
+  }
+}
@@ -0,0 +1,306 @@
+package net.in.rrrekin.ittoolbox.configuration.journal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.CHILD_NODES_PROPERTY;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.NonNull;
+import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single node level change of the configuration. Nodes are identified by path of indexes, starting
+ * from index in top level node list, followed by indexes in child lists of subsequent groups.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class JournalEntry {
+
+  @NonNls private static final String OPERATION_PROPERTY = "op";
+  @NonNls private static final String PATH_PROPERTY = "path";
+  @NonNls private static final String NODE_PROPERTY = "node";
+  @NonNls private static final String TARGET_PROPERTY = "target";
+  @NonNls private static final String JOURNAL_PARENT_INFO = "journal";
+
+  /** Journal operations. */
+  public enum Operation {
+    /** Replace properties (everything except child nodes) of the node at path. */
+    SET_FIELDS,
+    /** Insert new node at path. */
+    ADD_CHILD,
+    /** Remove node at path. */
+    REMOVE_CHILD,
+    /** Move node from path to target path (as seen after removal from original position). */
+    MOVE
+  }
+
+  /** The operation. */
+  @NonNull Operation operation;
+  /** Path of changed node. */
+  @NonNull List<Integer> path;
+  /** Node DTO for {@link Operation#SET_FIELDS} and {@link Operation#ADD_CHILD}. */
+  @Nullable Map<String, Object> node;
+  /** Target path for {@link Operation#MOVE}. */
+  @Nullable List<Integer> target;
+
+  /**
+   * Creates entry recording new properties of the node.
+   *
+   * @param path the path of the node
+   * @param node the modified node
+   * @return the journal entry
+   */
+  public static @NotNull JournalEntry setFields(
+      final @NonNull List<Integer> path, final @NonNull NetworkNode node) {
+    final Map<String, Object> fields = node.getDtoProperties();
+    fields.remove(CHILD_NODES_PROPERTY);
+    return new JournalEntry(Operation.SET_FIELDS, copyPath(path), fields, null);
+  }
+
+  /**
+   * Creates entry recording insertion of the node (together with its child nodes).
+   *
+   * @param path the path of inserted node
+   * @param node the inserted node
+   * @return the journal entry
+   */
+  public static @NotNull JournalEntry addChild(
+      final @NonNull List<Integer> path, final @NonNull NetworkNode node) {
+    return new JournalEntry(Operation.ADD_CHILD, copyPath(path), node.getDtoProperties(), null);
+  }
+
+  /**
+   * Creates entry recording removal of the node.
+   *
+   * @param path the path of removed node
+   * @return the journal entry
+   */
+  public static @NotNull JournalEntry removeChild(final @NonNull List<Integer> path) {
+    return new JournalEntry(Operation.REMOVE_CHILD, copyPath(path), null, null);
+  }
+
+  /**
+   * Creates entry recording move of the node.
+   *
+   * @param path the path of moved node
+   * @param target the new path of the node, valid after node is removed from old position
+   * @return the journal entry
+   */
+  public static @NotNull JournalEntry move(
+      final @NonNull List<Integer> path, final @NonNull List<Integer> target) {
+    return new JournalEntry(Operation.MOVE, copyPath(path), null, copyPath(target));
+  }
+
+  /**
+   * Creates entry from its DTO.
+   *
+   * @param dto the DTO
+   * @return the journal entry
+   * @throws IllegalArgumentException when DTO is not valid journal entry
+   */
+  @SuppressWarnings("unchecked")
+  static @NotNull JournalEntry fromDto(final @Nullable Object dto) {
+    checkArgument(dto instanceof Map, "Journal entry is not a map: %s", dto);
+    final Map<?, ?> map = (Map<?, ?>) dto;
+    final Operation operation = Operation.valueOf(String.valueOf(map.get(OPERATION_PROPERTY)));
+    final List<Integer> path = toPath(map.get(PATH_PROPERTY));
+    final Object node = map.get(NODE_PROPERTY);
+    final Object target = map.get(TARGET_PROPERTY);
+    switch (operation) {
+      case SET_FIELDS:
+      case ADD_CHILD:
+        checkArgument(node instanceof Map, "Missing node in %s entry", operation);
+        return new JournalEntry(operation, path, (Map<String, Object>) node, null);
+      case MOVE:
+        return new JournalEntry(operation, path, null, toPath(target));
+      default:
+        return new JournalEntry(operation, path, null, null);
+    }
+  }
+
+  /**
+   * Gets DTO of the entry.
+   *
+   * @return the DTO
+   */
+  @NotNull
+  Map<String, Object> toDto() {
+    final Map<String, Object> dto = Maps.newLinkedHashMap();
+    dto.put(OPERATION_PROPERTY, operation.name());
+    dto.put(PATH_PROPERTY, path);
+    if (node != null) {
+      dto.put(NODE_PROPERTY, node);
+    }
+    if (target != null) {
+      dto.put(TARGET_PROPERTY, target);
+    }
+    return dto;
+  }
+
+  /**
+   * Applies the change to copy of the list of top level nodes. Given nodes are not modified: only
+   * the lists and groups on the path of the change are copied, all other nodes are shared with the
+   * result.
+   *
+   * @param nodes the top level nodes
+   * @param factory the node factory
+   * @return the changed copy of top level nodes
+   * @throws InvalidConfigurationException when node cannot be created
+   * @throws IllegalArgumentException when entry does not match the nodes
+   * @throws IndexOutOfBoundsException when entry does not match the nodes
+   */
+  public @NotNull List<NetworkNode> applyCopyOnWrite(
+      final @NonNull List<NetworkNode> nodes, final @NonNull NodeFactory factory)
+      throws InvalidConfigurationException {
+    final int index = path.get(path.size() - 1);
+    switch (operation) {
+      case SET_FIELDS:
+        {
+          final NetworkNode newNode =
+              factory.createNode(Maps.newLinkedHashMap(node), JOURNAL_PARENT_INFO);
+          return changeSiblings(
+              nodes,
+              path,
+              0,
+              siblings -> {
+                checkElementIndex(index, siblings.size());
+                final NetworkNode oldNode = siblings.get(index);
+                checkArgument(
+                    oldNode.isLeaf() == newNode.isLeaf(), "Node type changed in journal: %s", path);
+                siblings.set(index, withChildNodesOf(newNode, oldNode));
+              });
+        }
+      case ADD_CHILD:
+        {
+          final NetworkNode newNode =
+              factory.createNode(Maps.newLinkedHashMap(node), JOURNAL_PARENT_INFO);
+          return changeSiblings(
+              nodes,
+              path,
+              0,
+              siblings -> {
+                checkPositionIndex(index, siblings.size());
+                siblings.add(index, newNode);
+              });
+        }
+      case REMOVE_CHILD:
+        return changeSiblings(
+            nodes,
+            path,
+            0,
+            siblings -> {
+              checkElementIndex(index, siblings.size());
+              siblings.remove(index);
+            });
+      case MOVE:
+        {
+          // Target path is valid after removal, so groups on it are copied only after removal
+          final List<NetworkNode> siblings = getSiblings(nodes, path);
+          checkElementIndex(index, siblings.size());
+          final NetworkNode movedNode = siblings.get(index);
+          final List<NetworkNode> removed =
+              changeSiblings(nodes, path, 0, it -> it.remove(index));
+          final int targetIndex = target.get(target.size() - 1);
+          return changeSiblings(
+              removed,
+              target,
+              0,
+              targetSiblings -> {
+                checkPositionIndex(targetIndex, targetSiblings.size());
+                targetSiblings.add(targetIndex, movedNode);
+              });
+        }
+      default:
+        throw new IllegalStateException("Unsupported operation " + operation);
+    }
+  }
+
+  /**
+   * Copies the list and all groups on the path, together with their child lists, and applies the
+   * change to copy of the list of siblings of the node at the path.
+   */
+  private static @NotNull List<NetworkNode> changeSiblings(
+      final @NotNull List<NetworkNode> nodes,
+      final @NotNull List<Integer> path,
+      final int depth,
+      final @NotNull Consumer<List<NetworkNode>> change) {
+    final List<NetworkNode> result = Lists.newArrayList(nodes);
+    if (depth == path.size() - 1) {
+      change.accept(result);
+    } else {
+      final int index = path.get(depth);
+      checkElementIndex(index, result.size());
+      final NetworkNode parent = result.get(index);
+      checkArgument(
+          parent instanceof GroupingNode, "Node %s cannot have child nodes", parent.getName());
+      result.set(
+          index,
+          ((GroupingNode) parent)
+              .withChildNodes(changeSiblings(parent.getChildNodes(), path, depth + 1, change)));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the new version of the node with child nodes of its old version. Child nodes of include
+   * node still come from the same included file, unless the file was changed.
+   */
+  private static @NotNull NetworkNode withChildNodesOf(
+      final @NotNull NetworkNode newNode, final @NotNull NetworkNode oldNode) {
+    if (newNode.isLeaf()) {
+      return newNode;
+    }
+    if (oldNode instanceof IncludeNode && newNode instanceof IncludeNode) {
+      final IncludeNode oldInclude = (IncludeNode) oldNode;
+      final IncludeNode newInclude = (IncludeNode) newNode;
+      return newInclude.withChildNodes(
+          oldNode.getChildNodes(),
+          oldInclude.getFile().equals(newInclude.getFile())
+              ? oldInclude.getSourceFingerprint()
+              : null);
+    }
+    return ((GroupingNode) newNode).withChildNodes(oldNode.getChildNodes());
+  }
+
+  private static @NotNull List<NetworkNode> getSiblings(
+      final @NotNull List<NetworkNode> nodes, final @NotNull List<Integer> path) {
+    List<NetworkNode> siblings = nodes;
+    for (final int index : path.subList(0, path.size() - 1)) {
+      checkElementIndex(index, siblings.size());
+      final NetworkNode parent = siblings.get(index);
+      checkArgument(!parent.isLeaf(), "Node %s cannot have child nodes", parent.getName());
+      siblings = parent.getChildNodes();
+    }
+    return siblings;
+  }
+
+  private static @NotNull List<Integer> copyPath(final @NotNull List<Integer> path) {
+    checkArgument(!path.isEmpty(), "Empty node path");
+    return ImmutableList.copyOf(path);
+  }
+
+  private static @NotNull List<Integer> toPath(final @Nullable Object dto) {
+    checkArgument(dto instanceof List, "Invalid path: %s", dto);
+    final List<Integer> path = Lists.newArrayList();
+    for (final Object index : (List<?>) dto) {
+      checkArgument(index instanceof Integer, "Invalid path: %s", dto);
+      path.add((Integer) index);
+    }
+    return copyPath(path);
+  }
+}
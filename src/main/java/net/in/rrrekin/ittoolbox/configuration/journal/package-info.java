@@ -0,0 +1,7 @@
+/**
+ * Journal of configuration changes made in the application, kept between saves of the
+ * configuration file.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.journal;
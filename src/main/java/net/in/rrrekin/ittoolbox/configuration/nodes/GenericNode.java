@@ -7,19 +7,18 @@ import static org.apache.commons.text.StringEscapeUtils.escapeHtml4;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import javax.swing.Icon;
-import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
-import jiconfont.swing.IconFontSwing;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents an entity tha has no address, e.g. vlan, clustered application instance, etc.
@@ -30,9 +29,8 @@ import org.jetbrains.annotations.Nullable;
 @RequiredArgsConstructor
 public class GenericNode implements NetworkNode {
 
-  @Getter @Setter private @NonNull String name;
-  @Getter @Setter private @NonNull String description;
-  @ToString.Exclude @Setter private @Nullable Icon icon = null;
+  @Getter private final @NonNull String name;
+  @Getter private final @NonNull String description;
   @Getter private final @NonNull Map<String, String> properties;
   @Getter private final @NonNull List<String> serviceDescriptors;
 
@@ -45,7 +43,7 @@ public class GenericNode implements NetworkNode {
   public GenericNode(final @NonNull String name) {
     this.name = name;
     this.description = name;
-    properties = Maps.newHashMap();
+    properties = new NodeProperties();
     serviceDescriptors = Lists.newArrayList();
   }
 
@@ -62,11 +60,13 @@ public class GenericNode implements NetworkNode {
         type);
     name = toStringOrEmpty(dto.get(NAME_PROPERTY));
     description = toStringOrEmpty(dto.get(DESCRIPTION_PROPERTY));
-    properties = Maps.newHashMap();
-    serviceDescriptors = Lists.newArrayList();
+    properties = new NodeProperties();
     if (dto.get(SERVICES_PROPERTY) instanceof List) {
-      ((List<?>) dto.get(SERVICES_PROPERTY))
-          .forEach(it -> serviceDescriptors.add(toStringOrEmpty(it)));
+      final List<?> services = (List<?>) dto.get(SERVICES_PROPERTY);
+      serviceDescriptors = Lists.newArrayListWithCapacity(services.size());
+      services.forEach(it -> serviceDescriptors.add(StringPool.intern(toStringOrEmpty(it))));
+    } else {
+      serviceDescriptors = Lists.newArrayList();
     }
     for (final Map.Entry<String, Object> entry : dto.entrySet()) {
       final String property = entry.getKey();
@@ -80,10 +80,7 @@ public class GenericNode implements NetworkNode {
 
   @Override
   public @NotNull Icon getIcon() {
-    if (icon == null) {
-      icon = IconFontSwing.buildIcon(GoogleMaterialDesignIcons.LABEL_OUTLINE, NetworkNode.ICON_SIZE);
-    }
-    return icon;
+    return NodeIcons.of(NodeIcons.GENERIC);
   }
 
   @Override
@@ -97,6 +94,19 @@ public class GenericNode implements NetworkNode {
     return response;
   }
 
+  @Override
+  public void writeDtoProperties(final @NonNull DocumentWriter writer) throws IOException {
+    writer.startMapping();
+    writer.writeEntry(TYPE_PROPERTY, NodeType.GENERIC_NODE.getTypeName());
+    writer.writeEntry(NAME_PROPERTY, name);
+    writer.writeEntry(DESCRIPTION_PROPERTY, description);
+    writer.writeEntry(SERVICES_PROPERTY, serviceDescriptors);
+    for (final Map.Entry<String, String> property : properties.entrySet()) {
+      writer.writeEntry(PROPERTIES_PREFIX + property.getKey(), property.getValue());
+    }
+    writer.endMapping();
+  }
+
   @NonNls
   @Override
   public String toHtml() {
@@ -106,4 +116,15 @@ public class GenericNode implements NetworkNode {
       + escapeHtml4(description)
       + "</i></p>";
   }
+
+  @Override
+  public @NotNull GenericNode deepCopy() {
+    return withName(name);
+  }
+
+  @Override
+  public @NotNull GenericNode withName(final @NonNull String name) {
+    return new GenericNode(
+        name, description, new NodeProperties(properties), Lists.newArrayList(serviceDescriptors));
+  }
 }
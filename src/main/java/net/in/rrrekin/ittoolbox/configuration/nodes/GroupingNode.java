@@ -5,41 +5,58 @@ import static net.in.rrrekin.ittoolbox.utilities.LocaleUtil.enMessage;
 import static net.in.rrrekin.ittoolbox.utilities.StringUtils.toStringOrEmpty;
 import static org.apache.commons.text.StringEscapeUtils.escapeHtml4;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import javax.swing.Icon;
-import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
-import jiconfont.swing.IconFontSwing;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 /**
- * Represents a group of other network nodes.
+ * Represents a group of other network nodes. Child nodes cannot be changed, changed group is
+ * published as a new node, e.g. created by {@link #withChildNodes(List)}.
  *
  * @author michal.rudewicz @gmail.com
  */
 @ToString
-@RequiredArgsConstructor
 public class GroupingNode implements NetworkNode {
 
   /** Separator used to join parent hierarchy of network nodes. */
-  private static final char LOCATION_PATH_SEPARATOR = '/';
+  static final char LOCATION_PATH_SEPARATOR = '/';
 
-  @Getter @Setter private @NonNull String name;
-  @Getter @Setter private @NonNull String description;
-  @ToString.Exclude @Setter private @Nullable Icon icon = null;
+  @Getter private final @NonNull String name;
+  @Getter private final @NonNull String description;
   @ToString.Exclude @Getter private final @NotNull List<@NotNull NetworkNode> childNodes;
   @Getter private final @NonNull List<String> serviceDescriptors;
 
+  /**
+   * Instantiates a new Grouping node.
+   *
+   * @param name the name
+   * @param description the description
+   * @param childNodes the child nodes, the list is copied
+   * @param serviceDescriptors the service descriptors
+   */
+  public GroupingNode(
+      final @NonNull String name,
+      final @NonNull String description,
+      final @NonNull List<@NotNull NetworkNode> childNodes,
+      final @NonNull List<String> serviceDescriptors) {
+    this.name = name;
+    this.description = description;
+    this.childNodes = ImmutableList.copyOf(childNodes);
+    this.serviceDescriptors = serviceDescriptors;
+  }
 
   /**
    * Instantiates a new Grouping node.
@@ -47,10 +64,7 @@ public class GroupingNode implements NetworkNode {
    * @param name the name
    */
   public GroupingNode(final @NonNull String name) {
-    this.name = name;
-    description = name;
-    childNodes = Lists.newArrayList();
-    serviceDescriptors = Lists.newArrayList();
+    this(name, name, Collections.emptyList(), Lists.newArrayList());
   }
 
   /**
@@ -70,28 +84,57 @@ public class GroupingNode implements NetworkNode {
         type);
     name = toStringOrEmpty(dto.get(NAME_PROPERTY));
     description = toStringOrEmpty(dto.get(DESCRIPTION_PROPERTY));
-    childNodes = Lists.newArrayList();
     serviceDescriptors = Lists.newArrayList();
     // TODO: implement notifications on errors in service and child lists (also for other node
     // types)
     if (dto.get(SERVICES_PROPERTY) instanceof List) {
       ((List<?>) dto.get(SERVICES_PROPERTY))
-          .forEach(it -> serviceDescriptors.add(toStringOrEmpty(it)));
+          .forEach(it -> serviceDescriptors.add(StringPool.intern(toStringOrEmpty(it))));
     }
     final Object childNodesDtos = dto.get(CHILD_NODES_PROPERTY);
-    if (childNodesDtos instanceof List) {
-      childNodes.addAll(
-          factory.createNodeList(
-              (List<?>) childNodesDtos, parentInfo + LOCATION_PATH_SEPARATOR + name));
+    childNodes =
+        childNodesDtos instanceof List
+            ? ImmutableList.copyOf(
+                factory.createNodeList(
+                    (List<?>) childNodesDtos, parentInfo + LOCATION_PATH_SEPARATOR + name))
+            : ImmutableList.of();
+  }
+
+  /**
+   * Creates copy of this group with other child nodes, e.g. to publish changed version of the
+   * group without modifying this instance.
+   *
+   * @param childNodes the child nodes
+   * @return the grouping node
+   */
+  public @NotNull GroupingNode withChildNodes(
+      final @NonNull List<@NotNull NetworkNode> childNodes) {
+    return new GroupingNode(name, description, childNodes, Lists.newArrayList(serviceDescriptors));
+  }
+
+  @Override
+  public @NotNull GroupingNode withName(final @NonNull String name) {
+    return new GroupingNode(name, description, childNodes, Lists.newArrayList(serviceDescriptors));
+  }
+
+  @Override
+  public @NotNull GroupingNode deepCopy() {
+    return withChildNodes(deepCopyOfChildNodes());
+  }
+
+  /** Gets copies of child nodes, see {@link #deepCopy()}. */
+  @NotNull
+  List<@NotNull NetworkNode> deepCopyOfChildNodes() {
+    final List<NetworkNode> copies = Lists.newArrayListWithCapacity(childNodes.size());
+    for (final NetworkNode child : childNodes) {
+      copies.add(child.deepCopy());
     }
+    return copies;
   }
 
   @Override
   public @NotNull Icon getIcon() {
-    if (icon == null) {
-      icon = IconFontSwing.buildIcon(GoogleMaterialDesignIcons.FOLDER_OPEN, NetworkNode.ICON_SIZE);
-    }
-    return icon;
+    return NodeIcons.of(NodeIcons.GROUP);
   }
 
   @Override
@@ -112,13 +155,29 @@ public class GroupingNode implements NetworkNode {
     return response;
   }
 
+  @Override
+  public void writeDtoProperties(final @NonNull DocumentWriter writer) throws IOException {
+    writer.startMapping();
+    writer.writeEntry(TYPE_PROPERTY, NodeType.GROUP.getTypeName());
+    writer.writeEntry(NAME_PROPERTY, name);
+    writer.writeEntry(DESCRIPTION_PROPERTY, description);
+    writer.writeScalar(CHILD_NODES_PROPERTY);
+    writer.startSequence();
+    for (final NetworkNode childNode : childNodes) {
+      childNode.writeDtoProperties(writer);
+    }
+    writer.endSequence();
+    writer.writeEntry(SERVICES_PROPERTY, serviceDescriptors);
+    writer.endMapping();
+  }
+
   @NonNls
   @Override
   public String toHtml() {
     return "<h1>"
-        + escapeHtml4(name)
+        + escapeHtml4(getName())
         + "</h1><p><i>"
-        + escapeHtml4(description)
+        + escapeHtml4(getDescription())
         + "</i></p>";
   }
 }
@@ -0,0 +1,224 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static net.in.rrrekin.ittoolbox.utilities.LocaleUtil.enMessage;
+import static net.in.rrrekin.ittoolbox.utilities.StringUtils.toStringOrEmpty;
+import static org.apache.commons.text.StringEscapeUtils.escapeHtml4;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.swing.Icon;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Group of network nodes stored in a separate file (e.g. one file per site or per team). Only the
+ * reference to the file is stored in the configuration file, child nodes are read from and written
+ * to the included file.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@ToString(callSuper = true)
+public class IncludeNode extends GroupingNode {
+
+  /** The constant FILE key in configuration DTO. */
+  public static final String FILE_PROPERTY = "file";
+
+  /** Path of included file, relative paths are resolved against configuration file directory. */
+  @Getter private final @NonNull String file;
+
+  /**
+   * Fingerprint of included file content the child nodes were read from or written to. Null if
+   * child nodes do not come from the file, e.g. file could not be read.
+   */
+  @ToString.Exclude @Getter private final @Nullable FileFingerprint sourceFingerprint;
+
+  /**
+   * Instantiates a new Include node.
+   *
+   * @param name the name
+   * @param description the description
+   * @param file the included file path
+   * @param childNodes the child nodes
+   * @param serviceDescriptors the service descriptors
+   */
+  public IncludeNode(
+      final @NonNull String name,
+      final @NonNull String description,
+      final @NonNull String file,
+      final @NonNull List<@NotNull NetworkNode> childNodes,
+      final @NonNull List<String> serviceDescriptors) {
+    this(name, description, file, childNodes, serviceDescriptors, null);
+  }
+
+  private IncludeNode(
+      final @NonNull String name,
+      final @NonNull String description,
+      final @NonNull String file,
+      final @NonNull List<@NotNull NetworkNode> childNodes,
+      final @NonNull List<String> serviceDescriptors,
+      final @Nullable FileFingerprint sourceFingerprint) {
+    super(name, description, childNodes, serviceDescriptors);
+    this.file = file;
+    this.sourceFingerprint = sourceFingerprint;
+  }
+
+  /**
+   * Instantiates a new Include node without child nodes. Child nodes are read from the included
+   * file by the configuration persistence service.
+   *
+   * @param dto the dto
+   */
+  public IncludeNode(final @NonNull Map<String, Object> dto) {
+    super(
+        toStringOrEmpty(dto.get(NAME_PROPERTY)),
+        toStringOrEmpty(dto.get(DESCRIPTION_PROPERTY)),
+        Collections.emptyList(),
+        Lists.newArrayList());
+    final String type = toStringOrEmpty(dto.get(TYPE_PROPERTY));
+    checkArgument(
+        NodeType.INCLUDE.getTypeName().equalsIgnoreCase(type),
+        enMessage("NODE_CONSTRUCTOR_TYPE_MISMATCH"),
+        type);
+    file = toStringOrEmpty(dto.get(FILE_PROPERTY));
+    sourceFingerprint = null;
+    if (dto.get(SERVICES_PROPERTY) instanceof List) {
+      ((List<?>) dto.get(SERVICES_PROPERTY))
+          .forEach(it -> getServiceDescriptors().add(StringPool.intern(toStringOrEmpty(it))));
+    }
+  }
+
+  /**
+   * Creates copy of this node with other child nodes.
+   *
+   * @param childNodes the child nodes
+   * @param sourceFingerprint the fingerprint of the file child nodes were read from
+   * @return the include node
+   */
+  public @NotNull IncludeNode withChildNodes(
+      final @NonNull List<@NotNull NetworkNode> childNodes,
+      final @Nullable FileFingerprint sourceFingerprint) {
+    return new IncludeNode(
+        getName(),
+        getDescription(),
+        file,
+        childNodes,
+        Lists.newArrayList(getServiceDescriptors()),
+        sourceFingerprint);
+  }
+
+  /**
+   * Creates copy of this node with other child nodes, read from the same file.
+   *
+   * @param childNodes the child nodes
+   * @return the include node
+   */
+  @Override
+  public @NotNull IncludeNode withChildNodes(
+      final @NonNull List<@NotNull NetworkNode> childNodes) {
+    return withChildNodes(childNodes, sourceFingerprint);
+  }
+
+  @Override
+  public @NotNull IncludeNode withName(final @NonNull String name) {
+    return new IncludeNode(
+        name,
+        getDescription(),
+        file,
+        getChildNodes(),
+        Lists.newArrayList(getServiceDescriptors()),
+        sourceFingerprint);
+  }
+
+  @Override
+  public @NotNull IncludeNode deepCopy() {
+    return withChildNodes(deepCopyOfChildNodes());
+  }
+
+  /**
+   * Resolves included file path.
+   *
+   * @param configFile the configuration file that contains this node
+   * @return the included file
+   */
+  public @NotNull File resolve(final @NonNull File configFile) {
+    final File includedFile = new File(file);
+    return includedFile.isAbsolute()
+        ? includedFile
+        : new File(configFile.getAbsoluteFile().getParentFile(), file);
+  }
+
+  /**
+   * Finds include nodes in the node tree. Include nodes inside included files are not searched.
+   *
+   * @param nodes the top level nodes
+   * @return the include nodes in tree order
+   */
+  public static @NotNull List<IncludeNode> findAll(final @NonNull List<NetworkNode> nodes) {
+    final List<IncludeNode> response = Lists.newArrayList();
+    collect(nodes, response);
+    return response;
+  }
+
+  private static void collect(
+      final @NotNull List<NetworkNode> nodes, final @NotNull List<IncludeNode> response) {
+    for (final NetworkNode node : nodes) {
+      if (node instanceof IncludeNode) {
+        response.add((IncludeNode) node);
+      } else {
+        collect(node.getChildNodes(), response);
+      }
+    }
+  }
+
+  @Override
+  public @NotNull Icon getIcon() {
+    return NodeIcons.of(NodeIcons.INCLUDE);
+  }
+
+  @Override
+  public @NotNull Map<String, Object> getDtoProperties() {
+    final Map<String, Object> response = Maps.newLinkedHashMap();
+    response.put(TYPE_PROPERTY, NodeType.INCLUDE.getTypeName());
+    response.put(NAME_PROPERTY, getName());
+    response.put(DESCRIPTION_PROPERTY, getDescription());
+    response.put(FILE_PROPERTY, file);
+    response.put(SERVICES_PROPERTY, getServiceDescriptors());
+    return response;
+  }
+
+  @Override
+  public void writeDtoProperties(final @NonNull DocumentWriter writer) throws IOException {
+    writer.startMapping();
+    writer.writeEntry(TYPE_PROPERTY, NodeType.INCLUDE.getTypeName());
+    writer.writeEntry(NAME_PROPERTY, getName());
+    writer.writeEntry(DESCRIPTION_PROPERTY, getDescription());
+    writer.writeEntry(FILE_PROPERTY, file);
+    writer.writeEntry(SERVICES_PROPERTY, getServiceDescriptors());
+    writer.endMapping();
+  }
+
+  @NonNls
+  @Override
+  public String toHtml() {
+    return "<h1>"
+        + escapeHtml4(getName())
+        + "</h1><p><i>"
+        + escapeHtml4(getDescription())
+        + "</i></p><p>"
+        + escapeHtml4(file)
+        + "</p>";
+  }
+}
@@ -1,5 +1,6 @@
 package net.in.rrrekin.ittoolbox.configuration.nodes;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -7,6 +8,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 import javax.swing.Icon;
 import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
@@ -49,13 +51,6 @@ public interface NetworkNode {
   @NotNull
   String getName();
 
-  /**
-   * Sets name of the node.
-   *
-   * @param name new node name (not null)
-   */
-  void setName(@NonNull String name);
-
   /**
    * Gets description.
    *
@@ -72,13 +67,6 @@ public interface NetworkNode {
   @NotNull
   Icon getIcon();
 
-  /**
-   * Sets icon to be displayed for node.
-   *
-   * @param icon the icon
-   */
-  void setIcon(Icon icon);
-
   /**
    * True if given node cannot have children.
    *
@@ -127,6 +115,35 @@ public interface NetworkNode {
   @NotNull
   Map<String, Object> getDtoProperties();
 
+  /**
+   * Writes dto properties directly to document writer, without building the map returned by
+   * {@link #getDtoProperties()}. The written mapping must be identical to the dumped dto
+   * properties.
+   *
+   * @param writer the document writer
+   * @throws IOException on write errors
+   */
+  void writeDtoProperties(@NonNull DocumentWriter writer) throws IOException;
+
   /** Gets HTML description of the node. */
   String toHtml();
+
+  /**
+   * Creates copy of the node together with copies of all its child nodes. The copy shares no
+   * mutable state with this node, so it may be modified while this node is read by other threads.
+   *
+   * @return the copy of the node
+   */
+  @NotNull
+  NetworkNode deepCopy();
+
+  /**
+   * Creates copy of the node with other name, e.g. to publish renamed node. Child nodes are shared
+   * with this node, the node itself is not modified.
+   *
+   * @param name the new name of the node
+   * @return the renamed copy of the node
+   */
+  @NotNull
+  NetworkNode withName(@NonNull String name);
 }
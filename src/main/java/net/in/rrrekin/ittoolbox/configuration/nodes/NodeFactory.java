@@ -12,28 +12,88 @@ import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentReader;
 import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException;
 import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Factory of {@link NetworkNode} object based on a generic Map DTO.
  *
+ * <p>Factory created with positive parallel threshold builds node lists in fork/join mode: runs of
+ * sibling subtrees with at least threshold nodes are built in separate tasks. Configuration errors
+ * found by each task are collected and posted in document order by the calling thread after all
+ * tasks are finished, so result and reported errors are the same as in sequential mode. Nodes read
+ * from document reader are always built sequentially while the document is read, without DTOs, so
+ * reading a large file does not keep DTO maps of whole subtrees in memory. Read nodes and reported
+ * errors are the same as for DTOs of the document.
+ *
+ * <p>Custom properties of created nodes are stored in {@link NodeProperties} and service
+ * descriptors are taken from {@link StringPool}, so values repeated across many nodes are shared.
+ *
  * @author michal.rudewicz @gmail.com
  */
 @Slf4j
 public class NodeFactory {
 
+  /** Default number of nodes in subtrees built by single task in fork/join mode. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 500;
+
   private static final int MAX_DESCRIPTION_WIDTH = 40;
-  private final @NonNull EventBus eventBus;
+  private final int parallelThreshold;
+  private final @NonNull Consumer<ConfigurationErrorEvent> errorSink;
 
+  /**
+   * Instantiates a new Node factory that builds nodes in fork/join mode with {@link
+   * #DEFAULT_PARALLEL_THRESHOLD}.
+   *
+   * @param eventBus the event bus
+   */
   @Inject
   public NodeFactory(final @NonNull EventBus eventBus) {
+    this(eventBus, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Instantiates a new Node factory.
+   *
+   * @param eventBus the event bus
+   * @param parallelThreshold minimal number of nodes built by single fork/join task, zero or
+   *     negative value for sequential construction
+   */
+  public NodeFactory(final @NonNull EventBus eventBus, final int parallelThreshold) {
     log.debug("Creating NodeFactory");
-    this.eventBus = eventBus;
+    this.parallelThreshold = parallelThreshold;
+    errorSink = eventBus::post;
+  }
+
+  /** Creates factory with the same settings as parent and other consumer of errors. */
+  private NodeFactory(
+      final @NotNull NodeFactory parent,
+      final @NotNull Consumer<ConfigurationErrorEvent> errorSink) {
+    parallelThreshold = parent.parallelThreshold;
+    this.errorSink = errorSink;
+  }
+
+  /**
+   * Creates factory with the same settings that passes configuration errors to given consumer
+   * instead of posting them on the event bus, e.g. to read several files in parallel.
+   *
+   * @param errorSink the configuration error consumer
+   * @return the node factory
+   */
+  public @NotNull NodeFactory withErrorSink(
+      final @NonNull Consumer<ConfigurationErrorEvent> errorSink) {
+    return new NodeFactory(this, errorSink);
   }
 
   /**
@@ -49,9 +109,7 @@ public class NodeFactory {
     final String typeName = toStringOrEmpty(dto.get(NetworkNode.TYPE_PROPERTY));
     final NodeType type = NodeType.of(typeName);
     if (type == null) {
-      throw new InvalidConfigurationException(
-          "EX_CANNOT_CREATE",
-          StringUtils.isBlank(typeName) ? localMessage("CFG_UNKNOWN_TYPE") : typeName);
+      throw unknownTypeException(typeName);
     }
     try {
       return type.create(dto, parentInfo, this);
@@ -69,6 +127,52 @@ public class NodeFactory {
    */
   public @NotNull List<NetworkNode> createNodeList(
       final @NonNull List<?> dtoList, final @NonNull String parentInfo) {
+    if (parallelThreshold <= 0 || countNodes(dtoList, parallelThreshold) < parallelThreshold) {
+      return createNodesSequentially(dtoList, parentInfo);
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      return createNodesInParallel(dtoList, parentInfo);
+    }
+    final NodeListTask task = new NodeListTask(dtoList, parentInfo, true);
+    final List<NetworkNode> response = ForkJoinPool.commonPool().invoke(task);
+    task.errors.forEach(errorSink);
+    return response;
+  }
+
+  /**
+   * Splits list into runs of siblings with at least threshold nodes and builds each run in a
+   * separate task. Remaining siblings are built by the current thread.
+   */
+  private @NotNull List<NetworkNode> createNodesInParallel(
+      final @NotNull List<?> dtoList, final @NotNull String parentInfo) {
+    final List<NodeListTask> forkedTasks = Lists.newArrayList();
+    int runStart = 0;
+    int runSize = 0;
+    for (int i = 0; i < dtoList.size(); i++) {
+      runSize += countNodes(dtoList.get(i), parallelThreshold - runSize);
+      if (runSize >= parallelThreshold) {
+        final NodeListTask task =
+            new NodeListTask(dtoList.subList(runStart, i + 1), parentInfo, false);
+        task.fork();
+        forkedTasks.add(task);
+        runStart = i + 1;
+        runSize = 0;
+      }
+    }
+    final NodeListTask lastRun =
+        new NodeListTask(dtoList.subList(runStart, dtoList.size()), parentInfo, false);
+    lastRun.invoke();
+
+    final List<NetworkNode> response = Lists.newArrayListWithCapacity(dtoList.size());
+    for (final NodeListTask task : forkedTasks) {
+      joinTask(task, response);
+    }
+    joinTask(lastRun, response);
+    return response;
+  }
+
+  private @NotNull List<NetworkNode> createNodesSequentially(
+      final @NotNull List<?> dtoList, final @NotNull String parentInfo) {
     final List<NetworkNode> response = Lists.newArrayList();
     for (final Object child : dtoList) {
       if (child instanceof Map) {
@@ -79,26 +183,287 @@ public class NodeFactory {
           response.add(createNode(propertyMap, parentInfo));
         } catch (final InvalidConfigurationException e) {
           log.warn("{} / Skipping invalid element in {}: {}, ", e.getMessage(), parentInfo, child);
-          eventBus.post(
-              new ConfigurationErrorEvent(
-                  CANNOT_CREATE_NETWORK_NODE,
-                  localMessage(
-                      "CFG_CANNOT_CREATE_NETWORK_NODE",
-                      parentInfo,
-                      e.getLocalizedMessage(),
-                      abbreviate(childMap.toString(), MAX_DESCRIPTION_WIDTH))));
+          postCannotCreateError(parentInfo, e, summaryOf(childMap));
+        }
+      } else {
+        postInvalidObjectError(parentInfo, child);
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Create list of NetworkNode elements directly from document reader, without building
+   * intermediate DTO maps. The reader must be positioned at the start of a sequence; the whole
+   * sequence is consumed. Invalid elements are reported the same way as in {@link
+   * #createNodeList(List, String)}. Nodes are built sequentially also in fork/join mode.
+   *
+   * @param reader the document reader
+   * @param parentInfo the parent info (path in hierarchy)
+   * @return the NetworkNode list
+   */
+  public @NotNull List<NetworkNode> readNodeList(
+      final @NonNull DocumentReader reader, final @NonNull String parentInfo) {
+    final List<NetworkNode> response = Lists.newArrayList();
+    reader.readSequenceStart();
+    while (!reader.isSequenceEnd()) {
+      if (reader.isMappingStart()) {
+        final NetworkNode node = readNode(reader, parentInfo);
+        if (node != null) {
+          response.add(node);
         }
       } else {
-        log.warn("Invalid object on element DTO list in {}: {}", parentInfo, child);
-        eventBus.post(
-            new ConfigurationErrorEvent(
-                INVALID_OBJECT_ON_DTO_LIST,
-                localMessage(
-                    "CFG_INVALID_OBJECT_ON_DTO_LIST",
-                    parentInfo,
-                    abbreviate(String.valueOf(child), MAX_DESCRIPTION_WIDTH))));
+        postInvalidObjectError(parentInfo, reader.readValue());
       }
     }
+    reader.readSequenceEnd();
     return response;
   }
+
+  private void joinTask(
+      final @NotNull NodeListTask task, final @NotNull List<NetworkNode> response) {
+    response.addAll(task.join());
+    task.errors.forEach(errorSink);
+  }
+
+  /**
+   * Reads single node mapping. Child nodes are read with path based on the name read so far, so in
+   * files written by application (name before children) the path is the same as for DTO based
+   * construction.
+   */
+  private @Nullable NetworkNode readNode(
+      final @NotNull DocumentReader reader, final @NotNull String parentInfo) {
+    String typeName = "";
+    NodeType type = null;
+    String name = "";
+    String address = "";
+    String description = "";
+    String file = "";
+    final Map<String, String> properties = new NodeProperties();
+    final List<String> serviceDescriptors = Lists.newArrayList();
+    List<NetworkNode> childNodes = null;
+    final List<ConfigurationErrorEvent> childErrors = Lists.newArrayList();
+    final StringBuilder summary = new StringBuilder("{");
+
+    reader.readMappingStart();
+    while (!reader.isMappingEnd()) {
+      final String property = reader.readString();
+      appendSummary(summary, property, "=");
+      switch (property) {
+        case NetworkNode.TYPE_PROPERTY:
+          typeName = reader.readString();
+          type = NodeType.of(typeName);
+          appendSummary(summary, typeName, ", ");
+          break;
+        case NetworkNode.NAME_PROPERTY:
+          name = reader.readString();
+          appendSummary(summary, name, ", ");
+          break;
+        case NetworkNode.ADDRESS_PROEPRTY:
+          address = reader.readString();
+          appendSummary(summary, address, ", ");
+          break;
+        case NetworkNode.DESCRIPTION_PROPERTY:
+          description = reader.readString();
+          appendSummary(summary, description, ", ");
+          break;
+        case IncludeNode.FILE_PROPERTY:
+          file = reader.readString();
+          appendSummary(summary, file, ", ");
+          break;
+        case NetworkNode.SERVICES_PROPERTY:
+          serviceDescriptors.clear();
+          if (reader.isSequenceStart()) {
+            reader.readSequenceStart();
+            while (!reader.isSequenceEnd()) {
+              serviceDescriptors.add(reader.readString());
+            }
+            reader.readSequenceEnd();
+          } else {
+            reader.skipValue();
+          }
+          appendSummary(summary, serviceDescriptors.toString(), ", ");
+          break;
+        case NetworkNode.CHILD_NODES_PROPERTY:
+          if (reader.isSequenceStart() && (type == null || type == NodeType.GROUP)) {
+            // Errors are reported only for child nodes of groups, like in DTO based construction
+            childNodes =
+                new NodeFactory(this, childErrors::add)
+                    .readNodeList(reader, parentInfo + GroupingNode.LOCATION_PATH_SEPARATOR + name);
+          } else {
+            reader.skipValue();
+          }
+          appendSummary(summary, "[...]", ", ");
+          break;
+        default:
+          if (property.startsWith(NetworkNode.PROPERTIES_PREFIX)) {
+            final String value = reader.readString();
+            properties.put(property.substring(NetworkNode.PROPERTIES_PREFIX.length()), value);
+            appendSummary(summary, value, ", ");
+          } else {
+            reader.skipValue();
+            appendSummary(summary, "...", ", ");
+          }
+      }
+    }
+    reader.readMappingEnd();
+
+    if (type == null) {
+      final InvalidConfigurationException e = unknownTypeException(typeName);
+      log.warn("{} / Skipping invalid element in {}: {}, ", e.getMessage(), parentInfo, summary);
+      postCannotCreateError(parentInfo, e, summary.append('}').toString());
+      return null;
+    }
+    switch (type) {
+      case GROUP:
+        childErrors.forEach(errorSink);
+        return new GroupingNode(
+            name,
+            description,
+            childNodes == null ? Lists.newArrayList() : childNodes,
+            StringPool.internAll(serviceDescriptors));
+      case SERVER:
+        return new Server(
+            name, address, description, properties, StringPool.internAll(serviceDescriptors));
+      case INCLUDE:
+        return new IncludeNode(
+            name,
+            description,
+            file,
+            Lists.newArrayList(),
+            StringPool.internAll(serviceDescriptors));
+      default:
+        return new GenericNode(
+            name, description, properties, StringPool.internAll(serviceDescriptors));
+    }
+  }
+
+  /**
+   * Counts nodes in DTO subtree, stops counting when limit is reached.
+   *
+   * @param dto the node DTO or list of node DTOs
+   * @param limit the limit
+   * @return number of nodes, not greater than the limit if the limit was reached
+   */
+  private static int countNodes(final @Nullable Object dto, final int limit) {
+    int count = 0;
+    Object children = dto;
+    if (dto instanceof Map) {
+      count = 1;
+      children = ((Map<?, ?>) dto).get(NetworkNode.CHILD_NODES_PROPERTY);
+    }
+    if (children instanceof List) {
+      for (final Object child : (List<?>) children) {
+        if (count >= limit) {
+          break;
+        }
+        count += countNodes(child, limit - count);
+      }
+    }
+    return count;
+  }
+
+  /** Describes invalid DTO the same way as {@link #readNode} describes invalid mapping. */
+  private static @NotNull String summaryOf(final @NotNull Map<?, ?> dto) {
+    final StringBuilder summary = new StringBuilder("{");
+    dto.forEach(
+        (key, value) -> {
+          final String property = toStringOrEmpty(key);
+          appendSummary(summary, property, "=");
+          appendSummary(summary, summaryOfValue(property, value), ", ");
+        });
+    return summary.append('}').toString();
+  }
+
+  private static @NotNull String summaryOfValue(
+      final @NotNull String property, final @Nullable Object value) {
+    switch (property) {
+      case NetworkNode.SERVICES_PROPERTY:
+        final List<String> serviceDescriptors = Lists.newArrayList();
+        if (value instanceof List) {
+          ((List<?>) value).forEach(it -> serviceDescriptors.add(toStringOrEmpty(it)));
+        }
+        return serviceDescriptors.toString();
+      case NetworkNode.CHILD_NODES_PROPERTY:
+        return "[...]";
+      case NetworkNode.TYPE_PROPERTY:
+      case NetworkNode.NAME_PROPERTY:
+      case NetworkNode.ADDRESS_PROEPRTY:
+      case NetworkNode.DESCRIPTION_PROPERTY:
+      case IncludeNode.FILE_PROPERTY:
+        return toStringOrEmpty(value);
+      default:
+        return property.startsWith(NetworkNode.PROPERTIES_PREFIX) ? toStringOrEmpty(value) : "...";
+    }
+  }
+
+  private static void appendSummary(
+      final @NotNull StringBuilder summary,
+      final @NotNull String value,
+      final @NotNull String separator) {
+    if (summary.length() <= MAX_DESCRIPTION_WIDTH) {
+      summary.append(value).append(separator);
+    }
+  }
+
+  private static @NotNull InvalidConfigurationException unknownTypeException(
+      final @NotNull String typeName) {
+    return new InvalidConfigurationException(
+        "EX_CANNOT_CREATE",
+        StringUtils.isBlank(typeName) ? localMessage("CFG_UNKNOWN_TYPE") : typeName);
+  }
+
+  private void postCannotCreateError(
+      final @NotNull String parentInfo,
+      final @NotNull InvalidConfigurationException e,
+      final @NotNull String elementDescription) {
+    errorSink.accept(
+        new ConfigurationErrorEvent(
+            CANNOT_CREATE_NETWORK_NODE,
+            localMessage(
+                "CFG_CANNOT_CREATE_NETWORK_NODE",
+                parentInfo,
+                e.getLocalizedMessage(),
+                abbreviate(elementDescription, MAX_DESCRIPTION_WIDTH))));
+  }
+
+  private void postInvalidObjectError(
+      final @NotNull String parentInfo, final @Nullable Object element) {
+    log.warn("Invalid object on element DTO list in {}: {}", parentInfo, element);
+    errorSink.accept(
+        new ConfigurationErrorEvent(
+            INVALID_OBJECT_ON_DTO_LIST,
+            localMessage(
+                "CFG_INVALID_OBJECT_ON_DTO_LIST",
+                parentInfo,
+                abbreviate(String.valueOf(element), MAX_DESCRIPTION_WIDTH))));
+  }
+
+  /**
+   * Fork/join task that builds nodes of a part of sibling list. Errors are collected by the task
+   * and forwarded by the task that joins it.
+   */
+  private final class NodeListTask extends RecursiveTask<List<NetworkNode>> {
+    private static final long serialVersionUID = 1L;
+
+    private final @NotNull List<?> dtoList;
+    private final @NotNull String parentInfo;
+    private final boolean split;
+    private final @NotNull List<ConfigurationErrorEvent> errors = Lists.newArrayList();
+
+    private NodeListTask(
+        final @NotNull List<?> dtoList, final @NotNull String parentInfo, final boolean split) {
+      this.dtoList = dtoList;
+      this.parentInfo = parentInfo;
+      this.split = split;
+    }
+
+    @Override
+    protected List<NetworkNode> compute() {
+      final NodeFactory taskFactory = new NodeFactory(NodeFactory.this, errors::add);
+      return split
+          ? taskFactory.createNodesInParallel(dtoList, parentInfo)
+          : taskFactory.createNodesSequentially(dtoList, parentInfo);
+    }
+  }
 }
@@ -0,0 +1,57 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes;
+
+import static net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode.ICON_SIZE;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.Icon;
+import jiconfont.IconCode;
+import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.utilities.IconCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Icons of network nodes. Nodes share the icon of their type from {@link IconCache}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class NodeIcons {
+
+  /** Glyph of the configuration root. */
+  public static final IconCode ROOT = GoogleMaterialDesignIcons.APPS;
+  /** Glyph of {@link Server} nodes. */
+  public static final IconCode SERVER = GoogleMaterialDesignIcons.COMPUTER;
+  /** Glyph of {@link GenericNode} nodes. */
+  public static final IconCode GENERIC = GoogleMaterialDesignIcons.LABEL_OUTLINE;
+  /** Glyph of {@link GroupingNode} nodes. */
+  public static final IconCode GROUP = GoogleMaterialDesignIcons.FOLDER_OPEN;
+  /** Glyph of {@link IncludeNode} nodes. */
+  public static final IconCode INCLUDE = GoogleMaterialDesignIcons.FOLDER_SHARED;
+
+  private static final List<IconCode> ALL = Arrays.asList(ROOT, SERVER, GENERIC, GROUP, INCLUDE);
+
+  private NodeIcons() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Gets shared node icon.
+   *
+   * @param code the glyph
+   * @return the icon of node size
+   */
+  public static @NotNull Icon of(final @NonNull IconCode code) {
+    return IconCache.glyph(code, ICON_SIZE);
+  }
+
+  /**
+   * Rasterizes all default node icons, so it is not done in event dispatch thread when the tree of
+   * nodes is painted first time. Icon font must be registered before.
+   */
+  public static void preload() {
+    for (final IconCode code : ALL) {
+      of(code);
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.ObjectArrays;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact map of custom node properties. Property names are kept in a schema shared by all maps
+ * that got the same names in the same order, so each map keeps only an array of values. Names are
+ * taken from {@link StringPool}, values are shared only while the property has few distinct values,
+ * so unique values (e.g. serial numbers) are not pooled. Iteration order is the order names were
+ * added in. Null values are not allowed.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class NodeProperties extends AbstractMap<String, String> {
+
+  private static final String[] NO_VALUES = new String[0];
+
+  private @NotNull Schema schema = Schema.EMPTY;
+  private @NotNull String[] values = NO_VALUES;
+  private int size = 0;
+
+  /** Instantiates a new empty property map. */
+  public NodeProperties() {}
+
+  /**
+   * Instantiates a new property map with given properties.
+   *
+   * @param properties the properties
+   */
+  public NodeProperties(final @NonNull Map<String, String> properties) {
+    putAll(properties);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(final @Nullable Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public @Nullable String get(final @Nullable Object key) {
+    final int index = schema.indexOf(key);
+    return index < 0 || index >= values.length ? null : values[index];
+  }
+
+  @Override
+  public @Nullable String put(final @NonNull String key, final @NonNull String value) {
+    int index = schema.indexOf(key);
+    if (index < 0) {
+      schema = schema.with(key);
+      index = schema.keys.length - 1;
+    }
+    if (index >= values.length) {
+      values = Arrays.copyOf(values, schema.keys.length);
+    }
+    final String previous = values[index];
+    values[index] = schema.share(index, value);
+    if (previous == null) {
+      size++;
+    }
+    return previous;
+  }
+
+  @Override
+  public @Nullable String remove(final @Nullable Object key) {
+    final int index = schema.indexOf(key);
+    if (index < 0 || index >= values.length || values[index] == null) {
+      return null;
+    }
+    final String previous = values[index];
+    values[index] = null;
+    size--;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    schema = Schema.EMPTY;
+    values = NO_VALUES;
+    size = 0;
+  }
+
+  @Override
+  public @NotNull Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public @NotNull Iterator<Entry<String, String>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** Iterates over slots with values, in schema order. */
+  private final class EntryIterator implements Iterator<Entry<String, String>> {
+    private int next = nextSlot(0);
+    private int last = -1;
+
+    private int nextSlot(final int start) {
+      int index = start;
+      while (index < values.length && values[index] == null) {
+        index++;
+      }
+      return index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < values.length;
+    }
+
+    @Override
+    public @NotNull Entry<String, String> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = nextSlot(next + 1);
+      return new SlotEntry(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0 || values[last] == null) {
+        throw new IllegalStateException();
+      }
+      values[last] = null;
+      size--;
+    }
+  }
+
+  /** Entry that writes value back to its slot. */
+  private final class SlotEntry extends SimpleEntry<String, String> {
+    private static final long serialVersionUID = 1L;
+    private final int index;
+
+    private SlotEntry(final int index) {
+      super(schema.keys[index], values[index]);
+      this.index = index;
+    }
+
+    @Override
+    public String setValue(final @NonNull String value) {
+      values[index] = schema.share(index, value);
+      return super.setValue(values[index]);
+    }
+  }
+
+  /**
+   * Immutable list of property names shared by property maps. Schemas extended by the same name
+   * are cached, so maps that got the same names in the same order share the same schema. Schemas
+   * not cached because of the limit of extensions are shared through a weak interner instead.
+   */
+  private static final class Schema {
+    private static final Schema EMPTY = new Schema(new String[0], new SharedValues[0]);
+    /** Limit of cached extensions, protects against unbounded growth for unique names. */
+    private static final int MAX_TRANSITIONS = 64;
+    /** Schemas with uncached extensions, weakly referenced so unused ones are collected. */
+    private static final Interner<Schema> UNCACHED = Interners.newWeakInterner();
+
+    private final @NotNull String[] keys;
+    /** Shared values of each property, extended schemas share them with this one. */
+    private final @NotNull SharedValues[] sharedValues;
+    private final @NotNull Map<String, Integer> indices;
+    private final @NotNull ConcurrentMap<String, Schema> transitions = new ConcurrentHashMap<>();
+
+    private Schema(final @NotNull String[] keys, final @NotNull SharedValues[] sharedValues) {
+      this.keys = keys;
+      this.sharedValues = sharedValues;
+      final ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+      for (int i = 0; i < keys.length; i++) {
+        builder.put(keys[i], i);
+      }
+      indices = builder.build();
+    }
+
+    private int indexOf(final @Nullable Object key) {
+      final Integer index = key == null ? null : indices.get(key);
+      return index == null ? -1 : index;
+    }
+
+    private @NotNull String share(final int index, final @NotNull String value) {
+      return sharedValues[index].share(value);
+    }
+
+    private @NotNull Schema with(final @NotNull String key) {
+      final Schema cached = transitions.get(key);
+      if (cached != null) {
+        return cached;
+      }
+      final String name = StringPool.intern(key);
+      final Schema extended =
+          new Schema(
+              ObjectArrays.concat(keys, name),
+              ObjectArrays.concat(sharedValues, new SharedValues()));
+      if (transitions.size() >= MAX_TRANSITIONS) {
+        return UNCACHED.intern(extended);
+      }
+      final Schema previous = transitions.putIfAbsent(name, extended);
+      return previous == null ? extended : previous;
+    }
+
+    @Override
+    public boolean equals(final @Nullable Object other) {
+      return other instanceof Schema && Arrays.equals(keys, ((Schema) other).keys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(keys);
+    }
+  }
+
+  /**
+   * Values of a property shared by property maps. Only the first few distinct short values are
+   * shared, so properties with unique values do not fill the memory with pooled strings.
+   */
+  private static final class SharedValues {
+    /** Maximal number of shared distinct values of a property. */
+    private static final int MAX_SHARED_VALUES = 64;
+
+    private final @NotNull ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+    private @NotNull String share(final @NotNull String value) {
+      final String shared = values.get(value);
+      if (shared != null) {
+        return shared;
+      }
+      if (values.size() >= MAX_SHARED_VALUES || value.length() > StringPool.MAX_POOLED_LENGTH) {
+        return value;
+      }
+      final String previous = values.putIfAbsent(value, value);
+      return previous == null ? value : previous;
+    }
+  }
+}
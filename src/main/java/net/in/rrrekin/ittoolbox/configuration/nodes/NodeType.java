@@ -49,6 +49,17 @@ public enum NodeType {
         final NodeFactory nodeFactory) {
       return new GenericNode(dto);
     }
+  },
+  /** Group of nodes stored in a separate file. */
+  INCLUDE("Include") {
+    @Override
+    @NotNull
+    NetworkNode create(
+        final Map<String, Object> dto,
+        final String parentInfo,
+        final NodeFactory nodeFactory) {
+      return new IncludeNode(dto);
+    }
   };
 
   @Getter private final @NotNull String typeName;
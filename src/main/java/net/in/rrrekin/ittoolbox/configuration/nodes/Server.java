@@ -9,20 +9,19 @@ import static org.apache.commons.text.StringEscapeUtils.escapeHtml4;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import javax.swing.Icon;
-import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
-import jiconfont.swing.IconFontSwing;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 /**
  * Representation of a standard server with its own address.
@@ -33,10 +32,9 @@ import org.jetbrains.annotations.Nullable;
 @RequiredArgsConstructor
 public class Server implements NetworkNode {
 
-  @Getter @Setter private @NonNull String name;
-  @Getter @Setter private @NonNull String address;
-  @Getter @Setter private @NonNull String description;
-  @ToString.Exclude @Setter private @Nullable Icon icon = null;
+  @Getter private final @NonNull String name;
+  @Getter private final @NonNull String address;
+  @Getter private final @NonNull String description;
   @Getter private final @NonNull Map<String, String> properties;
   @Getter private final @NonNull List<String> serviceDescriptors;
 
@@ -50,7 +48,7 @@ public class Server implements NetworkNode {
     this.name = address;
     this.address = address;
     this.description = address;
-    properties = Maps.newHashMap();
+    properties = new NodeProperties();
     serviceDescriptors = Lists.newArrayList();
   }
 
@@ -68,11 +66,13 @@ public class Server implements NetworkNode {
     name = toStringOrEmpty(dto.get(NAME_PROPERTY));
     address = toStringOrEmpty(dto.get(ADDRESS_PROEPRTY));
     description = toStringOrEmpty(dto.get(DESCRIPTION_PROPERTY));
-    properties = Maps.newHashMap();
-    serviceDescriptors = Lists.newArrayList();
+    properties = new NodeProperties();
     if (dto.get(SERVICES_PROPERTY) instanceof List) {
-      ((List<?>) dto.get(SERVICES_PROPERTY))
-          .forEach(it -> serviceDescriptors.add(toStringOrEmpty(it)));
+      final List<?> services = (List<?>) dto.get(SERVICES_PROPERTY);
+      serviceDescriptors = Lists.newArrayListWithCapacity(services.size());
+      services.forEach(it -> serviceDescriptors.add(StringPool.intern(toStringOrEmpty(it))));
+    } else {
+      serviceDescriptors = Lists.newArrayList();
     }
     for (final Map.Entry<String, Object> entry : dto.entrySet()) {
       final String property = entry.getKey();
@@ -86,10 +86,7 @@ public class Server implements NetworkNode {
 
   @Override
   public @NotNull Icon getIcon() {
-    if (icon == null) {
-      icon = IconFontSwing.buildIcon(GoogleMaterialDesignIcons.COMPUTER, NetworkNode.ICON_SIZE);
-    }
-    return icon;
+    return NodeIcons.of(NodeIcons.SERVER);
   }
 
   @Override
@@ -105,6 +102,20 @@ public class Server implements NetworkNode {
     return response;
   }
 
+  @Override
+  public void writeDtoProperties(final @NonNull DocumentWriter writer) throws IOException {
+    writer.startMapping();
+    writer.writeEntry(TYPE_PROPERTY, NodeType.SERVER.getTypeName());
+    writer.writeEntry(NAME_PROPERTY, name);
+    writer.writeEntry(ADDRESS_PROEPRTY, address);
+    writer.writeEntry(DESCRIPTION_PROPERTY, description);
+    writer.writeEntry(SERVICES_PROPERTY, serviceDescriptors);
+    for (final Map.Entry<String, String> property : properties.entrySet()) {
+      writer.writeEntry(PROPERTIES_PREFIX + property.getKey(), property.getValue());
+    }
+    writer.endMapping();
+  }
+
   @NonNls
   @Override
   public String toHtml() {
@@ -119,6 +130,21 @@ public class Server implements NetworkNode {
         + "</i></p>";
   }
 
+  @Override
+  public @NotNull Server deepCopy() {
+    return withName(name);
+  }
+
+  @Override
+  public @NotNull Server withName(final @NonNull String name) {
+    return new Server(
+        name,
+        address,
+        description,
+        new NodeProperties(properties),
+        Lists.newArrayList(serviceDescriptors));
+  }
+
   /**
    * Data copy object. TODO: Possibly should be changed to model for gui
    *
@@ -0,0 +1,242 @@
+package net.in.rrrekin.ittoolbox.configuration.remote;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inventory of network nodes served over HTTP(S), e.g. by the source of truth of the nodes. The
+ * inventory is polled with conditional GET requests, using entity tag and modification time of
+ * previous response, so unchanged inventory costs a request with empty response and nothing is
+ * parsed. Compressed responses are accepted and body is passed to the parser as a stream.
+ *
+ * <p>Nodes of the inventory are kept between polls. Nodes of new content that are equal to nodes
+ * of previous content are replaced with the previous nodes, so only changed subtrees are new
+ * objects and unchanged inventory keeps the same nodes even if its entity tag changes.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public final class RemoteInventory {
+
+  private static final int TIMEOUT_MS = 30_000;
+  private static final String GZIP = "gzip";
+
+  @Getter private final @NonNull URL url;
+  private @Nullable String entityTag = null;
+  private @Nullable String lastModified = null;
+  private long lastPollTs = 0L;
+
+  /** Nodes of the inventory, null if it was never read. */
+  @Getter private volatile @Nullable List<NetworkNode> nodes = null;
+
+  /**
+   * Instantiates a new remote inventory.
+   *
+   * @param url the URL of the inventory
+   */
+  public RemoteInventory(final @NonNull URL url) {
+    this.url = url;
+  }
+
+  /**
+   * Checks if location of included nodes is an HTTP(S) URL.
+   *
+   * @param location the location
+   * @return true for remote location
+   */
+  public static boolean isRemote(final @NonNull String location) {
+    final String lowerCase = location.toLowerCase(Locale.ENGLISH);
+    return lowerCase.startsWith("http://") || lowerCase.startsWith("https://");
+  }
+
+  /**
+   * Checks if the inventory should be polled.
+   *
+   * @param now the current time
+   * @param periodMs the poll period
+   * @return true if the inventory was never polled or period elapsed since last poll
+   */
+  public synchronized boolean isDue(final long now, final long periodMs) {
+    return lastPollTs == 0 || now - lastPollTs >= periodMs;
+  }
+
+  /**
+   * Checks if the nodes are the same instances as nodes of the inventory, e.g. if child nodes of
+   * include node are up to date. Nodes of the inventory that was never read are always up to date.
+   *
+   * @param childNodes the nodes
+   * @return true if there is nothing to update
+   */
+  public boolean isCurrent(final @NonNull List<NetworkNode> childNodes) {
+    final List<NetworkNode> current = nodes;
+    if (current == null) {
+      return true;
+    }
+    if (current.size() != childNodes.size()) {
+      return false;
+    }
+    for (int i = 0; i < current.size(); i++) {
+      if (current.get(i) != childNodes.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the inventory if it was changed since last successful read.
+   *
+   * @param parser the parser of the inventory content
+   * @return true if nodes of the inventory were changed
+   * @throws IOException on connection errors, unexpected responses or when parser fails
+   */
+  public synchronized boolean poll(final @NonNull Parser parser) throws IOException {
+    lastPollTs = System.currentTimeMillis();
+    final URLConnection connection = url.openConnection();
+    if (!(connection instanceof HttpURLConnection)) {
+      throw new IOException("Not an HTTP URL: " + url);
+    }
+    final HttpURLConnection http = (HttpURLConnection) connection;
+    http.setConnectTimeout(TIMEOUT_MS);
+    http.setReadTimeout(TIMEOUT_MS);
+    http.setUseCaches(false);
+    http.setRequestProperty("Accept-Encoding", GZIP);
+    if (entityTag != null) {
+      http.setRequestProperty("If-None-Match", entityTag);
+    }
+    if (lastModified != null) {
+      http.setRequestProperty("If-Modified-Since", lastModified);
+    }
+    final int status = http.getResponseCode();
+    if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      log.debug("Remote inventory {} not modified", url);
+      http.getInputStream().close();
+      return false;
+    }
+    if (status != HttpURLConnection.HTTP_OK) {
+      final InputStream error = http.getErrorStream();
+      if (error != null) {
+        error.close();
+      }
+      throw new IOException("Unexpected response " + status + " " + http.getResponseMessage());
+    }
+    final List<NetworkNode> newNodes;
+    try (final InputStream body =
+        GZIP.equalsIgnoreCase(http.getContentEncoding())
+            ? new GZIPInputStream(http.getInputStream())
+            : http.getInputStream()) {
+      newNodes = parser.parse(body);
+      ByteStreams.exhaust(body);
+    }
+    // Validators are kept only for successfully parsed content
+    entityTag = http.getHeaderField("ETag");
+    lastModified = http.getHeaderField("Last-Modified");
+    final List<NetworkNode> oldNodes = nodes;
+    final List<NetworkNode> mergedNodes =
+        oldNodes == null ? newNodes : share(oldNodes, Lists.newArrayList(newNodes));
+    if (mergedNodes == oldNodes) {
+      log.debug("Content of remote inventory {} not changed", url);
+      return false;
+    }
+    nodes = mergedNodes;
+    log.info("Remote inventory {} read", url);
+    return true;
+  }
+
+  /**
+   * Replaces new nodes with equal old nodes, recursively. Changed groups are replaced by copies
+   * with shared child nodes, so unchanged subtrees of changed groups are shared as well.
+   *
+   * @return old list if all nodes are the same, otherwise new list with some old nodes
+   */
+  private static @NotNull List<NetworkNode> share(
+      final @NotNull List<NetworkNode> oldNodes, final @NotNull List<NetworkNode> newNodes) {
+    final Map<List<Object>, Deque<NetworkNode>> oldNodesByKey = Maps.newHashMap();
+    for (final NetworkNode node : oldNodes) {
+      oldNodesByKey.computeIfAbsent(keyOf(node), key -> new ArrayDeque<>()).add(node);
+    }
+    boolean same = oldNodes.size() == newNodes.size();
+    for (int i = 0; i < newNodes.size(); i++) {
+      final NetworkNode newNode = newNodes.get(i);
+      final Deque<NetworkNode> candidates = oldNodesByKey.get(keyOf(newNode));
+      final NetworkNode oldNode = candidates == null ? null : candidates.peekFirst();
+      if (oldNode != null && hasSameAttributes(oldNode, newNode)) {
+        if (oldNode instanceof GroupingNode && !(oldNode instanceof IncludeNode)) {
+          final List<NetworkNode> oldChildNodes = oldNode.getChildNodes();
+          final List<NetworkNode> childNodes =
+              share(oldChildNodes, Lists.newArrayList(newNode.getChildNodes()));
+          if (childNodes == oldChildNodes) {
+            newNodes.set(i, candidates.pollFirst());
+          } else if (!Iterables.elementsEqual(childNodes, newNode.getChildNodes())) {
+            newNodes.set(i, ((GroupingNode) newNode).withChildNodes(childNodes));
+          }
+        } else {
+          newNodes.set(i, candidates.pollFirst());
+        }
+      }
+      same = same && newNodes.get(i) == oldNodes.get(i);
+    }
+    return same ? oldNodes : newNodes;
+  }
+
+  private static @NotNull List<Object> keyOf(final @NotNull NetworkNode node) {
+    return Lists.newArrayList(node.getClass(), node.getName());
+  }
+
+  /** Compares nodes without child nodes. */
+  private static boolean hasSameAttributes(
+      final @NotNull NetworkNode oldNode, final @NotNull NetworkNode newNode) {
+    if (oldNode.getClass() != newNode.getClass()
+        || !oldNode.getName().equals(newNode.getName())
+        || !oldNode.getDescription().equals(newNode.getDescription())
+        || !Objects.equals(oldNode.getProperties(), newNode.getProperties())
+        || !Iterables.elementsEqual(
+            oldNode.getServiceDescriptors(), newNode.getServiceDescriptors())) {
+      return false;
+    }
+    if (oldNode instanceof Server) {
+      return ((Server) oldNode).getAddress().equals(((Server) newNode).getAddress());
+    }
+    if (oldNode instanceof IncludeNode) {
+      return ((IncludeNode) oldNode).getFile().equals(((IncludeNode) newNode).getFile());
+    }
+    return true;
+  }
+
+  /** Parser of the inventory content. */
+  @FunctionalInterface
+  public interface Parser {
+    /**
+     * Parses the inventory content.
+     *
+     * @param body the content of the inventory, closed by the caller
+     * @return the nodes of the inventory
+     * @throws IOException on read errors or invalid content
+     */
+    @NotNull
+    List<NetworkNode> parse(@NotNull InputStream body) throws IOException;
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ * Read-only inventories of network nodes served over HTTP(S) and polled with conditional requests.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.remote;
@@ -0,0 +1,445 @@
+package net.in.rrrekin.ittoolbox.configuration.search;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index of trigrams of texts of network nodes: name, description, address, included file,
+ * custom properties and service descriptors. Queries are case insensitive substrings of any of
+ * these fields; nodes containing all trigrams of the query are found in posting lists and then
+ * checked against the whole query. Queries shorter than a trigram or with trigrams found in many
+ * nodes are checked against nodes visited in order of the tree, until enough of them are found.
+ *
+ * <p>Index is updated incrementally from published node trees. Published nodes are never modified,
+ * so subtrees that are the same objects as before are skipped, and nodes whose text did not change
+ * keep their postings. Each node gets new number when its text changes; numbers of removed nodes
+ * are removed from posting lists when the lists are used, and all nodes are renumbered when more
+ * than half of numbers are unused.
+ *
+ * <p>Index is not thread safe.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class NodeSearchIndex {
+
+  /** Length of indexed character sequences. */
+  static final int GRAM_LENGTH = 3;
+
+  private static final int NO_PARENT = -1;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MIN_UNUSED_TO_RENUMBER = 1024;
+  private static final char FIELD_SEPARATOR = '\n';
+  /**
+   * Posting lists longer than the limit of hits times this factor are not scanned; the tree is
+   * visited in order until enough nodes are found instead.
+   */
+  private static final int DENSE_LIST_FACTOR = 8;
+  private static final Comparator<Iterable<Integer>> INDEX_PATH_ORDER =
+      Ordering.<Integer>natural().lexicographical();
+
+  private final Map<Long, Postings> postings = Maps.newHashMap();
+  private final Map<NetworkNode, Integer> numbers = new IdentityHashMap<>();
+  private @Nullable NetworkNode[] nodes = new NetworkNode[INITIAL_CAPACITY];
+  private @Nullable String[] texts = new String[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] positions = new int[INITIAL_CAPACITY];
+  private int nextNumber = 0;
+  private int nodeCount = 0;
+  private @NotNull List<NetworkNode> indexedNodes = Collections.emptyList();
+
+  /**
+   * Updates the index to match new top level nodes.
+   *
+   * @param newNodes the top level nodes of published configuration
+   */
+  void update(final @NonNull List<NetworkNode> newNodes) {
+    if (newNodes == indexedNodes) {
+      return;
+    }
+    updateList(NO_PARENT, indexedNodes, newNodes);
+    indexedNodes = newNodes;
+    final int unused = nextNumber - nodeCount;
+    if (unused > MIN_UNUSED_TO_RENUMBER && unused > nodeCount) {
+      renumber();
+    }
+  }
+
+  /**
+   * Gets number of indexed nodes.
+   *
+   * @return the number of nodes
+   */
+  int size() {
+    return nodeCount;
+  }
+
+  /**
+   * Finds nodes that contain the query in any of indexed fields.
+   *
+   * @param query the searched text, case insensitive
+   * @param limit the maximum number of returned nodes
+   * @return the first found nodes in order of the tree
+   */
+  @NotNull
+  List<SearchHit> search(final @NonNull String query, final int limit) {
+    final String text = normalize(query);
+    if (text.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+    final List<SearchHit> hits = Lists.newArrayList();
+    if (text.length() < GRAM_LENGTH) {
+      // Too short for the index, such text is usually found in many nodes close to the top
+      collectInTreeOrder(
+          indexedNodes, Lists.newArrayList(), number -> texts[number].contains(text), hits, limit);
+      return hits;
+    }
+    final List<Postings> lists = postingsOf(text);
+    if (lists == null) {
+      return hits;
+    }
+    final Postings shortest = Collections.min(lists, Comparator.comparingInt(Postings::size));
+    if (shortest.size() > DENSE_LIST_FACTOR * limit) {
+      // Many nodes may match, first of them are found sooner than all of them
+      collectInTreeOrder(
+          indexedNodes,
+          Lists.newArrayList(),
+          number -> shortest.contains(number) && texts[number].contains(text),
+          hits,
+          limit);
+      return hits;
+    }
+    for (final int number : find(text, lists, shortest)) {
+      hits.add(new SearchHit(indexPathOf(number), nodes[number]));
+    }
+    hits.sort(
+        (final SearchHit first, final SearchHit second) ->
+            INDEX_PATH_ORDER.compare(first.getIndexPath(), second.getIndexPath()));
+    return hits.size() > limit ? hits.subList(0, limit) : hits;
+  }
+
+  /**
+   * Finds all nodes that contain the query in any of indexed fields. Nodes are not sorted and their
+   * paths are not built, so it is faster than {@link #search} for queries found in many nodes.
+   *
+   * @param query the searched text, case insensitive
+   * @return the found nodes, in no particular order
+   */
+  @NotNull
+  List<NetworkNode> findAll(final @NonNull String query) {
+    final String text = normalize(query);
+    final List<NetworkNode> found = Lists.newArrayList();
+    if (text.isEmpty()) {
+      return found;
+    }
+    if (text.length() < GRAM_LENGTH) {
+      for (int number = 0; number < nextNumber; number++) {
+        if (texts[number] != null && texts[number].contains(text)) {
+          found.add(nodes[number]);
+        }
+      }
+      return found;
+    }
+    final List<Postings> lists = postingsOf(text);
+    if (lists != null) {
+      final Postings shortest = Collections.min(lists, Comparator.comparingInt(Postings::size));
+      for (final int number : find(text, lists, shortest)) {
+        found.add(nodes[number]);
+      }
+    }
+    return found;
+  }
+
+  /** Gets posting lists of all trigrams of the text, or null if one of them is not indexed. */
+  private @Nullable List<Postings> postingsOf(final @NotNull String text) {
+    final List<Postings> lists = Lists.newArrayList();
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      final Postings list = postings.get(gramAt(text, i));
+      if (list == null) {
+        return null;
+      }
+      lists.add(list);
+    }
+    return lists;
+  }
+
+  /** Collects first matching nodes visiting the tree in order, without visiting remaining nodes. */
+  private void collectInTreeOrder(
+      final @NotNull List<NetworkNode> level,
+      final @NotNull List<Integer> path,
+      final @NotNull IntPredicate matches,
+      final @NotNull List<SearchHit> hits,
+      final int limit) {
+    for (int i = 0; i < level.size() && hits.size() < limit; i++) {
+      final NetworkNode node = level.get(i);
+      path.add(i);
+      if (matches.test(numbers.get(node))) {
+        hits.add(new SearchHit(ImmutableList.copyOf(path), node));
+      }
+      if (!node.isLeaf()) {
+        collectInTreeOrder(node.getChildNodes(), path, matches, hits, limit);
+      }
+      path.remove(path.size() - 1);
+    }
+  }
+
+  /** Finds nodes that contain the text in posting lists of all its trigrams. */
+  private @NotNull int[] find(
+      final @NotNull String text,
+      final @NotNull List<Postings> lists,
+      final @NotNull Postings shortest) {
+    final Postings found = new Postings();
+    shortest.removeUnused(nodes);
+    for (int i = 0; i < shortest.size(); i++) {
+      final int number = shortest.get(i);
+      if (containsAll(lists, number) && texts[number].contains(text)) {
+        found.add(number);
+      }
+    }
+    return found.toArray();
+  }
+
+  private static boolean containsAll(final @NotNull List<Postings> lists, final int number) {
+    for (final Postings list : lists) {
+      if (!list.contains(number)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private @NotNull List<Integer> indexPathOf(final int number) {
+    final Deque<Integer> path = new ArrayDeque<>();
+    for (int current = number; current != NO_PARENT; current = parents[current]) {
+      path.push(positions[current]);
+    }
+    return ImmutableList.copyOf(path);
+  }
+
+  /**
+   * Updates indexed child nodes of a node. Nodes that are not the same objects as before are paired
+   * with removed nodes by type and name, so nodes of reloaded configuration keep their postings.
+   */
+  private void updateList(
+      final int parent,
+      final @NotNull List<NetworkNode> oldNodes,
+      final @NotNull List<NetworkNode> newNodes) {
+    final Set<NetworkNode> oldSet = Sets.newIdentityHashSet();
+    oldSet.addAll(oldNodes);
+    final Set<NetworkNode> newSet = Sets.newIdentityHashSet();
+    newSet.addAll(newNodes);
+    final Map<List<Object>, Deque<NetworkNode>> removedByKey = Maps.newHashMap();
+    for (final NetworkNode oldNode : oldNodes) {
+      if (!newSet.contains(oldNode)) {
+        removedByKey.computeIfAbsent(keyOf(oldNode), key -> new ArrayDeque<>()).add(oldNode);
+      }
+    }
+    for (int i = 0; i < newNodes.size(); i++) {
+      final NetworkNode node = newNodes.get(i);
+      if (oldSet.contains(node)) {
+        final int number = numbers.get(node);
+        parents[number] = parent;
+        positions[number] = i;
+      } else {
+        final Deque<NetworkNode> candidates = removedByKey.get(keyOf(node));
+        final NetworkNode oldNode = candidates == null ? null : candidates.poll();
+        if (oldNode == null) {
+          add(node, parent, i);
+        } else {
+          replace(oldNode, node, parent, i);
+        }
+      }
+    }
+    for (final Deque<NetworkNode> removed : removedByKey.values()) {
+      removed.forEach(this::remove);
+    }
+  }
+
+  private void add(final @NotNull NetworkNode node, final int parent, final int position) {
+    final int number = addNode(node, textOf(node), parent, position);
+    if (!node.isLeaf()) {
+      final List<NetworkNode> childNodes = node.getChildNodes();
+      for (int i = 0; i < childNodes.size(); i++) {
+        add(childNodes.get(i), number, i);
+      }
+    }
+  }
+
+  private void replace(
+      final @NotNull NetworkNode oldNode,
+      final @NotNull NetworkNode node,
+      final int parent,
+      final int position) {
+    final int oldNumber = numbers.remove(oldNode);
+    final String text = textOf(node);
+    final int number;
+    if (text.equals(texts[oldNumber])) {
+      number = oldNumber;
+      nodes[number] = node;
+      numbers.put(node, number);
+      parents[number] = parent;
+      positions[number] = position;
+    } else {
+      removeNode(oldNumber);
+      number = addNode(node, text, parent, position);
+    }
+    updateList(
+        number,
+        oldNode.isLeaf() ? Collections.emptyList() : oldNode.getChildNodes(),
+        node.isLeaf() ? Collections.emptyList() : node.getChildNodes());
+  }
+
+  private void remove(final @NotNull NetworkNode node) {
+    final Integer number = numbers.remove(node);
+    if (number != null) {
+      removeNode(number);
+      if (!node.isLeaf()) {
+        node.getChildNodes().forEach(this::remove);
+      }
+    }
+  }
+
+  private int addNode(
+      final @NotNull NetworkNode node,
+      final @NotNull String text,
+      final int parent,
+      final int position) {
+    if (nextNumber == nodes.length) {
+      final int capacity = nodes.length * 2;
+      nodes = Arrays.copyOf(nodes, capacity);
+      texts = Arrays.copyOf(texts, capacity);
+      parents = Arrays.copyOf(parents, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+    }
+    final int number = nextNumber++;
+    nodes[number] = node;
+    texts[number] = text;
+    parents[number] = parent;
+    positions[number] = position;
+    numbers.put(node, number);
+    nodeCount++;
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      final Postings list = postings.computeIfAbsent(gramAt(text, i), gram -> new Postings());
+      // Numbers are added in ascending order, so repeated gram of the same text is the last one
+      if (list.size() == 0 || list.get(list.size() - 1) != number) {
+        list.add(number);
+      }
+    }
+    return number;
+  }
+
+  private void removeNode(final int number) {
+    nodes[number] = null;
+    texts[number] = null;
+    nodeCount--;
+  }
+
+  /** Rebuilds the index from indexed nodes, so that numbers of removed nodes can be reused. */
+  private void renumber() {
+    postings.clear();
+    numbers.clear();
+    Arrays.fill(nodes, null);
+    Arrays.fill(texts, null);
+    nextNumber = 0;
+    nodeCount = 0;
+    for (int i = 0; i < indexedNodes.size(); i++) {
+      add(indexedNodes.get(i), NO_PARENT, i);
+    }
+  }
+
+  private static @NotNull List<Object> keyOf(final @NotNull NetworkNode node) {
+    return ImmutableList.of(node.getClass(), node.getName());
+  }
+
+  /** Gets indexed text of the node: lower case fields separated by new lines. */
+  static @NotNull String textOf(final @NotNull NetworkNode node) {
+    final StringBuilder text = new StringBuilder(node.getName());
+    text.append(FIELD_SEPARATOR).append(node.getDescription());
+    if (node instanceof Server) {
+      text.append(FIELD_SEPARATOR).append(((Server) node).getAddress());
+    } else if (node instanceof IncludeNode) {
+      text.append(FIELD_SEPARATOR).append(((IncludeNode) node).getFile());
+    }
+    final Map<String, String> properties = node.getProperties();
+    if (properties != null) {
+      for (final Map.Entry<String, String> property : properties.entrySet()) {
+        text.append(FIELD_SEPARATOR).append(property.getKey()).append('=');
+        text.append(property.getValue());
+      }
+    }
+    for (final String service : node.getServiceDescriptors()) {
+      text.append(FIELD_SEPARATOR).append(service);
+    }
+    return normalize(text.toString());
+  }
+
+  static @NotNull String normalize(final @NotNull String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  private static long gramAt(final @NotNull String text, final int index) {
+    return (long) text.charAt(index) << 32
+        | (long) text.charAt(index + 1) << 16
+        | text.charAt(index + 2);
+  }
+
+  /** Ascending list of numbers of nodes that contain a trigram. */
+  private static final class Postings {
+    private int[] numbers = new int[2];
+    private int size = 0;
+
+    int size() {
+      return size;
+    }
+
+    int get(final int index) {
+      return numbers[index];
+    }
+
+    void add(final int number) {
+      if (size == numbers.length) {
+        numbers = Arrays.copyOf(numbers, size * 2);
+      }
+      numbers[size++] = number;
+    }
+
+    boolean contains(final int number) {
+      return Arrays.binarySearch(numbers, 0, size, number) >= 0;
+    }
+
+    /** Removes numbers of removed nodes. */
+    void removeUnused(final @Nullable NetworkNode[] nodes) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        if (nodes[numbers[i]] != null) {
+          numbers[kept++] = numbers[i];
+        }
+      }
+      size = kept;
+    }
+
+    @NotNull
+    int[] toArray() {
+      return Arrays.copyOf(numbers, size);
+    }
+  }
+}
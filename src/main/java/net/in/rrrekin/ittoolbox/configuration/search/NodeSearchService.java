@@ -0,0 +1,110 @@
+package net.in.rrrekin.ittoolbox.configuration.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Full-text search of shown network nodes, see {@link NodeSearchIndex}.
+ *
+ * <p>Nodes are reported by the node tree model when configuration is loaded, reloaded or edited,
+ * and the index is updated to them in background thread. Only changed nodes are indexed again, so
+ * searches are not delayed by edits. Search made before the update is finished waits for it, so
+ * found nodes are always the reported ones.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class NodeSearchService {
+
+  private static final String INDEXING_THREAD_NAME = "NodeSearchIndexer";
+
+  private final NodeSearchIndex index = new NodeSearchIndex();
+  private final Executor executor =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat(INDEXING_THREAD_NAME).setDaemon(true).build());
+  /** Top level nodes the index is updated to. */
+  private volatile @NotNull List<NetworkNode> reportedNodes = Collections.emptyList();
+
+  /** Instantiates a new node search service. */
+  @Inject
+  public NodeSearchService() {
+    log.debug("Creating NodeSearchService");
+  }
+
+  /**
+   * Reports new version of searched nodes, e.g. of reloaded or edited configuration. The index is
+   * updated in background thread.
+   *
+   * @param nodes the top level nodes of published configuration
+   */
+  public void update(final @NonNull List<NetworkNode> nodes) {
+    reportedNodes = nodes;
+    executor.execute(this::refresh);
+  }
+
+  /**
+   * Finds reported nodes that contain the query in name, description, address, included file,
+   * custom property or service descriptor, ignoring case.
+   *
+   * @param query the searched text
+   * @param limit the maximum number of found nodes
+   * @return the first found nodes in order of the tree
+   */
+  public synchronized @NotNull List<SearchHit> search(
+      final @NonNull String query, final int limit) {
+    refresh();
+    return index.search(query, limit);
+  }
+
+  /**
+   * Finds all reported nodes that contain the query, like {@link #search}, e.g. to filter shown
+   * nodes. Found nodes are not ordered, so the search is fast even if the query is found in most
+   * of the nodes.
+   *
+   * @param query the searched text
+   * @return the found nodes, in no particular order
+   */
+  public synchronized @NotNull List<NetworkNode> findAll(final @NonNull String query) {
+    refresh();
+    return index.findAll(query);
+  }
+
+  /**
+   * Gets text of the node that is searched: name, description, address, included file, custom
+   * properties and service descriptors in lower case, separated by new lines.
+   *
+   * @param node the node
+   * @return the searched text
+   */
+  public static @NotNull String searchedText(final @NonNull NetworkNode node) {
+    return NodeSearchIndex.textOf(node);
+  }
+
+  /**
+   * Gets the query in the form it is found in {@link #searchedText}.
+   *
+   * @param query the query
+   * @return the query in lower case
+   */
+  public static @NotNull String normalizeQuery(final @NonNull String query) {
+    return NodeSearchIndex.normalize(query);
+  }
+
+  /** Updates the index to the last reported nodes. */
+  private synchronized void refresh() {
+    final long start = System.nanoTime();
+    index.update(reportedNodes);
+    log.trace(
+        "Search index updated in {} us, {} nodes",
+        (System.nanoTime() - start) / 1000,
+        index.size());
+  }
+}
@@ -0,0 +1,22 @@
+package net.in.rrrekin.ittoolbox.configuration.search;
+
+import java.util.List;
+import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+
+/**
+ * Node found by {@link NodeSearchService}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class SearchHit {
+
+  /**
+   * Indexes of nodes on the path to the found node in the searched configuration, starting from
+   * index of top level node.
+   */
+  List<Integer> indexPath;
+  /** The found node. */
+  NetworkNode node;
+}
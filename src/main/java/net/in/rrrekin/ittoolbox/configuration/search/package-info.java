@@ -0,0 +1,6 @@
+/**
+ * Full-text search of network nodes of the configuration.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.search;
@@ -0,0 +1,173 @@
+package net.in.rrrekin.ittoolbox.configuration.snapshot;
+
+import com.google.common.hash.HashCode;
+import com.google.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.services.ServiceDefinition;
+import net.in.rrrekin.ittoolbox.services.ServiceRegistry;
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
+import net.in.rrrekin.ittoolbox.utilities.LocaleUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Service storing configuration in a compact binary snapshot. The snapshot contains everything
+ * that is read from the YAML configuration file together with the fingerprint of that file, so it
+ * can replace parsing of the YAML file as long as the file is not modified.
+ *
+ * <p>Snapshot is only a cache: problems with reading or writing it are logged and never reported
+ * to the user.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class ConfigurationSnapshotService {
+
+  private static final int MAGIC = 0x49545453; // "ITTS"
+  private static final int FORMAT_VERSION = 1;
+
+  private final @NonNull ServiceRegistry serviceRegistry;
+
+  /**
+   * Instantiates a new Configuration snapshot service.
+   *
+   * @param serviceRegistry the service registry
+   */
+  @Inject
+  public ConfigurationSnapshotService(final @NonNull ServiceRegistry serviceRegistry) {
+    log.debug("Initializing ConfigurationSnapshotService");
+    this.serviceRegistry = serviceRegistry;
+  }
+
+  /**
+   * Loads configuration from snapshot if snapshot was made for the configuration file with given
+   * fingerprint. Applies locale and services configuration the same way as loading of the
+   * configuration file does.
+   *
+   * @param snapshotFile the snapshot file
+   * @param expectedSource the fingerprint of current configuration file
+   * @return the configuration or null if snapshot is missing, outdated or invalid
+   */
+  public @Nullable Configuration load(
+      final @NonNull File snapshotFile, final @NonNull FileFingerprint expectedSource) {
+    if (!snapshotFile.isFile()) {
+      log.debug("Configuration snapshot {} not present", snapshotFile);
+      return null;
+    }
+    try (final DataInputStream input =
+        new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(snapshotFile.toPath())))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        log.info("Ignoring configuration snapshot {} in unknown format", snapshotFile);
+        return null;
+      }
+      if (!expectedSource.equals(readFingerprint(input))) {
+        log.info("Ignoring outdated configuration snapshot {}", snapshotFile);
+        return null;
+      }
+      final SnapshotReader reader = new SnapshotReader(input);
+      final String localeCode = reader.readString();
+      final Map<String, String> services = reader.readStringMap();
+      final Map<String, Map<String, String>> modules = reader.readModules();
+      final List<NetworkNode> networkNodes = reader.readNodes();
+      reader.readEnd();
+
+      if (localeCode != null) {
+        LocaleUtil.setLocale(Locale.forLanguageTag(localeCode));
+      }
+      for (final Map.Entry<String, String> entry : services.entrySet()) {
+        serviceRegistry.configureService(entry.getKey(), entry.getValue());
+      }
+      log.info("Configuration loaded from snapshot {}", snapshotFile);
+      return new Configuration(networkNodes, modules);
+    } catch (final Exception e) {
+      log.warn("Failed to read configuration snapshot {}: {}", snapshotFile, e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Saves snapshot of the configuration. Fingerprint of the configuration file has to be
+   * calculated before the file was read or after it was written, so that snapshot never matches
+   * configuration file with content different than saved configuration.
+   *
+   * @param snapshotFile the snapshot file
+   * @param source the fingerprint of configuration file that contains the configuration
+   * @param config the configuration
+   */
+  public void save(
+      final @NonNull File snapshotFile,
+      final @NonNull FileFingerprint source,
+      final @NonNull Configuration config) {
+    final Map<String, String> services =
+        serviceRegistry.stream()
+            .collect(
+                Collectors.toMap(ServiceDefinition::getId, ServiceDefinition::getConfiguration));
+    try {
+      final SnapshotWriter writer = new SnapshotWriter();
+      writer.writeString(LocaleUtil.getLocaleCode());
+      writer.writeStringMap(services);
+      writer.writeModules(config.getModules());
+      writer.writeNodes(config.getNetworkNodes());
+
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try (final DataOutputStream output = new DataOutputStream(buffer)) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        writeFingerprint(output, source);
+        writer.writeTo(output);
+      }
+      FileUtils.writeAtomically(snapshotFile, buffer.toByteArray());
+      log.debug("Configuration snapshot {} saved", snapshotFile);
+    } catch (final IOException e) {
+      log.warn("Failed to write configuration snapshot {}: {}", snapshotFile, e.toString());
+      delete(snapshotFile);
+    }
+  }
+
+  /**
+   * Removes snapshot file, e.g. when configuration file is no longer valid.
+   *
+   * @param snapshotFile the snapshot file
+   */
+  public void delete(final @NonNull File snapshotFile) {
+    try {
+      Files.deleteIfExists(snapshotFile.toPath());
+    } catch (final IOException e) {
+      log.warn("Failed to remove configuration snapshot {}: {}", snapshotFile, e.toString());
+    }
+  }
+
+  private static @NotNull FileFingerprint readFingerprint(final @NotNull DataInputStream input)
+      throws IOException {
+    final long size = input.readLong();
+    final long lastModified = input.readLong();
+    final byte[] hash = new byte[input.readUnsignedByte()];
+    input.readFully(hash);
+    return new FileFingerprint(size, lastModified, HashCode.fromBytes(hash));
+  }
+
+  private static void writeFingerprint(
+      final @NotNull DataOutputStream output, final @NotNull FileFingerprint fingerprint)
+      throws IOException {
+    output.writeLong(fingerprint.getSize());
+    output.writeLong(fingerprint.getLastModified());
+    final byte[] hash = fingerprint.getHash().asBytes();
+    output.writeByte(hash.length);
+    output.write(hash);
+  }
+}
@@ -0,0 +1,175 @@
+package net.in.rrrekin.ittoolbox.configuration.snapshot;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decoder of the snapshot body written by {@link SnapshotWriter}. Strings of the string table are
+ * shared by all nodes that use them. Any inconsistency of the data is reported as {@link
+ * IOException}. Input must be memory backed, as sizes of collections are validated against number
+ * of available bytes before anything is allocated.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class SnapshotReader {
+
+  private final @NonNull DataInputStream input;
+  private final @NotNull String[] strings;
+
+  /**
+   * Instantiates a new Snapshot reader and reads the string table.
+   *
+   * @param input the input positioned at the beginning of the string table
+   * @throws IOException on read errors or invalid data
+   */
+  SnapshotReader(final @NonNull DataInputStream input) throws IOException {
+    this.input = input;
+    strings = new String[readSize()];
+    for (int i = 0; i < strings.length; i++) {
+      final byte[] bytes = new byte[readSize()];
+      input.readFully(bytes);
+      strings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  @Nullable
+  String readString() throws IOException {
+    final int index = readVarInt();
+    if (index > strings.length) {
+      throw new IOException("Invalid string reference " + index);
+    }
+    return index == 0 ? null : strings[index - 1];
+  }
+
+  @NotNull
+  List<String> readStringList() throws IOException {
+    final int size = readSize();
+    final List<String> list = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      list.add(readRequiredString());
+    }
+    return list;
+  }
+
+  @NotNull
+  Map<String, String> readStringMap() throws IOException {
+    final int size = readSize();
+    final Map<String, String> map = Maps.newHashMapWithExpectedSize(size);
+    for (int i = 0; i < size; i++) {
+      map.put(readRequiredString(), readRequiredString());
+    }
+    return map;
+  }
+
+  @NotNull
+  Map<String, String> readNodeProperties() throws IOException {
+    final int size = readSize();
+    final Map<String, String> properties = new NodeProperties();
+    for (int i = 0; i < size; i++) {
+      properties.put(readRequiredString(), readRequiredString());
+    }
+    return properties;
+  }
+
+  @NotNull
+  Map<String, Map<String, String>> readModules() throws IOException {
+    final int size = readSize();
+    final Map<String, Map<String, String>> modules = Maps.newHashMapWithExpectedSize(size);
+    for (int i = 0; i < size; i++) {
+      modules.put(readRequiredString(), readStringMap());
+    }
+    return modules;
+  }
+
+  @NotNull
+  List<NetworkNode> readNodes() throws IOException {
+    final int size = readSize();
+    final List<NetworkNode> nodes = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      nodes.add(readNode());
+    }
+    return nodes;
+  }
+
+  /**
+   * Verifies that all data was consumed.
+   *
+   * @throws IOException if there is unread data left
+   */
+  void readEnd() throws IOException {
+    if (input.read() != -1) {
+      throw new IOException("Unexpected data after end of snapshot");
+    }
+  }
+
+  private @NotNull NetworkNode readNode() throws IOException {
+    final String typeName = readRequiredString();
+    final NodeType type = NodeType.of(typeName);
+    if (type == null) {
+      throw new IOException("Unknown network node type " + typeName);
+    }
+    // Constructor arguments are evaluated from left to right, in order of record fields
+    final String name = readRequiredString();
+    switch (type) {
+      case SERVER:
+        return new Server(
+            name,
+            readRequiredString(),
+            readRequiredString(),
+            readNodeProperties(),
+            readStringList());
+      case GENERIC_NODE:
+        return new GenericNode(
+            name, readRequiredString(), readNodeProperties(), readStringList());
+      case GROUP:
+        return new GroupingNode(name, readRequiredString(), readNodes(), readStringList());
+      default:
+        throw new IOException("Unsupported network node type " + typeName);
+    }
+  }
+
+  private @NotNull String readRequiredString() throws IOException {
+    final String value = readString();
+    if (value == null) {
+      throw new IOException("Unexpected null string reference");
+    }
+    return value;
+  }
+
+  private int readSize() throws IOException {
+    final int size = readVarInt();
+    if (size > input.available()) {
+      throw new IOException("Invalid size " + size);
+    }
+    return size;
+  }
+
+  private int readVarInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      final int b = input.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          throw new IOException("Invalid length or index " + Integer.toUnsignedString(value));
+        }
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer");
+  }
+}
@@ -0,0 +1,140 @@
+package net.in.rrrekin.ittoolbox.configuration.snapshot;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Encoder of the snapshot body. Every distinct string is stored only once in the string table as
+ * length prefixed UTF-8 bytes, records refer to strings by their index. All numbers are written as
+ * unsigned variable length integers.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class SnapshotWriter {
+
+  private final Map<String, Integer> stringIndex = Maps.newHashMap();
+  private final List<String> strings = Lists.newArrayList();
+  private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+  private final DataOutputStream records = new DataOutputStream(recordBuffer);
+
+  /**
+   * Writes string reference. Index 0 is reserved for null.
+   *
+   * @param value the value
+   * @throws IOException on write errors
+   */
+  void writeString(final @Nullable String value) throws IOException {
+    if (value == null) {
+      writeVarInt(records, 0);
+      return;
+    }
+    Integer index = stringIndex.get(value);
+    if (index == null) {
+      strings.add(value);
+      index = strings.size();
+      stringIndex.put(value, index);
+    }
+    writeVarInt(records, index);
+  }
+
+  void writeStringList(final @NotNull Collection<String> values) throws IOException {
+    writeVarInt(records, values.size());
+    for (final String value : values) {
+      writeString(value);
+    }
+  }
+
+  void writeStringMap(final @NotNull Map<String, String> map) throws IOException {
+    writeVarInt(records, map.size());
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(entry.getKey());
+      writeString(entry.getValue());
+    }
+  }
+
+  void writeModules(final @NotNull Map<String, Map<String, String>> modules) throws IOException {
+    writeVarInt(records, modules.size());
+    for (final Map.Entry<String, Map<String, String>> entry : modules.entrySet()) {
+      writeString(entry.getKey());
+      writeStringMap(entry.getValue());
+    }
+  }
+
+  void writeNodes(final @NotNull List<NetworkNode> nodes) throws IOException {
+    writeVarInt(records, nodes.size());
+    for (final NetworkNode node : nodes) {
+      writeNode(node);
+    }
+  }
+
+  private void writeNode(final @NotNull NetworkNode node) throws IOException {
+    if (node instanceof Server) {
+      writeString(NodeType.SERVER.getTypeName());
+      writeString(node.getName());
+      writeString(((Server) node).getAddress());
+      writeString(node.getDescription());
+      writeStringMap(node.getProperties());
+      writeStringList(node.getServiceDescriptors());
+    } else if (node instanceof GenericNode) {
+      writeString(NodeType.GENERIC_NODE.getTypeName());
+      writeString(node.getName());
+      writeString(node.getDescription());
+      writeStringMap(node.getProperties());
+      writeStringList(node.getServiceDescriptors());
+    } else if (node instanceof GroupingNode) {
+      writeString(NodeType.GROUP.getTypeName());
+      writeString(node.getName());
+      writeString(node.getDescription());
+      writeNodes(node.getChildNodes());
+      writeStringList(node.getServiceDescriptors());
+    } else {
+      throw new IOException("Unsupported network node class " + node.getClass().getName());
+    }
+  }
+
+  /**
+   * Writes string table followed by all records written so far.
+   *
+   * @param output the output
+   * @throws IOException on write errors
+   */
+  void writeTo(final @NonNull OutputStream output) throws IOException {
+    final DataOutputStream data = new DataOutputStream(output);
+    writeVarInt(data, strings.size());
+    for (final String value : strings) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(data, bytes.length);
+      data.write(bytes);
+    }
+    records.flush();
+    recordBuffer.writeTo(data);
+    data.flush();
+  }
+
+  private static void writeVarInt(final @NotNull DataOutput output, final int value)
+      throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      output.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    output.writeByte(remaining);
+  }
+}
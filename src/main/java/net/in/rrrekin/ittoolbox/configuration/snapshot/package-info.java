@@ -0,0 +1,6 @@
+/**
+ * Binary snapshot of the configuration used to speed up application startup.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.snapshot;
@@ -0,0 +1,236 @@
+package net.in.rrrekin.ittoolbox.configuration.store;
+
+import com.google.common.collect.Lists;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import net.in.rrrekin.ittoolbox.utilities.StringPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Row of the node store: single network node without its child nodes. Child nodes refer to their
+ * group by its id and keep their order by referring to the previous sibling. Strings are written
+ * as length prefixed UTF-8 bytes, length -1 stands for null. Rows are decoded from memory, so
+ * lengths are validated against number of available bytes before anything is allocated.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+class NodeRow {
+
+  /** Id of missing parent or previous sibling. */
+  static final long NO_NODE = 0;
+
+  long id;
+  long parentId;
+  long previousId;
+  @NonNull NodeType type;
+  @NonNull String name;
+  @Nullable String address;
+  @NonNull String description;
+  @Nullable String file;
+  @NonNull Map<String, String> properties;
+  @NonNull List<String> services;
+
+  /**
+   * Creates row of the node.
+   *
+   * @param node the node
+   * @param id the node id
+   * @param parentId the id of parent group or {@link #NO_NODE} for top level nodes
+   * @param previousId the id of previous sibling or {@link #NO_NODE} for first node
+   * @return the row
+   * @throws IOException if node class is not supported
+   */
+  static @NotNull NodeRow of(
+      final @NonNull NetworkNode node, final long id, final long parentId, final long previousId)
+      throws IOException {
+    if (node instanceof Server) {
+      return new NodeRow(
+          id,
+          parentId,
+          previousId,
+          NodeType.SERVER,
+          node.getName(),
+          ((Server) node).getAddress(),
+          node.getDescription(),
+          null,
+          node.getProperties(),
+          node.getServiceDescriptors());
+    } else if (node instanceof GenericNode) {
+      return new NodeRow(
+          id,
+          parentId,
+          previousId,
+          NodeType.GENERIC_NODE,
+          node.getName(),
+          null,
+          node.getDescription(),
+          null,
+          node.getProperties(),
+          node.getServiceDescriptors());
+    } else if (node instanceof IncludeNode) {
+      return new NodeRow(
+          id,
+          parentId,
+          previousId,
+          NodeType.INCLUDE,
+          node.getName(),
+          null,
+          node.getDescription(),
+          ((IncludeNode) node).getFile(),
+          node.getProperties(),
+          node.getServiceDescriptors());
+    } else if (node instanceof GroupingNode) {
+      return new NodeRow(
+          id,
+          parentId,
+          previousId,
+          NodeType.GROUP,
+          node.getName(),
+          null,
+          node.getDescription(),
+          null,
+          node.getProperties(),
+          node.getServiceDescriptors());
+    }
+    throw new IOException("Unsupported network node class " + node.getClass().getName());
+  }
+
+  /**
+   * Creates node described by the row read by {@link #readFrom(DataInputStream)}. The node takes
+   * over property map and service list of the row. Groups are created without child nodes.
+   *
+   * @return the node
+   */
+  @NotNull
+  NetworkNode toNode() {
+    final Map<String, String> nodeProperties =
+        properties instanceof NodeProperties ? properties : new NodeProperties(properties);
+    switch (type) {
+      case SERVER:
+        return new Server(
+            name,
+            address == null ? "" : address,
+            description,
+            nodeProperties,
+            services);
+      case GENERIC_NODE:
+        return new GenericNode(name, description, nodeProperties, services);
+      case INCLUDE:
+        return new IncludeNode(
+            name, description, file == null ? "" : file, Lists.newArrayList(), services);
+      default:
+        return new GroupingNode(name, description, Lists.newArrayList(), services);
+    }
+  }
+
+  void writeTo(final @NonNull DataOutput output) throws IOException {
+    output.writeLong(id);
+    output.writeLong(parentId);
+    output.writeLong(previousId);
+    writeString(output, type.getTypeName());
+    writeString(output, name);
+    writeString(output, address);
+    writeString(output, description);
+    writeString(output, file);
+    output.writeInt(properties.size());
+    for (final Map.Entry<String, String> entry : properties.entrySet()) {
+      writeString(output, entry.getKey());
+      writeString(output, entry.getValue());
+    }
+    output.writeInt(services.size());
+    for (final String service : services) {
+      writeString(output, service);
+    }
+  }
+
+  /**
+   * Reads row written by {@link #writeTo(DataOutput)}. Property names and values are read into
+   * {@link NodeProperties}, so they are shared with other rows.
+   *
+   * @param input the input
+   * @return the row
+   * @throws IOException on read errors or invalid data
+   */
+  static @NotNull NodeRow readFrom(final @NonNull DataInputStream input) throws IOException {
+    final long id = input.readLong();
+    final long parentId = input.readLong();
+    final long previousId = input.readLong();
+    final String typeName = readString(input);
+    final NodeType type = NodeType.of(typeName);
+    if (type == null) {
+      throw new IOException("Unknown node type " + typeName);
+    }
+    final String name = readRequiredString(input);
+    final String address = readString(input);
+    final String description = readRequiredString(input);
+    final String file = readString(input);
+    final int propertiesCount = readSize(input);
+    final Map<String, String> properties = new NodeProperties();
+    for (int i = 0; i < propertiesCount; i++) {
+      properties.put(readRequiredString(input), readRequiredString(input));
+    }
+    final int servicesCount = readSize(input);
+    final List<String> services = Lists.newArrayListWithCapacity(servicesCount);
+    for (int i = 0; i < servicesCount; i++) {
+      services.add(StringPool.intern(readRequiredString(input)));
+    }
+    return new NodeRow(
+        id, parentId, previousId, type, name, address, description, file, properties, services);
+  }
+
+  static void writeString(final @NonNull DataOutput output, final @Nullable String value)
+      throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+    } else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  static @Nullable String readString(final @NonNull DataInputStream input) throws IOException {
+    final int length = input.readInt();
+    if (length < -1 || length > input.available()) {
+      throw new IOException("Invalid string length " + length);
+    }
+    if (length == -1) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static @NotNull String readRequiredString(final @NonNull DataInputStream input)
+      throws IOException {
+    final String value = readString(input);
+    if (value == null) {
+      throw new IOException("Missing required string");
+    }
+    return value;
+  }
+
+  static int readSize(final @NonNull DataInputStream input) throws IOException {
+    final int size = input.readInt();
+    if (size < 0 || size > input.available()) {
+      throw new IOException("Invalid size " + size);
+    }
+    return size;
+  }
+}
@@ -0,0 +1,708 @@
+package net.in.rrrekin.ittoolbox.configuration.store;
+
+import static net.in.rrrekin.ittoolbox.configuration.store.NodeRow.NO_NODE;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeType;
+import net.in.rrrekin.ittoolbox.utilities.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * On-disk store of network nodes, alternative to the YAML configuration file for large
+ * inventories. Every node is kept as a separate row (see {@link NodeRow}). Save appends rows of
+ * nodes that were added or changed since last load or save and deletion records of removed nodes,
+ * followed by a commit record, so unchanged nodes are not written again. Records after the last
+ * commit, e.g. left by interrupted save, are ignored on load and overwritten by the next save. The
+ * file is rewritten atomically when it contains more outdated than current data, or when it was
+ * changed by someone else since it was read.
+ *
+ * <p>Store keeps indexes of node names, addresses and property values of nodes as they were last
+ * loaded or saved, so nodes can be found without walking the whole tree.
+ *
+ * <p>Child nodes of include nodes are not stored, they are kept in included YAML files.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class NodeStore {
+
+  /** Extension of node store files. */
+  public static final String FILE_EXTENSION = ".nodes";
+
+  private static final int MAGIC = 0x49544e53; // "ITNS"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final byte ROW_RECORD = 1;
+  private static final byte DELETE_RECORD = 2;
+  private static final byte SETTINGS_RECORD = 3;
+  private static final byte COMMIT_RECORD = 4;
+  /** Files smaller than this are never compacted. */
+  private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
+  /** The store file. */
+  @Getter private final @NonNull File file;
+
+  private final Map<NetworkNode, Long> nodeIds = new MapMaker().weakKeys().makeMap();
+  private final Map<Long, NetworkNode> nodes = new MapMaker().weakValues().makeMap();
+  private final Map<Long, StoredRow> rows = Maps.newHashMap();
+  private final SetMultimap<String, Long> nameIndex = HashMultimap.create();
+  private final SetMultimap<String, Long> addressIndex = HashMultimap.create();
+  private final Map<String, SetMultimap<String, Long>> propertyIndex = Maps.newHashMap();
+  private @Nullable Long settingsHash = null;
+  private int settingsSize = 0;
+  private long nextId = 1;
+  private long committedLength = HEADER_SIZE;
+  private long liveBytes = 0;
+  /** Length and modification time of the file after last load or save, null if not known. */
+  private @Nullable FileState fileState = null;
+
+  /**
+   * Instantiates a new Node store. Nothing is read until {@link #load()} is called.
+   *
+   * @param file the store file
+   */
+  public NodeStore(final @NonNull File file) {
+    this.file = file;
+  }
+
+  /**
+   * Checks if the file is a node store file, based on its extension.
+   *
+   * @param file the file
+   * @return true for node store files
+   */
+  public static boolean isStoreFile(final @NonNull File file) {
+    return file.getName().endsWith(FILE_EXTENSION);
+  }
+
+  /**
+   * Reads all nodes and settings from the store file and rebuilds indexes.
+   *
+   * @return the store content
+   * @throws java.io.FileNotFoundException if the file does not exist
+   * @throws IOException on read errors or if the file is not a node store
+   */
+  public synchronized @NotNull Content load() throws IOException {
+    clearState();
+    final Map<Long, byte[]> rowPayloads = Maps.newLinkedHashMap();
+    byte[] settingsPayload = null;
+    final long fileLength = file.length();
+    try (final DataInputStream input =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (fileLength < HEADER_SIZE
+          || input.readInt() != MAGIC
+          || input.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a node store file: " + file);
+      }
+      final List<byte[]> pending = Lists.newArrayList();
+      long position = HEADER_SIZE;
+      byte[] payload;
+      while ((payload = readRecord(input, fileLength - position)) != null) {
+        position += RECORD_HEADER_SIZE + payload.length;
+        if (payload[0] != COMMIT_RECORD) {
+          pending.add(payload);
+          continue;
+        }
+        for (final byte[] record : pending) {
+          if (record[0] == SETTINGS_RECORD) {
+            settingsPayload = record;
+            continue;
+          }
+          final long id = ByteBuffer.wrap(record).getLong(1);
+          nextId = Math.max(nextId, id + 1);
+          if (record[0] == ROW_RECORD) {
+            rowPayloads.put(id, record);
+          } else {
+            rowPayloads.remove(id);
+          }
+        }
+        pending.clear();
+        committedLength = position;
+      }
+    }
+    if (committedLength < fileLength) {
+      log.warn(
+          "Ignoring {} bytes of unfinished save at the end of node store {}",
+          fileLength - committedLength,
+          file);
+    }
+
+    final List<NodeRow> nodeRows = Lists.newArrayListWithCapacity(rowPayloads.size());
+    for (final byte[] payload : rowPayloads.values()) {
+      final NodeRow row = NodeRow.readFrom(payloadInput(payload));
+      storeRow(row, payload);
+      nodeRows.add(row);
+    }
+    final Content content =
+        settingsPayload == null
+            ? new Content(null, Maps.newHashMap(), Maps.newHashMap(), Lists.newArrayList())
+            : readSettings(settingsPayload);
+    if (settingsPayload != null) {
+      settingsHash = hash(settingsPayload);
+      settingsSize = RECORD_HEADER_SIZE + settingsPayload.length;
+      liveBytes += settingsSize;
+    }
+    final ListMultimap<Long, NodeRow> children = ArrayListMultimap.create();
+    nodeRows.forEach(row -> children.put(row.getParentId(), row));
+    final int attached = attachChildren(NO_NODE, content.getNetworkNodes(), children);
+    if (attached < nodeRows.size()) {
+      log.warn(
+          "Ignoring {} rows of node store {} that are not part of the node tree",
+          nodeRows.size() - attached,
+          file);
+    }
+    fileState = FileState.of(file);
+    log.info("Loaded {} nodes from node store {}", attached, file);
+    return content;
+  }
+
+  /**
+   * Saves configuration to the store file. Only rows of changed nodes are written, unless the
+   * file has to be rewritten.
+   *
+   * @param config the configuration
+   * @param services the configuration of services
+   * @param localeCode the locale code or null for default locale
+   * @return true if the file was written, false if it already contained the same configuration
+   * @throws IOException on write errors
+   */
+  public synchronized boolean save(
+      final @NonNull Configuration config,
+      final @NonNull Map<String, String> services,
+      final @Nullable String localeCode)
+      throws IOException {
+    final boolean append = fileState != null && fileState.equals(FileState.of(file));
+    if (!append) {
+      clearState();
+    }
+    try {
+      final RecordBuffer changes = new RecordBuffer();
+      final Set<Long> visited = Sets.newHashSet();
+      final Set<Long> kept = Sets.newHashSet();
+      collectIds(config.getNetworkNodes(), kept);
+      saveNodes(config.getNetworkNodes(), NO_NODE, visited, changes, new SlotOwners(kept));
+
+      for (final Long id : ImmutableList.copyOf(rows.keySet())) {
+        if (!visited.contains(id)) {
+          changes.add(DELETE_RECORD, output -> output.writeLong(id));
+          removeRow(id);
+        }
+      }
+
+      final byte[] settingsPayload =
+          payload(
+              SETTINGS_RECORD,
+              output -> writeSettings(output, localeCode, services, config.getModules()));
+      if (settingsHash == null || settingsHash != hash(settingsPayload)) {
+        changes.add(settingsPayload);
+        liveBytes += RECORD_HEADER_SIZE + settingsPayload.length - settingsSize;
+        settingsHash = hash(settingsPayload);
+        settingsSize = RECORD_HEADER_SIZE + settingsPayload.length;
+      }
+
+      if (append && changes.isEmpty()) {
+        log.debug("Node store {} not changed.", file);
+        return false;
+      }
+      changes.add(COMMIT_RECORD, output -> {});
+      final long appendedLength = committedLength + changes.size();
+      final boolean written;
+      if (!append) {
+        // All rows are new after state was cleared
+        written = rewrite(changes);
+      } else if (shouldCompact(appendedLength)) {
+        written = rewrite(allRecords(settingsPayload));
+      } else {
+        append(changes);
+        written = true;
+      }
+      fileState = FileState.of(file);
+      return written;
+    } catch (final IOException | RuntimeException e) {
+      // Memory state no longer matches the file, so next save rewrites it
+      clearState();
+      throw e;
+    }
+  }
+
+  /**
+   * Finds nodes with given name.
+   *
+   * @param name the name
+   * @return the nodes in order they were added to the store
+   */
+  public synchronized @NotNull List<NetworkNode> findByName(final @NonNull String name) {
+    return nodesOf(nameIndex.get(name));
+  }
+
+  /**
+   * Finds servers with given address.
+   *
+   * @param address the address
+   * @return the nodes in order they were added to the store
+   */
+  public synchronized @NotNull List<NetworkNode> findByAddress(final @NonNull String address) {
+    return nodesOf(addressIndex.get(address));
+  }
+
+  /**
+   * Finds nodes that have custom property with given value.
+   *
+   * @param name the property name
+   * @param value the property value
+   * @return the nodes in order they were added to the store
+   */
+  public synchronized @NotNull List<NetworkNode> findByProperty(
+      final @NonNull String name, final @NonNull String value) {
+    final SetMultimap<String, Long> index = propertyIndex.get(name);
+    return index == null ? Lists.newArrayList() : nodesOf(index.get(value));
+  }
+
+  /** Collects ids of stored nodes that are still in the tree, they are never given to others. */
+  private void collectIds(final @NotNull List<NetworkNode> nodeList, final @NotNull Set<Long> ids) {
+    for (final NetworkNode node : nodeList) {
+      final Long id = nodeIds.get(node);
+      if (id != null) {
+        ids.add(id);
+      }
+      if (node instanceof GroupingNode && !(node instanceof IncludeNode)) {
+        collectIds(node.getChildNodes(), ids);
+      }
+    }
+  }
+
+  private void saveNodes(
+      final @NotNull List<NetworkNode> nodeList,
+      final long parentId,
+      final @NotNull Set<Long> visited,
+      final @NotNull RecordBuffer changes,
+      final @NotNull SlotOwners slotOwners)
+      throws IOException {
+    long previousId = NO_NODE;
+    for (final NetworkNode node : nodeList) {
+      Long id = nodeIds.get(node);
+      if (id == null || visited.contains(id)) {
+        // New node or a copy of stored node, e.g. include node with child nodes read
+        id = slotOwners.find(parentId, previousId);
+        if (id == null || visited.contains(id)) {
+          id = nextId++;
+        }
+      }
+      visited.add(id);
+      nodeIds.put(node, id);
+      nodes.put(id, node);
+
+      final NodeRow row = NodeRow.of(node, id, parentId, previousId);
+      final byte[] payload = payload(ROW_RECORD, row::writeTo);
+      final StoredRow stored = rows.get(id);
+      if (stored == null || stored.hash != hash(payload)) {
+        changes.add(payload);
+        if (stored != null) {
+          removeRow(id);
+        }
+        storeRow(row, payload);
+      }
+      if (node instanceof GroupingNode && !(node instanceof IncludeNode)) {
+        saveNodes(node.getChildNodes(), id, visited, changes, slotOwners);
+      }
+      previousId = id;
+    }
+  }
+
+  private int attachChildren(
+      final long parentId,
+      final @NotNull List<NetworkNode> target,
+      final @NotNull ListMultimap<Long, NodeRow> children) {
+    final List<NodeRow> siblings = children.get(parentId);
+    if (siblings.isEmpty()) {
+      return 0;
+    }
+    final Map<Long, NodeRow> byPrevious = Maps.newHashMapWithExpectedSize(siblings.size());
+    siblings.forEach(row -> byPrevious.put(row.getPreviousId(), row));
+    final Set<Long> added = Sets.newHashSetWithExpectedSize(siblings.size());
+    final List<NodeRow> ordered = Lists.newArrayListWithCapacity(siblings.size());
+    NodeRow next = byPrevious.get(NO_NODE);
+    while (next != null && added.add(next.getId())) {
+      ordered.add(next);
+      next = byPrevious.get(next.getId());
+    }
+    if (ordered.size() < siblings.size()) {
+      log.warn("Broken order of child nodes of node {} in node store {}", parentId, file);
+      siblings.stream().filter(row -> !added.contains(row.getId())).forEach(ordered::add);
+    }
+
+    int attached = 0;
+    for (final NodeRow row : ordered) {
+      NetworkNode node = row.toNode();
+      if (row.getType() == NodeType.GROUP) {
+        final List<NetworkNode> childNodes = Lists.newArrayList();
+        attached += attachChildren(row.getId(), childNodes, children);
+        node = ((GroupingNode) node).withChildNodes(childNodes);
+      }
+      nodeIds.put(node, row.getId());
+      nodes.put(row.getId(), node);
+      target.add(node);
+      attached++;
+    }
+    return attached;
+  }
+
+  private void storeRow(final @NotNull NodeRow row, final @NotNull byte[] payload) {
+    final String[] indexed = new String[2 + 2 * row.getProperties().size()];
+    indexed[0] = row.getName();
+    indexed[1] = row.getAddress();
+    int index = 2;
+    for (final Map.Entry<String, String> entry : row.getProperties().entrySet()) {
+      indexed[index++] = entry.getKey();
+      indexed[index++] = entry.getValue();
+    }
+    final StoredRow stored =
+        new StoredRow(
+            hash(payload),
+            RECORD_HEADER_SIZE + payload.length,
+            row.getParentId(),
+            row.getPreviousId(),
+            indexed);
+    rows.put(row.getId(), stored);
+    liveBytes += stored.size;
+    nameIndex.put(indexed[0], row.getId());
+    if (indexed[1] != null) {
+      addressIndex.put(indexed[1], row.getId());
+    }
+    for (int i = 2; i < indexed.length; i += 2) {
+      propertyIndex
+          .computeIfAbsent(indexed[i], key -> HashMultimap.create())
+          .put(indexed[i + 1], row.getId());
+    }
+  }
+
+  private void removeRow(final long id) {
+    final StoredRow stored = rows.remove(id);
+    if (stored == null) {
+      return;
+    }
+    liveBytes -= stored.size;
+    nameIndex.remove(stored.indexed[0], id);
+    if (stored.indexed[1] != null) {
+      addressIndex.remove(stored.indexed[1], id);
+    }
+    for (int i = 2; i < stored.indexed.length; i += 2) {
+      final SetMultimap<String, Long> index = propertyIndex.get(stored.indexed[i]);
+      if (index != null) {
+        index.remove(stored.indexed[i + 1], id);
+        if (index.isEmpty()) {
+          propertyIndex.remove(stored.indexed[i]);
+        }
+      }
+    }
+  }
+
+  private void clearState() {
+    nodeIds.clear();
+    nodes.clear();
+    rows.clear();
+    nameIndex.clear();
+    addressIndex.clear();
+    propertyIndex.clear();
+    settingsHash = null;
+    settingsSize = 0;
+    nextId = 1;
+    committedLength = HEADER_SIZE;
+    liveBytes = 0;
+    fileState = null;
+  }
+
+  private @NotNull List<NetworkNode> nodesOf(final @NotNull Collection<Long> ids) {
+    final List<NetworkNode> response = Lists.newArrayListWithCapacity(ids.size());
+    ids.stream()
+        .sorted()
+        .map(nodes::get)
+        .filter(Objects::nonNull)
+        .forEach(response::add);
+    return response;
+  }
+
+  private boolean shouldCompact(final long appendedLength) {
+    return appendedLength > MIN_COMPACTION_SIZE && appendedLength - HEADER_SIZE > 2 * liveBytes;
+  }
+
+  /**
+   * Builds records of all stored rows, followed by settings and commit record, to rewrite the
+   * file. Rows are built again from saved nodes, so they are not kept in memory on every save.
+   */
+  private @NotNull RecordBuffer allRecords(final @NotNull byte[] settingsPayload)
+      throws IOException {
+    final RecordBuffer all = new RecordBuffer();
+    for (final Long id : ImmutableSortedSet.copyOf(rows.keySet())) {
+      final StoredRow stored = rows.get(id);
+      final NodeRow row = NodeRow.of(nodes.get(id), id, stored.parentId, stored.previousId);
+      all.add(ROW_RECORD, row::writeTo);
+    }
+    all.add(settingsPayload);
+    all.add(COMMIT_RECORD, output -> {});
+    return all;
+  }
+
+  /** Replaces the whole file with header and given records. */
+  private boolean rewrite(final @NotNull RecordBuffer records) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE + records.size());
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      records.writeTo(output);
+    }
+    final byte[] content = buffer.toByteArray();
+    committedLength = content.length;
+    if (FileUtils.hasContent(file, content)) {
+      log.debug("Node store {} not changed.", file);
+      return false;
+    }
+    FileUtils.writeAtomically(file, content);
+    log.debug("Node store {} rewritten, {} bytes", file, content.length);
+    return true;
+  }
+
+  /** Appends records after the last commit, dropping anything that follows it. */
+  private void append(final @NotNull RecordBuffer records) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(records.size());
+    records.writeTo(buffer);
+    final ByteBuffer content = ByteBuffer.wrap(buffer.toByteArray());
+    try (final FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(committedLength);
+      channel.position(committedLength);
+      while (content.hasRemaining()) {
+        channel.write(content);
+      }
+      channel.force(false);
+    }
+    committedLength += records.size();
+    log.debug("Appended {} bytes to node store {}", records.size(), file);
+  }
+
+  private static @Nullable byte[] readRecord(
+      final @NotNull DataInputStream input, final long available) throws IOException {
+    if (available < RECORD_HEADER_SIZE + 1) {
+      return null;
+    }
+    final int length = input.readInt();
+    final int checksum = input.readInt();
+    if (length < 1 || length > available - RECORD_HEADER_SIZE) {
+      return null;
+    }
+    final byte[] payload = new byte[length];
+    input.readFully(payload);
+    return checksum(payload) == checksum ? payload : null;
+  }
+
+  private static @NotNull Content readSettings(final @NotNull byte[] payload) throws IOException {
+    final DataInputStream input = payloadInput(payload);
+    final String localeCode = NodeRow.readString(input);
+    final Map<String, String> services = readStringMap(input);
+    final int modulesCount = NodeRow.readSize(input);
+    final Map<String, Map<String, String>> modules =
+        Maps.newLinkedHashMapWithExpectedSize(modulesCount);
+    for (int i = 0; i < modulesCount; i++) {
+      modules.put(NodeRow.readRequiredString(input), readStringMap(input));
+    }
+    return new Content(localeCode, services, modules, Lists.newArrayList());
+  }
+
+  private static void writeSettings(
+      final @NotNull DataOutputStream output,
+      final @Nullable String localeCode,
+      final @NotNull Map<String, String> services,
+      final @NotNull Map<String, Map<String, String>> modules)
+      throws IOException {
+    NodeRow.writeString(output, localeCode);
+    writeStringMap(output, services);
+    output.writeInt(modules.size());
+    for (final Map.Entry<String, Map<String, String>> module : modules.entrySet()) {
+      NodeRow.writeString(output, module.getKey());
+      writeStringMap(output, module.getValue());
+    }
+  }
+
+  private static @NotNull Map<String, String> readStringMap(final @NotNull DataInputStream input)
+      throws IOException {
+    final int size = NodeRow.readSize(input);
+    final Map<String, String> map = Maps.newLinkedHashMapWithExpectedSize(size);
+    for (int i = 0; i < size; i++) {
+      map.put(NodeRow.readRequiredString(input), NodeRow.readRequiredString(input));
+    }
+    return map;
+  }
+
+  private static void writeStringMap(
+      final @NotNull DataOutputStream output, final @NotNull Map<String, String> map)
+      throws IOException {
+    output.writeInt(map.size());
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      NodeRow.writeString(output, entry.getKey());
+      NodeRow.writeString(output, entry.getValue());
+    }
+  }
+
+  /** Input reading payload after the record kind. */
+  private static @NotNull DataInputStream payloadInput(final @NotNull byte[] payload) {
+    return new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+  }
+
+  private static @NotNull byte[] payload(final byte kind, final @NotNull RecordContent content)
+      throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (final DataOutputStream output = new DataOutputStream(buffer)) {
+      output.writeByte(kind);
+      content.writeTo(output);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static long hash(final @NotNull byte[] payload) {
+    return Hashing.murmur3_128().hashBytes(payload).asLong();
+  }
+
+  private static int checksum(final @NotNull byte[] payload) {
+    return Hashing.crc32().hashBytes(payload).asInt();
+  }
+
+  /** Configuration read from the store. */
+  @Value
+  public static class Content {
+    /** The locale code or null for default locale. */
+    @Nullable String localeCode;
+    /** The configuration of services. */
+    @NonNull Map<String, String> services;
+    /** The configuration of modules. */
+    @NonNull Map<String, Map<String, String>> modules;
+    /** The top level network nodes. */
+    @NonNull List<NetworkNode> networkNodes;
+  }
+
+  /** Content of a record, written after the record kind. */
+  @FunctionalInterface
+  private interface RecordContent {
+    void writeTo(@NotNull DataOutputStream output) throws IOException;
+  }
+
+  /** Framed records to be written: payload length, payload checksum and the payload. */
+  private static final class RecordBuffer {
+    private final List<byte[]> payloads = Lists.newArrayList();
+    private long size = 0;
+
+    void add(final @NotNull byte[] payload) {
+      payloads.add(payload);
+      size += RECORD_HEADER_SIZE + payload.length;
+    }
+
+    void add(final byte kind, final @NotNull RecordContent content) throws IOException {
+      add(payload(kind, content));
+    }
+
+    boolean isEmpty() {
+      return payloads.isEmpty();
+    }
+
+    int size() {
+      return Math.toIntExact(size);
+    }
+
+    void writeTo(final @NotNull OutputStream stream) throws IOException {
+      final DataOutputStream output = new DataOutputStream(stream);
+      for (final byte[] payload : payloads) {
+        output.writeInt(payload.length);
+        output.writeInt(checksum(payload));
+        output.write(payload);
+      }
+      output.flush();
+    }
+  }
+
+  /** Data of stored row needed to detect changes and to maintain indexes. */
+  @RequiredArgsConstructor
+  private static final class StoredRow {
+    private final long hash;
+    private final int size;
+    private final long parentId;
+    private final long previousId;
+    /** Name, address and then property names and values of the node. */
+    private final @NotNull String[] indexed;
+  }
+
+  /**
+   * Ids of stored rows by their parent and previous sibling, built when the first node without
+   * id is saved. Node without id takes id of the row from its position, so nodes replaced by
+   * copies are not written again if they did not change. Rows of nodes that are still in the tree
+   * keep their ids, so they are not offered.
+   */
+  @RequiredArgsConstructor
+  private final class SlotOwners {
+    private final @NotNull Set<Long> kept;
+    private @Nullable Table<Long, Long, Long> owners = null;
+
+    @Nullable
+    Long find(final long parentId, final long previousId) {
+      if (owners == null) {
+        owners = HashBasedTable.create();
+        rows.forEach(
+            (id, row) -> {
+              if (!kept.contains(id)) {
+                owners.put(row.parentId, row.previousId, id);
+              }
+            });
+      }
+      return owners.get(parentId, previousId);
+    }
+  }
+
+  /** Length and modification time of the file. */
+  @Value
+  private static class FileState {
+    long length;
+    long lastModified;
+
+    static @NotNull FileState of(final @NotNull File file) {
+      return new FileState(file.length(), file.lastModified());
+    }
+  }
+}
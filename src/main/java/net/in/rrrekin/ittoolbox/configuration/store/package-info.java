@@ -0,0 +1,7 @@
+/**
+ * Indexed on-disk store of network nodes, alternative to the YAML configuration file for large
+ * inventories.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.store;
@@ -0,0 +1,296 @@
+package net.in.rrrekin.ittoolbox.configuration.yaml;
+
+import static net.in.rrrekin.ittoolbox.utilities.StringUtils.toStringOrEmpty;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Cursor over SnakeYAML parser events. Allows reading configuration file element by element
+ * without composing whole document in memory. Scalar values are resolved and constructed exactly as
+ * {@link org.yaml.snakeyaml.Yaml#load} does, so values read from the cursor are the same as values
+ * of map based DTOs.
+ *
+ * <p>Aliases are supported only for scalars and for collections read with {@link #readValue()}.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class YamlEventReader implements DocumentReader {
+
+  private final @NonNull Iterator<Event> events;
+  private final Resolver resolver = new Resolver();
+  private final ScalarConstructor scalarConstructor = new ScalarConstructor();
+  private final Map<String, Object> anchors = Maps.newHashMap();
+  private @Nullable Event peeked = null;
+
+  /**
+   * Instantiates a new YAML event reader.
+   *
+   * @param events the events as returned by {@link org.yaml.snakeyaml.Yaml#parse}
+   */
+  public YamlEventReader(final @NonNull Iterable<Event> events) {
+    this.events = events.iterator();
+  }
+
+  /**
+   * Reads stream and document start. Returns false if YAML stream does not contain any document.
+   *
+   * @return true if document is available
+   */
+  @Override
+  public boolean readDocumentStart() {
+    if (peek() instanceof StreamStartEvent) {
+      next();
+    }
+    if (peek() instanceof StreamEndEvent) {
+      return false;
+    }
+    expect(DocumentStartEvent.class);
+    return true;
+  }
+
+  /** Reads document and stream end. Fails if stream contains more than one document. */
+  @Override
+  public void readDocumentEnd() {
+    expect(DocumentEndEvent.class);
+    if (!(peek() instanceof StreamEndEvent)) {
+      throw new YAMLException("expected a single document in the stream");
+    }
+    next();
+  }
+
+  /**
+   * Checks if next value is a scalar.
+   *
+   * @return true if next value is a scalar
+   */
+  @Override
+  public boolean isScalar() {
+    return peek() instanceof ScalarEvent;
+  }
+
+  /**
+   * Checks if next value is a mapping.
+   *
+   * @return true if next value is a mapping
+   */
+  @Override
+  public boolean isMappingStart() {
+    return peek() instanceof MappingStartEvent;
+  }
+
+  /**
+   * Checks if current mapping is finished.
+   *
+   * @return true if there are no more entries in current mapping
+   */
+  @Override
+  public boolean isMappingEnd() {
+    return peek() instanceof MappingEndEvent;
+  }
+
+  /**
+   * Checks if next value is a sequence.
+   *
+   * @return true if next value is a sequence
+   */
+  @Override
+  public boolean isSequenceStart() {
+    return peek() instanceof SequenceStartEvent;
+  }
+
+  /**
+   * Checks if current sequence is finished.
+   *
+   * @return true if there are no more elements in current sequence
+   */
+  @Override
+  public boolean isSequenceEnd() {
+    return peek() instanceof SequenceEndEvent;
+  }
+
+  /** Consumes start of a mapping. */
+  @Override
+  public void readMappingStart() {
+    expect(MappingStartEvent.class);
+  }
+
+  /** Consumes end of a mapping. */
+  @Override
+  public void readMappingEnd() {
+    expect(MappingEndEvent.class);
+  }
+
+  /** Consumes start of a sequence. */
+  @Override
+  public void readSequenceStart() {
+    expect(SequenceStartEvent.class);
+  }
+
+  /** Consumes end of a sequence. */
+  @Override
+  public void readSequenceEnd() {
+    expect(SequenceEndEvent.class);
+  }
+
+  /**
+   * Reads next value of any kind and converts it to string the same way as {@link
+   * net.in.rrrekin.ittoolbox.utilities.StringUtils#toStringOrEmpty(Object)} does for DTO values.
+   *
+   * @return the string representation of the value
+   */
+  @Override
+  public @NotNull String readString() {
+    return toStringOrEmpty(readValue());
+  }
+
+  /**
+   * Reads next value. Scalars are returned as constructed Java objects, collections are composed
+   * into {@link java.util.ArrayList} and {@link java.util.LinkedHashMap} instances.
+   *
+   * @return the value
+   */
+  @Override
+  public @Nullable Object readValue() {
+    final Event event = next();
+    final Object value;
+    if (event instanceof ScalarEvent) {
+      value = construct((ScalarEvent) event);
+    } else if (event instanceof SequenceStartEvent) {
+      final List<Object> list = Lists.newArrayList();
+      while (!isSequenceEnd()) {
+        list.add(readValue());
+      }
+      next();
+      value = list;
+    } else if (event instanceof MappingStartEvent) {
+      final Map<Object, Object> map = Maps.newLinkedHashMap();
+      while (!isMappingEnd()) {
+        final Object key = readValue();
+        map.put(key, readValue());
+      }
+      next();
+      value = map;
+    } else if (event instanceof AliasEvent) {
+      final String anchor = ((AliasEvent) event).getAnchor();
+      if (!anchors.containsKey(anchor)) {
+        throw new YAMLException("found unsupported or undefined alias " + anchor);
+      }
+      return anchors.get(anchor);
+    } else {
+      throw new YAMLException("unexpected YAML event " + event);
+    }
+    if (event instanceof ScalarEvent || event instanceof CollectionStartEvent) {
+      final String anchor =
+          event instanceof ScalarEvent
+              ? ((ScalarEvent) event).getAnchor()
+              : ((CollectionStartEvent) event).getAnchor();
+      if (anchor != null) {
+        anchors.put(anchor, value);
+      }
+    }
+    return value;
+  }
+
+  /** Skips next value including all nested elements. */
+  @Override
+  public void skipValue() {
+    final Event event = next();
+    if (event instanceof ScalarEvent) {
+      final String anchor = ((ScalarEvent) event).getAnchor();
+      if (anchor != null) {
+        anchors.put(anchor, construct((ScalarEvent) event));
+      }
+    } else if (event instanceof CollectionStartEvent) {
+      int depth = 1;
+      while (depth > 0) {
+        final Event nested = next();
+        if (nested instanceof CollectionStartEvent) {
+          depth++;
+        } else if (nested instanceof SequenceEndEvent || nested instanceof MappingEndEvent) {
+          depth--;
+        }
+      }
+    } else if (!(event instanceof AliasEvent)) {
+      throw new YAMLException("unexpected YAML event " + event);
+    }
+  }
+
+  private @Nullable Object construct(final @NotNull ScalarEvent event) {
+    final String eventTag = event.getTag();
+    final Tag tag;
+    if (eventTag == null || "!".equals(eventTag)) {
+      tag =
+          resolver.resolve(
+              NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+    } else {
+      tag = new Tag(eventTag);
+    }
+    if (Tag.STR.equals(tag)) {
+      return event.getValue();
+    }
+    return scalarConstructor.construct(
+        new ScalarNode(
+            tag, event.getValue(), event.getStartMark(), event.getEndMark(),
+            event.getScalarStyle()));
+  }
+
+  private @NotNull Event peek() {
+    if (peeked == null) {
+      if (!events.hasNext()) {
+        throw new YAMLException("unexpected end of YAML stream");
+      }
+      peeked = events.next();
+    }
+    return peeked;
+  }
+
+  private @NotNull Event next() {
+    final Event event = peek();
+    peeked = null;
+    return event;
+  }
+
+  private void expect(final @NotNull Class<? extends Event> eventClass) {
+    final Event event = next();
+    if (!eventClass.isInstance(event)) {
+      throw new YAMLException("expected " + eventClass.getSimpleName() + " but found " + event);
+    }
+  }
+
+  /**
+   * Constructor of single scalar values. Uses constructors registered for standard tags without
+   * tracking constructed objects, so it does not retain any state between values.
+   */
+  private static final class ScalarConstructor extends SafeConstructor {
+    @Nullable
+    Object construct(final @NotNull ScalarNode node) {
+      return getConstructor(node).construct(node);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package net.in.rrrekin.ittoolbox.configuration.yaml;
+
+import java.io.IOException;
+import java.io.Writer;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.codec.DocumentWriter;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Writes YAML document directly as a stream of SnakeYAML emitter events. Produces the same output
+ * as {@link Yaml#dump(Object, Writer)} called with the same {@link DumperOptions} for equivalent
+ * structure of maps, lists and strings, but does not require the structure to be built in memory.
+ *
+ * <p>Collections are always written with flow style from options, so options with {@link
+ * DumperOptions.FlowStyle#AUTO} are not supported.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class YamlEventWriter implements DocumentWriter {
+
+  private final @NonNull Writer output;
+  private final @NonNull DumperOptions options;
+  private final Emitter emitter;
+  private final Yaml yaml;
+  private final Resolver resolver = new Resolver();
+  private final boolean implicitMapping;
+  private final boolean implicitSequence;
+
+  /**
+   * Instantiates a new YAML event writer.
+   *
+   * @param output the output
+   * @param options the dumper options
+   */
+  public YamlEventWriter(final @NonNull Writer output, final @NonNull DumperOptions options) {
+    this.output = output;
+    this.options = options;
+    emitter = new Emitter(output, options);
+    yaml = new Yaml(options);
+    implicitMapping = Tag.MAP.equals(resolver.resolve(NodeId.mapping, null, true));
+    implicitSequence = Tag.SEQ.equals(resolver.resolve(NodeId.sequence, null, true));
+  }
+
+  /**
+   * Writes start of the stream and of its only document.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void startDocument() throws IOException {
+    emitter.emit(new StreamStartEvent(null, null));
+    emitter.emit(
+        new DocumentStartEvent(
+            null, null, options.isExplicitStart(), options.getVersion(), options.getTags()));
+  }
+
+  /**
+   * Writes end of the document and of the stream.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void endDocument() throws IOException {
+    emitter.emit(new DocumentEndEvent(null, null, options.isExplicitEnd()));
+    emitter.emit(new StreamEndEvent(null, null));
+  }
+
+  /**
+   * Writes start of a mapping.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void startMapping() throws IOException {
+    emitter.emit(
+        new MappingStartEvent(
+            null, Tag.MAP.getValue(), implicitMapping, null, null, options.getDefaultFlowStyle()));
+  }
+
+  /**
+   * Writes end of a mapping.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void endMapping() throws IOException {
+    emitter.emit(new MappingEndEvent(null, null));
+  }
+
+  /**
+   * Writes start of a sequence.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void startSequence() throws IOException {
+    emitter.emit(
+        new SequenceStartEvent(
+            null, Tag.SEQ.getValue(), implicitSequence, null, null, options.getDefaultFlowStyle()));
+  }
+
+  /**
+   * Writes end of a sequence.
+   *
+   * @throws IOException on write errors
+   */
+  @Override
+  public void endSequence() throws IOException {
+    emitter.emit(new SequenceEndEvent(null, null));
+  }
+
+  /**
+   * Writes string scalar. Scalar style and tag are selected by SnakeYAML representer, exactly as
+   * for dumped objects.
+   *
+   * @param value the value
+   * @throws IOException on write errors
+   */
+  @Override
+  public void writeScalar(final @NonNull String value) throws IOException {
+    final Node node = yaml.represent(value);
+    final ScalarNode scalar = (ScalarNode) node;
+    final Tag detectedTag = resolver.resolve(NodeId.scalar, scalar.getValue(), true);
+    final Tag defaultTag = resolver.resolve(NodeId.scalar, scalar.getValue(), false);
+    final ImplicitTuple implicit =
+        new ImplicitTuple(scalar.getTag().equals(detectedTag), scalar.getTag().equals(defaultTag));
+    emitter.emit(
+        new ScalarEvent(
+            null,
+            scalar.getTag().getValue(),
+            implicit,
+            scalar.getValue(),
+            null,
+            null,
+            scalar.getScalarStyle()));
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+}
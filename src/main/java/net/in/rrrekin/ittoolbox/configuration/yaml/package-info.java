@@ -0,0 +1,6 @@
+/**
+ * Event based (streaming) access to YAML configuration files.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+package net.in.rrrekin.ittoolbox.configuration.yaml;
@@ -28,6 +28,7 @@ public class ConfigurationErrorEvent {
     INVALID_MODULE_OPTIONS,
     INVALID_MODULE_LIST,
     INVALID_SERVICE_CONFIGURATION,
-    INVALID_SERVICES_SECTION;
+    INVALID_SERVICES_SECTION,
+    INCLUDE_FILE_UNREADABLE;
   }
 }
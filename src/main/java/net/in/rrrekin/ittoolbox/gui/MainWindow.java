@@ -28,12 +28,15 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JSplitPane;
-import javax.swing.JTree;
+import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.ToolTipManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -41,9 +44,13 @@ import lombok.extern.slf4j.Slf4j;
 import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService;
+import net.in.rrrekin.ittoolbox.gui.nodetree.FilteredNetworkNodesTreeModel;
+import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodeTree;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodeTreeCellEditor;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodeTreeCellRenderer;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NetworkNodesTreeModelFacade;
+import net.in.rrrekin.ittoolbox.gui.nodetree.NodeDetailsCache;
 import net.in.rrrekin.ittoolbox.gui.nodetree.NodeTreePopupListener;
 import net.in.rrrekin.ittoolbox.utilities.LocaleUtil;
 import org.jetbrains.annotations.NotNull;
@@ -60,12 +67,17 @@ public class MainWindow {
   private static final Dimension MINIMUM_SIZE = new Dimension(400, 300);
   private static final Dimension PREFERRED_SIZE = new Dimension(600, 400);
   public static final String HTML_CONTENT_TYPE = "text/html";
+  /** Limit of tree rows expanded automatically to show nodes matching the filter. */
+  private static final int MAX_EXPANDED_ROWS = 1000;
 
   private final @NotNull JFrame mainWindow;
   private final Semaphore runningSemaphore = new Semaphore(0);
   private final @NonNull NetworkNodesTreeModelFacade treeModel;
+  private final @NotNull FilteredNetworkNodesTreeModel filteredTreeModel;
+  private final @NonNull NodeDetailsCache nodeDetails;
 
-  JTree nodesTree;
+  NetworkNodeTree nodesTree;
+  private JTextField nodeFilter;
   private JEditorPane nodeDescription;
   private JPanel contentPane;
   private JPanel statusBar;
@@ -95,8 +107,13 @@ public class MainWindow {
   private final Action editNodeAction = editNodeAction();
 
   @Inject
-  public MainWindow(final @NonNull NetworkNodesTreeModelFacade treeModel) {
+  public MainWindow(
+      final @NonNull NetworkNodesTreeModelFacade treeModel,
+      final @NonNull NodeDetailsCache nodeDetails,
+      final @NonNull NodeSearchService searchService) {
     this.treeModel = treeModel;
+    this.nodeDetails = nodeDetails;
+    filteredTreeModel = new FilteredNetworkNodesTreeModel(treeModel, searchService);
     $$$setupUI$$$();
     mainWindow = new JFrame(localMessage("MW_TITLE"));
     log.info("Creating main window");
@@ -114,8 +131,11 @@ public class MainWindow {
     }
     mainWindow.setContentPane(contentPane);
     nodeDescription.setContentType(HTML_CONTENT_TYPE);
-    nodesTree.setModel(treeModel);
+    nodesTree.setModel(filteredTreeModel);
     treeModel.addTreeModelListener(new NodeTreeModelListener());
+    treeModel.addReplacementListener(() -> nodesTree.updatePaths(treeModel::currentPath));
+    nodeFilter.setToolTipText(localMessage("MW_NODE_FILTER.tooltip"));
+    nodeFilter.getDocument().addDocumentListener(new NodeFilterListener());
     nodesTree.setCellRenderer(new NetworkNodeTreeCellRenderer());
     nodesTree.setCellEditor(new NetworkNodeTreeCellEditor());
     nodesTree.getSelectionModel().setSelectionMode(TreeSelectionModel.CONTIGUOUS_TREE_SELECTION);
@@ -144,7 +164,8 @@ public class MainWindow {
               editNodeAction.putValue(
                   Action.NAME, localMessage("MM_NODE_EDIT." + node.getClass().getSimpleName()));
             }
-            nodeDescription.setText(((NetworkNode) node).toHtml());
+            showDetails((NetworkNode) node);
+            prefetchNeighbours();
           } else {
             disableAddNode();
             nodeDescription.setText("");
@@ -169,6 +190,36 @@ public class MainWindow {
     serverEditor.setLocationRelativeTo(null);
   }
 
+  private void showDetails(final @NotNull NetworkNode node) {
+    nodeDetails.render(
+        node,
+        document -> {
+          if (node == nodesTree.getLastSelectedPathComponent()) {
+            nodeDescription.setDocument(document);
+          }
+        });
+  }
+
+  /** Prepares details of nodes above and below the selected one, for arrow key navigation. */
+  private void prefetchNeighbours() {
+    final int row = nodesTree.getLeadSelectionRow();
+    for (final int neighbour : new int[] {row - 1, row + 1}) {
+      final TreePath path = nodesTree.getPathForRow(neighbour);
+      if (path != null && path.getLastPathComponent() instanceof NetworkNode) {
+        nodeDetails.prefetch((NetworkNode) path.getLastPathComponent());
+      }
+    }
+  }
+
+  private void filterNodes() {
+    filteredTreeModel.setQuery(nodeFilter.getText());
+    if (filteredTreeModel.isFiltered()) {
+      for (int row = 0; row < nodesTree.getRowCount() && row < MAX_EXPANDED_ROWS; row++) {
+        nodesTree.expandRow(row);
+      }
+    }
+  }
+
   private JMenuBar createMainMenu() {
     final JMenuBar menuBar = new JMenuBar();
 
@@ -366,9 +417,10 @@ public class MainWindow {
             if (node instanceof Server) {
               final Server server = (Server) node;
               log.debug("Edit {}", server);
+              // Shown nodes are never modified, editor creates new version of the node
               serverEditor.openForServer(server);
               if (serverEditor.isChanged()) {
-                treeModel.nodeChanged(server);
+                treeModel.nodeChanged(server, serverEditor.getServer());
               }
               log.debug("End of editing {}", server);
             } else {
@@ -418,15 +470,21 @@ public class MainWindow {
    */
   private void $$$setupUI$$$() {
     contentPane = new JPanel();
-    contentPane.setLayout(new GridLayoutManager(2, 1, new Insets(0, 0, 0, 0), -1, -1));
+    contentPane.setLayout(new GridLayoutManager(3, 1, new Insets(0, 0, 0, 0), -1, -1));
+    nodeFilter = new JTextField();
+    nodeFilter.setName("NODE_FILTER");
+    contentPane.add(nodeFilter,
+      new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_HORIZONTAL,
+        GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_FIXED, null,
+        new Dimension(150, -1), null, 0, false));
     final JSplitPane splitPane1 = new JSplitPane();
     splitPane1.setDividerLocation(170);
     contentPane.add(splitPane1,
-      new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH,
+      new GridConstraints(1, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH,
         GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW,
         GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW, null,
         new Dimension(400, 300), null, 0, false));
-    nodesTree = new JTree();
+    nodesTree = new NetworkNodeTree();
     nodesTree.setEditable(true);
     nodesTree.setName("NODE_TREE");
     nodesTree.setRootVisible(false);
@@ -438,7 +496,7 @@ public class MainWindow {
     splitPane1.setRightComponent(nodeDescription);
     statusBar = new JPanel();
     statusBar.setLayout(new GridLayoutManager(1, 1, new Insets(0, 0, 0, 0), -1, -1));
-    contentPane.add(statusBar, new GridConstraints(1, 0, 1, 1, GridConstraints.ANCHOR_SOUTH,
+    contentPane.add(statusBar, new GridConstraints(2, 0, 1, 1, GridConstraints.ANCHOR_SOUTH,
       GridConstraints.FILL_HORIZONTAL,
       GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW,
       GridConstraints.SIZEPOLICY_FIXED, new Dimension(-1, 16), new Dimension(-1, 16), null, 0,
@@ -460,10 +518,17 @@ public class MainWindow {
 
     @Override
     public void treeNodesChanged(final TreeModelEvent e) {
-      if (e.getChildren().length > 0
-          && e.getChildren()[0] == nodesTree.getSelectionPath().getLastPathComponent()) {
-        nodeDescription.setText(
-            ((NetworkNode) nodesTree.getSelectionPath().getLastPathComponent()).toHtml());
+      if (e.getChildren() == null) {
+        return;
+      }
+      final Object selected = nodesTree.getLastSelectedPathComponent();
+      for (final Object node : e.getChildren()) {
+        if (node instanceof NetworkNode) {
+          nodeDetails.invalidate((NetworkNode) node);
+          if (node == selected) {
+            showDetails((NetworkNode) node);
+          }
+        }
       }
     }
 
@@ -484,4 +549,25 @@ public class MainWindow {
 
     }
   }
+
+  private class NodeFilterListener implements DocumentListener {
+
+    NodeFilterListener() {
+    }
+
+    @Override
+    public void insertUpdate(final DocumentEvent e) {
+      filterNodes();
+    }
+
+    @Override
+    public void removeUpdate(final DocumentEvent e) {
+      filterNodes();
+    }
+
+    @Override
+    public void changedUpdate(final DocumentEvent e) {
+      filterNodes();
+    }
+  }
 }
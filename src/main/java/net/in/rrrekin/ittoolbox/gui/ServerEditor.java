@@ -1,5 +1,6 @@
 package net.in.rrrekin.ittoolbox.gui;
 
+import com.google.common.collect.Lists;
 import com.intellij.uiDesigner.core.GridConstraints;
 import com.intellij.uiDesigner.core.GridLayoutManager;
 import com.intellij.uiDesigner.core.Spacer;
@@ -28,6 +29,7 @@ import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
 import jiconfont.swing.IconFontSwing;
 import lombok.Getter;
 import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeProperties;
 import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
 import net.in.rrrekin.ittoolbox.utilities.LocaleUtil;
 import org.jetbrains.annotations.Nullable;
@@ -48,7 +50,8 @@ public class ServerEditor extends JDialog {
   private JButton serviceAdd;
   private JButton serviceRemove;
 
-  private @Nullable Server server = null;
+  /** Edited server, replaced by its new version when changes are accepted. */
+  @Getter private @Nullable Server server = null;
   @Getter
   private boolean changed = false;
 
@@ -154,9 +157,13 @@ public class ServerEditor extends JDialog {
   }
 
   private void setModelData() {
-    server.setName(nameField.getText());
-    server.setAddress(addressField.getText());
-    server.setDescription(descriptionField.getText());
+    server =
+        new Server(
+            nameField.getText(),
+            addressField.getText(),
+            descriptionField.getText(),
+            new NodeProperties(server.getProperties()),
+            Lists.newArrayList(server.getServiceDescriptors()));
     // properties
     // services
     // icon
@@ -0,0 +1,769 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * {@link TreeModel} decorator that shows only network nodes found by {@link NodeSearchService}
+ * and groups they belong to. Without query all nodes of the decorated model are shown and its
+ * events are passed on. Nodes of the decorated model have to be reported to the search service,
+ * like {@link NetworkNodesTreeModelFacade} does.
+ *
+ * <p>Nodes of the decorated model are numbered when first query is set, and matching and visible
+ * nodes are kept in bit sets, so nodes of the decorated model are never removed or copied. Matches
+ * of each query are found in the search index. Matches of shorter queries are kept, so they are
+ * reused when characters are deleted. Changes of decorated model update numbers and matches of
+ * changed nodes only, checking their texts directly; nodes replaced by their new versions keep
+ * their numbers.
+ *
+ * <p>Model is not thread safe, it is used in the event dispatch thread like the decorated model.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class FilteredNetworkNodesTreeModel implements TreeModel {
+
+  /** Maximum number of kept matches of shorter queries. */
+  private static final int MAX_KEPT_FILTERS = 32;
+
+  private static final int NO_PARENT = -1;
+  private static final int ROOT = 0;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final @NonNull TreeModel model;
+  private final @NonNull NodeSearchService searchService;
+  private final EventListenerList listeners = new EventListenerList();
+  private final Map<Object, Integer> numbers = new IdentityHashMap<>();
+  private @Nullable Object[] nodes = new Object[INITIAL_CAPACITY];
+  /** Searched texts of nodes, computed when needed. */
+  private @Nullable String[] texts = new String[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private final Deque<Integer> unusedNumbers = new ArrayDeque<>();
+  private int nextNumber = 0;
+  private boolean numbered = false;
+  /** Matches of the current query on top, followed by matches of shorter queries it contains. */
+  private final Deque<Filter> filters = new ArrayDeque<>();
+  /** Nodes shown with the current query. */
+  private final BitSet visible = new BitSet();
+  /** Indices of visible child nodes in the decorated model, for nodes shown with the query. */
+  private final Map<Object, int[]> visibleChildren = new IdentityHashMap<>();
+  private @NotNull String query = "";
+
+  /**
+   * Instantiates a new filtered network nodes tree model.
+   *
+   * @param model the decorated model
+   * @param searchService the search service the nodes of decorated model are reported to
+   */
+  public FilteredNetworkNodesTreeModel(
+      final @NonNull TreeModel model, final @NonNull NodeSearchService searchService) {
+    this.model = model;
+    this.searchService = searchService;
+    model.addTreeModelListener(new ModelListener());
+  }
+
+  /**
+   * Gets the current query, in lower case.
+   *
+   * @return the query, empty if nodes are not filtered
+   */
+  public @NotNull String getQuery() {
+    return query;
+  }
+
+  /**
+   * Checks if only nodes matching the query are shown.
+   *
+   * @return true if the query is not empty
+   */
+  public boolean isFiltered() {
+    return !query.isEmpty();
+  }
+
+  /**
+   * Shows only nodes that contain the query and their ancestors. Listeners are notified about
+   * nodes hidden and shown below groups that are shown with both queries, so those groups keep
+   * their expansion.
+   *
+   * @param query the query, case insensitive, empty to show all nodes
+   */
+  public void setQuery(final @NonNull String query) {
+    final String text = NodeSearchService.normalizeQuery(query);
+    if (text.equals(this.query)) {
+      return;
+    }
+    final long start = System.nanoTime();
+    if (!numbered) {
+      number();
+    }
+    final BitSet previous = shownNodes();
+    this.query = text;
+    visibleChildren.clear();
+    if (text.isEmpty()) {
+      filters.clear();
+    } else {
+      while (!filters.isEmpty() && !text.contains(filters.peek().query)) {
+        filters.pop();
+      }
+      if (filters.isEmpty() || !filters.peek().query.equals(text)) {
+        filters.push(new Filter(text, findMatches(text)));
+        if (filters.size() > MAX_KEPT_FILTERS) {
+          filters.removeLast();
+        }
+      }
+      updateVisible();
+    }
+    log.trace("Node tree filtered in {} us", (System.nanoTime() - start) / 1000);
+    fireVisibilityChanged(previous);
+  }
+
+  @Override
+  public Object getRoot() {
+    return model.getRoot();
+  }
+
+  @Override
+  public Object getChild(final Object parent, final int index) {
+    if (!isFiltered()) {
+      return model.getChild(parent, index);
+    }
+    final int[] indices = visibleChildrenOf(parent);
+    // Invalid index is handled by the decorated model
+    return model.getChild(parent, index >= 0 && index < indices.length ? indices[index] : -1);
+  }
+
+  @Override
+  public int getChildCount(final Object parent) {
+    return isFiltered() ? visibleChildrenOf(parent).length : model.getChildCount(parent);
+  }
+
+  @Override
+  public boolean isLeaf(final Object node) {
+    return model.isLeaf(node);
+  }
+
+  @Override
+  public void valueForPathChanged(final TreePath path, final Object newValue) {
+    model.valueForPathChanged(path, newValue);
+  }
+
+  @Override
+  public int getIndexOfChild(final Object parent, final Object child) {
+    final int index = model.getIndexOfChild(parent, child);
+    if (!isFiltered() || index < 0) {
+      return index;
+    }
+    final int position = Arrays.binarySearch(visibleChildrenOf(parent), index);
+    return position < 0 ? -1 : position;
+  }
+
+  @Override
+  public void addTreeModelListener(final TreeModelListener listener) {
+    listeners.add(TreeModelListener.class, listener);
+  }
+
+  @Override
+  public void removeTreeModelListener(final TreeModelListener listener) {
+    listeners.remove(TreeModelListener.class, listener);
+  }
+
+  private @NotNull int[] visibleChildrenOf(final @Nullable Object parent) {
+    int[] indices = visibleChildren.get(parent);
+    if (indices == null) {
+      final List<NetworkNode> childNodes = childrenOf(parent);
+      final int[] found = new int[childNodes.size()];
+      int count = 0;
+      for (int i = 0; i < childNodes.size(); i++) {
+        final Integer number = numbers.get(childNodes.get(i));
+        if (number != null && visible.get(number)) {
+          found[count++] = i;
+        }
+      }
+      indices = Arrays.copyOf(found, count);
+      visibleChildren.put(parent, indices);
+    }
+    return indices;
+  }
+
+  /** Finds numbers of all nodes containing the text with the search service. */
+  private @NotNull BitSet findMatches(final @NotNull String text) {
+    final BitSet matches = new BitSet(nextNumber);
+    for (final NetworkNode node : searchService.findAll(text)) {
+      final Integer number = numbers.get(node);
+      if (number != null) {
+        matches.set(number);
+      }
+    }
+    return matches;
+  }
+
+  private void updateVisible() {
+    visible.clear();
+    visible.set(ROOT);
+    final BitSet matches = filters.getFirst().matches;
+    for (int number = matches.nextSetBit(0); number >= 0; number = matches.nextSetBit(number + 1)) {
+      showWithAncestors(number);
+    }
+  }
+
+  private void showWithAncestors(final int number) {
+    for (int current = number; !visible.get(current); current = parents[current]) {
+      visible.set(current);
+    }
+  }
+
+  /**
+   * Updates visibility of a node from its match and visibility of its child nodes.
+   *
+   * @return true if visibility changed
+   */
+  private boolean refreshVisibility(final int number) {
+    boolean shown = filters.getFirst().matches.get(number);
+    for (final NetworkNode child : childrenOf(nodes[number])) {
+      final Integer childNumber = numbers.get(child);
+      if (shown || (childNumber != null && visible.get(childNumber))) {
+        shown = true;
+        break;
+      }
+    }
+    if (shown == visible.get(number)) {
+      return false;
+    }
+    visible.set(number, shown);
+    return true;
+  }
+
+  private void refreshAncestors(final int number) {
+    for (int current = number; current != ROOT && refreshVisibility(current); ) {
+      current = parents[current];
+    }
+  }
+
+  /** Numbers all nodes of the decorated model. */
+  private void number() {
+    numbers.clear();
+    Arrays.fill(nodes, null);
+    Arrays.fill(texts, null);
+    unusedNumbers.clear();
+    nextNumber = 0;
+    filters.clear();
+    addSubtree(model.getRoot(), NO_PARENT);
+    numbered = true;
+  }
+
+  private int addSubtree(final @NotNull Object node, final int parent) {
+    // Node moved to other parent may be inserted before it is removed from the old one
+    final Integer previous = numbers.get(node);
+    if (previous != null) {
+      removeSubtree(node, parents[previous]);
+    }
+    final int number = addNode(node, parent);
+    for (final NetworkNode child : childrenOf(node)) {
+      addSubtree(child, number);
+    }
+    return number;
+  }
+
+  private int addNode(final @NotNull Object node, final int parent) {
+    final int number;
+    if (unusedNumbers.isEmpty()) {
+      if (nextNumber == nodes.length) {
+        final int capacity = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+      }
+      number = nextNumber++;
+    } else {
+      number = unusedNumbers.pop();
+    }
+    nodes[number] = node;
+    texts[number] = null;
+    parents[number] = parent;
+    numbers.put(node, number);
+    for (final Filter filter : filters) {
+      filter.matches.set(number, textOf(number).contains(filter.query));
+    }
+    final Filter current = filters.peek();
+    if (current != null && current.matches.get(number)) {
+      showWithAncestors(number);
+    }
+    return number;
+  }
+
+  private void removeSubtree(final @NotNull Object node, final int parent) {
+    final Integer number = numbers.get(node);
+    if (number != null && parents[number] == parent) {
+      numbers.remove(node);
+      nodes[number] = null;
+      texts[number] = null;
+      visible.clear(number);
+      for (final Filter filter : filters) {
+        filter.matches.clear(number);
+      }
+      unusedNumbers.push(number);
+      for (final NetworkNode child : childrenOf(node)) {
+        removeSubtree(child, number);
+      }
+    }
+  }
+
+  /** Moves numbers of replaced nodes to their new versions. Matches are updated by the caller. */
+  private void renumber(final @NotNull TreeModelEvent event) {
+    if (event instanceof NodeTreeModelEvent) {
+      final NetworkNodesTreeDiff.ListChange change = ((NodeTreeModelEvent) event).getChange();
+      final Object[] replacedNodes = change.getReplacedNodes();
+      for (int i = 0; i < replacedNodes.length; i++) {
+        final Integer number = numbers.remove(replacedNodes[i]);
+        if (number != null) {
+          final Object node = change.getReplacingNodes()[i];
+          numbers.put(node, number);
+          nodes[number] = node;
+          texts[number] = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets child nodes of a parent of removed nodes after removal, the old child nodes without the
+   * removed ones if other nodes were already inserted or replaced.
+   */
+  private @NotNull List<?> keptNodesOf(final int parent, final @NotNull TreeModelEvent event) {
+    if (!(event instanceof NodeTreeModelEvent)) {
+      return childrenOf(nodes[parent]);
+    }
+    final NetworkNodesTreeDiff.ListChange change = ((NodeTreeModelEvent) event).getChange();
+    final List<Object> keptNodes = new ArrayList<>(change.getOldNodes());
+    final int[] indices = change.getRemovedIndices();
+    for (int i = indices.length - 1; i >= 0; i--) {
+      keptNodes.remove(indices[i]);
+    }
+    return keptNodes;
+  }
+
+  private @NotNull String textOf(final int number) {
+    String text = texts[number];
+    if (text == null) {
+      final Object node = nodes[number];
+      text = node instanceof NetworkNode ? NodeSearchService.searchedText((NetworkNode) node) : "";
+      texts[number] = text;
+    }
+    return text;
+  }
+
+  private static @NotNull List<NetworkNode> childrenOf(final @Nullable Object node) {
+    return node instanceof NetworkNode && !((NetworkNode) node).isLeaf()
+        ? ((NetworkNode) node).getChildNodes()
+        : Collections.emptyList();
+  }
+
+  private @NotNull TreePath pathOf(final int number) {
+    final Deque<Object> path = new ArrayDeque<>();
+    for (int current = number; current != NO_PARENT; current = parents[current]) {
+      path.push(nodes[current]);
+    }
+    return new TreePath(path.toArray());
+  }
+
+  /** Gets numbers of a node and its ancestors, up to the root. */
+  private @NotNull int[] chainOf(final int number) {
+    int length = 0;
+    for (int current = number; current != NO_PARENT; current = parents[current]) {
+      length++;
+    }
+    final int[] chain = new int[length];
+    for (int i = 0, current = number; i < length; i++, current = parents[current]) {
+      chain[i] = current;
+    }
+    return chain;
+  }
+
+  private @NotNull boolean[] visibilityOf(final @NotNull int[] chain) {
+    final boolean[] shown = new boolean[chain.length];
+    for (int i = 0; i < chain.length; i++) {
+      shown[i] = visible.get(chain[i]);
+    }
+    return shown;
+  }
+
+  /**
+   * Notifies listeners that structure below the lowest node of the chain that kept its visibility
+   * changed, if any of the nodes above the first one was shown or hidden.
+   *
+   * @return true if visibility of the first node of the chain or its ancestors changed
+   */
+  private boolean fireAncestorsChanged(final @NotNull int[] chain, final @NotNull boolean[] shown) {
+    for (int i = chain.length - 1; i >= 0; i--) {
+      if (shown[i] != visible.get(chain[i])) {
+        fireTreeModelEvent(
+            new TreeModelEvent(this, pathOf(chain[i + 1])),
+            TreeModelListener::treeStructureChanged);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates event about visible nodes among child nodes of a visible parent.
+   *
+   * @return the event or null if none of the nodes is visible
+   */
+  private @Nullable TreeModelEvent visibleNodesEvent(
+      final int parent, final @NotNull int[] indices, final @NotNull Object[] children) {
+    final int[] visibleIndices = visibleChildrenOf(nodes[parent]);
+    final int[] foundIndices = new int[indices.length];
+    final Object[] found = new Object[indices.length];
+    int count = 0;
+    for (int i = 0; i < indices.length; i++) {
+      final Integer number = numbers.get(children[i]);
+      if (number != null && visible.get(number)) {
+        foundIndices[count] = Arrays.binarySearch(visibleIndices, indices[i]);
+        found[count++] = children[i];
+      }
+    }
+    return count == 0
+        ? null
+        : new TreeModelEvent(
+            this, pathOf(parent), Arrays.copyOf(foundIndices, count), Arrays.copyOf(found, count));
+  }
+
+  /**
+   * Creates event about removal of visible nodes, before they are removed from the model.
+   *
+   * @param parent the number of visible parent
+   * @param indices the ascending indices of removed nodes, before removal
+   * @param children the removed nodes, already removed from the decorated model
+   * @param childNodes the child nodes of the parent after removal
+   * @return the event or null if none of the nodes is visible
+   */
+  private @Nullable TreeModelEvent removedNodesEvent(
+      final int parent,
+      final @NotNull int[] indices,
+      final @NotNull Object[] children,
+      final @NotNull List<?> childNodes) {
+    final int[] foundIndices = new int[indices.length];
+    final Object[] found = new Object[indices.length];
+    int count = 0;
+    int position = 0;
+    int kept = 0;
+    int removed = 0;
+    while (removed < indices.length) {
+      final boolean isRemoved = indices[removed] == kept + removed;
+      if (!isRemoved && kept == childNodes.size()) {
+        break;
+      }
+      final Object node = isRemoved ? children[removed++] : childNodes.get(kept++);
+      final Integer number = numbers.get(node);
+      if (number != null && visible.get(number)) {
+        if (isRemoved) {
+          foundIndices[count] = position;
+          found[count++] = node;
+        }
+        position++;
+      }
+    }
+    return count == 0
+        ? null
+        : new TreeModelEvent(
+            this, pathOf(parent), Arrays.copyOf(foundIndices, count), Arrays.copyOf(found, count));
+  }
+
+  /** Gets numbers of shown nodes, of all numbered nodes when not filtered. */
+  private @NotNull BitSet shownNodes() {
+    if (isFiltered()) {
+      return (BitSet) visible.clone();
+    }
+    final BitSet shown = new BitSet(nextNumber);
+    for (int number = 0; number < nextNumber; number++) {
+      if (nodes[number] != null) {
+        shown.set(number);
+      }
+    }
+    return shown;
+  }
+
+  /**
+   * Notifies listeners about nodes hidden or shown by change of the query. Changed nodes are found
+   * by difference of shown nodes, and only child nodes of parents shown before and after the
+   * change are reported; nodes below them are hidden or shown with them.
+   *
+   * @param previous the numbers of nodes shown before the change
+   */
+  private void fireVisibilityChanged(final @NotNull BitSet previous) {
+    final BitSet current = shownNodes();
+    final BitSet changed = (BitSet) current.clone();
+    changed.xor(previous);
+    final BitSet changedParents = new BitSet();
+    for (int number = changed.nextSetBit(0); number >= 0; number = changed.nextSetBit(number + 1)) {
+      final int parent = parents[number];
+      if (parent != NO_PARENT && previous.get(parent) && current.get(parent)) {
+        changedParents.set(parent);
+      }
+    }
+    for (int parent = changedParents.nextSetBit(0);
+        parent >= 0;
+        parent = changedParents.nextSetBit(parent + 1)) {
+      fireChildrenShown(parent, previous, current);
+    }
+  }
+
+  /**
+   * Notifies listeners about hidden child nodes of a parent, with their indices among previously
+   * shown nodes, and then about shown child nodes, with their indices among currently shown nodes.
+   */
+  private void fireChildrenShown(
+      final int parent, final @NotNull BitSet previous, final @NotNull BitSet current) {
+    final List<NetworkNode> childNodes = childrenOf(nodes[parent]);
+    final int[] hiddenIndices = new int[childNodes.size()];
+    final Object[] hidden = new Object[childNodes.size()];
+    final int[] shownIndices = new int[childNodes.size()];
+    final Object[] shown = new Object[childNodes.size()];
+    int hiddenCount = 0;
+    int shownCount = 0;
+    int previousPosition = 0;
+    int currentPosition = 0;
+    for (final NetworkNode child : childNodes) {
+      final Integer number = numbers.get(child);
+      final boolean wasShown = number != null && previous.get(number);
+      final boolean isShown = number != null && current.get(number);
+      if (wasShown && !isShown) {
+        hiddenIndices[hiddenCount] = previousPosition;
+        hidden[hiddenCount++] = child;
+      } else if (isShown && !wasShown) {
+        shownIndices[shownCount] = currentPosition;
+        shown[shownCount++] = child;
+      }
+      previousPosition += wasShown ? 1 : 0;
+      currentPosition += isShown ? 1 : 0;
+    }
+    final TreePath path = pathOf(parent);
+    if (hiddenCount > 0) {
+      fireTreeModelEvent(
+          new TreeModelEvent(
+              this,
+              path,
+              Arrays.copyOf(hiddenIndices, hiddenCount),
+              Arrays.copyOf(hidden, hiddenCount)),
+          TreeModelListener::treeNodesRemoved);
+    }
+    if (shownCount > 0) {
+      fireTreeModelEvent(
+          new TreeModelEvent(
+              this,
+              path,
+              Arrays.copyOf(shownIndices, shownCount),
+              Arrays.copyOf(shown, shownCount)),
+          TreeModelListener::treeNodesInserted);
+    }
+  }
+
+  /** Rebuilds numbers and matches of the current query, e.g. when structure of the tree changed. */
+  private void reset() {
+    numbered = false;
+    visibleChildren.clear();
+    if (isFiltered()) {
+      number();
+      filters.push(new Filter(query, findMatches(query)));
+      updateVisible();
+    }
+  }
+
+  /** implemented according to reference design - {@link EventListenerList}. */
+  private void fireTreeModelEvent(
+      final @NotNull TreeModelEvent event,
+      final @NotNull BiConsumer<TreeModelListener, TreeModelEvent> notification) {
+    final Object[] listenersList = listeners.getListenerList();
+    for (int i = listenersList.length - 2; i >= 0; i -= 2) {
+      if (listenersList[i] == TreeModelListener.class) {
+        notification.accept((TreeModelListener) listenersList[i + 1], event);
+      }
+    }
+  }
+
+  private void fireStructureChanged(final int number) {
+    fireTreeModelEvent(
+        new TreeModelEvent(this, pathOf(number)), TreeModelListener::treeStructureChanged);
+  }
+
+  /**
+   * Updates numbers and matches when the decorated model changes and notifies listeners about
+   * changes of visible nodes. When visibility of ancestors of changed nodes changes, listeners are
+   * notified that structure below the lowest ancestor that is still visible changed.
+   */
+  private class ModelListener implements TreeModelListener {
+
+    @Override
+    public void treeNodesChanged(final TreeModelEvent event) {
+      final Integer parent = parentNumberOf(event, TreeModelListener::treeNodesChanged);
+      if (parent == null) {
+        return;
+      }
+      renumber(event);
+      final int[] chain = chainOf(parent);
+      final boolean[] shown = visibilityOf(chain);
+      boolean visibilityChanged = false;
+      for (final Object node : event.getChildren()) {
+        final Integer number = numbers.get(node);
+        if (number != null) {
+          texts[number] = null;
+          for (final Filter filter : filters) {
+            filter.matches.set(number, textOf(number).contains(filter.query));
+          }
+          visibilityChanged |= isFiltered() && refreshVisibility(number);
+        }
+      }
+      if (!isFiltered()) {
+        forward(event, TreeModelListener::treeNodesChanged);
+        return;
+      }
+      visibleChildren.clear();
+      refreshAncestors(parent);
+      if (fireAncestorsChanged(chain, shown) || !visible.get(parent)) {
+        return;
+      }
+      if (visibilityChanged) {
+        fireStructureChanged(parent);
+      } else {
+        fire(
+            visibleNodesEvent(parent, event.getChildIndices(), event.getChildren()),
+            TreeModelListener::treeNodesChanged);
+      }
+    }
+
+    @Override
+    public void treeNodesInserted(final TreeModelEvent event) {
+      final Integer parent = parentNumberOf(event, TreeModelListener::treeNodesInserted);
+      if (parent == null) {
+        return;
+      }
+      renumber(event);
+      final int[] chain = chainOf(parent);
+      final boolean[] shown = visibilityOf(chain);
+      for (final Object node : event.getChildren()) {
+        addSubtree(node, parent);
+      }
+      if (!isFiltered()) {
+        forward(event, TreeModelListener::treeNodesInserted);
+        return;
+      }
+      visibleChildren.clear();
+      if (!fireAncestorsChanged(chain, shown) && visible.get(parent)) {
+        fire(
+            visibleNodesEvent(parent, event.getChildIndices(), event.getChildren()),
+            TreeModelListener::treeNodesInserted);
+      }
+    }
+
+    @Override
+    public void treeNodesRemoved(final TreeModelEvent event) {
+      final Integer parent = parentNumberOf(event, TreeModelListener::treeNodesRemoved);
+      if (parent == null) {
+        return;
+      }
+      final int[] chain = chainOf(parent);
+      final boolean[] shown = visibilityOf(chain);
+      final TreeModelEvent removal =
+          isFiltered() && visible.get(parent)
+              ? removedNodesEvent(
+                  parent, event.getChildIndices(), event.getChildren(), keptNodesOf(parent, event))
+              : null;
+      renumber(event);
+      for (final Object node : event.getChildren()) {
+        removeSubtree(node, parent);
+      }
+      if (!isFiltered()) {
+        forward(event, TreeModelListener::treeNodesRemoved);
+        return;
+      }
+      visibleChildren.clear();
+      refreshAncestors(parent);
+      if (!fireAncestorsChanged(chain, shown)) {
+        fire(removal, TreeModelListener::treeNodesRemoved);
+      }
+    }
+
+    @Override
+    public void treeStructureChanged(final TreeModelEvent event) {
+      reset();
+      if (isFiltered()) {
+        fireStructureChanged(ROOT);
+      } else {
+        forward(event, TreeModelListener::treeStructureChanged);
+      }
+    }
+
+    /**
+     * Gets number of parent of nodes changed in the decorated model. Event is passed on if nodes
+     * are not numbered or the root node changed, and the model is reset if the parent is unknown.
+     *
+     * @return the number of the parent node or null if the event was handled
+     */
+    private @Nullable Integer parentNumberOf(
+        final @NotNull TreeModelEvent event,
+        final @NotNull BiConsumer<TreeModelListener, TreeModelEvent> notification) {
+      final TreePath path = event.getTreePath();
+      if (!numbered || path == null) {
+        forward(event, notification);
+        return null;
+      }
+      final Integer number = numbers.get(path.getLastPathComponent());
+      if (number == null) {
+        log.debug("Unknown parent of changed nodes, numbering nodes again: {}", path);
+        treeStructureChanged(new TreeModelEvent(event.getSource(), new TreePath(model.getRoot())));
+      }
+      return number;
+    }
+
+    private void forward(
+        final @NotNull TreeModelEvent event,
+        final @NotNull BiConsumer<TreeModelListener, TreeModelEvent> notification) {
+      fireTreeModelEvent(
+          new TreeModelEvent(
+              FilteredNetworkNodesTreeModel.this,
+              event.getTreePath(),
+              event.getChildIndices(),
+              event.getChildren()),
+          notification);
+    }
+
+    private void fire(
+        final @Nullable TreeModelEvent event,
+        final @NotNull BiConsumer<TreeModelListener, TreeModelEvent> notification) {
+      if (event != null) {
+        fireTreeModelEvent(event, notification);
+      }
+    }
+  }
+
+  /** Filter result. */
+  private static final class Filter {
+    private final @NotNull String query;
+    private final @NotNull BitSet matches;
+
+    Filter(final @NotNull String query, final @NotNull BitSet matches) {
+      this.query = query;
+      this.matches = matches;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.function.Function;
+import javax.swing.JTree;
+import javax.swing.tree.TreePath;
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tree of network nodes. Nodes are immutable and replaced by their new versions when they change,
+ * see {@link NetworkNodesTreeModelFacade}, so paths kept by the tree, e.g. expanded and selected
+ * ones, are mapped to new versions of nodes.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public class NetworkNodeTree extends JTree {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Replaces expanded and selected paths with their current versions. Paths that are no longer
+   * valid are dropped, so they do not keep replaced nodes.
+   *
+   * @param currentPath the function that gets current version of a path, or null if it is no
+   *     longer valid
+   */
+  public void updatePaths(final @NonNull Function<TreePath, @Nullable TreePath> currentPath) {
+    final Object root = getModel().getRoot();
+    if (root == null) {
+      return;
+    }
+    final List<TreePath> outdated = new ArrayList<>();
+    final List<TreePath> expanded = new ArrayList<>();
+    final Enumeration<TreePath> toggled = getDescendantToggledPaths(new TreePath(root));
+    while (toggled != null && toggled.hasMoreElements()) {
+      final TreePath path = toggled.nextElement();
+      final TreePath current = currentPath.apply(path);
+      if (!path.equals(current)) {
+        outdated.add(path);
+        if (current != null && isExpanded(path)) {
+          expanded.add(current);
+        }
+      }
+    }
+    if (!outdated.isEmpty()) {
+      removeDescendantToggledPaths(Collections.enumeration(outdated));
+      expanded.forEach(this::expandPath);
+    }
+
+    final TreePath[] selected = getSelectionPaths();
+    if (selected != null) {
+      final List<TreePath> selection = new ArrayList<>(selected.length);
+      boolean changed = false;
+      for (final TreePath path : selected) {
+        final TreePath current = currentPath.apply(path);
+        changed |= !path.equals(current);
+        if (current != null) {
+          selection.add(current);
+        }
+      }
+      if (changed) {
+        setSelectionPaths(selection.toArray(new TreePath[0]));
+      }
+    }
+  }
+}
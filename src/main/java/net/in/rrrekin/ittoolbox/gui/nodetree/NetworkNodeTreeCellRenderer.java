@@ -6,7 +6,8 @@ import javax.swing.tree.DefaultTreeCellRenderer;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
 
 /**
- * Rendere of network nodes in main window tree.
+ * Rendere of network nodes in main window tree. Node icons come from {@link
+ * net.in.rrrekin.ittoolbox.utilities.IconCache}, so rendering does not rasterize them.
  *
  * @author michal.rudewicz@gmail.com
  */
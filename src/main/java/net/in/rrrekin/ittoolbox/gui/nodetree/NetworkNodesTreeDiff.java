@@ -0,0 +1,303 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.tree.TreePath;
+import lombok.NonNull;
+import lombok.Value;
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Structural diff of immutable network node trees, e.g. of two published configuration versions.
+ * Nodes are matched by type, name and address (included file for include nodes), a single
+ * remaining node of the same type is matched too, e.g. renamed node. Matched nodes that are not the
+ * same objects are reported as replaced by their new versions, unmatched ones as removed or
+ * inserted. Subtrees that are the same objects in both trees are not visited, so the cost depends
+ * on the number of changed nodes.
+ *
+ * <p>Reloaded configuration consists of new objects only, so it is {@link #merge merged} with the
+ * shown tree first: matched nodes with the same content are replaced by the shown ones, and only
+ * nodes that really changed are reported.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class NetworkNodesTreeDiff {
+
+  /** Receiver of differences of the trees. */
+  interface Listener {
+    /**
+     * Child nodes of a node differ. Called for each parent before its descendants.
+     *
+     * @param change the difference of child nodes
+     */
+    void childNodesChanged(@NotNull ListChange change);
+  }
+
+  /** Difference of child nodes of a node. */
+  @Value
+  static class ListChange {
+    /** Path of the parent node, consisting of new versions of nodes. */
+    @NonNull TreePath parentPath;
+    /** Old child nodes. */
+    @NonNull List<NetworkNode> oldNodes;
+    /** New child nodes. */
+    @NonNull List<NetworkNode> newNodes;
+    /** Ascending indices of removed nodes in old child nodes. */
+    @NonNull int[] removedIndices;
+    /** Removed nodes. */
+    @NonNull Object[] removedNodes;
+    /** Ascending indices of inserted nodes in new child nodes. */
+    @NonNull int[] insertedIndices;
+    /** Inserted nodes. */
+    @NonNull Object[] insertedNodes;
+    /** Ascending indices of replaced nodes in new child nodes. */
+    @NonNull int[] replacedIndices;
+    /** Old versions of replaced nodes. */
+    @NonNull Object[] replacedNodes;
+    /** New versions of replaced nodes. */
+    @NonNull Object[] replacingNodes;
+  }
+
+  private NetworkNodesTreeDiff() {}
+
+  /**
+   * Merges new child node lists with old ones, recursively. Matched new nodes with the same content
+   * as old ones, not counting child nodes, are replaced by the old nodes, groups with changed child
+   * nodes are copied with merged child nodes. Neither of the lists is modified.
+   *
+   * @param oldNodes the old child nodes
+   * @param newNodes the new child nodes
+   * @return the old nodes if nothing changed, the new nodes if no old node is kept, otherwise new
+   *     list with the same content as new nodes
+   */
+  static @NotNull List<NetworkNode> merge(
+      final @NonNull List<NetworkNode> oldNodes, final @NonNull List<NetworkNode> newNodes) {
+    if (oldNodes == newNodes) {
+      return oldNodes;
+    }
+    final int[] matches = match(oldNodes, newNodes);
+    final List<NetworkNode> merged = Lists.newArrayListWithCapacity(newNodes.size());
+    boolean sameAsOld = oldNodes.size() == newNodes.size();
+    boolean sameAsNew = true;
+    for (int i = 0; i < newNodes.size(); i++) {
+      final NetworkNode newNode = newNodes.get(i);
+      final NetworkNode node =
+          matches[i] < 0 ? newNode : mergeNode(oldNodes.get(matches[i]), newNode);
+      merged.add(node);
+      sameAsOld = sameAsOld && node == oldNodes.get(i);
+      sameAsNew &= node == newNode;
+    }
+    return sameAsOld ? oldNodes : sameAsNew ? newNodes : merged;
+  }
+
+  private static @NotNull NetworkNode mergeNode(
+      final @NotNull NetworkNode oldNode, final @NotNull NetworkNode newNode) {
+    if (oldNode == newNode) {
+      return oldNode;
+    }
+    final boolean sameContent = hasSameContent(oldNode, newNode);
+    if (!(newNode instanceof GroupingNode) || oldNode.isLeaf()) {
+      return sameContent ? oldNode : newNode;
+    }
+    final List<NetworkNode> childNodes = merge(oldNode.getChildNodes(), newNode.getChildNodes());
+    if (sameContent && childNodes == oldNode.getChildNodes()) {
+      return oldNode;
+    }
+    return childNodes == newNode.getChildNodes()
+        ? newNode
+        : ((GroupingNode) newNode).withChildNodes(childNodes);
+  }
+
+  /** Checks if matched nodes have the same content, not counting child nodes. */
+  private static boolean hasSameContent(
+      final @NotNull NetworkNode node, final @NotNull NetworkNode newNode) {
+    return keyOf(node).equals(keyOf(newNode))
+        && node.getDescription().equals(newNode.getDescription())
+        && Objects.equals(node.getProperties(), newNode.getProperties())
+        && Iterables.elementsEqual(node.getServiceDescriptors(), newNode.getServiceDescriptors())
+        && (!(node instanceof IncludeNode)
+            || Objects.equals(
+                ((IncludeNode) node).getSourceFingerprint(),
+                ((IncludeNode) newNode).getSourceFingerprint()));
+  }
+
+  /**
+   * Compares child node lists, recursively.
+   *
+   * @param parentPath the path of node that owns new child nodes
+   * @param oldNodes the old child nodes
+   * @param newNodes the new child nodes
+   * @param listener the listener notified about differences
+   */
+  static void compare(
+      final @NonNull TreePath parentPath,
+      final @NonNull List<NetworkNode> oldNodes,
+      final @NonNull List<NetworkNode> newNodes,
+      final @NonNull Listener listener) {
+    if (oldNodes == newNodes) {
+      return;
+    }
+    final int[] matches = match(oldNodes, newNodes);
+
+    final boolean[] kept = new boolean[oldNodes.size()];
+    for (final int match : matches) {
+      if (match >= 0) {
+        kept[match] = true;
+      }
+    }
+    final List<Integer> removedIndices = Lists.newArrayList();
+    final List<NetworkNode> removedNodes = Lists.newArrayList();
+    for (int i = 0; i < oldNodes.size(); i++) {
+      if (!kept[i]) {
+        removedIndices.add(i);
+        removedNodes.add(oldNodes.get(i));
+      }
+    }
+    final List<Integer> insertedIndices = Lists.newArrayList();
+    final List<NetworkNode> insertedNodes = Lists.newArrayList();
+    final List<Integer> replacedIndices = Lists.newArrayList();
+    final List<NetworkNode> replacedNodes = Lists.newArrayList();
+    final List<NetworkNode> replacingNodes = Lists.newArrayList();
+    for (int i = 0; i < newNodes.size(); i++) {
+      final NetworkNode newNode = newNodes.get(i);
+      if (matches[i] < 0) {
+        insertedIndices.add(i);
+        insertedNodes.add(newNode);
+      } else if (oldNodes.get(matches[i]) != newNode) {
+        replacedIndices.add(i);
+        replacedNodes.add(oldNodes.get(matches[i]));
+        replacingNodes.add(newNode);
+      }
+    }
+    if (removedNodes.isEmpty() && insertedNodes.isEmpty() && replacedNodes.isEmpty()) {
+      return;
+    }
+    listener.childNodesChanged(
+        new ListChange(
+            parentPath,
+            oldNodes,
+            newNodes,
+            Ints.toArray(removedIndices),
+            removedNodes.toArray(),
+            Ints.toArray(insertedIndices),
+            insertedNodes.toArray(),
+            Ints.toArray(replacedIndices),
+            replacedNodes.toArray(),
+            replacingNodes.toArray()));
+
+    for (int i = 0; i < replacedNodes.size(); i++) {
+      final NetworkNode oldNode = replacedNodes.get(i);
+      final NetworkNode newNode = replacingNodes.get(i);
+      if (!oldNode.isLeaf() && !newNode.isLeaf()) {
+        compare(
+            parentPath.pathByAddingChild(newNode),
+            oldNode.getChildNodes(),
+            newNode.getChildNodes(),
+            listener);
+      }
+    }
+  }
+
+  /**
+   * Matches new nodes to old nodes. Common prefix and suffix are matched by position, remaining
+   * nodes are matched by their keys, keeping the order of nodes.
+   *
+   * @return index of matching old node for each new node, -1 for new nodes without match
+   */
+  private static @NotNull int[] match(
+      final @NotNull List<NetworkNode> nodes, final @NotNull List<NetworkNode> newNodes) {
+    final int[] matches = new int[newNodes.size()];
+    Arrays.fill(matches, -1);
+    int prefix = 0;
+    final int maxCommon = Math.min(nodes.size(), newNodes.size());
+    while (prefix < maxCommon && isSameNode(nodes.get(prefix), newNodes.get(prefix))) {
+      matches[prefix] = prefix;
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < maxCommon - prefix
+        && isSameNode(
+            nodes.get(nodes.size() - 1 - suffix), newNodes.get(newNodes.size() - 1 - suffix))) {
+      matches[newNodes.size() - 1 - suffix] = nodes.size() - 1 - suffix;
+      suffix++;
+    }
+
+    // Remaining nodes are paired by key, the longest run of pairs in the same order is kept
+    final Map<List<Object>, Deque<Integer>> indicesByKey = Maps.newHashMap();
+    for (int i = prefix; i < nodes.size() - suffix; i++) {
+      indicesByKey.computeIfAbsent(keyOf(nodes.get(i)), key -> new ArrayDeque<>()).add(i);
+    }
+    final int[] candidates = new int[newNodes.size()];
+    final int[] previous = new int[newNodes.size()];
+    final int[] runEnds = new int[newNodes.size()];
+    int runLength = 0;
+    for (int i = prefix; i < newNodes.size() - suffix; i++) {
+      final Deque<Integer> indices = indicesByKey.get(keyOf(newNodes.get(i)));
+      if (indices == null || indices.isEmpty()) {
+        continue;
+      }
+      candidates[i] = indices.pollFirst();
+      int low = 0;
+      int high = runLength;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (candidates[runEnds[middle]] < candidates[i]) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      previous[i] = low > 0 ? runEnds[low - 1] : -1;
+      runEnds[low] = i;
+      if (low == runLength) {
+        runLength++;
+      }
+    }
+    int matched = 0;
+    for (int i = runLength > 0 ? runEnds[runLength - 1] : -1; i >= 0; i = previous[i]) {
+      matches[i] = candidates[i];
+      matched++;
+    }
+
+    // Single remaining node of the same type in the same place is a changed node, e.g. renamed one
+    final int remaining = nodes.size() - prefix - suffix - matched;
+    if (remaining == 1 && newNodes.size() == nodes.size()) {
+      final int index = Ints.indexOf(matches, -1);
+      if (!Ints.contains(matches, index)
+          && nodes.get(index).getClass() == newNodes.get(index).getClass()) {
+        matches[index] = index;
+      }
+    }
+    return matches;
+  }
+
+  private static boolean isSameNode(
+      final @NotNull NetworkNode node, final @NotNull NetworkNode newNode) {
+    return node == newNode || keyOf(node).equals(keyOf(newNode));
+  }
+
+  private static @NotNull List<Object> keyOf(final @NotNull NetworkNode node) {
+    final String address;
+    if (node instanceof Server) {
+      address = ((Server) node).getAddress();
+    } else if (node instanceof IncludeNode) {
+      address = ((IncludeNode) node).getFile();
+    } else {
+      address = "";
+    }
+    return ImmutableList.of(node.getClass(), node.getName(), address);
+  }
+}
@@ -5,23 +5,29 @@ import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.NE
 import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.OK;
 import static net.in.rrrekin.ittoolbox.utilities.LocaleUtil.localMessage;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.swing.Icon;
 import javax.swing.event.EventListenerList;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreePath;
-import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
-import jiconfont.swing.IconFontSwing;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.Configuration;
 import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager;
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry;
 import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode;
 import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeIcons;
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService;
 import net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent;
 import net.in.rrrekin.ittoolbox.gui.EdtInvokeService;
 import net.in.rrrekin.ittoolbox.utilities.StringUtils;
@@ -31,6 +37,18 @@ import org.jetbrains.annotations.Nullable;
 /**
  * {@link TreeModel} facade for {@link ConfigurationManager}.
  *
+ * <p>Published configuration is never modified, so the facade shows its nodes directly. Edits
+ * are made on copies of nodes and recorded in {@link ConfigurationManager}, which publishes them as
+ * new configuration version. When configuration is changed, the facade switches to new version and
+ * listeners are notified only about inserted and removed nodes and nodes replaced by their new
+ * versions, see {@link NodeTreeModelEvent}. Reloaded nodes with unchanged content are replaced by
+ * the shown ones, so only really changed nodes are reported. Paths with replaced nodes are mapped
+ * to new versions by {@link #currentPath(TreePath)}, e.g. to keep expansion state of the tree.
+ *
+ * <p>Positions of shown nodes are kept in {@link NodeTreeIndex}, so paths and indices of nodes are
+ * found without searching the tree or lists of sibling nodes. Each shown configuration version is
+ * reported to {@link NodeSearchService}, so nodes found by search are the shown ones.
+ *
  * @author michal.rudewicz @gmail.com
  */
 @Slf4j
@@ -41,28 +59,38 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
   private final @NonNull ConfigurationManager configurationManager;
   private final @NonNull EventBus eventBus;
   private final @NonNull EdtInvokeService invokeService;
+  private final @NonNull NodeSearchService searchService;
 
   private final EventListenerList listeners = new EventListenerList();
-  private final GroupingNode root;
+  private final RootNode root;
+  private final NodeTreeIndex index;
+  /** Top level nodes of configuration the node tree was last updated from. */
+  private @Nullable List<NetworkNode> syncedNodes = null;
+  /** New versions of replaced nodes, kept while replaced nodes are referenced, e.g. by paths. */
+  private final Map<Object, Object> newerVersions = new MapMaker().weakKeys().makeMap();
+  private final List<Runnable> replacementListeners = newArrayList();
 
   /**
    * Instantiates a new Network nodes tree model facade.
    *
    * @param configurationManager the configuration manager
    * @param eventBus the event bus
+   * @param invokeService the EDT invoke service
+   * @param searchService the node search service
    */
   @Inject
   public NetworkNodesTreeModelFacade(
       final @NonNull ConfigurationManager configurationManager,
       final @NonNull EventBus eventBus,
-      final @NonNull EdtInvokeService invokeService) {
+      final @NonNull EdtInvokeService invokeService,
+      final @NonNull NodeSearchService searchService) {
     log.debug("Creating NetworkNodesTreeModelFacade");
     this.configurationManager = configurationManager;
     this.eventBus = eventBus;
     this.invokeService = invokeService;
-    root =
-        new GroupingNode(localMessage("N_ROOT_NODE"), "", newArrayList(), Collections.emptyList());
-    root.setIcon(IconFontSwing.buildIcon(GoogleMaterialDesignIcons.APPS, NetworkNode.ICON_SIZE));
+    this.searchService = searchService;
+    root = new RootNode(localMessage("N_ROOT_NODE"));
+    index = new NodeTreeIndex(root);
   }
 
   /** Init. */
@@ -82,7 +110,9 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
       final NetworkNode node = (NetworkNode) parent;
       final List<NetworkNode> childNodes = node.getChildNodes();
       if (index >= 0 && index < childNodes.size()) {
-        return childNodes.get(index);
+        final NetworkNode child = childNodes.get(index);
+        this.index.record(node, index, child);
+        return child;
       }
     }
     return INVALID_NODE;
@@ -110,19 +140,15 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
   public void valueForPathChanged(final TreePath path, final Object newValue) {
     final Object object = path.getLastPathComponent();
     if (object instanceof NetworkNode) {
-      final NetworkNode node = (NetworkNode) object;
-      node.setName(StringUtils.toStringOrEmpty(newValue));
-      nodeChanged(path);
+      nodeChanged(
+          path, ((NetworkNode) object).withName(StringUtils.toStringOrEmpty(newValue)));
     }
   }
 
   @Override
   public int getIndexOfChild(final Object parent, final Object child) {
     if (parent instanceof NetworkNode && child instanceof NetworkNode) {
-      final NetworkNode parentNode = (NetworkNode) parent;
-      final NetworkNode childNode = (NetworkNode) child;
-      final List<NetworkNode> childNodes = parentNode.getChildNodes();
-      return childNodes.indexOf(childNode);
+      return index.indexOf((NetworkNode) parent, child);
     }
     return -1;
   }
@@ -139,6 +165,49 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
     listeners.remove(TreeModelListener.class, listener);
   }
 
+  /**
+   * Adds listener called when shown nodes were replaced by their new versions, after listeners of
+   * the model were notified about all changes.
+   *
+   * @param listener the listener
+   */
+  public void addReplacementListener(final @NonNull Runnable listener) {
+    replacementListeners.add(listener);
+  }
+
+  /**
+   * Gets current version of a path, e.g. of expanded or selected path, with replaced nodes mapped
+   * to their new versions.
+   *
+   * @param path the path
+   * @return the path with current versions of nodes or null if one of them is no longer shown
+   */
+  public @Nullable TreePath currentPath(final @NonNull TreePath path) {
+    final Object[] nodes = path.getPath();
+    if (nodes[0] != root) {
+      return null;
+    }
+    TreePath current = new TreePath(root);
+    for (int i = 1; i < nodes.length; i++) {
+      final Object node = currentVersionOf(nodes[i]);
+      if (index.indexOf((NetworkNode) current.getLastPathComponent(), node) < 0) {
+        return null;
+      }
+      current = current.pathByAddingChild(node);
+    }
+    return current;
+  }
+
+  private @NotNull Object currentVersionOf(final @NotNull Object node) {
+    Object current = node;
+    for (Object newer = newerVersions.get(current);
+        newer != null;
+        newer = newerVersions.get(current)) {
+      current = newer;
+    }
+    return current;
+  }
+
   /**
    * Handle file synchronization events.
    *
@@ -150,13 +219,99 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
     if (event.getCode() == OK || event.getCode() == NEW) {
       invokeService.runInEdt(
           () -> {
-            root.getChildNodes().clear();
-            root.getChildNodes().addAll(configurationManager.getConfig().getNetworkNodes());
-            this.notifyListenersModelReloaded();
+            final Configuration config = configurationManager.getConfig();
+            if (root.getChildNodes().isEmpty()) {
+              index.clear();
+              root.setChildNodes(config.getNetworkNodes());
+              syncedNodes = config.getNetworkNodes();
+              searchService.update(syncedNodes);
+              this.notifyListenersModelReloaded();
+            } else {
+              updateModel(config);
+            }
           });
     }
   }
 
+  /**
+   * Switches the tree to the configuration version, notifying listeners about differences from the
+   * version shown before. Unchanged nodes of the shown version are kept, and the merged version
+   * replaces the equivalent configuration, so it is not compared again.
+   *
+   * @return the shown configuration
+   */
+  private @NotNull Configuration updateModel(final @NotNull Configuration config) {
+    final List<NetworkNode> oldNodes = syncedNodes == null ? Collections.emptyList() : syncedNodes;
+    if (oldNodes == config.getNetworkNodes()) {
+      return config;
+    }
+    final List<NetworkNode> newNodes =
+        NetworkNodesTreeDiff.merge(oldNodes, config.getNetworkNodes());
+    Configuration shown = config;
+    if (newNodes != config.getNetworkNodes()) {
+      final Configuration merged = new Configuration(newNodes, config.getModules());
+      if (configurationManager.replaceConfig(config, merged)) {
+        shown = merged;
+      }
+    }
+    syncedNodes = newNodes;
+    searchService.update(newNodes);
+    root.setChildNodes(newNodes);
+    final boolean[] replaced = new boolean[1];
+    NetworkNodesTreeDiff.compare(
+        new TreePath(root), oldNodes, newNodes, change -> replaced[0] |= fireChange(change));
+    if (replaced[0]) {
+      replacementListeners.forEach(Runnable::run);
+    }
+    return shown;
+  }
+
+  /**
+   * Updates the index and notifies listeners about change of child nodes of a node.
+   *
+   * @return true if some nodes were replaced by their new versions
+   */
+  private boolean fireChange(final @NotNull NetworkNodesTreeDiff.ListChange change) {
+    index.forget(change.getRemovedNodes());
+    final Object[] replacedNodes = change.getReplacedNodes();
+    final Object[] replacingNodes = change.getReplacingNodes();
+    for (int i = 0; i < replacedNodes.length; i++) {
+      index.replace(replacedNodes[i], (NetworkNode) replacingNodes[i]);
+      newerVersions.put(replacedNodes[i], replacingNodes[i]);
+    }
+    index.indexChildren((NetworkNode) change.getParentPath().getLastPathComponent());
+    if (change.getRemovedNodes().length > 0) {
+      fireTreeModelEvent(
+          new NodeTreeModelEvent(
+              this, change, change.getRemovedIndices(), change.getRemovedNodes()),
+          TreeModelListener::treeNodesRemoved);
+    }
+    if (change.getInsertedNodes().length > 0) {
+      fireTreeModelEvent(
+          new NodeTreeModelEvent(
+              this, change, change.getInsertedIndices(), change.getInsertedNodes()),
+          TreeModelListener::treeNodesInserted);
+    }
+    if (replacingNodes.length > 0) {
+      fireTreeModelEvent(
+          new NodeTreeModelEvent(this, change, change.getReplacedIndices(), replacingNodes),
+          TreeModelListener::treeNodesChanged);
+    }
+    return replacingNodes.length > 0;
+  }
+
+  /** implemented according to reference design - {@link EventListenerList}. */
+  private void fireTreeModelEvent(
+      final @NotNull TreeModelEvent event,
+      final @NotNull BiConsumer<TreeModelListener, TreeModelEvent> notification) {
+    final Object[] listenersList = listeners.getListenerList();
+    for (int i = listenersList.length - 2; i >= 0; i -= 2) {
+      if (listenersList[i] == TreeModelListener.class) {
+        notification.accept((TreeModelListener) listenersList[i + 1], event);
+      }
+    }
+  }
+
   /** implemented according to reference design - {@link EventListenerList}. */
   private void notifyListenersModelReloaded() {
     final Object[] listenersList = listeners.getListenerList();
@@ -172,53 +327,96 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
   }
 
   /**
-   * Notify listeners that particular node has been modified. Also sets configuration to dirty
-   * state.
+   * Records new version of a shown node, e.g. edited copy of the node, as configuration change.
+   * The change is made in the newest version of the node, if the node was replaced in meantime.
+   * The tree is switched to the changed configuration.
    *
-   * @param node the modified node
+   * @param node the node
+   * @param changed the new version of the node, its child nodes are ignored
+   * @return true if the change was published
    */
-  public void nodeChanged(final @NonNull NetworkNode node) {
-    final TreePath path = getPathForNode(new TreePath(root), node);
-    if (path != null) {
-      nodeChanged(path);
+  public boolean nodeChanged(final @NonNull NetworkNode node, final @NonNull NetworkNode changed) {
+    final Object current = currentVersionOf(node);
+    TreePath path = index.pathTo((NetworkNode) current);
+    if (path == null) {
+      path = getPathForNode(new TreePath(root), (NetworkNode) current);
     }
+    return path != null && nodeChanged(path, changed);
   }
 
-  public void nodeChanged(final @NonNull TreePath path) {
-    final Object[] listenersList = listeners.getListenerList();
-    final TreePath parentPath = path.getParentPath();
-    final Object parentObject = parentPath == null ? null : parentPath.getLastPathComponent();
-    final Object childObject = path.getLastPathComponent();
-    final NetworkNode parent;
-    final NetworkNode child;
-    if ((parentObject instanceof NetworkNode || parentObject == null)
-        && childObject instanceof NetworkNode) {
-      configurationManager.setDirty(true);
-      parent = (NetworkNode) parentObject;
-      child = (NetworkNode) childObject;
-      final TreeModelEvent changeEvent =
-          new TreeModelEvent(
-              this,
-              parentPath,
-              new int[] {parent == null ? 0 : parent.getChildNodes().indexOf(child)},
-              new NetworkNode[] {child});
-      for (int i = listenersList.length - 2; i >= 0; i -= 2) {
-        if (listenersList[i] == TreeModelListener.class) {
-          ((TreeModelListener) listenersList[i + 1]).treeNodesChanged(changeEvent);
-        }
+  /**
+   * Records new version of the node at the path, see {@link #nodeChanged(NetworkNode,
+   * NetworkNode)}. Only the name of the root node can be changed, it is not a part of the
+   * configuration.
+   *
+   * @param path the path of the node, may contain replaced nodes
+   * @param changed the new version of the node, its child nodes are ignored
+   * @return true if the change was published
+   */
+  public boolean nodeChanged(final @NonNull TreePath path, final @NonNull NetworkNode changed) {
+    while (true) {
+      // Path is found in the configuration the change is recorded in
+      final Configuration config = updateModel(configurationManager.getConfig());
+      final TreePath current = currentPath(path);
+      if (current == null) {
+        log.debug("Changed node is no longer in configuration: {}", path);
+        return false;
+      }
+      if (current.getPathCount() == 1) {
+        root.setName(changed.getName());
+        configurationManager.setDirty(true);
+        fireTreeModelEvent(
+            new TreeModelEvent(this, (TreePath) null, new int[] {0}, new Object[] {root}),
+            TreeModelListener::treeNodesChanged);
+        return true;
+      }
+      final List<Integer> indexPath = getIndexPath(current);
+      if (indexPath != null
+          && configurationManager.recordChange(
+              config, JournalEntry.setFields(indexPath, changed))) {
+        updateModel(configurationManager.getConfig());
+        return true;
+      }
+      if (configurationManager.getConfig() == config) {
+        return false;
+      }
+    }
+  }
+
+  /** Gets indexes of nodes on the path, starting from index of top level node. */
+  private @Nullable List<Integer> getIndexPath(final @NotNull TreePath path) {
+    final Object[] nodes = path.getPath();
+    if (nodes[0] != root) {
+      return null;
+    }
+    final List<Integer> indexPath = newArrayList();
+    for (int i = 1; i < nodes.length; i++) {
+      final int childIndex =
+          nodes[i - 1] instanceof NetworkNode
+              ? index.indexOf((NetworkNode) nodes[i - 1], nodes[i])
+              : -1;
+      if (childIndex < 0) {
+        return null;
       }
+      indexPath.add(childIndex);
     }
+    return indexPath;
   }
 
+  /**
+   * Searches the tree for node not found in the index, e.g. never shown. Positions of visited nodes
+   * are recorded in the index.
+   */
   private @Nullable TreePath getPathForNode(
       final @NotNull TreePath treePath, final @NotNull NetworkNode node) {
-    // TODO: consider introduction of children to parent linking to simplify code
     final NetworkNode parent = (NetworkNode) treePath.getLastPathComponent();
     if (node == parent) {
       return treePath;
     } else {
       final @NotNull List<@NotNull NetworkNode> childNodes = parent.getChildNodes();
-      for (final NetworkNode child : childNodes) {
+      for (int i = 0; i < childNodes.size(); i++) {
+        final NetworkNode child = childNodes.get(i);
+        index.record(parent, i, child);
         final @NotNull TreePath childPath = treePath.pathByAddingChild(child);
         if (child == node) {
           return childPath;
@@ -233,4 +431,41 @@ public class NetworkNodesTreeModelFacade implements TreeModel {
 
     return null;
   }
+
+  /**
+   * Root of the tree, it is not a part of the configuration. Its child nodes are top level nodes of
+   * shown configuration version, and its name may be changed in place.
+   */
+  private static final class RootNode extends GroupingNode {
+    private @NotNull String rootName;
+    private @NotNull List<NetworkNode> topLevelNodes = Collections.emptyList();
+
+    RootNode(final @NotNull String name) {
+      super(name, "", Collections.emptyList(), Collections.emptyList());
+      rootName = name;
+    }
+
+    @Override
+    public @NotNull String getName() {
+      return rootName;
+    }
+
+    void setName(final @NotNull String name) {
+      rootName = name;
+    }
+
+    @Override
+    public @NotNull List<@NotNull NetworkNode> getChildNodes() {
+      return topLevelNodes;
+    }
+
+    void setChildNodes(final @NotNull List<NetworkNode> nodes) {
+      topLevelNodes = nodes;
+    }
+
+    @Override
+    public @NotNull Icon getIcon() {
+      return NodeIcons.of(NodeIcons.ROOT);
+    }
+  }
 }
@@ -0,0 +1,161 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.html.HTMLEditorKit;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import net.in.rrrekin.ittoolbox.gui.EdtInvokeService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of HTML documents with details of network nodes, displayed in main window.
+ *
+ * <p>HTML is built and parsed into a document in background thread, so selecting a node does not
+ * parse HTML in event dispatch thread. Shown nodes are published versions that are never modified,
+ * see {@link NetworkNodesTreeModelFacade}, so they can be read outside of event dispatch thread.
+ * Documents are cached by node identity and node version. The version is increased by {@link
+ * #invalidate(NetworkNode)} when node changes anyway, e.g. the root node, so documents built from
+ * previous state of the node are neither displayed nor cached.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public class NodeDetailsCache {
+
+  /** Maximal number of cached documents. */
+  public static final int MAX_CACHED_DETAILS = 200;
+
+  private static final String RENDERING_THREAD_NAME = "NodeDetailsRenderer";
+
+  private final @NonNull EdtInvokeService invokeService;
+  private final HTMLEditorKit editorKit = new HTMLEditorKit();
+  /** Versions of changed nodes, nodes not present have version 0. Nodes compared by identity. */
+  private final ConcurrentMap<NetworkNode, Integer> versions = new MapMaker().weakKeys().makeMap();
+  private final Cache<NetworkNode, Details> cache =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_CACHED_DETAILS).build();
+  private final Executor executor =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat(RENDERING_THREAD_NAME).setDaemon(true).build());
+
+  /**
+   * Instantiates a new node details cache.
+   *
+   * @param invokeService the EDT invoke service
+   */
+  @Inject
+  public NodeDetailsCache(final @NonNull EdtInvokeService invokeService) {
+    this.invokeService = invokeService;
+  }
+
+  /**
+   * Gets document with node details. Consumer is called in event dispatch thread, immediately if
+   * the document is cached. It is not called if node changes before the document is ready.
+   *
+   * @param node the node
+   * @param consumer the consumer of the document
+   */
+  public void render(final @NonNull NetworkNode node, final @NonNull Consumer<Document> consumer) {
+    final Document document = cached(node);
+    if (document == null) {
+      submit(node, consumer);
+    } else {
+      consumer.accept(document);
+    }
+  }
+
+  /**
+   * Builds document with node details in background, unless it is cached, e.g. for nodes that are
+   * likely to be selected next.
+   *
+   * @param node the node
+   */
+  public void prefetch(final @NonNull NetworkNode node) {
+    if (cached(node) == null) {
+      submit(node, null);
+    }
+  }
+
+  /**
+   * Drops cached details of changed node.
+   *
+   * @param node the node
+   */
+  public void invalidate(final @NonNull NetworkNode node) {
+    versions.merge(node, 1, Integer::sum);
+    cache.invalidate(node);
+  }
+
+  private int versionOf(final @NotNull NetworkNode node) {
+    return versions.getOrDefault(node, 0);
+  }
+
+  private @Nullable Document cached(final @NotNull NetworkNode node) {
+    final Details details = cache.getIfPresent(node);
+    return details != null && details.version == versionOf(node) ? details.document : null;
+  }
+
+  private void submit(
+      final @NotNull NetworkNode node, final @Nullable Consumer<Document> consumer) {
+    final int version = versionOf(node);
+    executor.execute(
+        () -> {
+          // Node may be already rendered, e.g. when it was prefetched
+          Document document = cached(node);
+          if (document == null) {
+            final int builtVersion = versionOf(node);
+            document = build(node);
+            // Node may be changed while the document is built
+            if (builtVersion == versionOf(node)) {
+              cache.put(node, new Details(builtVersion, document));
+            }
+          }
+          if (consumer != null) {
+            final Document result = document;
+            invokeService.runInEdt(
+                () -> {
+                  if (version == versionOf(node)) {
+                    consumer.accept(result);
+                  }
+                });
+          }
+        });
+  }
+
+  private @NotNull Document build(final @NotNull NetworkNode node) {
+    final long start = System.nanoTime();
+    final Document document = editorKit.createDefaultDocument();
+    try {
+      editorKit.read(new StringReader(node.toHtml()), document, 0);
+    } catch (final IOException | BadLocationException | RuntimeException e) {
+      log.warn("Failed to render details of node {}", node.getName(), e);
+    }
+    log.trace(
+        "Details of {} rendered in {} us", node.getName(), (System.nanoTime() - start) / 1000);
+    return document;
+  }
+
+  /** Document rendered from given version of the node. */
+  private static final class Details {
+    private final int version;
+    private final @NotNull Document document;
+
+    Details(final int version, final @NotNull Document document) {
+      this.version = version;
+      this.document = document;
+    }
+  }
+}
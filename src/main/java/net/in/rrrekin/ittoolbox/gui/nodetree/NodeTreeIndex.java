@@ -0,0 +1,169 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.tree.TreePath;
+import lombok.NonNull;
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Index of positions of nodes in the node tree: parent and index of each node, keyed by node
+ * identity. Paths are built by following parents, so their cost depends on the depth of the tree,
+ * not on the number of nodes.
+ *
+ * <p>Positions are recorded when child nodes are visited or changed, so nodes that were never shown
+ * are not indexed. Each position is verified against child nodes of its parent when used, so
+ * outdated positions are never returned, they are just not found.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class NodeTreeIndex {
+
+  private final @NonNull NetworkNode root;
+  private final Map<NetworkNode, Position> positions = new IdentityHashMap<>();
+
+  /**
+   * Instantiates a new node tree index.
+   *
+   * @param root the root of the tree
+   */
+  NodeTreeIndex(final @NonNull NetworkNode root) {
+    this.root = root;
+  }
+
+  /** Forgets all positions, e.g. when the whole tree is replaced. */
+  void clear() {
+    positions.clear();
+  }
+
+  /**
+   * Records position of a node.
+   *
+   * @param parent the parent node
+   * @param index the index of the node in child nodes of the parent
+   * @param child the node
+   */
+  void record(
+      final @NonNull NetworkNode parent, final int index, final @NonNull NetworkNode child) {
+    final Position position = positions.get(child);
+    if (position == null || position.parent != parent || position.index != index) {
+      positions.put(child, new Position(parent, index));
+    }
+  }
+
+  /**
+   * Records positions of all child nodes of given node.
+   *
+   * @param parent the parent node
+   */
+  void indexChildren(final @NonNull NetworkNode parent) {
+    final List<NetworkNode> childNodes = parent.getChildNodes();
+    for (int i = 0; i < childNodes.size(); i++) {
+      record(parent, i, childNodes.get(i));
+    }
+  }
+
+  /**
+   * Forgets positions of removed nodes and their descendants.
+   *
+   * @param nodes the removed nodes
+   */
+  void forget(final @NonNull Object[] nodes) {
+    final Deque<Object> pending = new ArrayDeque<>();
+    for (final Object node : nodes) {
+      pending.push(node);
+    }
+    while (!pending.isEmpty()) {
+      final Object node = pending.pop();
+      if (positions.remove(node) != null && node instanceof NetworkNode) {
+        ((NetworkNode) node).getChildNodes().forEach(pending::push);
+      }
+    }
+  }
+
+  /**
+   * Forgets position of a node replaced by its new version. Child nodes are indexed again, as both
+   * versions may share them.
+   *
+   * @param oldNode the replaced node
+   * @param newNode the new version of the node
+   */
+  void replace(final @NonNull Object oldNode, final @NonNull NetworkNode newNode) {
+    positions.remove(oldNode);
+    if (!newNode.isLeaf()) {
+      indexChildren(newNode);
+    }
+  }
+
+  /**
+   * Gets index of a child node. Child nodes of the parent are indexed if the child was not found.
+   *
+   * @param parent the parent node
+   * @param child the child node
+   * @return the index of the child, -1 if it is not a child of the parent
+   */
+  int indexOf(final @NonNull NetworkNode parent, final @Nullable Object child) {
+    Position position = positions.get(child);
+    if (position == null || position.parent != parent || !position.isCurrent(child)) {
+      indexChildren(parent);
+      position = positions.get(child);
+      if (position == null || position.parent != parent || !position.isCurrent(child)) {
+        return -1;
+      }
+    }
+    return position.index;
+  }
+
+  /**
+   * Gets path from the root to the node, following parents of recorded positions.
+   *
+   * @param node the node
+   * @return the path or null if position of the node or of one of its ancestors is not known
+   */
+  @Nullable
+  TreePath pathTo(final @NonNull NetworkNode node) {
+    final Deque<Object> path = new ArrayDeque<>();
+    NetworkNode current = node;
+    while (current != root) {
+      final Position position = positions.get(current);
+      if (position == null || !position.isCurrent(current)) {
+        return null;
+      }
+      path.push(current);
+      current = position.parent;
+    }
+    path.push(root);
+    return new TreePath(path.toArray());
+  }
+
+  /**
+   * Gets number of recorded positions.
+   *
+   * @return the number of positions
+   */
+  int size() {
+    return positions.size();
+  }
+
+  /** Parent and index of a node. */
+  private static final class Position {
+    private final @NotNull NetworkNode parent;
+    private final int index;
+
+    Position(final @NotNull NetworkNode parent, final int index) {
+      this.parent = parent;
+      this.index = index;
+    }
+
+    /** Checks if the node is still at this position. */
+    boolean isCurrent(final @Nullable Object node) {
+      final List<NetworkNode> childNodes = parent.getChildNodes();
+      return index < childNodes.size() && childNodes.get(index) == node;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree;
+
+import javax.swing.event.TreeModelEvent;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Event of {@link NetworkNodesTreeModelFacade} about nodes removed, inserted or replaced by their
+ * new versions. All events about one parent are fired when its child nodes are already changed, so
+ * the event carries the whole change, e.g. old child nodes and old versions of replaced nodes.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+final class NodeTreeModelEvent extends TreeModelEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient @NotNull NetworkNodesTreeDiff.ListChange change;
+
+  /**
+   * Instantiates a new node tree model event.
+   *
+   * @param source the model
+   * @param change the change of child nodes of the parent
+   * @param indices the ascending indices of nodes the event is about
+   * @param nodes the nodes the event is about
+   */
+  NodeTreeModelEvent(
+      final @NonNull Object source,
+      final @NonNull NetworkNodesTreeDiff.ListChange change,
+      final @NonNull int[] indices,
+      final @NonNull Object[] nodes) {
+    super(source, change.getParentPath(), indices, nodes);
+    this.change = change;
+  }
+
+  /**
+   * Gets the change of child nodes of the parent.
+   *
+   * @return the change
+   */
+  @NotNull
+  NetworkNodesTreeDiff.ListChange getChange() {
+    return change;
+  }
+}
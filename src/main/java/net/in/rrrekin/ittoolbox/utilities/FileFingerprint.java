@@ -0,0 +1,40 @@
+package net.in.rrrekin.ittoolbox.utilities;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import lombok.NonNull;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Identification of file content: its size, modification time and SHA-256 hash of its content.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Value
+public class FileFingerprint {
+
+  /** File size in bytes. */
+  long size;
+  /** File modification timestamp. */
+  long lastModified;
+  /** SHA-256 hash of file content. */
+  @NonNull HashCode hash;
+
+  /**
+   * Calculates fingerprint of the file. File attributes are read before its content, so if file is
+   * modified in meantime, fingerprint never matches the new content.
+   *
+   * @param file the file
+   * @return the file fingerprint
+   * @throws IOException when file cannot be read
+   */
+  public static @NotNull FileFingerprint of(final @NonNull File file) throws IOException {
+    final long lastModified = file.lastModified();
+    final long size = file.length();
+    return new FileFingerprint(size, lastModified, Files.asByteSource(file).hash(Hashing.sha256()));
+  }
+}
@@ -0,0 +1,222 @@
+package net.in.rrrekin.ittoolbox.utilities;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Utility class to provide common file operations.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+@Slf4j
+public final class FileUtils {
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private FileUtils() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Checks if file exists and has exactly given content. SHA-256 hash of the file is compared with
+   * hash of the content only if file size matches, so file of different size is never read.
+   *
+   * @param file the file
+   * @param content the content
+   * @return true if file has the same content
+   * @throws IOException when file cannot be read
+   */
+  public static boolean hasContent(final @NonNull File file, final @NonNull byte[] content)
+      throws IOException {
+    return hasHash(file, content.length, Hashing.sha256().hashBytes(content));
+  }
+
+  private static boolean hasHash(final @NotNull File file, final long size, final HashCode hash)
+      throws IOException {
+    if (!file.isFile() || file.length() != size) {
+      return false;
+    }
+    return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).equals(hash);
+  }
+
+  /**
+   * Replaces file content atomically. Content is written to a temporary file in the same
+   * directory, synchronized to the storage device and then renamed to the target file, and the
+   * rename is synchronized too, so the target file always has either old or new content, even if
+   * application or system crashes. File permissions of existing target file are preserved where
+   * supported.
+   *
+   * @param file the target file
+   * @param content the new content
+   * @throws IOException on write errors
+   */
+  public static void writeAtomically(final @NonNull File file, final @NonNull byte[] content)
+      throws IOException {
+    writeContentAtomically(file, output -> output.write(content));
+  }
+
+  /**
+   * Replaces file content atomically, as {@link #writeAtomically(File, byte[])} does, with content
+   * streamed by the writer. Content does not have to fit in memory. Target file is not changed if
+   * the writer fails.
+   *
+   * @param file the target file
+   * @param writer the writer of the new content, it should not close the stream
+   * @throws IOException on write errors
+   */
+  public static void writeContentAtomically(
+      final @NonNull File file, final @NonNull ContentWriter writer) throws IOException {
+    final Path target = file.toPath().toAbsolutePath();
+    if (Files.isDirectory(target)) {
+      throw new IOException("Cannot replace directory " + file);
+    }
+    final Path tempFile =
+        Files.createTempFile(target.getParent(), "." + file.getName() + ".", TEMP_FILE_SUFFIX);
+    try {
+      copyPermissions(target, tempFile);
+      try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+        final OutputStream output = new UnclosableOutputStream(Channels.newOutputStream(channel));
+        writer.write(output);
+        output.flush();
+        channel.force(true);
+      }
+      try {
+        Files.move(tempFile, target, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final AtomicMoveNotSupportedException e) {
+        log.debug("Atomic move not supported for {}, replacing file.", file);
+        Files.move(tempFile, target, REPLACE_EXISTING);
+      }
+      syncDirectory(target.getParent());
+    } finally {
+      deleteQuietly(tempFile);
+    }
+  }
+
+  /**
+   * Replaces file content atomically, as {@link #writeContentAtomically(File, ContentWriter)} does,
+   * unless the file already has the same content. The content is streamed first only to compute
+   * its SHA-256 hash and size, which are compared with the target file, so no temporary file is
+   * created for unchanged content. Changed content is streamed again to the temporary file. So the
+   * content is never kept in memory.
+   *
+   * @param file the target file
+   * @param writer the writer of the new content, closing the stream only flushes it
+   * @return true if the file was replaced, false if it already had the same content
+   * @throws IOException on write errors
+   */
+  public static boolean writeContentAtomicallyIfChanged(
+      final @NonNull File file, final @NonNull ContentWriter writer) throws IOException {
+    return writeContentAtomicallyIfChanged(file, null, writer);
+  }
+
+  /**
+   * Replaces file content atomically unless it has the same content, as {@link
+   * #writeContentAtomicallyIfChanged(File, ContentWriter)} does. If hash of the current file
+   * content is known, e.g. the file was read or written by the application, the file is not read to
+   * compare the content.
+   *
+   * @param file the target file
+   * @param currentHash SHA-256 hash of current content of the file, or null if not known
+   * @param writer the writer of the new content, closing the stream only flushes it
+   * @return true if the file was replaced, false if it already had the same content
+   * @throws IOException on write errors
+   */
+  public static boolean writeContentAtomicallyIfChanged(
+      final @NonNull File file,
+      final @Nullable HashCode currentHash,
+      final @NonNull ContentWriter writer)
+      throws IOException {
+    final CountingOutputStream countingOutput =
+        new CountingOutputStream(ByteStreams.nullOutputStream());
+    final HashingOutputStream hashingOutput =
+        new HashingOutputStream(Hashing.sha256(), countingOutput);
+    final OutputStream output = new UnclosableOutputStream(hashingOutput);
+    writer.write(output);
+    output.flush();
+    final HashCode hash = hashingOutput.hash();
+    final long size = countingOutput.getCount();
+    final boolean unchanged =
+        currentHash == null
+            ? hasHash(file, size, hash)
+            : hash.equals(currentHash) && file.isFile() && file.length() == size;
+    if (unchanged) {
+      return false;
+    }
+    writeContentAtomically(file, writer);
+    return true;
+  }
+
+  private static void copyPermissions(final @NotNull Path source, final @NotNull Path target) {
+    if (Files.exists(source)) {
+      try {
+        Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+      } catch (final UnsupportedOperationException | IOException e) {
+        log.debug("Cannot copy permissions of {}: {}", source, e.toString());
+      }
+    }
+  }
+
+  /**
+   * Synchronizes directory to the storage device, so renaming a file in it survives system crash.
+   * Not all platforms support it, e.g. directories cannot be opened on Windows.
+   */
+  private static void syncDirectory(final @NotNull Path directory) {
+    try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (final IOException e) {
+      log.debug("Cannot synchronize directory {}: {}", directory, e.toString());
+    }
+  }
+
+  private static void deleteQuietly(final @NotNull Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (final IOException e) {
+      log.warn("Failed to remove temporary file {}: {}", path, e.toString());
+    }
+  }
+
+  /** Buffered stream that is flushed instead of being closed, e.g. by codec writers. */
+  private static final class UnclosableOutputStream extends BufferedOutputStream {
+    UnclosableOutputStream(final @NotNull OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  /** Writer of file content. */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content.
+     *
+     * @param output the output stream
+     * @throws IOException on write errors
+     */
+    void write(@NotNull OutputStream output) throws IOException;
+  }
+}
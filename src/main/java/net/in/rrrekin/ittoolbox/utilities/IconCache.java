@@ -0,0 +1,61 @@
+package net.in.rrrekin.ittoolbox.utilities;
+
+import java.awt.Color;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.swing.Icon;
+import jiconfont.IconCode;
+import jiconfont.swing.IconFontSwing;
+import lombok.NonNull;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Icons shared by many components, e.g. by all network nodes of the same type. Font icons are
+ * rasterized once for each glyph, size and colour.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class IconCache {
+
+  /** Default colour of font icons. */
+  public static final Color DEFAULT_COLOR = Color.BLACK;
+
+  private static final ConcurrentMap<GlyphKey, Icon> GLYPHS = new ConcurrentHashMap<>();
+
+  private IconCache() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Gets shared font icon in default colour. Font must be registered in {@link IconFontSwing}.
+   *
+   * @param code the glyph
+   * @param size the icon size
+   * @return the icon
+   */
+  public static @NotNull Icon glyph(final @NonNull IconCode code, final int size) {
+    return glyph(code, size, DEFAULT_COLOR);
+  }
+
+  /**
+   * Gets shared font icon. Font must be registered in {@link IconFontSwing}.
+   *
+   * @param code the glyph
+   * @param size the icon size
+   * @param color the icon colour
+   * @return the icon
+   */
+  public static @NotNull Icon glyph(
+      final @NonNull IconCode code, final int size, final @NonNull Color color) {
+    return GLYPHS.computeIfAbsent(
+        new GlyphKey(code, size, color), key -> IconFontSwing.buildIcon(code, size, color));
+  }
+
+  @Value
+  private static class GlyphKey {
+    @NonNull IconCode code;
+    int size;
+    @NonNull Color color;
+  }
+}
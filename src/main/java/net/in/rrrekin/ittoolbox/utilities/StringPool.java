@@ -0,0 +1,53 @@
+package net.in.rrrekin.ittoolbox.utilities;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Lists;
+import java.util.Collection;
+import java.util.List;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Pool of strings that repeat across many network nodes, e.g. property names, service descriptors
+ * and common property values. Equal strings are replaced by a single shared instance. Long strings
+ * are rarely shared, so they are not pooled. Pooled strings are weakly referenced, so strings no
+ * longer used by any node are garbage collected.
+ *
+ * @author michal.rudewicz @gmail.com
+ */
+public final class StringPool {
+
+  /** Maximal length of pooled string. */
+  public static final int MAX_POOLED_LENGTH = 64;
+
+  private static final Interner<String> POOL = Interners.newWeakInterner();
+
+  private StringPool() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Gets shared instance of the string.
+   *
+   * @param value the string
+   * @return the shared instance equal to the string, or the string itself if it is too long
+   */
+  public static @NotNull String intern(final @NonNull String value) {
+    return value.length() > MAX_POOLED_LENGTH ? value : POOL.intern(value);
+  }
+
+  /**
+   * Creates list of shared instances of strings, with capacity equal to the number of strings.
+   *
+   * @param values the strings
+   * @return the new mutable list
+   */
+  public static @NotNull List<String> internAll(final @NonNull Collection<String> values) {
+    final List<String> response = Lists.newArrayListWithCapacity(values.size());
+    for (final String value : values) {
+      response.add(intern(value));
+    }
+    return response;
+  }
+}
@@ -0,0 +1,190 @@
+package net.in.rrrekin.ittoolbox.configuration
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class ConfigFileWatcherTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def conditions = new PollingConditions(timeout: 10)
+    def changes = new AtomicInteger()
+    File file
+    ConfigFileWatcher instance
+
+    void setup() {
+        file = new File(temporaryFolder.root, 'config.yml')
+    }
+
+    void cleanup() {
+        instance?.close()
+    }
+
+    def "should validate arguments"() {
+        when:
+        ConfigFileWatcher.start(null as File, 100, {})
+        then:
+        thrown NullPointerException
+
+        when:
+        ConfigFileWatcher.start(null as Collection<File>, 100, {})
+        then:
+        thrown NullPointerException
+
+        when:
+        ConfigFileWatcher.start(file, 100, null)
+        then:
+        thrown NullPointerException
+    }
+
+    def "should report burst of changes once"() {
+        given:
+        instance = ConfigFileWatcher.start(file, 500, { changes.incrementAndGet() })
+
+        when:
+        5.times { file.text = "--- # change $it" }
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+
+        when:
+        sleep(1000)
+
+        then:
+        changes.get() == 1
+    }
+
+    def "should watch files in several directories"() {
+        given:
+        def includedFile = new File(temporaryFolder.newFolder('sites'), 'site.yml')
+        def otherFile = new File(includedFile.parentFile, 'other.yml')
+        instance = ConfigFileWatcher.start([file, includedFile], 100, { changes.incrementAndGet() })
+
+        when:
+        includedFile.text = '--- # change'
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+
+        when:
+        file.text = '--- # change'
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 2
+        }
+
+        when:
+        otherFile.text = '--- # change'
+        sleep(1000)
+
+        then:
+        changes.get() == 2
+    }
+
+    def "should report replacement and removal of file"() {
+        given:
+        file.text = '--- '
+        instance = ConfigFileWatcher.start(file, 100, { changes.incrementAndGet() })
+        def newFile = temporaryFolder.newFile('config.yml.tmp')
+        newFile.text = '--- # new'
+
+        when:
+        assert newFile.renameTo(file)
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+
+        when:
+        file.delete()
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 2
+        }
+    }
+
+    def "should ignore other files"() {
+        given:
+        instance = ConfigFileWatcher.start(file, 100, { changes.incrementAndGet() })
+
+        when:
+        temporaryFolder.newFile('other.yml').text = 'abc'
+        sleep(1000)
+
+        then:
+        changes.get() == 0
+    }
+
+    def "should not forward listener exceptions"() {
+        given:
+        instance = ConfigFileWatcher.start(file, 100, {
+            if (changes.incrementAndGet() == 1) {
+                throw new IllegalStateException()
+            }
+            throw new InternalError()
+        })
+
+        when:
+        file.text = '--- '
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+
+        when:
+        file.text = '--- # changed'
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 2
+        }
+
+        when:
+        file.text = '--- # changed again'
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 3
+        }
+    }
+
+    def "should stop watching when closed"() {
+        given:
+        instance = ConfigFileWatcher.start(file, 100, { changes.incrementAndGet() })
+
+        when:
+        instance.close()
+        instance.@thread.join(5000)
+
+        then:
+        !instance.@thread.alive
+
+        when:
+        file.text = '--- '
+        sleep(500)
+
+        then:
+        changes.get() == 0
+    }
+
+    def "should not watch missing directory"() {
+        expect:
+        ConfigFileWatcher.start(new File(temporaryFolder.root, 'missing/config.yml'), 100, {}) == null
+    }
+}
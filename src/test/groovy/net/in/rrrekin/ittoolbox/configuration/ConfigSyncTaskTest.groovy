@@ -42,5 +42,9 @@ class ConfigSyncTaskTest extends Specification {
         then:
         1 * configurationManager.loadIfChanged() >> {throw new RuntimeException()}
 
+        when:
+        instance.run()
+        then:
+        1 * configurationManager.loadIfChanged() >> {throw new InternalError()}
     }
 }
@@ -0,0 +1,121 @@
+package net.in.rrrekin.ittoolbox.configuration
+
+import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.CANNOT_CREATE_NETWORK_NODE
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INCLUDE_FILE_UNREADABLE
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_OBJECT_ON_DTO_LIST
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class ConfigurationErrorReportTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    File reportFile
+    ConfigurationErrorReport instance
+
+    void setup() {
+        reportFile = new File(temporaryFolder.root, 'errors.log')
+        instance = new ConfigurationErrorReport(reportFile)
+    }
+
+    void cleanup() {
+        instance.close()
+    }
+
+    def "should validate arguments"() {
+        when:
+        new ConfigurationErrorReport(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.add(null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should report few errors without report file reference"() {
+        when:
+        instance.add(new ConfigurationErrorEvent(CANNOT_CREATE_NETWORK_NODE, 'first\nline'))
+        instance.add(new ConfigurationErrorEvent(INCLUDE_FILE_UNREADABLE, 'second'))
+
+        then:
+        !instance.isEmpty()
+        instance.totalCount == 2
+        instance.getCount(CANNOT_CREATE_NETWORK_NODE) == 1
+        instance.getCount(INVALID_OBJECT_ON_DTO_LIST) == 0
+        instance.samples*.message == ['first\nline', 'second']
+        instance.summary == 'first; line\nsecond'
+        reportFile.readLines() == ['CANNOT_CREATE_NETWORK_NODE: first; line', 'INCLUDE_FILE_UNREADABLE: second']
+    }
+
+    def "should aggregate many errors by code"() {
+        when:
+        20_000.times {
+            instance.add(new ConfigurationErrorEvent(it % 2 ? CANNOT_CREATE_NETWORK_NODE : INVALID_OBJECT_ON_DTO_LIST, "error $it"))
+        }
+        instance.add(new ConfigurationErrorEvent(INCLUDE_FILE_UNREADABLE, 'include'))
+        def summary = instance.summary.readLines()
+
+        then: "only samples are kept"
+        instance.totalCount == 20_001
+        instance.getCount(CANNOT_CREATE_NETWORK_NODE) == 10_000
+        instance.getCount(INVALID_OBJECT_ON_DTO_LIST) == 10_000
+        instance.samples.size() == 2 * ConfigurationErrorReport.SAMPLES_PER_CODE + 1
+
+        and: "summary size does not depend on number of errors"
+        summary.size() == 2 * (ConfigurationErrorReport.SAMPLES_PER_CODE + 1) + 2
+        summary[0] == 'error 1'
+        summary[ConfigurationErrorReport.SAMPLES_PER_CODE].contains('9')
+        summary.contains('include')
+        summary.last().contains(reportFile.toString())
+
+        and: "all errors are written to report file"
+        reportFile.readLines().size() == 20_001
+        reportFile.readLines().last() == 'INCLUDE_FILE_UNREADABLE: include'
+    }
+
+    def "should rewrite report file after clear"() {
+        given:
+        instance.add(new ConfigurationErrorEvent(INCLUDE_FILE_UNREADABLE, 'old'))
+        instance.summary
+
+        when:
+        instance.clear()
+
+        then:
+        instance.isEmpty()
+        instance.samples.isEmpty()
+        instance.summary == ''
+        reportFile.readLines() == ['INCLUDE_FILE_UNREADABLE: old']
+
+        when:
+        instance.add(new ConfigurationErrorEvent(CANNOT_CREATE_NETWORK_NODE, 'new'))
+        instance.close()
+
+        then:
+        reportFile.readLines() == ['CANNOT_CREATE_NETWORK_NODE: new']
+    }
+
+    def "should keep errors when report file cannot be written"() {
+        given:
+        def report = new ConfigurationErrorReport(new File(temporaryFolder.root, 'missing/dir/errors.log'))
+
+        when:
+        10.times { report.add(new ConfigurationErrorEvent(INCLUDE_FILE_UNREADABLE, "error $it")) }
+
+        then:
+        report.totalCount == 10
+        report.summary.readLines().size() == ConfigurationErrorReport.SAMPLES_PER_CODE + 1
+        !report.summary.contains('errors.log')
+    }
+}
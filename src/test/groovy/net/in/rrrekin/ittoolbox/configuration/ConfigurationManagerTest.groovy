@@ -1,18 +1,26 @@
 package net.in.rrrekin.ittoolbox.configuration
 
 import com.google.common.eventbus.EventBus
+import com.sun.net.httpserver.HttpServer
 import net.in.rrrekin.ittoolbox.configuration.exceptions.FailedConfigurationSaveException
 import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException
 import net.in.rrrekin.ittoolbox.configuration.exceptions.MissingConfigurationException
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry
 import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
 import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.configuration.snapshot.ConfigurationSnapshotService
 import net.in.rrrekin.ittoolbox.events.BlockingApplicationErrorEvent
 import net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent
 import net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent
 import net.in.rrrekin.ittoolbox.utilities.ErrorCode
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
 
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_SERVICES_SECTION
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_SERVICE_CONFIGURATION
@@ -33,15 +41,22 @@ class ConfigurationManagerTest extends Specification {
 
     File appDirectory
     File configFile
+    File snapshotFile
+    File journalFile
     EventBus eventBus = Mock()
     ConfigurationPersistenceService persistenceService = Mock()
+    ConfigurationSnapshotService snapshotService = Mock()
+    NodeFactory nodeFactory = new NodeFactory(new EventBus())
 
     ConfigurationManager instance
 
     void setup() {
         appDirectory = temporaryFolder.root
-        instance = new ConfigurationManager(eventBus, persistenceService, appDirectory)
+        instance = new ConfigurationManager(eventBus, persistenceService, snapshotService, nodeFactory, appDirectory)
+        instance.watchConfigurationFile = false
         configFile = new File(appDirectory, 'it_toolbox-config.yml')
+        snapshotFile = new File(appDirectory, 'it_toolbox-config.snapshot')
+        journalFile = new File(appDirectory, 'it_toolbox-config.journal')
         instance.dirty = true
     }
 
@@ -53,22 +68,35 @@ class ConfigurationManagerTest extends Specification {
         expect:
         instance.@eventBus.is eventBus
         instance.@persistenceService.is persistenceService
+        instance.@snapshotService.is snapshotService
+        instance.@nodeFactory.is nodeFactory
         instance.configurationFile == configFile
+        instance.snapshotFile == snapshotFile
     }
 
     def "should verify constructor arguments"() {
         when:
-        new ConfigurationManager(null, persistenceService, appDirectory)
+        new ConfigurationManager(null, persistenceService, snapshotService, nodeFactory, appDirectory)
         then:
         thrown NullPointerException
 
         when:
-        new ConfigurationManager(eventBus, null, appDirectory)
+        new ConfigurationManager(eventBus, null, snapshotService, nodeFactory, appDirectory)
         then:
         thrown NullPointerException
 
         when:
-        new ConfigurationManager(eventBus, persistenceService, null)
+        new ConfigurationManager(eventBus, persistenceService, null, nodeFactory, appDirectory)
+        then:
+        thrown NullPointerException
+
+        when:
+        new ConfigurationManager(eventBus, persistenceService, snapshotService, null, appDirectory)
+        then:
+        thrown NullPointerException
+
+        when:
+        new ConfigurationManager(eventBus, persistenceService, snapshotService, nodeFactory, null)
         then:
         thrown NullPointerException
     }
@@ -86,7 +114,9 @@ class ConfigurationManagerTest extends Specification {
         instance.@configChangeTimer.queue.getMin() instanceof ConfigSyncTask
         instance.@configChangeTimer.thread.newTasksMayBeScheduled
         1 * eventBus.register(instance)
+        1 * snapshotService.load(snapshotFile, FileFingerprint.of(configFile)) >> null
         1 * persistenceService.load(configFile) >> CONFIG
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), CONFIG)
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
         0 * _._
 
@@ -110,7 +140,7 @@ class ConfigurationManagerTest extends Specification {
         instance.handleConfigurationReadErrors(ERROR_2)
 
         then:
-        instance.loadErrors == [ERROR_1, ERROR_2]
+        instance.loadErrors.samples == [ERROR_1, ERROR_2]
         0 * _._
     }
 
@@ -125,7 +155,7 @@ class ConfigurationManagerTest extends Specification {
         then:
         instance.config.modules.isEmpty()
         instance.config.networkNodes.isEmpty()
-        instance.loadErrors == [ERROR_2]
+        instance.loadErrors.samples == [ERROR_2]
         instance.dirty
         0 * _._
 
@@ -135,7 +165,7 @@ class ConfigurationManagerTest extends Specification {
         then:
         instance.config.modules.isEmpty()
         instance.config.networkNodes.isEmpty()
-        instance.loadErrors == [ERROR_2]
+        instance.loadErrors.samples == [ERROR_2]
         instance.dirty
         0 * _._
     }
@@ -157,7 +187,9 @@ class ConfigurationManagerTest extends Specification {
         instance.config.is CONFIG
         instance.lastLoadedChangeTs == configFile.lastModified()
         !instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> CONFIG
+        1 * snapshotService.save(snapshotFile, _, CONFIG)
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
         0 * _._
 
@@ -178,7 +210,9 @@ class ConfigurationManagerTest extends Specification {
         instance.config.is CONFIG_2
         instance.lastLoadedChangeTs == configFile.lastModified()
         !instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> CONFIG_2
+        1 * snapshotService.save(snapshotFile, _, CONFIG_2)
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
         0 * _._
 
@@ -192,6 +226,7 @@ class ConfigurationManagerTest extends Specification {
         0 * _._
 
         when: "reloaded"
+        configFile.text = '--- # changed'
         configFile.setLastModified(System.currentTimeMillis())
         instance.loadIfChanged()
 
@@ -201,6 +236,7 @@ class ConfigurationManagerTest extends Specification {
         !instance.dirty
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
         1 * persistenceService.load(configFile) >> CONFIG
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), CONFIG)
         0 * _._
 
         when: "not reloaded"
@@ -213,6 +249,697 @@ class ConfigurationManagerTest extends Specification {
         0 * _._
     }
 
+    def "should not reload configuration file with unchanged content"() {
+        setup:
+        instance.init()
+        configFile.text = '--- '
+        configFile.setLastModified(System.currentTimeMillis() - 500000)
+
+        when:
+        instance.load()
+
+        then:
+        instance.config.is CONFIG
+        1 * snapshotService.load(snapshotFile, _) >> null
+        1 * persistenceService.load(configFile) >> CONFIG
+        1 * snapshotService.save(snapshotFile, _, CONFIG)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+
+        when: "touched"
+        configFile.setLastModified(System.currentTimeMillis())
+        instance.loadIfChanged()
+
+        then:
+        instance.config.is CONFIG
+        instance.lastLoadedChangeTs == configFile.lastModified()
+        0 * _._
+
+        when: "rewritten with the same content"
+        configFile.text = '--- '
+        configFile.setLastModified(System.currentTimeMillis() + 10000)
+        instance.loadIfChanged()
+
+        then:
+        instance.config.is CONFIG
+        instance.lastLoadedChangeTs == configFile.lastModified()
+        0 * _._
+    }
+
+    def "should reload configuration when file watcher reports change"() {
+        setup:
+        def conditions = new PollingConditions(timeout: 10)
+        instance.watchConfigurationFile = true
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >>> [CONFIG, CONFIG_2]
+        instance.init()
+
+        expect:
+        instance.config.is CONFIG
+        instance.@configFileWatcher != null
+        instance.@configChangeTimer.queue.size() == 1
+
+        when:
+        configFile.text = '--- # changed'
+        configFile.setLastModified(instance.lastLoadedChangeTs + 10000)
+
+        then:
+        conditions.eventually {
+            assert instance.config.is(CONFIG_2)
+        }
+
+        when:
+        instance.shutdown()
+
+        then:
+        instance.@configFileWatcher == null
+    }
+
+    def "should reload only changed included file"() {
+        setup:
+        instance.init()
+        configFile.text = '--- '
+        configFile.setLastModified(System.currentTimeMillis() - 500000)
+        def siteFile = new File(appDirectory, 'site.yml')
+        siteFile.text = '- {type: Server, name: old}'
+        siteFile.setLastModified(System.currentTimeMillis() - 500000)
+        def server = new Server('s1')
+        def include = new IncludeNode('site', '', 'site.yml', [], [])
+            .withChildNodes([new Server('old')], FileFingerprint.of(siteFile))
+        def config = new Configuration([server, new GroupingNode('g1', '', [include], [])], [:])
+
+        when:
+        instance.load()
+
+        then: "snapshot is not kept for configuration with included files"
+        instance.config.is config
+        1 * snapshotService.load(snapshotFile, _) >> null
+        1 * persistenceService.load(configFile) >> config
+        1 * snapshotService.delete(snapshotFile)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+
+        when: "included file touched"
+        siteFile.setLastModified(System.currentTimeMillis() - 400000)
+        instance.loadIfChanged()
+
+        then: "nodes are not read again, but published with new fingerprint of the file"
+        0 * _._
+        !instance.config.is(config)
+        instance.config.networkNodes[0].is server
+        instance.config.networkNodes[1].childNodes[0].childNodes.is include.childNodes
+        instance.config.networkNodes[1].childNodes[0].sourceFingerprint == FileFingerprint.of(siteFile)
+        include.sourceFingerprint.lastModified != siteFile.lastModified()
+
+        when: "included file changed"
+        def touched = instance.config.networkNodes[1].childNodes[0]
+        siteFile.text = '- {type: Server, name: new}'
+        siteFile.setLastModified(System.currentTimeMillis())
+        def newInclude = include.withChildNodes([new Server('new')], FileFingerprint.of(siteFile))
+        instance.loadIfChanged()
+
+        then:
+        1 * persistenceService.loadIncludes(configFile, [touched]) >> [newInclude]
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+        !instance.config.is(config)
+        instance.config.networkNodes[0].is server
+        instance.config.networkNodes[1].childNodes[0].childNodes*.name == ['new']
+        instance.config.networkNodes[1].childNodes[0].sourceFingerprint == newInclude.sourceFingerprint
+        config.networkNodes[1].childNodes[0].is include
+        !instance.dirty
+
+        when: "nothing changed"
+        instance.loadIfChanged()
+
+        then:
+        0 * _._
+    }
+
+    def "should keep changes made while included file is reloaded"() {
+        setup:
+        instance.init()
+        configFile.text = '--- '
+        configFile.setLastModified(System.currentTimeMillis() - 500000)
+        def siteFile = new File(appDirectory, 'site.yml')
+        siteFile.text = '- {type: Server, name: old}'
+        siteFile.setLastModified(System.currentTimeMillis() - 500000)
+        def include = new IncludeNode('site', '', 'site.yml', [], [])
+            .withChildNodes([new Server('old')], FileFingerprint.of(siteFile))
+        persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        instance.load()
+        siteFile.text = '- {type: Server, name: new}'
+        siteFile.setLastModified(System.currentTimeMillis())
+        def newInclude = include.withChildNodes([new Server('new')], FileFingerprint.of(siteFile))
+
+        when:
+        instance.loadIfChanged()
+
+        then:
+        1 * persistenceService.loadIncludes(configFile, [include]) >> {
+            instance.recordChange(JournalEntry.setFields([0], new Server('s1-renamed')))
+            instance.recordChange(JournalEntry.setFields([1], new IncludeNode('renamed', '', 'site.yml', [], [])))
+            [newInclude]
+        }
+        instance.config.networkNodes*.name == ['s1-renamed', 'renamed']
+        instance.config.networkNodes[1].childNodes*.name == ['new']
+        instance.config.networkNodes[1].sourceFingerprint == newInclude.sourceFingerprint
+    }
+
+    def "should poll remote inventories and keep their nodes across reloads"() {
+        setup:
+        instance.init()
+        configFile.text = '--- '
+        def requests = 0
+        def status = 200
+        def server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/', {
+            requests++
+            if (status != 200) {
+                it.sendResponseHeaders(status, -1)
+            } else if (it.requestHeaders.getFirst('If-None-Match') == '"v1"') {
+                it.sendResponseHeaders(304, -1)
+            } else {
+                it.responseHeaders.add('ETag', '"v1"')
+                it.sendResponseHeaders(200, 0)
+                it.responseBody.write('remote content'.bytes)
+            }
+            it.close()
+        })
+        server.start()
+        def url = new URL("http://localhost:${server.address.port}/nodes.yml")
+        def include = new IncludeNode('remote', '', url.toString(), [], [])
+        def config = new Configuration([new Server('s1'), include], [:])
+
+        when:
+        instance.load()
+
+        then:
+        1 * persistenceService.load(configFile) >> config
+        instance.config.is config
+
+        when:
+        instance.pollRemoteIncludes(false)
+
+        then:
+        1 * persistenceService.readRemoteNodes(url, _) >> { URL source, InputStream body ->
+            assert body.text == 'remote content'
+            [new Server('r1'), new Server('r2')]
+        }
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+        instance.config.networkNodes[0].is config.networkNodes[0]
+        instance.config.networkNodes[1].childNodes*.name == ['r1', 'r2']
+        include.childNodes.isEmpty()
+        !instance.dirty
+
+        when: "poll period not elapsed"
+        instance.pollRemoteIncludes(false)
+
+        then:
+        requests == 1
+        0 * _._
+
+        when: "inventory not modified"
+        instance.pollRemoteIncludes(true)
+
+        then:
+        requests == 2
+        0 * _._
+
+        when: "configuration file reloaded"
+        def remoteNodes = instance.config.networkNodes[1].childNodes
+        instance.load()
+        instance.pollRemoteIncludes(false)
+
+        then: "known nodes of the inventory are used at once"
+        1 * persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        0 * persistenceService.readRemoteNodes(_, _)
+        requests == 2
+        instance.config.networkNodes[1].childNodes.every { node -> remoteNodes.any { it.is(node) } }
+
+        when: "inventory unavailable"
+        status = 503
+        instance.pollRemoteIncludes(true)
+        instance.pollRemoteIncludes(true)
+
+        then: "failure is reported once"
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == FAILED && ev.message.contains(url.toString()) })
+        0 * _._
+        instance.config.networkNodes[1].childNodes*.name == ['r1', 'r2']
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "should subscribe to remote inventory"() {
+        setup:
+        configFile.text = '--- '
+        persistenceService.load(configFile) >> CONFIG
+        instance.init()
+        def server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/', {
+            it.sendResponseHeaders(200, 0)
+            it.responseBody.write('remote content'.bytes)
+            it.close()
+        })
+        server.start()
+        def url = new URL("http://localhost:${server.address.port}/nodes.yml")
+
+        when:
+        instance.subscribe(new URL('file:///tmp/nodes.yml'), 'local')
+
+        then:
+        thrown IllegalArgumentException
+
+        when:
+        def subscribed = instance.subscribe(url, 'remote')
+        def include = instance.config.networkNodes[3] as IncludeNode
+
+        then:
+        subscribed
+        1 * persistenceService.save(configFile, { it.networkNodes.size() == 4 }, _) >> { it[1] }
+        1 * persistenceService.readRemoteNodes(url, _) >> [new Server('r1')]
+        include.name == 'remote'
+        include.file == url.toString()
+        include.childNodes*.name == ['r1']
+        instance.config.networkNodes.take(3) == CONFIG.networkNodes
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "should schedule save when marked dirty"() {
+        setup:
+        instance.init()
+
+        expect:
+        instance.@configChangeTimer.queue.size() == 1
+
+        when:
+        instance.dirty = true
+        instance.dirty = true
+
+        then:
+        instance.dirty
+        instance.@configChangeTimer.queue.size() == 2
+        0 * _._
+
+        when:
+        instance.saveIfDirty()
+        instance.dirty = true
+
+        then:
+        instance.@configChangeTimer.queue.size() == 3
+        1 * persistenceService.save(configFile, instance.config, _) >> { it[1] }
+        1 * snapshotService.delete(snapshotFile)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
+        0 * _._
+    }
+
+    static Configuration editableConfig() {
+        new Configuration([new Server('s1'), new GroupingNode('g1'), new GenericNode('g2')], [:])
+    }
+
+    def "should record changes in journal and apply them on next start"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >> { editableConfig() }
+        instance.init()
+        def restarted = new ConfigurationManager(eventBus, persistenceService, snapshotService, nodeFactory, appDirectory)
+
+        expect:
+        !instance.dirty
+
+        when:
+        instance.recordChange(JournalEntry.setFields([0], new Server('s1-renamed', 'a1', 'd1', [:], ['ssh'])))
+        instance.recordChange(JournalEntry.addChild([1, 0], new Server('s3')))
+        instance.recordChange(JournalEntry.move([2], [1, 0]))
+
+        then:
+        instance.dirty
+        journalFile.isFile()
+        instance.@configChangeTimer.queue.size() == 2
+        0 * _._
+
+        when: "restarted after crash"
+        restarted.load()
+
+        then:
+        restarted.dirty
+        restarted.config.networkNodes*.name == ['s1-renamed', 'g1']
+        restarted.config.networkNodes[0].address == 'a1'
+        restarted.config.networkNodes[0].serviceDescriptors == ['ssh']
+        restarted.config.networkNodes[1].childNodes*.name == ['g2', 's3']
+        1 * snapshotService.load(snapshotFile, _) >> null
+        1 * persistenceService.load(configFile) >> editableConfig()
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), { it.networkNodes*.name == ['s1', 'g1', 'g2'] })
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+
+        cleanup:
+        restarted.shutdown()
+    }
+
+    def "should publish recorded change as new configuration sharing unchanged nodes"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >> { editableConfig() }
+        instance.init()
+        def published = instance.config
+        def nodes = published.networkNodes.collect()
+
+        when:
+        instance.recordChange(JournalEntry.addChild([1, 0], new Server('s3')))
+
+        then:
+        instance.dirty
+        !instance.config.is(published)
+        instance.config.networkNodes*.name == ['s1', 'g1', 'g2']
+        instance.config.networkNodes[1].childNodes*.name == ['s3']
+        instance.config.networkNodes[0].is(nodes[0])
+        instance.config.networkNodes[2].is(nodes[2])
+
+        and: "previous version is not modified"
+        published.networkNodes == nodes
+        published.networkNodes[1].childNodes.isEmpty()
+
+        when: "change does not match configuration"
+        def current = instance.config
+        instance.recordChange(JournalEntry.removeChild([5]))
+
+        then:
+        instance.config.is(current)
+        instance.dirty
+    }
+
+    def "should reject changes of nodes of remote inventories"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        def include = new IncludeNode('remote', '', 'http://localhost/nodes.yml', [new Server('r1')], [])
+        persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        instance.load()
+        instance.dirty = false
+        def published = instance.config
+
+        when:
+        def changed = instance.recordChange(entry)
+
+        then:
+        !changed
+        instance.config.is published
+        !instance.dirty
+        !journalFile.exists()
+
+        where:
+        entry << [
+                JournalEntry.setFields([1, 0], new Server('r1-renamed')),
+                JournalEntry.addChild([1, 1], new Server('r2')),
+                JournalEntry.removeChild([1, 0]),
+                JournalEntry.move([1, 0], [0]),
+                JournalEntry.move([0], [0, 0])
+        ]
+    }
+
+    def "should allow changes of remote include node itself"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        def include = new IncludeNode('remote', '', 'http://localhost/nodes.yml', [new Server('r1')], [])
+        persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        instance.load()
+
+        when:
+        def changed = instance.recordChange(JournalEntry.setFields([1], new IncludeNode('renamed', '', include.file, [], [])))
+
+        then:
+        changed
+        instance.config.networkNodes[1].name == 'renamed'
+        instance.config.networkNodes[1].childNodes*.name == ['r1']
+    }
+
+    def "should poll remote inventories in separate thread"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        def server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/', {
+            it.sendResponseHeaders(200, 0)
+            it.responseBody.write('remote content'.bytes)
+            it.close()
+        })
+        server.start()
+        def url = new URL("http://localhost:${server.address.port}/nodes.yml")
+        def include = new IncludeNode('remote', '', url.toString(), [], [])
+        persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        String pollingThread = null
+        persistenceService.readRemoteNodes(url, _) >> {
+            pollingThread = Thread.currentThread().name
+            [new Server('r1')]
+        }
+        def conditions = new PollingConditions(timeout: 10)
+
+        when:
+        instance.init()
+
+        then:
+        conditions.eventually {
+            assert instance.config.networkNodes[1].childNodes*.name == ['r1']
+        }
+        pollingThread == 'RemoteInventoryPoller'
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "should ignore journal made for other configuration file"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >> { editableConfig() }
+        instance.init()
+        instance.recordChange(JournalEntry.removeChild([0]))
+        def restarted = new ConfigurationManager(eventBus, persistenceService, snapshotService, nodeFactory, appDirectory)
+
+        when:
+        configFile.text = '--- # edited'
+        restarted.load()
+
+        then:
+        !restarted.dirty
+        restarted.config.networkNodes*.name == ['s1', 'g1', 'g2']
+        !journalFile.exists()
+
+        cleanup:
+        restarted.shutdown()
+    }
+
+    def "should clear journal when configuration is saved"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >> { editableConfig() }
+        instance.init()
+        instance.recordChange(JournalEntry.removeChild([0]))
+
+        when:
+        instance.saveIfDirty()
+
+        then:
+        !instance.dirty
+        !journalFile.exists()
+        1 * persistenceService.save(configFile, instance.config, _) >> { it[1] }
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), instance.config)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
+        0 * _._
+    }
+
+    def "should record changes without waiting for configuration save"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >> { editableConfig() }
+        instance.init()
+        instance.recordChange(JournalEntry.removeChild([0]))
+        def saved = instance.config
+        def recorded = null
+
+        when:
+        instance.saveIfDirty()
+
+        then: "change is recorded while file is written"
+        1 * persistenceService.save(configFile, saved, _) >> {
+            def thread = Thread.start { recorded = instance.recordChange(JournalEntry.removeChild([0])) }
+            thread.join(5000)
+            saved
+        }
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), saved)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
+        0 * _._
+        recorded == true
+        and: "change not saved in the file is saved again"
+        instance.dirty
+        instance.config.networkNodes*.name == ['g2']
+        !journalFile.exists()
+    }
+
+    def "should publish include nodes with fingerprint of written files"() {
+        setup:
+        configFile.text = '--- '
+        snapshotService.load(*_) >> null
+        def include = new IncludeNode('site', '', 'site.yml', [new Server('s2')], [])
+        persistenceService.load(configFile) >> new Configuration([new Server('s1'), include], [:])
+        instance.init()
+        instance.recordChange(JournalEntry.setFields([0], new Server('s1-renamed')))
+        def saved = instance.config
+        def written = include.withChildNodes(include.childNodes, FileFingerprint.of(configFile))
+
+        when:
+        instance.saveIfDirty()
+
+        then: "change is recorded while file is written"
+        1 * persistenceService.save(configFile, saved, _) >> {
+            instance.recordChange(JournalEntry.setFields([0], new Server('s1-changed')))
+            saved.withIncludes([include], [written])
+        }
+        instance.config.networkNodes*.name == ['s1-changed', 'site']
+        instance.config.networkNodes[1].is written
+        include.sourceFingerprint == null
+        instance.dirty
+    }
+
+    def "should save configuration file when change cannot be recorded in journal"() {
+        setup:
+        instance.init()
+        instance.dirty = false
+
+        when: "configuration file not loaded"
+        instance.recordChange(JournalEntry.addChild([0], new Server('s1')))
+
+        then:
+        instance.dirty
+        !journalFile.exists()
+        instance.@configChangeTimer.queue.size() == 2
+        0 * _._
+    }
+
+    def "should record configuration versions and restore selected one"() {
+        setup:
+        configFile.text = '--- # first'
+        snapshotService.load(*_) >> null
+        persistenceService.load(configFile) >>> [CONFIG, CONFIG_2]
+        instance.init()
+
+        when:
+        instance.dirty = true
+        instance.saveIfDirty()
+
+        then:
+        1 * persistenceService.save(configFile, CONFIG, _) >> {
+            configFile.text = '--- # second'
+            CONFIG
+        }
+        instance.history*.number == [1, 2]
+
+        when:
+        def restored = instance.restoreVersion(1)
+
+        then:
+        restored
+        configFile.text == '--- # first'
+        instance.config.is CONFIG_2
+        !instance.dirty
+        instance.history*.number == [1, 2, 3]
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+
+        when:
+        restored = instance.restoreVersion(99)
+
+        then:
+        !restored
+        configFile.text == '--- # first'
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == FAILED })
+    }
+
+    def "should load configuration from up to date snapshot"() {
+        setup:
+        configFile.text = '--- '
+
+        when:
+        instance.load()
+
+        then:
+        instance.config.is CONFIG
+        instance.lastLoadedChangeTs == configFile.lastModified()
+        !instance.dirty
+        1 * snapshotService.load(snapshotFile, FileFingerprint.of(configFile)) >> CONFIG
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+    }
+
+    def "should replace configuration with equivalent one only if not changed"() {
+        setup:
+        configFile.text = '--- '
+        def equivalent = new Configuration(CONFIG.networkNodes.collect(), CONFIG.modules)
+
+        when:
+        instance.load()
+
+        then:
+        1 * snapshotService.load(snapshotFile, FileFingerprint.of(configFile)) >> CONFIG
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        0 * _._
+
+        when:
+        def replaced = instance.replaceConfig(CONFIG_2, equivalent)
+
+        then:
+        !replaced
+        instance.config.is CONFIG
+        0 * _._
+
+        when:
+        replaced = instance.replaceConfig(CONFIG, equivalent)
+
+        then:
+        replaced
+        instance.config.is equivalent
+        !instance.dirty
+        0 * _._
+    }
+
+    def "should commit changed configuration only if not changed in meantime"() {
+        setup:
+        configFile.text = '--- '
+        persistenceService.load(configFile) >> CONFIG
+        instance.init()
+
+        when:
+        def committed = instance.commitChange(CONFIG_2, CONFIG)
+
+        then:
+        !committed
+        !instance.dirty
+        0 * persistenceService.save(*_)
+        0 * eventBus.post(_)
+
+        when:
+        committed = instance.commitChange(instance.config, CONFIG_2)
+
+        then:
+        committed
+        instance.config.is CONFIG_2
+        !instance.dirty
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK })
+        1 * persistenceService.save(configFile, CONFIG_2, _) >> CONFIG_2
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), CONFIG_2)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
+    }
+
     def "should handle minor errors on load"() {
         setup:
         configFile.text = '--- '
@@ -224,6 +951,7 @@ class ConfigurationManagerTest extends Specification {
         instance.config.is CONFIG
         instance.lastLoadedChangeTs == configFile.lastModified()
         !instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> {
             instance.handleConfigurationReadErrors(ERROR_1)
             CONFIG
@@ -233,6 +961,30 @@ class ConfigurationManagerTest extends Specification {
         0 * _._
     }
 
+    def "should summarize many errors on load"() {
+        setup:
+        configFile.text = '--- '
+        def reportFile = new File(appDirectory, 'it_toolbox-config-errors.log')
+
+        when:
+        instance.load()
+
+        then:
+        instance.config.is CONFIG
+        1 * snapshotService.load(snapshotFile, _) >> null
+        1 * persistenceService.load(configFile) >> {
+            10_000.times { instance.handleConfigurationReadErrors(new ConfigurationErrorEvent(INVALID_SERVICES_SECTION, "err $it")) }
+            CONFIG
+        }
+        1 * eventBus.post({ BlockingApplicationErrorEvent error ->
+            error.message.contains('err 4') && !error.message.contains('err 5') && error.message.contains(reportFile.toString()) && error.message.length() < 2000
+        } as BlockingApplicationErrorEvent)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == OK } as ConfigurationFileSyncEvent)
+        0 * _._
+        instance.loadErrors.isEmpty()
+        reportFile.readLines().size() == 10_000
+    }
+
     def "should handle minor errors on load - reject by user"() {
         setup:
         configFile.text = '--- '
@@ -246,6 +998,7 @@ class ConfigurationManagerTest extends Specification {
         instance.config.networkNodes.isEmpty()
         instance.lastLoadedChangeTs == 0L
         instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> {
             instance.handleConfigurationReadErrors(ERROR_1)
             CONFIG
@@ -268,6 +1021,7 @@ class ConfigurationManagerTest extends Specification {
         instance.config.networkNodes.isEmpty()
         instance.lastLoadedChangeTs != 0L
         !instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> {
             throw new InvalidConfigurationException('EX_UNREADABLE_CFG_FILE')
         }
@@ -289,6 +1043,7 @@ class ConfigurationManagerTest extends Specification {
         instance.config.networkNodes.isEmpty()
         instance.lastLoadedChangeTs != 0L
         instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> {
             throw new InvalidConfigurationException('EX_UNREADABLE_CFG_FILE')
         }
@@ -310,6 +1065,7 @@ class ConfigurationManagerTest extends Specification {
         instance.config.networkNodes.isEmpty()
         instance.lastLoadedChangeTs == 0L
         !instance.dirty
+        1 * snapshotService.load(snapshotFile, _) >> null
         1 * persistenceService.load(configFile) >> {
             throw new MissingConfigurationException('EX_MISSING_CFG_FILE', new IllegalStateException(), configFile)
         }
@@ -425,7 +1181,8 @@ class ConfigurationManagerTest extends Specification {
 
         then:
         !instance.dirty
-        1 * persistenceService.save(configFile, instance.config)
+        1 * persistenceService.save(configFile, instance.config, _) >> { it[1] }
+        1 * snapshotService.delete(snapshotFile)
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
         0 * _._
     }
@@ -440,7 +1197,23 @@ class ConfigurationManagerTest extends Specification {
 
         then:
         !instance.dirty
-        1 * persistenceService.save(configFile, instance.config)
+        1 * persistenceService.save(configFile, instance.config, _) >> { it[1] }
+        1 * snapshotService.save(snapshotFile, FileFingerprint.of(configFile), instance.config)
+        1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
+        0 * _._
+    }
+
+    def "should keep snapshot when saved content was not changed"() {
+        setup:
+        instance.init()
+        configFile.text = '--- '
+
+        when:
+        instance.saveIfDirty()
+
+        then:
+        !instance.dirty
+        1 * persistenceService.save(configFile, instance.config, _) >> null
         1 * eventBus.post({ ConfigurationFileSyncEvent ev -> ev.code == SAVED })
         0 * _._
     }
@@ -456,7 +1229,7 @@ class ConfigurationManagerTest extends Specification {
 
         then:
         instance.dirty
-        1 * persistenceService.save(configFile, instance.config) >> {
+        1 * persistenceService.save(configFile, instance.config, _) >> {
             throw new FailedConfigurationSaveException("EX_CONFIG_SAVE_ERROR", e, configFile, e.getLocalizedMessage())
         }
         1 * eventBus.post({ BlockingApplicationErrorEvent error -> error.errorCode == ErrorCode.SAVE_ERROR && !error.fatal })
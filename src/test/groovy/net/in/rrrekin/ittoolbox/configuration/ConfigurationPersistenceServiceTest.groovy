@@ -6,18 +6,25 @@ import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationExc
 import net.in.rrrekin.ittoolbox.configuration.exceptions.MissingConfigurationException
 import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
 import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNodeCompareTrait
 import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
 import net.in.rrrekin.ittoolbox.configuration.nodes.Server
 import net.in.rrrekin.ittoolbox.services.ServiceDefinition
 import net.in.rrrekin.ittoolbox.services.ServiceRegistry
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
 import net.in.rrrekin.ittoolbox.utilities.LocaleUtil
 import org.yaml.snakeyaml.Yaml
 import spock.lang.Specification
+import spock.lang.Unroll
 
 import java.util.stream.Stream
 
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.CANNOT_CREATE_NETWORK_NODE
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INCLUDE_FILE_UNREADABLE
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_MODULE_LIST
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_MODULE_OPTIONS
+import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_OBJECT_ON_DTO_LIST
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_SERVICES_SECTION
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.INVALID_SERVICE_CONFIGURATION
 import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.SERVER_LIST_UNREADABLE
@@ -25,7 +32,7 @@ import static net.in.rrrekin.ittoolbox.events.ConfigurationErrorEvent.Code.SERVE
 /**
  * @author michal.rudewicz@gmail.com
  */
-class ConfigurationPersistenceServiceTest extends Specification {
+class ConfigurationPersistenceServiceTest extends Specification implements NetworkNodeCompareTrait {
     static final SAMPLE_NODES = [
             new Server('s1', 'a1', '2018年1月1日 星期一 下午03时20分34秒', [:], []),
             new GenericNode('s2', 'd2', [p1: 'vvv1'], ['vlan:1001']),
@@ -80,6 +87,7 @@ class ConfigurationPersistenceServiceTest extends Specification {
     def NodeFactory nodeFactory = Mock()
 
     def service = new ConfigurationPersistenceService(serviceRegistry, nodeFactory, eventBus)
+    def streamingService = new ConfigurationPersistenceService(serviceRegistry, new NodeFactory(eventBus), eventBus)
 
     void cleanup() {
         // Reset locale to default
@@ -142,18 +150,66 @@ class ConfigurationPersistenceServiceTest extends Specification {
         0 * eventBus._
 
         when:
-        def configuration = service.load(file)
+        def configuration = streamingService.load(file)
 
         then:
-        1 * nodeFactory.createNodeList(SAMPLE_NODES_DTO, 'servers') >> SAMPLE_NODES
         1 * serviceRegistry.configureService('service1', 'service1 configuration')
         1 * serviceRegistry.configureService('service2', 'service2 configuration')
         0 * serviceRegistry._
-        0 * nodeFactory._
         0 * eventBus._
-        configuration.networkNodes == SAMPLE_NODES
+        equal(configuration.networkNodes, SAMPLE_NODES)
         configuration.modules == SAMPLE_MODULES
-        configuration == CONFIGURATION
+
+        cleanup:
+        file.delete()
+    }
+
+    def "should write the same text as dump of configuration DTO"() {
+        given:
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+        def dto = [version : '1.0',
+                   servers : SAMPLE_NODES_DTO,
+                   services: [service1: 'service1 configuration', service2: 'service2 configuration'] as HashMap,
+                   modules : SAMPLE_MODULES]
+
+        when:
+        service.save(file, CONFIGURATION)
+
+        then:
+        1 * serviceRegistry.stream() >> Stream.of(service1, service2)
+        file.getText('UTF-8') == new Yaml(service.@yamlOptions).dump(dto)
+
+        cleanup:
+        file.delete()
+    }
+
+    def "should not rewrite configuration file with unchanged content"() {
+        given:
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+
+        when:
+        def written = service.save(file, CONFIGURATION)
+        file.setLastModified(1500000000000)
+
+        then:
+        written
+
+        when:
+        written = service.save(file, new Configuration(SAMPLE_NODES.collect(), SAMPLE_MODULES))
+
+        then:
+        !written
+        file.lastModified() == 1500000000000
+
+        when:
+        written = service.save(file, new Configuration(SAMPLE_NODES.take(3), SAMPLE_MODULES))
+
+        then:
+        written
+        file.lastModified() != 1500000000000
+        equal(streamingService.load(file).networkNodes, SAMPLE_NODES.take(3))
+        file.parentFile.list().findAll { it.startsWith('.' + file.name) }.isEmpty()
 
         cleanup:
         file.delete()
@@ -213,6 +269,50 @@ class ConfigurationPersistenceServiceTest extends Specification {
         file.delete()
     }
 
+    def "should reject unknown configuration version before building nodes and applying locale"() {
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+        file.text = "locale: pl\nservers:\n  - 42\n  - {type: Router, name: r1}\nversion: 0.3\n"
+        def localeCode = LocaleUtil.localeCode
+
+        when:
+        streamingService.load(file)
+
+        then:
+        0 * eventBus._
+        thrown InvalidConfigurationException
+        LocaleUtil.localeCode == localeCode
+
+        when: "version comes first"
+        file.text = "version: 0.3\nlocale: pl\nservers:\n  - 42\n"
+        streamingService.load(file)
+
+        then:
+        0 * eventBus._
+        thrown InvalidConfigurationException
+        LocaleUtil.localeCode == localeCode
+
+        cleanup:
+        file.delete()
+    }
+
+    def "should build nodes listed before configuration version"() {
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+        file.text = "servers:\n  - {type: Server, name: s1, address: a1}\n  - 42\nversion: '1.0'\n"
+
+        when:
+        def config = streamingService.load(file)
+
+        then:
+        1 * eventBus.post({ it.code == INVALID_OBJECT_ON_DTO_LIST && it.message.contains('42') })
+        1 * eventBus.post({ it.code == INVALID_MODULE_LIST })
+        1 * eventBus.post({ it.code == INVALID_SERVICES_SECTION })
+        0 * eventBus._
+        equal(config.networkNodes, [new Server('s1', 'a1', '', [:], [])])
+
+        cleanup:
+        file.delete()
+    }
+
     def "should reject empty file"() {
         File file = File.createTempFile(this.class.simpleName + '_', '.yml')
         file.text = ''
@@ -354,10 +454,10 @@ class ConfigurationPersistenceServiceTest extends Specification {
         Locale.getDefault() == LocaleUtil.@systemLocale
 
         when: "read config file"
-        def newConfig = service.load(file)
+        def newConfig = streamingService.load(file)
 
         then:
-        1 * nodeFactory.createNodeList(SAMPLE_NODES_DTO, 'servers') >> SAMPLE_NODES
+        equal(newConfig.networkNodes, SAMPLE_NODES)
         0 * eventBus._
         LocaleUtil.localeCode == 'zh'
         Locale.getDefault() == Locale.CHINESE
@@ -366,4 +466,368 @@ class ConfigurationPersistenceServiceTest extends Specification {
         cleanup:
         file.delete()
     }
+
+    def "should stream nodes and report invalid entries"() {
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+        file.text = """\
+version: '1.0'
+servers:
+  - 42
+  - type: Server
+    name: s1
+    address: 10.0.0.1
+    port: 22
+    _cpus: 8
+    _ratio: 1.50
+    _active: yes
+  - type: Router
+    name: r1
+  - type: Group
+    name: g1
+    children:
+      - [a, b]
+      - type: GenericNode
+        name: n1
+        services: [vlan:10, 7]
+modules: {}
+services: {}
+"""
+
+        when:
+        def config = streamingService.load(file)
+
+        then:
+        1 * eventBus.post({ it.code == INVALID_OBJECT_ON_DTO_LIST && it.message.contains('servers') && it.message.contains('42') })
+        1 * eventBus.post({ it.code == CANNOT_CREATE_NETWORK_NODE && it.message.contains('servers') && it.message.contains('Router') })
+        1 * eventBus.post({ it.code == INVALID_OBJECT_ON_DTO_LIST && it.message.contains('servers/g1') && it.message.contains('[a, b]') })
+        0 * eventBus._
+        equal(config.networkNodes, [
+                new Server('s1', '10.0.0.1', '', [cpus: '8', ratio: '1.5', active: 'true'], []),
+                new GroupingNode('g1', '', [new GenericNode('n1', '', [:], ['vlan:10', '7'])], []),
+        ])
+
+        cleanup:
+        file.delete()
+    }
+
+    def "should reject multi document and aliased node files"() {
+        File file = File.createTempFile(this.class.simpleName + '_', '.yml')
+
+        when:
+        file.text = "version: '1.0'\n---\nversion: '1.0'\n"
+        streamingService.load(file)
+
+        then:
+        thrown InvalidConfigurationException
+
+        when:
+        file.text = "version: '1.0'\nservers:\n  - &s {type: Server, name: s}\n  - *s\n"
+        streamingService.load(file)
+
+        then:
+        thrown InvalidConfigurationException
+
+        cleanup:
+        file.delete()
+    }
+
+    def "should read nodes from included files"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config.yml')
+        new File(dir, 'sites').mkdirs()
+        new File(dir, 'sites/a.yml').text = """\
+- type: Server
+  name: a1
+- 42
+"""
+        new File(dir, 'b.yml').text = "- {type: GenericNode, name: b1}\n- {type: Router, name: r1}\n"
+        file.text = """\
+version: '1.0'
+servers:
+  - type: Include
+    name: Site A
+    file: sites/a.yml
+  - type: Group
+    name: g1
+    children:
+      - {type: Include, name: Site B, file: b.yml, services: [ssh]}
+      - {type: Include, name: Missing, file: missing.yml}
+modules: {}
+services: {}
+"""
+
+        when:
+        def config = streamingService.load(file)
+
+        then: 'errors are reported in order of include nodes'
+        1 * eventBus.post({ it.code == INVALID_OBJECT_ON_DTO_LIST && it.message.contains('sites/a.yml') && it.message.contains('42') })
+
+        then:
+        1 * eventBus.post({ it.code == CANNOT_CREATE_NETWORK_NODE && it.message.contains('b.yml') && it.message.contains('Router') })
+
+        then:
+        1 * eventBus.post({ it.code == INCLUDE_FILE_UNREADABLE && it.message.contains('missing.yml') })
+        0 * eventBus._
+        equal(config.networkNodes, [
+                new IncludeNode('Site A', '', 'sites/a.yml', [new Server('a1', '', '', [:], [])], []),
+                new GroupingNode('g1', '', [
+                        new IncludeNode('Site B', '', 'b.yml', [new GenericNode('b1', '', [:], [])], ['ssh']),
+                        new IncludeNode('Missing', '', 'missing.yml', [], []),
+                ], []),
+        ])
+        (config.networkNodes[0] as IncludeNode).sourceFingerprint == FileFingerprint.of(new File(dir, 'sites/a.yml'))
+        (config.networkNodes[1].childNodes[1] as IncludeNode).sourceFingerprint == null
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    def "should write nodes to included files"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config.yml')
+        File includedFile = new File(dir, 'sites/a.yml')
+        includedFile.parentFile.mkdirs()
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+        def include = new IncludeNode('Site A', 'd', 'sites/a.yml', [new Server('a1', 'a', 'd1', [:], ['ssh'])], [])
+        def config = new Configuration([new Server('s1', 'a', 'd', [:], []), new GroupingNode('g1', '', [include], [])], SAMPLE_MODULES)
+
+        when:
+        def saved = service.save(file, config, null)
+
+        then: 'written include node is published with fingerprint of the file'
+        saved != null
+        file.text.contains('sites/a.yml')
+        !file.text.contains('a1')
+        includedFile.text.contains('a1')
+        saved.networkNodes[1].childNodes[0].sourceFingerprint == FileFingerprint.of(includedFile)
+        include.sourceFingerprint == null
+        equal(streamingService.load(file).networkNodes, config.networkNodes)
+
+        when:
+        def savedAgain = service.save(file, saved, null)
+
+        then:
+        savedAgain == null
+
+        when: 'only nodes of included file are changed'
+        def configText = file.text
+        def savedInclude = saved.networkNodes[1].childNodes[0]
+        def changed = saved.withIncludes([savedInclude], [savedInclude.withChildNodes(savedInclude.childNodes + new GenericNode('a2', '', [:], []))])
+        saved = service.save(file, changed, null)
+
+        then:
+        saved != null
+        file.text == configText
+        saved.networkNodes[1].childNodes[0].sourceFingerprint == FileFingerprint.of(includedFile)
+        equal(streamingService.load(file).networkNodes, changed.networkNodes)
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    def "should not overwrite included file that was not read"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config.yml')
+        File includedFile = new File(dir, 'broken.yml')
+        includedFile.text = 'broken: ['
+        file.text = "version: '1.0'\nservers:\n  - {type: Include, name: Broken, file: broken.yml}\n"
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+
+        when:
+        def config = streamingService.load(file)
+        service.save(file, config)
+
+        then:
+        1 * eventBus.post({ it.code == INCLUDE_FILE_UNREADABLE && it.message.contains('broken.yml') })
+        includedFile.text == 'broken: ['
+        file.text.contains('broken.yml')
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    def "should not read nor write nodes of remote inventory"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config.yml')
+        file.text = "version: '1.0'\nservers:\n  - {type: Include, name: Remote, file: 'https://inventory.example.com/nodes.yml'}\n"
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+
+        when:
+        def config = streamingService.load(file)
+        def include = config.networkNodes[0] as IncludeNode
+
+        then:
+        0 * eventBus._
+        include.file == 'https://inventory.example.com/nodes.yml'
+        include.childNodes.isEmpty()
+        include.sourceFingerprint == null
+
+        when:
+        streamingService.save(file, config.withIncludes([include], [include.withChildNodes([new Server('remote1', 'a1', 'd1', [:], [])])]))
+
+        then:
+        dir.list() as List == ['config.yml']
+        file.text.contains('https://inventory.example.com/nodes.yml')
+        !file.text.contains('remote1')
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    @Unroll
+    def "should read nodes of remote inventory from #url"() {
+        when:
+        def nodes = streamingService.readRemoteNodes(new URL(url), new ByteArrayInputStream(content.getBytes('UTF-8')))
+
+        then: "invalid nodes are skipped without posting configuration errors"
+        0 * eventBus._
+        equal(nodes, [new Server('s1', 'a1', '', [:], []), new GroupingNode('g1', '', [], [])])
+
+        where:
+        url                               | content
+        'http://host/nodes.yml'           | "- {type: Server, name: s1, address: a1}\n- 42\n- {type: Group, name: g1}\n"
+        'http://host/config.yml?site=abc' | "version: '1.0'\nservers:\n  - {type: Server, name: s1, address: a1}\n  - {type: Group, name: g1}\nmodules: {}\n"
+        'https://host/nodes.json'         | '[{"type": "Server", "name": "s1", "address": "a1"}, {"type": "Router"}, {"type": "Group", "name": "g1"}]'
+    }
+
+    def "should reject remote inventory without list of nodes"() {
+        when:
+        streamingService.readRemoteNodes(new URL('http://host/nodes.yml'), new ByteArrayInputStream(content.bytes))
+
+        then:
+        thrown IOException
+
+        where:
+        content << ['just text', 'servers: not a list', '- [unclosed', 'modules: {}']
+    }
+
+    def "should convert configuration between YAML file and node store"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File yamlFile = new File(dir, 'config.yml')
+        File storeFile = new File(dir, 'config.nodes')
+        File exportedFile = new File(dir, 'exported.yml')
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+        service.save(yamlFile, CONFIGURATION)
+
+        when:
+        def written = streamingService.convert(yamlFile, storeFile)
+        def storeConfig = streamingService.load(storeFile)
+
+        then:
+        written
+        2 * serviceRegistry.configureService('service1', 'service1 configuration')
+        2 * serviceRegistry.configureService('service2', 'service2 configuration')
+        0 * eventBus._
+        equal(storeConfig.networkNodes, SAMPLE_NODES)
+        storeConfig.modules == SAMPLE_MODULES
+        streamingService.getNodeStore(storeFile).findByName('s10')*.is(storeConfig.networkNodes[3].childNodes[1].childNodes[1]) == [true]
+
+        when: "unchanged configuration is saved again"
+        written = streamingService.save(storeFile, storeConfig)
+
+        then:
+        !written
+
+        when:
+        streamingService.convert(storeFile, exportedFile)
+
+        then:
+        new Yaml().load(exportedFile.text) == new Yaml().load(yamlFile.text)
+
+        cleanup:
+        dir.deleteDir()
+    }
+
+    @Unroll
+    def "should save and load configuration in '#extension' file"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config' + extension)
+        File yamlFile = new File(dir, 'config.yml')
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+
+        when:
+        def written = service.save(file, CONFIGURATION)
+        def configuration = streamingService.load(file)
+
+        then:
+        written
+        1 * serviceRegistry.configureService('service1', 'service1 configuration')
+        1 * serviceRegistry.configureService('service2', 'service2 configuration')
+        0 * eventBus._
+        equal(configuration.networkNodes, SAMPLE_NODES)
+        configuration.modules == SAMPLE_MODULES
+
+        when: "configuration is saved again"
+        written = service.save(file, configuration)
+
+        then:
+        !written
+
+        when:
+        streamingService.convert(file, yamlFile)
+
+        then:
+        new Yaml().load(yamlFile.text) == new Yaml().load(SAMPLE_CONFIG_FILE.text)
+
+        cleanup:
+        dir.deleteDir()
+
+        where:
+        extension << ['.json', '.cbor', '.yml.gz', '.JSON.GZ']
+    }
+
+    @Unroll
+    def "should load large '#extension' file the same way as small one"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File file = new File(dir, 'config' + extension)
+        def nodes = (1..20_000).collect {
+            new Server("server-$it", "10.0.${it >> 8}.${it & 255}", "Serwer zażółć $it 星期一", [os: 'linux'], ['ssh'])
+        }
+        serviceRegistry.stream() >> { Stream.of(service1, service2) }
+        service.save(file, new Configuration(nodes, SAMPLE_MODULES))
+
+        when:
+        def configuration = streamingService.load(file)
+
+        then:
+        file.length() >= ConfigurationPersistenceService.MAPPED_READ_MIN_SIZE
+        0 * eventBus._
+        equal(configuration.networkNodes, nodes)
+        configuration.modules == SAMPLE_MODULES
+
+        cleanup:
+        dir.deleteDir()
+
+        where:
+        extension << ['.yml', '.json']
+    }
+
+    def "should report missing or invalid node store"() {
+        given:
+        File dir = File.createTempDir(this.class.simpleName + '_', '')
+        File storeFile = new File(dir, 'config.nodes')
+
+        when:
+        service.load(storeFile)
+
+        then:
+        thrown MissingConfigurationException
+
+        when:
+        storeFile.text = 'not a node store'
+        service.load(storeFile)
+
+        then:
+        thrown InvalidConfigurationException
+
+        cleanup:
+        dir.deleteDir()
+    }
 }
@@ -1,6 +1,9 @@
 package net.in.rrrekin.ittoolbox.configuration
 
 
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
 import spock.lang.Specification
 /**
  * @author michal.rudewicz@gmail.com
@@ -19,4 +22,36 @@ class ConfigurationTest extends Specification {
         thrown NullPointerException
     }
 
+    def "should replace include nodes and copy only groups on their path"() {
+        given:
+        def server = new Server('s1')
+        def include1 = new IncludeNode('i1', '', 'i1.yml', [new Server('old1')], [])
+        def include2 = new IncludeNode('i2', '', 'i2.yml', [new Server('old2')], [])
+        def untouchedGroup = new GroupingNode('g1', 'd1', [include1], ['ssh'])
+        def changedGroup = new GroupingNode('g2', 'd2', [new Server('s2'), include2], ['http'])
+        def config = new Configuration([server, untouchedGroup, changedGroup], [a: [b: 'c']])
+        def newInclude2 = include2.withChildNodes([new Server('new2')], null)
+
+        when:
+        def newConfig = config.withIncludes([include2], [newInclude2])
+
+        then:
+        newConfig.modules.is config.modules
+        newConfig.networkNodes.size() == 3
+        newConfig.networkNodes[0].is server
+        newConfig.networkNodes[1].is untouchedGroup
+        with(newConfig.networkNodes[2] as GroupingNode) {
+            !it.is(changedGroup)
+            name == 'g2'
+            description == 'd2'
+            serviceDescriptors == ['http']
+            childNodes[0].is changedGroup.childNodes[0]
+            childNodes[1].is newInclude2
+        }
+
+        and: 'old configuration is not changed'
+        config.networkNodes == [server, untouchedGroup, changedGroup]
+        changedGroup.childNodes[1].is include2
+        include2.childNodes*.name == ['old2']
+    }
 }
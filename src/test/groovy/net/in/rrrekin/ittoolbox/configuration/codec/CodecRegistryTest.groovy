@@ -0,0 +1,62 @@
+package net.in.rrrekin.ittoolbox.configuration.codec
+
+import org.yaml.snakeyaml.DumperOptions
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class CodecRegistryTest extends Specification {
+
+  def yaml = new YamlCodec(new DumperOptions())
+  def json = JacksonCodec.json()
+  def cbor = JacksonCodec.cbor()
+  def instance = new CodecRegistry(yaml, json, cbor)
+
+  def "should validate arguments"() {
+    when:
+    new CodecRegistry(null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.forFile(null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  @Unroll
+  def "should select codec of '#name'"() {
+    expect:
+    instance.forFile(new File('dir', name)).is(this."$codec")
+
+    where:
+    name            | codec
+    'config.yml'    | 'yaml'
+    'config.yaml'   | 'yaml'
+    'config.json'   | 'json'
+    'CONFIG.JSON'   | 'json'
+    'config.cbor'   | 'cbor'
+    'config.txt'    | 'yaml'
+    'json'          | 'yaml'
+  }
+
+  @Unroll
+  def "should select compressed codec of '#name'"() {
+    when:
+    def codec = instance.forFile(new File(name))
+
+    then:
+    codec instanceof GzipCodec
+    codec.extensions == extensions
+
+    where:
+    name             | extensions
+    'config.json.gz' | ['.json.gz']
+    'config.cbor.gz' | ['.cbor.gz']
+    'config.gz'      | ['.yml.gz', '.yaml.gz']
+  }
+}
@@ -0,0 +1,158 @@
+package net.in.rrrekin.ittoolbox.configuration.codec
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class JacksonCodecTest extends Specification {
+
+  static final DOCUMENT = [
+      version : '1.0',
+      servers : [[type: 'Server', name: 'zażółć', services: ['ssh', 'http:8080']], [type: 'Group', children: []]],
+      modules : [ping: [command: 'ping'], empty: [:]],
+      settings: [number: '42', flag: 'true'],
+  ]
+
+  static byte[] write(ConfigurationCodec codec, Object value) {
+    def output = new ByteArrayOutputStream()
+    codec.openWriter(output).withCloseable { writer ->
+      writer.startDocument()
+      writeValue(writer, value)
+      writer.endDocument()
+    }
+    return output.toByteArray()
+  }
+
+  static void writeValue(DocumentWriter writer, Object value) {
+    if (value instanceof Map) {
+      writer.startMapping()
+      value.each { key, element ->
+        writeValue(writer, key)
+        writeValue(writer, element)
+      }
+      writer.endMapping()
+    } else if (value instanceof List) {
+      writer.startSequence()
+      value.each { writeValue(writer, it) }
+      writer.endSequence()
+    } else {
+      writer.writeScalar(value as String)
+    }
+  }
+
+  static Object read(ConfigurationCodec codec, byte[] content) {
+    return read(codec.openReader(new ByteArrayInputStream(content)))
+  }
+
+  static Object read(DocumentReader reader) {
+    assert reader.readDocumentStart()
+    def value = reader.readValue()
+    reader.readDocumentEnd()
+    return value
+  }
+
+  @Unroll
+  def "should write and read document with #codec.extensions codec"() {
+    when:
+    def content = write(codec, DOCUMENT)
+
+    then:
+    read(codec, content) == DOCUMENT
+
+    where:
+    codec << [JacksonCodec.json(), JacksonCodec.cbor(), new GzipCodec(JacksonCodec.cbor())]
+  }
+
+  @Unroll
+  def "should read document from buffer with #codec.extensions codec"() {
+    given:
+    def content = write(codec, DOCUMENT)
+    def padded = ByteBuffer.wrap(([1, 2] as byte[]) + content + ([3] as byte[]))
+    padded.position(2).limit(2 + content.length)
+
+    expect:
+    read(codec.openReader(padded.slice())) == DOCUMENT
+    read(codec.openReader(Utf8BufferReaderTest.direct(content))) == DOCUMENT
+
+    where:
+    codec << [JacksonCodec.json(), JacksonCodec.cbor()]
+  }
+
+  def "should write compact JSON"() {
+    expect:
+    new String(write(JacksonCodec.json(), [a: ['x', '1'], b: [:]]), 'UTF-8') == '{"a":["x","1"],"b":{}}'
+  }
+
+  def "should navigate and skip values"() {
+    given:
+    def instance = JacksonCodec.json().openReader(new ByteArrayInputStream(
+        '{"skipped": {"a": [1, 2, {"b": "c"}]}, "list": ["x", "y"], "last": "z"}'.getBytes('UTF-8')))
+
+    expect:
+    instance.readDocumentStart()
+    instance.isMappingStart()
+
+    when:
+    instance.readMappingStart()
+    def key1 = instance.readString()
+    instance.skipValue()
+    def key2 = instance.readString()
+    def isSequence = instance.isSequenceStart()
+    instance.readSequenceStart()
+    def elements = []
+    while (!instance.isSequenceEnd()) {
+      elements << instance.readString()
+    }
+    instance.readSequenceEnd()
+    def key3 = instance.readString()
+    def scalar = instance.isScalar()
+    def value3 = instance.readString()
+    def mappingEnd = instance.isMappingEnd()
+    instance.readMappingEnd()
+    instance.readDocumentEnd()
+
+    then:
+    key1 == 'skipped'
+    key2 == 'list'
+    isSequence
+    elements == ['x', 'y']
+    key3 == 'last'
+    scalar
+    value3 == 'z'
+    mappingEnd
+  }
+
+  def "should report empty document"() {
+    expect:
+    !JacksonCodec.json().openReader(new ByteArrayInputStream(new byte[0])).readDocumentStart()
+  }
+
+  @Unroll
+  def "should reject invalid document '#text'"() {
+    given:
+    def reader = JacksonCodec.json().openReader(new ByteArrayInputStream(text.getBytes('UTF-8')))
+
+    when:
+    reader.readDocumentStart()
+    reader.readValue()
+    reader.readDocumentEnd()
+
+    then:
+    thrown CodecException
+
+    where:
+    text << ['{"a": ', '[1, 2', '{"a": 1} {"b": 2}', '{"a" 1}']
+  }
+
+  def "should reject mapping key that is not a scalar"() {
+    when:
+    write(JacksonCodec.json(), [(['a']): 'b'])
+
+    then:
+    thrown IOException
+  }
+}
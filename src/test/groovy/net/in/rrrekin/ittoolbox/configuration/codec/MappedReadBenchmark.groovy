@@ -0,0 +1,79 @@
+package net.in.rrrekin.ittoolbox.configuration.codec
+
+import org.yaml.snakeyaml.DumperOptions
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.channels.FileChannel
+
+/**
+ * Compares time of reading configuration files of various sizes as buffered streams and as
+ * memory-mapped buffers decoded in bulk. Skipped unless started with {@code -Dbenchmark=true}.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+@Requires({ Boolean.getBoolean('benchmark') })
+class MappedReadBenchmark extends Specification {
+
+  static final NODE_COUNTS = [20, 500, 8_000, 250_000]
+  static final ROUNDS = 5
+
+  static File generateFile(int nodeCount) {
+    def file = File.createTempFile('benchmark_', '.yml')
+    file.deleteOnExit()
+    file.withWriter('UTF-8') { writer ->
+      writer << "version: '1.0'\nservers:\n"
+      nodeCount.times {
+        writer << "  - type: Server\n    name: server-$it\n    address: 10.0.${it >> 8 & 255}.${it & 255}\n" +
+            "    description: Serwer zażółć $it\n    services:\n      - ssh\n      - https:port=8443\n    _os: linux\n"
+      }
+    }
+    return file
+  }
+
+  static int readNodes(DocumentReader reader) {
+    assert reader.readDocumentStart()
+    def count = (reader.readValue() as Map).servers.size()
+    reader.readDocumentEnd()
+    return count
+  }
+
+  static int readStream(ConfigurationCodec codec, File file) {
+    return new BufferedInputStream(new FileInputStream(file)).withCloseable { readNodes(codec.openReader(it)) }
+  }
+
+  static int readMapped(ConfigurationCodec codec, File file) {
+    return new FileInputStream(file).withCloseable {
+      def channel = it.channel
+      readNodes(codec.openReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())))
+    }
+  }
+
+  /** Returns the best of several runs in microseconds, to reduce influence of JIT and GC. */
+  static long bestTime(int repeat, Closure<Integer> read) {
+    long best = Long.MAX_VALUE
+    ROUNDS.times {
+      long start = System.nanoTime()
+      repeat.times { read() }
+      best = Math.min(best, (System.nanoTime() - start).intdiv(1000 * repeat))
+    }
+    return best
+  }
+
+  def "should read files through stream and memory mapping"() {
+    given:
+    def codec = new YamlCodec(new DumperOptions())
+
+    expect:
+    NODE_COUNTS.each { nodeCount ->
+      def file = generateFile(nodeCount)
+      int repeat = Math.max(1, 20_000.intdiv(nodeCount))
+      assert readStream(codec, file) == nodeCount
+      assert readMapped(codec, file) == nodeCount
+      long stream = bestTime(repeat) { readStream(codec, file) }
+      long mapped = bestTime(repeat) { readMapped(codec, file) }
+      println "${file.length()} B: stream $stream us, mapped $mapped us"
+      file.delete()
+    }
+  }
+}
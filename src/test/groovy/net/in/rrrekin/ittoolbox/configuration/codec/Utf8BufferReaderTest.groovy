@@ -0,0 +1,102 @@
+package net.in.rrrekin.ittoolbox.configuration.codec
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+import java.nio.charset.MalformedInputException
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class Utf8BufferReaderTest extends Specification {
+
+  static final TEXT = 'version: 1.0\nzażółć gęślą jaźń 星期一 😀😁 end' * 5000
+
+  static ByteBuffer direct(byte[] bytes) {
+    def buffer = ByteBuffer.allocateDirect(bytes.length)
+    buffer.put(bytes)
+    buffer.flip()
+    return buffer
+  }
+
+  static String readAll(Reader reader, int chunkSize) {
+    def text = new StringBuilder()
+    def chunk = new char[chunkSize]
+    int count
+    while ((count = reader.read(chunk, 0, chunkSize)) >= 0) {
+      assert count > 0
+      text.append(chunk, 0, count)
+    }
+    return text.toString()
+  }
+
+  @Unroll
+  def "should decode #kind buffer read in chunks of #chunkSize chars"() {
+    given:
+    def bytes = TEXT.getBytes('UTF-8')
+    def buffer = kind == 'heap' ? ByteBuffer.wrap(bytes) : direct(bytes)
+
+    when:
+    def text = readAll(new Utf8BufferReader(buffer), chunkSize)
+
+    then:
+    text == TEXT
+    buffer.position() == 0
+
+    where:
+    [kind, chunkSize] << [['heap', 'direct'], [1, 2, 3, 1024, 100_000]].combinations()
+  }
+
+  def "should decode from buffer position to its limit"() {
+    given:
+    def buffer = ByteBuffer.wrap('skipped-zażółć-skipped'.getBytes('UTF-8'))
+    buffer.position(8).limit(buffer.limit() - 8)
+
+    expect:
+    readAll(new Utf8BufferReader(buffer), 16) == 'zażółć'
+  }
+
+  def "should read single chars"() {
+    given:
+    def instance = new Utf8BufferReader(ByteBuffer.wrap('ż😀'.getBytes('UTF-8')))
+
+    expect:
+    instance.ready()
+    instance.read() == 'ż' as char
+    instance.read() == 0xD83D
+    instance.read() == 0xDE00
+    instance.read() == -1
+    !instance.ready()
+    instance.read(new char[0], 0, 0) == 0
+  }
+
+  @Unroll
+  def "should reject malformed #kind input"() {
+    given:
+    def bytes = ('a' * 100_000).getBytes('UTF-8') + ([0xC3, 0x28] as byte[])
+
+    when:
+    readAll(new Utf8BufferReader(kind == 'heap' ? ByteBuffer.wrap(bytes) : direct(bytes)), 1024)
+
+    then:
+    thrown MalformedInputException
+
+    where:
+    kind << ['heap', 'direct']
+  }
+
+  def "should validate arguments"() {
+    when:
+    new Utf8BufferReader(null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    new Utf8BufferReader(ByteBuffer.allocate(4)).read(new char[4], 2, 3)
+
+    then:
+    thrown IndexOutOfBoundsException
+  }
+}
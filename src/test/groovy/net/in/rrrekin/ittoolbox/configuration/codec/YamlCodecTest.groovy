@@ -0,0 +1,53 @@
+package net.in.rrrekin.ittoolbox.configuration.codec
+
+import org.yaml.snakeyaml.DumperOptions
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class YamlCodecTest extends Specification {
+
+  static final DOCUMENT = [
+      version : '1.0',
+      servers : [[type: 'Server', name: 'zażółć 星期一', services: ['ssh', 'http:8080']]],
+      settings: [number: 42, flag: true, none: null],
+  ]
+
+  def instance = new YamlCodec(new DumperOptions())
+
+  @Unroll
+  def "should read the same document from stream and #kind buffer in #charset"() {
+    given:
+    def content = JacksonCodecTest.write(instance, DOCUMENT)
+    def text = new String(content, 'UTF-8')
+    def bytes = (bom + text).getBytes(charset)
+    def buffer = kind == 'heap' ? ByteBuffer.wrap(bytes) : Utf8BufferReaderTest.direct(bytes)
+
+    expect:
+    JacksonCodecTest.read(instance.openReader(new ByteArrayInputStream(bytes))) == DOCUMENT
+    JacksonCodecTest.read(instance.openReader(buffer)) == DOCUMENT
+    buffer.position() == 0
+
+    where:
+    kind     | charset    | bom
+    'heap'   | 'UTF-8'    | ''
+    'direct' | 'UTF-8'    | ''
+    'heap'   | 'UTF-8'    | '\uFEFF'
+    'direct' | 'UTF-8'    | '\uFEFF'
+    'heap'   | 'UTF-16BE' | '\uFEFF'
+    'direct' | 'UTF-16LE' | '\uFEFF'
+  }
+
+  def "should read buffer through codec that reads streams only"() {
+    given:
+    def codec = new GzipCodec(instance)
+    def content = JacksonCodecTest.write(codec, DOCUMENT)
+
+    expect:
+    JacksonCodecTest.read(codec.openReader(Utf8BufferReaderTest.direct(content))) == DOCUMENT
+  }
+}
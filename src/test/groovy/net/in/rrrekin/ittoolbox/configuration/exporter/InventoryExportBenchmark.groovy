@@ -0,0 +1,55 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter
+
+import com.google.common.eventbus.EventBus
+import net.in.rrrekin.ittoolbox.configuration.ConfigurationPersistenceService
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
+import net.in.rrrekin.ittoolbox.services.ServiceRegistry
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static net.in.rrrekin.ittoolbox.configuration.snapshot.ConfigurationSnapshotBenchmark.bestOf
+import static net.in.rrrekin.ittoolbox.configuration.snapshot.ConfigurationSnapshotBenchmark.generateConfiguration
+
+/**
+ * Compares export of nodes with saving configuration as YAML file. Skipped unless started with
+ * {@code -Dbenchmark=true}.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+@Requires({ Boolean.getBoolean('benchmark') })
+class InventoryExportBenchmark extends Specification {
+
+    static final int NODE_COUNT = 100_000
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def eventBus = new EventBus()
+    def persistenceService = new ConfigurationPersistenceService(new ServiceRegistry(), new NodeFactory(eventBus), eventBus)
+    def exporter = new InventoryExporter()
+
+    @Unroll
+    def "should export #NODE_COUNT nodes as #format faster than configuration is saved"() {
+        given:
+        def configuration = generateConfiguration(NODE_COUNT)
+        def configFile = temporaryFolder.newFile('config.yml')
+        def exportFile = new File(temporaryFolder.root, 'export' + format.extension)
+
+        when:
+        def yamlSave = bestOf { persistenceService.save(configFile, configuration) }
+        def export = bestOf { exporter.export(configuration, format, exportFile) }
+        println "$NODE_COUNT nodes: YAML ${configFile.length()} B, save $yamlSave ms; " +
+                "$format ${exportFile.length()} B, export $export ms, " +
+                "${export > 0 ? NODE_COUNT.intdiv(export) : '-'} nodes/ms"
+
+        then:
+        exporter.export(configuration, format, exportFile) == NODE_COUNT
+        export < yamlSave
+
+        where:
+        format << ExportFormat.values()
+    }
+}
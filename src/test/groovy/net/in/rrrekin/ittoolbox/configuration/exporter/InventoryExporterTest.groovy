@@ -0,0 +1,155 @@
+package net.in.rrrekin.ittoolbox.configuration.exporter
+
+import groovy.json.JsonSlurper
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.importer.InventoryFormat
+import net.in.rrrekin.ittoolbox.configuration.importer.InventoryHost
+import net.in.rrrekin.ittoolbox.configuration.importer.InventoryParser
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class InventoryExporterTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    InventoryExporter instance = new InventoryExporter()
+    Configuration configuration = new Configuration([
+            new Server('gw', '10.0.0.1', 'Gateway', [:], ['ssh']),
+            new GroupingNode('dc-1', 'Data center', [
+                    new GroupingNode('web', '', [
+                            new Server('web1', '10.0.1.1', 'Web, "primary"', [owner: 'ops', 'rack id': 'r1'], ['ssh', 'https:8443']),
+                    ], []),
+                    new GenericNode('switch 1', 'Core switch', [owner: 'net team'], []),
+            ], ['ping']),
+            new IncludeNode('inc', '', 'site.yml', [new Server('remote', 'r.example.com', '', [:], [])], []),
+    ], [:])
+
+    String export(ExportFormat format) {
+        def output = new StringWriter()
+        def count = instance.export(configuration, format.newWriter(output))
+        assert count == 4
+        return output.toString()
+    }
+
+    List<InventoryHost> parse(InventoryFormat format, String text) {
+        List<InventoryHost> hosts = []
+        format.newParser().parse(new StringReader(text), new InventoryParser.Handler() {
+            @Override
+            void host(InventoryHost host) {
+                hosts << host
+            }
+
+            @Override
+            void invalidEntry(String description) {
+                throw new AssertionError(description)
+            }
+        })
+        return hosts
+    }
+
+    def "should validate arguments"() {
+        when:
+        instance.export(null, ExportFormat.CSV.newWriter(new StringWriter()))
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.export(configuration, null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.export(configuration, ExportFormat.CSV, null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should export nodes as CSV"() {
+        when:
+        def csv = export(ExportFormat.CSV)
+
+        then:
+        csv == 'name,address,description,group,services,_owner,_rack id\r\n' +
+                'gw,10.0.0.1,Gateway,,ssh,,\r\n' +
+                'web1,10.0.1.1,"Web, ""primary""",dc-1/web,ssh;https:8443,ops,r1\r\n' +
+                'switch 1,,Core switch,dc-1,,net team,\r\n' +
+                'remote,r.example.com,,inc,,,\r\n'
+
+        and: "exported file can be imported"
+        parse(InventoryFormat.CSV, csv) == [
+                new InventoryHost('gw', '10.0.0.1', 'Gateway', null, [:], ['ssh']),
+                new InventoryHost('web1', '10.0.1.1', 'Web, "primary"', 'dc-1/web', [owner: 'ops', 'rack id': 'r1'], ['ssh', 'https:8443']),
+                new InventoryHost('switch 1', null, 'Core switch', 'dc-1', [owner: 'net team'], []),
+                new InventoryHost('remote', 'r.example.com', '', 'inc', [:], []),
+        ]
+    }
+
+    def "should export nodes as JSON lines"() {
+        when:
+        def lines = export(ExportFormat.JSON_LINES).readLines()
+        def json = new JsonSlurper()
+
+        then:
+        lines.size() == 4
+        json.parseText(lines[0]) == [type: 'Server', name: 'gw', address: '10.0.0.1', description: 'Gateway', group: '', services: ['ssh']]
+        json.parseText(lines[1]) == [type: 'Server', name: 'web1', address: '10.0.1.1', description: 'Web, "primary"',
+                                     group: 'dc-1/web', services: ['ssh', 'https:8443'], _owner: 'ops', '_rack id': 'r1']
+        json.parseText(lines[2]) == [type: 'GenericNode', name: 'switch 1', description: 'Core switch', group: 'dc-1', services: [], _owner: 'net team']
+        json.parseText(lines[3]).group == 'inc'
+    }
+
+    def "should export nodes as Ansible inventory"() {
+        when:
+        def inventory = export(ExportFormat.ANSIBLE_INI)
+
+        then:
+        inventory == '''gw ansible_host=10.0.0.1 description=Gateway
+[dc_1_web]
+web1 ansible_host=10.0.1.1 description='Web, "primary"' owner=ops rack_id=r1
+[dc_1]
+switch_1 description='Core switch' owner='net team'
+[inc]
+remote ansible_host=r.example.com
+'''
+
+        and: "exported file can be imported"
+        parse(InventoryFormat.ANSIBLE_INI, inventory)*.address == ['10.0.0.1', '10.0.1.1', 'switch_1', 'r.example.com']
+        parse(InventoryFormat.ANSIBLE_INI, inventory)*.group == [null, 'dc_1_web', 'dc_1', 'inc']
+    }
+
+    def "should put top level nodes written after groups in ungrouped section"() {
+        given:
+        configuration = new Configuration(configuration.networkNodes + new GenericNode('last', '', [:], []), [:])
+
+        when:
+        def inventory = export(ExportFormat.ANSIBLE_INI)
+
+        then:
+        inventory.endsWith('[ungrouped]\nlast\n')
+    }
+
+    def "should export to file"() {
+        given:
+        def file = new File(temporaryFolder.root, 'export.csv')
+
+        when:
+        def count = instance.export(configuration, ExportFormat.CSV, file)
+
+        then:
+        count == 4
+        file.readLines('UTF-8').size() == 5
+        temporaryFolder.root.list() as List == ['export.csv']
+    }
+}
@@ -0,0 +1,157 @@
+package net.in.rrrekin.ittoolbox.configuration.history
+
+import com.google.common.hash.Hashing
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class ConfigurationHistoryTest extends Specification {
+
+    static final String TEXT = (0..<2000).collect { "- name: server-$it\n  address: 10.0.${it % 255}.1\n" }.join()
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    File historyFile
+    ConfigurationHistory instance
+
+    static byte[] version(int number) {
+        return TEXT.replace("server-${number * 10}\n", "changed-$number\n").getBytes('UTF-8')
+    }
+
+    void setup() {
+        historyFile = new File(temporaryFolder.root, 'config.history')
+        instance = new ConfigurationHistory(historyFile, 5)
+    }
+
+    def "should validate arguments"() {
+        when:
+        new ConfigurationHistory(null, 5)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        new ConfigurationHistory(historyFile, 0)
+
+        then:
+        thrown IllegalArgumentException
+
+        when:
+        instance.record(null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should be empty if file does not exist"() {
+        expect:
+        instance.versions.isEmpty()
+        !historyFile.exists()
+
+        when:
+        instance.restore(1)
+
+        then:
+        thrown IOException
+    }
+
+    def "should record and restore versions"() {
+        when:
+        def recorded = (1..10).collect { instance.record(version(it)) }
+
+        then:
+        recorded.every()
+        instance.versions*.number == (1..10).toList()
+        instance.versions*.size == (1..10).collect { version(it).length }
+        (1..10).every { instance.restore(it) == version(it) }
+
+        and: "other instance reads the same history"
+        def other = new ConfigurationHistory(historyFile, 5)
+        other.versions*.number == (1..10).toList()
+        other.restore(7) == version(7)
+
+        and: "versions are stored as deltas"
+        historyFile.length() < version(1).length
+    }
+
+    def "should not record version equal to the latest one"() {
+        given:
+        instance.record(version(1))
+        def size = historyFile.length()
+
+        when:
+        def recorded = instance.record(version(1))
+
+        then:
+        !recorded
+        historyFile.length() == size
+        instance.isLatest(Hashing.sha256().hashBytes(version(1)))
+
+        when:
+        instance.record(version(2))
+        recorded = instance.record(version(1))
+
+        then:
+        recorded
+        instance.versions*.number == [1, 2, 3]
+    }
+
+    def "should keep bounded number of versions"() {
+        when:
+        (1..40).each { instance.record(version(it)) }
+        def versions = instance.versions
+
+        then:
+        versions.size() >= 5
+        versions.size() <= 5 + ConfigurationHistory.KEYFRAME_INTERVAL
+        versions.last().number == 40
+        versions.every { instance.restore(it.number) == version(it.number as int) }
+        new ConfigurationHistory(historyFile, 5).restore(40) == version(40)
+    }
+
+    def "should ignore unfinished record"() {
+        given:
+        (1..3).each { instance.record(version(it)) }
+        def bytes = historyFile.bytes
+        historyFile.bytes = bytes[0..-10] as byte[]
+
+        when:
+        def other = new ConfigurationHistory(historyFile, 5)
+
+        then:
+        other.versions*.number == [1, 2]
+        other.restore(2) == version(2)
+
+        when:
+        other.record(version(4))
+
+        then:
+        new ConfigurationHistory(historyFile, 5).versions*.number == [1, 2, 3]
+        new ConfigurationHistory(historyFile, 5).restore(3) == version(4)
+    }
+
+    def "should report damaged or invalid file"() {
+        given:
+        (1..3).each { instance.record(version(it)) }
+        def bytes = historyFile.bytes
+        bytes[-20] = (byte) (bytes[-20] ^ 0x55)
+        historyFile.bytes = bytes
+
+        when:
+        new ConfigurationHistory(historyFile, 5).restore(3)
+
+        then:
+        thrown IOException
+
+        when:
+        historyFile.text = 'not a history file'
+        new ConfigurationHistory(historyFile, 5).versions
+
+        then:
+        thrown IOException
+    }
+}
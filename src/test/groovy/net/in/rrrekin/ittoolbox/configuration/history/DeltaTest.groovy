@@ -0,0 +1,69 @@
+package net.in.rrrekin.ittoolbox.configuration.history
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class DeltaTest extends Specification {
+
+    static final String TEXT = (0..<2000).collect { "- name: server-$it\n  address: 10.0.${it % 255}.1\n" }.join()
+
+    @Unroll
+    def "should rebuild #description"() {
+        given:
+        byte[] base = baseText.getBytes('UTF-8')
+        byte[] target = targetText.getBytes('UTF-8')
+
+        when:
+        def delta = Delta.encode(base, target)
+
+        then:
+        Delta.apply(base, delta, target.length) == target
+
+        where:
+        description          | baseText | targetText
+        'empty versions'     | ''       | ''
+        'new content'        | ''       | TEXT
+        'removed content'    | TEXT     | ''
+        'short content'      | 'abc'    | 'abd'
+        'changed content'    | TEXT     | TEXT.replace('server-1000', 'renamed')
+        'moved content'      | TEXT     | TEXT.substring(30_000) + TEXT.substring(0, 30_000)
+        'repeated content'   | 'x' * 1000 | 'x' * 5000 + 'y'
+    }
+
+    def "should encode small change as small delta"() {
+        given:
+        byte[] base = TEXT.getBytes('UTF-8')
+        byte[] target = TEXT.replace('server-1000', 'renamed').getBytes('UTF-8')
+
+        expect:
+        Delta.encode(base, target).length < 100
+    }
+
+    def "should reject delta that does not match base"() {
+        given:
+        byte[] base = TEXT.getBytes('UTF-8')
+        byte[] target = TEXT.replace('server-1000', 'renamed').getBytes('UTF-8')
+        def delta = Delta.encode(base, target)
+
+        when:
+        Delta.apply(base.take(1000) as byte[], delta, target.length)
+
+        then:
+        thrown IOException
+
+        when:
+        Delta.apply(base, delta, target.length + 1)
+
+        then:
+        thrown IOException
+
+        when:
+        Delta.apply(base, [7, 0, 0] as byte[], 0)
+
+        then:
+        thrown IOException
+    }
+}
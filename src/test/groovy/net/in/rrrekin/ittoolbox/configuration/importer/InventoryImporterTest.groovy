@@ -0,0 +1,209 @@
+package net.in.rrrekin.ittoolbox.configuration.importer
+
+import com.google.common.eventbus.EventBus
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class InventoryImporterTest extends Specification {
+
+    static final CSV_HEADER = 'name,address,description,group,services,owner\n'
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    ConfigurationManager configurationManager = Mock()
+    InventoryImporter instance = new InventoryImporter(new NodeFactory(new EventBus()), configurationManager)
+
+    Configuration configuration
+    Server web1
+    Server db1
+    GenericNode switch1
+    GroupingNode webGroup
+    GroupingNode otherGroup
+
+    void setup() {
+        web1 = new Server('web1', '10.0.0.1', 'Web server', [owner: 'ops'], ['ssh'])
+        db1 = new Server('db1', '10.0.0.2', 'Database', [:], [])
+        switch1 = new GenericNode('switch1', 'Core switch', [:], [])
+        webGroup = new GroupingNode('web', '', [web1], [])
+        otherGroup = new GroupingNode('other', '', [switch1], [])
+        def include = new IncludeNode('inc', '', 'site.yml', [new Server('hidden', '10.0.0.9', '', [:], [])], [])
+        configuration = new Configuration([new GroupingNode('dc', '', [webGroup, otherGroup], []), db1, include], [m: [a: 'b']])
+    }
+
+    ImportResult merge(String csv) {
+        return instance.merge(configuration, new CsvInventoryParser(), new StringReader(CSV_HEADER + csv), 'test.csv')
+    }
+
+    def "should validate arguments"() {
+        when:
+        new InventoryImporter(null, configurationManager)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.merge(null, new CsvInventoryParser(), new StringReader(''), 'test')
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.importFile(null, InventoryFormat.CSV)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should keep configuration when all hosts are up to date"() {
+        when:
+        def result = merge('web1,10.0.0.1,,,ssh,ops\nother-name,10.0.0.2,,,,\nswitch1,,,,,\n')
+
+        then:
+        result.configuration.is configuration
+        !result.changed
+        result.unchanged == 3
+        result.added == 0
+        result.updated == 0
+        result.rejected == 0
+    }
+
+    def "should update matching nodes without modifying configuration"() {
+        when:
+        def result = merge('web1,10.0.0.11,,,https,dev\ndb1-renamed,10.0.0.2,Main database,,,\n')
+        def nodes = result.configuration.networkNodes
+        def newWeb1 = nodes[0].childNodes[0].childNodes[0]
+
+        then:
+        result.updated == 2
+        result.added == 0
+        newWeb1.address == '10.0.0.11'
+        newWeb1.description == 'Web server'
+        newWeb1.properties == [owner: 'dev']
+        newWeb1.serviceDescriptors == ['ssh', 'https']
+        nodes[1].name == 'db1'
+        nodes[1].description == 'Main database'
+
+        and: "only changed nodes and their groups are copied"
+        !nodes[0].is(configuration.networkNodes[0])
+        nodes[0].childNodes[1].is otherGroup
+        nodes[2].is configuration.networkNodes[2]
+        result.configuration.modules.is configuration.modules
+
+        and: "original nodes are not modified"
+        web1.address == '10.0.0.1'
+        web1.properties == [owner: 'ops']
+        web1.serviceDescriptors == ['ssh']
+        db1.description == 'Database'
+        webGroup.childNodes == [web1]
+    }
+
+    def "should add new hosts to their groups"() {
+        when:
+        def result = merge('''web2,10.0.0.3,,web,ssh,
+printer,,Office printer,,,
+app1,10.0.1.1,,apps,,
+app2,10.0.1.2,,apps,,
+app2,10.0.1.2,App server,apps,,
+hidden,10.0.0.9,,,,
+''')
+        def nodes = result.configuration.networkNodes
+
+        then:
+        result.added == 5
+        result.updated == 1
+        nodes[0].childNodes[0].childNodes*.name == ['web1', 'web2']
+        nodes[0].childNodes[0].childNodes[1] instanceof Server
+        nodes[0].childNodes[0].childNodes[1].serviceDescriptors == ['ssh']
+        nodes*.name == ['dc', 'db1', 'inc', 'printer', 'apps', 'hidden']
+        nodes[3] instanceof GenericNode
+        nodes[3].description == 'Office printer'
+        nodes[4] instanceof GroupingNode
+        nodes[4].childNodes*.name == ['app1', 'app2']
+        nodes[4].childNodes[1].description == 'App server'
+        nodes[5].address == '10.0.0.9'
+        webGroup.childNodes == [web1]
+        configuration.networkNodes.size() == 3
+    }
+
+    def "should add hosts to innermost group of group path"() {
+        when:
+        def result = merge('web2,10.0.0.3,,dc/web,,\napp1,10.0.1.1,,dc/apps,,\n')
+        def nodes = result.configuration.networkNodes
+
+        then:
+        result.added == 2
+        nodes[0].childNodes[0].childNodes*.name == ['web1', 'web2']
+        nodes*.name == ['dc', 'db1', 'inc', 'apps']
+    }
+
+    def "should count rejected entries"() {
+        when:
+        def result = merge(',,no name,,,\nweb3,10.0.0.4,,,,\n')
+
+        then:
+        result.rejected == 1
+        result.added == 1
+    }
+
+    def "should import file as single configuration change"() {
+        given:
+        def file = temporaryFolder.newFile('hosts')
+        file.text = '10.0.0.1 web1\n10.0.0.5 web5\n'
+        def changed = null
+
+        when:
+        def result = instance.importFile(file, InventoryFormat.HOSTS)
+
+        then:
+        1 * configurationManager.getConfig() >> configuration
+        1 * configurationManager.commitChange(configuration, _) >> { expected, config ->
+            changed = config
+            true
+        }
+        0 * _._
+        result.added == 1
+        result.unchanged == 1
+        result.configuration.is changed
+        changed.networkNodes*.name == ['dc', 'db1', 'inc', 'web5']
+    }
+
+    def "should not commit import without changes"() {
+        given:
+        def file = temporaryFolder.newFile('hosts')
+        file.text = '10.0.0.1 web1\n'
+
+        when:
+        def result = instance.importFile(file, InventoryFormat.HOSTS)
+
+        then:
+        1 * configurationManager.getConfig() >> configuration
+        0 * _._
+        result.configuration.is configuration
+    }
+
+    def "should merge file again when configuration changed during import"() {
+        given:
+        def file = temporaryFolder.newFile('hosts')
+        file.text = '10.0.0.5 web5\n'
+
+        when:
+        instance.importFile(file, InventoryFormat.HOSTS)
+
+        then:
+        3 * configurationManager.getConfig() >> configuration
+        3 * configurationManager.commitChange(configuration, _) >> false
+        thrown IOException
+    }
+}
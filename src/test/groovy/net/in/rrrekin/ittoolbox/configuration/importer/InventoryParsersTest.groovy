@@ -0,0 +1,205 @@
+package net.in.rrrekin.ittoolbox.configuration.importer
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class InventoryParsersTest extends Specification {
+
+    List<InventoryHost> hosts = []
+    List<String> invalidEntries = []
+    InventoryParser.Handler handler = new InventoryParser.Handler() {
+        @Override
+        void host(InventoryHost host) {
+            hosts << host
+        }
+
+        @Override
+        void invalidEntry(String description) {
+            invalidEntries << description
+        }
+    }
+
+    @Unroll
+    def "should detect format of '#path'"() {
+        expect:
+        InventoryFormat.detect(new File(path)) == format
+
+        where:
+        path                      | format
+        'export.csv'              | InventoryFormat.CSV
+        'inventory/prod.ini'      | InventoryFormat.ANSIBLE_INI
+        '/etc/ansible/hosts'      | InventoryFormat.ANSIBLE_INI
+        'inventory/prod.yml'      | InventoryFormat.ANSIBLE_YAML
+        '/home/user/.ssh/config'  | InventoryFormat.SSH_CONFIG
+        '/etc/ssh/ssh_config'     | InventoryFormat.SSH_CONFIG
+        '/etc/hosts'              | InventoryFormat.HOSTS
+        'notes.txt'               | null
+    }
+
+    def "should parse CSV export"() {
+        given:
+        def csv = '''Name,IP,Description,Group,Services,Owner,Rack
+web1,10.0.0.1,"Web server, primary",web,ssh;https:8443,ops,
+,10.0.0.2,,,,,r2
+db1,,"Multi
+line",db,,"dba ""team""",
+,,orphan,,,,
+'''
+
+        when:
+        new CsvInventoryParser().parse(new StringReader(csv), handler)
+
+        then:
+        hosts == [
+                new InventoryHost('web1', '10.0.0.1', 'Web server, primary', 'web', [Owner: 'ops'], ['ssh', 'https:8443']),
+                new InventoryHost('10.0.0.2', '10.0.0.2', '', null, [Rack: 'r2'], []),
+                new InventoryHost('db1', null, 'Multi\nline', 'db', [Owner: 'dba "team"'], []),
+        ]
+        invalidEntries == ['Line 6: missing host name and address']
+    }
+
+    def "should parse CSV export with semicolons"() {
+        when:
+        new CsvInventoryParser().parse(new StringReader('host;address;_rack\r\nh1;1.2.3.4;r1\r\n'), handler)
+
+        then:
+        hosts*.name == ['h1']
+        hosts*.address == ['1.2.3.4']
+        hosts*.properties == [[rack: 'r1']]
+        invalidEntries.isEmpty()
+    }
+
+    def "should parse Ansible INI inventory"() {
+        given:
+        def inventory = '''# comment
+mail.example.com
+[webservers]
+web[01:03].example.com http_port=8080
+bastion ansible_host=192.0.2.10 note="front door"
+[webservers:vars]
+ntp_server=ntp.example.com
+[db]
+db-[a:b] ansible_host=10.0.0.5
+broken key
+'''
+
+        when:
+        new AnsibleIniInventoryParser().parse(new StringReader(inventory), handler)
+
+        then:
+        hosts == [
+                new InventoryHost('mail.example.com', 'mail.example.com', '', null, [:], []),
+                new InventoryHost('web01.example.com', 'web01.example.com', '', 'webservers', [http_port: '8080'], []),
+                new InventoryHost('web02.example.com', 'web02.example.com', '', 'webservers', [http_port: '8080'], []),
+                new InventoryHost('web03.example.com', 'web03.example.com', '', 'webservers', [http_port: '8080'], []),
+                new InventoryHost('bastion', '192.0.2.10', '', 'webservers', [note: 'front door'], []),
+                new InventoryHost('db-a', '10.0.0.5', '', 'db', [:], []),
+                new InventoryHost('db-b', '10.0.0.5', '', 'db', [:], []),
+        ]
+        invalidEntries == ['Line 10: invalid host variable key']
+    }
+
+    def "should reject invalid host ranges"() {
+        when:
+        new AnsibleIniInventoryParser().parse(new StringReader('h[5:1]\nh[0:999999]\nh[a:3]\n'), handler)
+
+        then:
+        hosts.isEmpty()
+        invalidEntries.size() == 3
+    }
+
+    def "should parse Ansible YAML inventory"() {
+        given:
+        def inventory = '''
+all:
+  hosts:
+    mail.example.com:
+  vars:
+    ntp_server: ntp.example.com
+  children:
+    webservers:
+      hosts:
+        web1:
+          ansible_host: 10.0.0.1
+          http_port: 80
+      children:
+        backend:
+          hosts:
+            api1: {ansible_host: 10.0.1.1}
+    ungrouped:
+      hosts:
+        lonely:
+'''
+
+        when:
+        new AnsibleYamlInventoryParser().parse(new StringReader(inventory), handler)
+
+        then:
+        hosts == [
+                new InventoryHost('mail.example.com', 'mail.example.com', '', null, [:], []),
+                new InventoryHost('web1', '10.0.0.1', '', 'webservers', [http_port: '80'], []),
+                new InventoryHost('api1', '10.0.1.1', '', 'backend', [:], []),
+                new InventoryHost('lonely', 'lonely', '', null, [:], []),
+        ]
+        invalidEntries.isEmpty()
+    }
+
+    def "should report invalid Ansible YAML inventory"() {
+        when:
+        new AnsibleYamlInventoryParser().parse(new StringReader('all: {hosts: [a, b'), handler)
+
+        then:
+        thrown IOException
+    }
+
+    def "should parse SSH client configuration"() {
+        given:
+        def config = '''Host *
+    ServerAliveInterval 60
+Host bastion jump
+    HostName 192.0.2.10
+    User admin
+    Port 2222
+    User other
+Host web !web-test
+    IdentityFile=~/.ssh/web
+Match host db
+    User dba
+'''
+
+        when:
+        new SshConfigParser().parse(new StringReader(config), handler)
+
+        then:
+        hosts == [
+                new InventoryHost('bastion', '192.0.2.10', '', null, [user: 'admin', port: '2222'], ['ssh:2222']),
+                new InventoryHost('jump', '192.0.2.10', '', null, [user: 'admin', port: '2222'], ['ssh:2222']),
+                new InventoryHost('web', 'web', '', null, [identityfile: '~/.ssh/web'], ['ssh']),
+        ]
+        invalidEntries.isEmpty()
+    }
+
+    def "should parse hosts file"() {
+        given:
+        def file = '''127.0.0.1 localhost
+::1 localhost ip6-localhost
+ff02::1 ip6-allnodes
+10.0.0.1   web1 web1.example.com www # web server
+10.0.0.2 db1
+10.0.0.3
+'''
+
+        when:
+        new HostsFileParser().parse(new StringReader(file), handler)
+
+        then:
+        hosts == [
+                new InventoryHost('web1', '10.0.0.1', '', null, [aliases: 'web1.example.com www'], []),
+                new InventoryHost('db1', '10.0.0.2', '', null, [:], []),
+        ]
+        invalidEntries == ['Line 6: missing host name of 10.0.0.3']
+    }
+}
@@ -0,0 +1,149 @@
+package net.in.rrrekin.ittoolbox.configuration.journal
+
+import com.google.common.hash.Hashing
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static java.nio.charset.StandardCharsets.UTF_8
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class ChangeJournalTest extends Specification {
+
+    static final BASE = Hashing.sha256().hashString('configuration', UTF_8)
+    static final OTHER_BASE = Hashing.sha256().hashString('other configuration', UTF_8)
+    static final ENTRIES = [
+            JournalEntry.setFields([1], new Server('zażółć\ngęślą', 'a1', "d1 'quoted' \"text\"", [p1: 'v: 1'], ['ssh'])),
+            JournalEntry.addChild([1, 0], new Server('s2')),
+            JournalEntry.removeChild([2]),
+            JournalEntry.move([2], [1, 1, 0]),
+    ]
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    File journalFile
+    ChangeJournal instance
+
+    void setup() {
+        journalFile = new File(temporaryFolder.root, 'config.journal')
+        instance = new ChangeJournal(journalFile)
+    }
+
+    void cleanup() {
+        instance.close()
+    }
+
+    def "should validate arguments"() {
+        when:
+        new ChangeJournal(null)
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.append(null, ENTRIES[0])
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.append(BASE, null)
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.read(null)
+        then:
+        thrown NullPointerException
+    }
+
+    def "should append and read entries"() {
+        expect:
+        instance.read(BASE).isEmpty()
+        instance.size() == 0
+
+        when:
+        ENTRIES.each { instance.append(BASE, it) }
+
+        then:
+        journalFile.readLines('UTF-8').size() == ENTRIES.size() + 1
+        instance.size() == journalFile.length()
+        instance.read(BASE) == ENTRIES
+        new ChangeJournal(journalFile).read(BASE) == ENTRIES
+    }
+
+    def "should ignore journal of other configuration file"() {
+        given:
+        ENTRIES.each { instance.append(BASE, it) }
+
+        expect:
+        instance.read(OTHER_BASE).isEmpty()
+        journalFile.exists()
+    }
+
+    def "should remove incomplete entries"() {
+        given:
+        ENTRIES.each { instance.append(BASE, it) }
+        instance.close()
+        def content = journalFile.bytes
+
+        when: "last entry was not fully written"
+        journalFile.bytes = content[0..-3] as byte[]
+
+        then:
+        instance.read(BASE) == ENTRIES[0..-2]
+        journalFile.length() < content.length - 2
+
+        when: "more entries appended"
+        instance.append(BASE, ENTRIES[3])
+
+        then:
+        instance.read(BASE) == ENTRIES
+
+        when: "header was not fully written"
+        instance.close()
+        journalFile.bytes = content[0..10] as byte[]
+
+        then:
+        instance.read(BASE).isEmpty()
+        journalFile.length() == 0
+
+        when:
+        instance.append(BASE, ENTRIES[0])
+
+        then:
+        instance.read(BASE) == ENTRIES[0..0]
+    }
+
+    def "should skip invalid entry and following entries"() {
+        given:
+        ENTRIES.each { instance.append(BASE, it) }
+        instance.close()
+        def lines = journalFile.readLines('UTF-8')
+        lines.add(2, '{op: UNKNOWN, path: [0]}')
+        journalFile.setText(lines.join('\n') + '\n', 'UTF-8')
+
+        expect:
+        instance.read(BASE) == ENTRIES[0..0]
+    }
+
+    def "should clear journal"() {
+        given:
+        ENTRIES.each { instance.append(BASE, it) }
+
+        when:
+        instance.clear()
+
+        then:
+        !journalFile.exists()
+        instance.read(BASE).isEmpty()
+
+        when:
+        instance.append(OTHER_BASE, ENTRIES[2])
+
+        then:
+        instance.read(OTHER_BASE) == ENTRIES[2..2]
+    }
+}
@@ -0,0 +1,241 @@
+package net.in.rrrekin.ittoolbox.configuration.journal
+
+import com.google.common.eventbus.EventBus
+import com.google.common.hash.HashCode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry.Operation.*
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class JournalEntryTest extends Specification {
+
+    def nodeFactory = new NodeFactory(new EventBus())
+    List<NetworkNode> nodes
+
+    void setup() {
+        nodes = [
+                new Server('s1'),
+                new GroupingNode('g1', 'd1', [new GenericNode('n2'), new GroupingNode('g3')], ['ssh']),
+                new GenericNode('n4'),
+        ]
+    }
+
+    def "should validate arguments"() {
+        when:
+        JournalEntry.setFields([], new Server('s1'))
+        then:
+        thrown IllegalArgumentException
+
+        when:
+        JournalEntry.addChild(null, new Server('s1'))
+        then:
+        thrown NullPointerException
+
+        when:
+        JournalEntry.addChild([0], null)
+        then:
+        thrown NullPointerException
+
+        when:
+        JournalEntry.move([0], [])
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def "should create entries"() {
+        expect:
+        JournalEntry.setFields([1], nodes[1]) == new JournalEntry(SET_FIELDS, [1], [type: 'Group', name: 'g1', description: 'd1', services: ['ssh']], null)
+        JournalEntry.addChild([1, 0], nodes[0]) == new JournalEntry(ADD_CHILD, [1, 0], nodes[0].dtoProperties, null)
+        JournalEntry.removeChild([2]) == new JournalEntry(REMOVE_CHILD, [2], null, null)
+        JournalEntry.move([2], [1, 1, 0]) == new JournalEntry(MOVE, [2], null, [1, 1, 0])
+    }
+
+    @Unroll
+    def "should convert #entry.operation entry to DTO and back"() {
+        expect:
+        JournalEntry.fromDto(entry.toDto()) == entry
+
+        where:
+        entry << [
+                JournalEntry.setFields([1], new GroupingNode('g1', 'd1', [new Server('s1')], ['ssh'])),
+                JournalEntry.addChild([1, 0], new Server('s1', 'a1', 'd1', [p1: 'v1'], ['ssh'])),
+                JournalEntry.removeChild([2]),
+                JournalEntry.move([2], [1, 1, 0]),
+        ]
+    }
+
+    @Unroll
+    def "should reject invalid DTO #dto"() {
+        when:
+        JournalEntry.fromDto(dto)
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        dto << [
+                null,
+                'abc',
+                [op: 'UNKNOWN', path: [1]],
+                [op: 'REMOVE_CHILD'],
+                [op: 'REMOVE_CHILD', path: []],
+                [op: 'REMOVE_CHILD', path: ['a']],
+                [op: 'SET_FIELDS', path: [1]],
+                [op: 'MOVE', path: [1]],
+        ]
+    }
+
+    def "should apply changes to node tree"() {
+        when:
+        nodes = JournalEntry.setFields([1], new GroupingNode('g1-renamed', 'd1-changed', [], ['http'])).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        nodes*.name == ['s1', 'g1-renamed', 'n4']
+        nodes[1].description == 'd1-changed'
+        nodes[1].serviceDescriptors == ['http']
+        nodes[1].childNodes*.name == ['n2', 'g3']
+
+        when:
+        nodes = JournalEntry.addChild([1, 1, 0], new Server('s5', 'a5', 'd5', [:], [])).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        nodes[1].childNodes[1].childNodes*.name == ['s5']
+        nodes[1].childNodes[1].childNodes[0].address == 'a5'
+
+        when:
+        nodes = JournalEntry.move([0], [0, 1, 1]).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        nodes*.name == ['g1-renamed', 'n4']
+        nodes[0].childNodes[1].childNodes*.name == ['s5', 's1']
+
+        when:
+        nodes = JournalEntry.removeChild([0, 0]).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        nodes[0].childNodes*.name == ['g3']
+
+        when:
+        nodes = JournalEntry.addChild([2], new GenericNode('n6')).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        nodes*.name == ['g1-renamed', 'n4', 'n6']
+    }
+
+    def "should apply changes to copy of node tree"() {
+        given:
+        def original = nodes.collect()
+        def group = nodes[1]
+        def groupChildren = group.childNodes.collect()
+
+        when:
+        def changed = JournalEntry.setFields([1, 1], new GroupingNode('g3-renamed')).applyCopyOnWrite(nodes, nodeFactory)
+
+        then: "only nodes on the path are copied"
+        changed*.name == ['s1', 'g1', 'n4']
+        changed[1].childNodes*.name == ['n2', 'g3-renamed']
+        !changed.is(nodes)
+        !changed[1].is(group)
+        changed[0].is(nodes[0])
+        changed[2].is(nodes[2])
+        changed[1].childNodes[0].is(group.childNodes[0])
+        changed[1].serviceDescriptors == ['ssh']
+
+        and: "original tree is not modified"
+        nodes == original
+        group.childNodes == groupChildren
+        group.childNodes[1].name == 'g3'
+
+        when:
+        def moved = JournalEntry.move([0], [0, 1, 0]).applyCopyOnWrite(changed, nodeFactory)
+
+        then:
+        moved*.name == ['g1', 'n4']
+        moved[0].childNodes[1].childNodes*.name == ['s1']
+        moved[0].childNodes[1].childNodes[0].is(changed[0])
+        changed*.name == ['s1', 'g1', 'n4']
+        changed[1].childNodes[1].childNodes.isEmpty()
+
+        when:
+        def removed = JournalEntry.removeChild([0, 1, 0]).applyCopyOnWrite(moved, nodeFactory)
+        def added = JournalEntry.addChild([3], new Server('s5')).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        removed[0].childNodes[1].childNodes.isEmpty()
+        moved[0].childNodes[1].childNodes*.name == ['s1']
+        added*.name == ['s1', 'g1', 'n4', 's5']
+        nodes == original
+    }
+
+    @Unroll
+    def "should not modify node tree when #entry.operation entry does not match it"() {
+        when:
+        entry.applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        thrown RuntimeException
+        nodes*.name == ['s1', 'g1', 'n4']
+        nodes[1].childNodes*.name == ['n2', 'g3']
+
+        where:
+        entry << [
+                JournalEntry.setFields([1], new Server('s1')),
+                JournalEntry.addChild([0, 0], new Server('s1')),
+                JournalEntry.removeChild([1, 2]),
+                JournalEntry.move([1, 0], [0, 0]),
+                JournalEntry.move([1, 1], [1, 3]),
+        ]
+    }
+
+    def "should keep child nodes and their source fingerprint when fields of include node are set"() {
+        given:
+        def fingerprint = new FileFingerprint(10, 20, HashCode.fromInt(30))
+        nodes[2] = new IncludeNode('i5', 'd5', 'a.yml', [], []).withChildNodes([new Server('s6')], fingerprint)
+
+        when:
+        def renamed = JournalEntry.setFields([2], new IncludeNode('i5-renamed', 'd5', 'a.yml', [], [])).applyCopyOnWrite(nodes, nodeFactory)
+        def moved = JournalEntry.setFields([2], new IncludeNode('i5', 'd5', 'b.yml', [], [])).applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        renamed[2] instanceof IncludeNode
+        renamed[2].name == 'i5-renamed'
+        renamed[2].childNodes.is nodes[2].childNodes
+        renamed[2].sourceFingerprint == fingerprint
+        moved[2].file == 'b.yml'
+        moved[2].childNodes.is nodes[2].childNodes
+        moved[2].sourceFingerprint == null
+        nodes[2].name == 'i5'
+    }
+
+    @Unroll
+    def "should reject #entry.operation entry that does not match node tree"() {
+        when:
+        entry.applyCopyOnWrite(nodes, nodeFactory)
+
+        then:
+        thrown RuntimeException
+        nodes*.name == ['s1', 'g1', 'n4']
+        nodes[1].childNodes*.name == ['n2', 'g3']
+
+        where:
+        entry << [
+                JournalEntry.setFields([3], new Server('s1')),
+                JournalEntry.setFields([1], new Server('s1')),
+                JournalEntry.addChild([0, 0], new Server('s1')),
+                JournalEntry.addChild([4], new Server('s1')),
+                JournalEntry.removeChild([1, 2]),
+                JournalEntry.move([1, 0], [0, 0]),
+                JournalEntry.move([0], [3]),
+        ]
+    }
+}
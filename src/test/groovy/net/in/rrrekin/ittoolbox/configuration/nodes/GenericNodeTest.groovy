@@ -2,6 +2,9 @@ package net.in.rrrekin.ittoolbox.configuration.nodes
 
 import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
 import jiconfont.swing.IconFontSwing
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventWriter
+import org.yaml.snakeyaml.DumperOptions
+import org.yaml.snakeyaml.Yaml
 import spock.lang.Specification
 
 /**
@@ -147,6 +150,22 @@ class GenericNodeTest extends Specification implements NetworkNodeCompareTrait {
     equal(newInstance, instance)
   }
 
+  def "should write dto as YAML events"() {
+    given:
+    def instance = new GenericNode(NAME, DESCRIPTION, PROPERTIES, SERVICES)
+    def options = new DumperOptions(defaultFlowStyle: DumperOptions.FlowStyle.BLOCK)
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options)
+
+    when:
+    writer.startDocument()
+    instance.writeDtoProperties(writer)
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options).dump(instance.dtoProperties)
+  }
+
   def "should handle invalid dto"() {
     given:
     sampleDto[NetworkNode.SERVICES_PROPERTY] = 'not a list'
@@ -165,8 +184,6 @@ class GenericNodeTest extends Specification implements NetworkNodeCompareTrait {
     def oldHashCode = instance.hashCode()
 
     when:
-    instance.setName("new name")
-    instance.setDescription("new description")
     instance.getProperties().put('abc', 'def')
     instance.getServiceDescriptors().add("cmd: restart all")
 
@@ -174,21 +191,29 @@ class GenericNodeTest extends Specification implements NetworkNodeCompareTrait {
     instance.hashCode() == oldHashCode
   }
 
-  def "should lazily generate icon"() {
+  def "should share icon"() {
     given:
     def instance = new GenericNode(NAME, DESCRIPTION, PROPERTIES, SERVICES)
 
     expect:
-    instance.@icon == null
+    instance.getIcon().is new GenericNode(NAME, DESCRIPTION, PROPERTIES, SERVICES).getIcon()
+    instance.getIcon().is NodeIcons.of(NodeIcons.GENERIC)
+  }
+
+  def "should create renamed copy"() {
+    given:
+    def instance = new GenericNode(NAME, DESCRIPTION, [p1: 'v1'], ['ssh'])
 
     when:
-    def icon = instance.getIcon()
+    def copy = instance.withName('renamed')
 
     then:
-    icon == instance.@icon
-
-    and:
-    icon.is instance.getIcon()
+    copy instanceof GenericNode
+    copy.name == 'renamed'
+    copy.description == DESCRIPTION
+    copy.properties == [p1: 'v1']
+    copy.serviceDescriptors == ['ssh']
+    instance.name == NAME
   }
 
   def "should return HTML description of the node"() {
@@ -3,6 +3,9 @@ package net.in.rrrekin.ittoolbox.configuration.nodes
 import com.google.common.eventbus.EventBus
 import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
 import jiconfont.swing.IconFontSwing
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventWriter
+import org.yaml.snakeyaml.DumperOptions
+import org.yaml.snakeyaml.Yaml
 import spock.lang.Specification
 
 /**
@@ -151,6 +154,22 @@ class GroupingNodeTest extends Specification implements NetworkNodeCompareTrait
     equal(newInstance, instance)
   }
 
+  def "should write dto as YAML events"() {
+    given:
+    def instance = new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES)
+    def options = new DumperOptions(defaultFlowStyle: DumperOptions.FlowStyle.BLOCK)
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options)
+
+    when:
+    writer.startDocument()
+    instance.writeDtoProperties(writer)
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options).dump(instance.dtoProperties)
+  }
+
   def "should handle invalid services in dto"() {
     given:
     sampleDto[NetworkNode.SERVICES_PROPERTY] = 'not a list'
@@ -179,36 +198,103 @@ class GroupingNodeTest extends Specification implements NetworkNodeCompareTrait
     equal(newInstance, new GroupingNode(NAME, DESCRIPTION, [], SERVICES))
   }
 
-  def "hashcode should not change when content changed"() {
+  def "should copy group with other child nodes"() {
     given:
     def instance = new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES)
-    def oldHashCode = instance.hashCode()
+    def newChildNodes = [new Server('xyz')]
 
     when:
-    instance.setName("new name")
-    instance.setDescription("new description")
-    instance.getChildNodes().add(new Server("ac"))
-    instance.getServiceDescriptors().add("cmd: restart all")
+    def copy = instance.withChildNodes(newChildNodes)
 
     then:
-    instance.hashCode() == oldHashCode
+    !copy.is(instance)
+    copy.class == GroupingNode
+    equal(copy, new GroupingNode(NAME, DESCRIPTION, newChildNodes, SERVICES))
+    copy.childNodes == newChildNodes
+    !copy.serviceDescriptors.is(instance.serviceDescriptors)
+    instance.childNodes == CHILD_NODES
   }
 
-  def "should lazily generate icon"() {
+  def "should not allow to change child nodes"() {
+    given:
+    def childNodes = [new Server('s1'), new GenericNode('n2')]
+    def instance = new GroupingNode(NAME, DESCRIPTION, childNodes, SERVICES)
+
+    when:
+    childNodes << new Server('s3')
+
+    then:
+    instance.childNodes*.name == ['s1', 'n2']
+
+    when:
+    instance.childNodes << new Server('s4')
+
+    then:
+    thrown UnsupportedOperationException
+    instance.childNodes*.name == ['s1', 'n2']
+  }
+
+  def "should create renamed copy with the same child nodes"() {
     given:
     def instance = new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES)
 
-    expect:
-    instance.@icon == null
+    when:
+    def copy = instance.withName('renamed')
+
+    then:
+    copy.class == GroupingNode
+    copy.name == 'renamed'
+    copy.description == DESCRIPTION
+    copy.childNodes.is instance.childNodes
+    copy.serviceDescriptors == SERVICES
+    instance.name == NAME
+  }
+
+  def "should create deep copy of the group"() {
+    given:
+    def instance = new GroupingNode(NAME, DESCRIPTION, [
+      new Server('s1', 'a1', 'd1', [p1: 'v1'], ['ssh']),
+      new GroupingNode('g2', 'd2', [new GenericNode('n3', 'd3', [p2: 'v2'], [])], ['http']),
+    ], SERVICES)
+
+    when:
+    def copy = instance.deepCopy()
+
+    then:
+    equal(copy, instance)
+    !copy.childNodes.is(instance.childNodes)
+    !copy.childNodes[0].is(instance.childNodes[0])
+    !copy.childNodes[0].properties.is(instance.childNodes[0].properties)
+    !copy.childNodes[1].childNodes[0].is(instance.childNodes[1].childNodes[0])
 
     when:
-    def icon = instance.getIcon()
+    copy.childNodes[1].childNodes[0].properties.p2 = 'changed'
+    copy.serviceDescriptors << 'ftp'
 
     then:
-    icon == instance.@icon
+    instance.childNodes[1].childNodes[0].properties == [p2: 'v2']
+    instance.serviceDescriptors == SERVICES
+  }
 
-    and:
-    icon.is instance.getIcon()
+  def "hashcode should not change when content changed"() {
+    given:
+    def instance = new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES)
+    def oldHashCode = instance.hashCode()
+
+    when:
+    instance.getServiceDescriptors().add("cmd: restart all")
+
+    then:
+    instance.hashCode() == oldHashCode
+  }
+
+  def "should share icon"() {
+    given:
+    def instance = new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES)
+
+    expect:
+    instance.getIcon().is new GroupingNode(NAME, DESCRIPTION, CHILD_NODES, SERVICES).getIcon()
+    instance.getIcon().is NodeIcons.of(NodeIcons.GROUP)
   }
 
   def "should return HTML description of the node"() {
@@ -0,0 +1,192 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes
+
+import com.google.common.hash.HashCode
+import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
+import jiconfont.swing.IconFontSwing
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventWriter
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
+import org.yaml.snakeyaml.DumperOptions
+import org.yaml.snakeyaml.Yaml
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class IncludeNodeTest extends Specification implements NetworkNodeCompareTrait {
+  static final NAME = 'Site A'
+  static final DESCRIPTION = 'Servers of site A'
+  static final FILE = 'sites/site-a.yml'
+  static final CHILD_NODES = [new Server('abc'), new GenericNode('def')]
+  static final SERVICES = ['ssh', 'http']
+  static final FINGERPRINT = new FileFingerprint(10, 20, HashCode.fromInt(30))
+
+  def sampleDto = [
+    (NetworkNode.TYPE_PROPERTY)       : NodeType.INCLUDE.typeName,
+    (NetworkNode.NAME_PROPERTY)       : NAME,
+    (NetworkNode.DESCRIPTION_PROPERTY): DESCRIPTION,
+    (IncludeNode.FILE_PROPERTY)       : FILE,
+    (NetworkNode.SERVICES_PROPERTY)   : SERVICES,
+  ]
+
+  void setupSpec() {
+    IconFontSwing.register(GoogleMaterialDesignIcons.getIconFont());
+  }
+
+  def "should require constructor parameters"() {
+    when:
+    new IncludeNode(null, DESCRIPTION, FILE, CHILD_NODES, SERVICES)
+    then:
+    thrown NullPointerException
+
+    when:
+    new IncludeNode(NAME, null, FILE, CHILD_NODES, SERVICES)
+    then:
+    thrown NullPointerException
+
+    when:
+    new IncludeNode(NAME, DESCRIPTION, null, CHILD_NODES, SERVICES)
+    then:
+    thrown NullPointerException
+
+    when:
+    new IncludeNode(NAME, DESCRIPTION, FILE, null, SERVICES)
+    then:
+    thrown NullPointerException
+
+    when:
+    new IncludeNode(NAME, DESCRIPTION, FILE, CHILD_NODES, null)
+    then:
+    thrown NullPointerException
+
+    when:
+    new IncludeNode(null)
+    then:
+    thrown NullPointerException
+  }
+
+  def "should create object from dto without child nodes"() {
+    when:
+    def instance = new IncludeNode(sampleDto + [children: [new Server('x').dtoProperties]])
+
+    then:
+    instance.name == NAME
+    instance.description == DESCRIPTION
+    instance.file == FILE
+    instance.childNodes == []
+    instance.serviceDescriptors == SERVICES
+    instance.sourceFingerprint == null
+    !instance.isLeaf()
+  }
+
+  def "should validate dto"() {
+    when:
+    new IncludeNode([type: 'group'])
+
+    then:
+    thrown IllegalArgumentException
+  }
+
+  def "should serialize and deserialize"() {
+    given:
+    def instance = new IncludeNode(NAME, DESCRIPTION, FILE, CHILD_NODES, SERVICES)
+
+    when:
+    def dto = instance.dtoProperties
+
+    then:
+    dto == sampleDto
+
+    when:
+    def newInstance = new IncludeNode(dto)
+
+    then:
+    equal(newInstance, new IncludeNode(NAME, DESCRIPTION, FILE, [], SERVICES))
+  }
+
+  def "should write dto as YAML events"() {
+    given:
+    def instance = new IncludeNode(NAME, DESCRIPTION, FILE, CHILD_NODES, SERVICES)
+    def options = new DumperOptions(defaultFlowStyle: DumperOptions.FlowStyle.BLOCK)
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options)
+
+    when:
+    writer.startDocument()
+    instance.writeDtoProperties(writer)
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options).dump(instance.dtoProperties)
+  }
+
+  def "should copy node with other child nodes"() {
+    given:
+    def instance = new IncludeNode(NAME, DESCRIPTION, FILE, CHILD_NODES, SERVICES)
+    def newChildNodes = [new Server('xyz')]
+
+    when:
+    def copy = instance.withChildNodes(newChildNodes, FINGERPRINT)
+
+    then:
+    !copy.is(instance)
+    equal(copy, new IncludeNode(NAME, DESCRIPTION, FILE, newChildNodes, SERVICES))
+    copy.childNodes == newChildNodes
+    copy.sourceFingerprint == FINGERPRINT
+    instance.childNodes == CHILD_NODES
+    instance.sourceFingerprint == null
+  }
+
+  def "should keep included file and fingerprint in copies"() {
+    given:
+    def instance = new IncludeNode(NAME, DESCRIPTION, FILE, [], SERVICES)
+      .withChildNodes([new Server('s1'), new GroupingNode('g2')], FINGERPRINT)
+
+    when:
+    def copy = instance.withChildNodes([new Server('xyz')])
+    def deepCopy = instance.deepCopy()
+    def renamed = instance.withName('renamed')
+
+    then:
+    copy instanceof IncludeNode
+    copy.file == FILE
+    copy.sourceFingerprint == FINGERPRINT
+    copy.childNodes*.name == ['xyz']
+    deepCopy instanceof IncludeNode
+    equal(deepCopy, instance)
+    deepCopy.sourceFingerprint == FINGERPRINT
+    !deepCopy.childNodes[1].is(instance.childNodes[1])
+    renamed instanceof IncludeNode
+    renamed.name == 'renamed'
+    renamed.file == FILE
+    renamed.sourceFingerprint == FINGERPRINT
+    renamed.childNodes.is instance.childNodes
+  }
+
+  def "should resolve included file against configuration file directory"() {
+    given:
+    def configFile = new File('/etc/toolbox/config.yml')
+
+    expect:
+    new IncludeNode(NAME, DESCRIPTION, FILE, [], []).resolve(configFile) == new File('/etc/toolbox', FILE)
+    new IncludeNode(NAME, DESCRIPTION, '/srv/site.yml', [], []).resolve(configFile) == new File('/srv/site.yml')
+  }
+
+  def "should find include nodes outside included files"() {
+    given:
+    def include1 = new IncludeNode('i1', '', 'i1.yml', [new IncludeNode('nested', '', 'n.yml', [], [])], [])
+    def include2 = new IncludeNode('i2', '', 'i2.yml', [], [])
+    def nodes = [
+      new Server('s1'),
+      include1,
+      new GroupingNode('g1', '', [new GroupingNode('g2', '', [include2], []), new Server('s2')], []),
+    ]
+
+    when:
+    def includes = IncludeNode.findAll(nodes)
+
+    then:
+    includes.size() == 2
+    includes[0].is include1
+    includes[1].is include2
+  }
+}
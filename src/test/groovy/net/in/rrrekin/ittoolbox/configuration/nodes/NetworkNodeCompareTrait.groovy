@@ -26,6 +26,10 @@ trait NetworkNodeCompareTrait {
       g1.serviceDescriptors == g2.serviceDescriptors
   }
 
+  static boolean equal(IncludeNode i1, IncludeNode i2) {
+    return i1.file == i2.file && equal(i1 as GroupingNode, i2 as GroupingNode)
+  }
+
   static boolean equal(Collection<NetworkNode> c1, Collection<NetworkNode> c2) {
     if (c1.size() != c2.size()) return false
     for (int i = 0; i < c1.size(); i++) {
@@ -38,6 +42,8 @@ trait NetworkNodeCompareTrait {
       if (element1.class == GenericNode && !equal(element1 as GenericNode, element2 as GenericNode)) return false
 
       if (element1.class == GroupingNode && !equal(element1 as GroupingNode, element2 as GroupingNode)) return false
+
+      if (element1.class == IncludeNode && !equal(element1 as IncludeNode, element2 as IncludeNode)) return false
     }
     return true
   }
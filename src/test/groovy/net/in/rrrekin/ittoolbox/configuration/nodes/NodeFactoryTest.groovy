@@ -2,6 +2,7 @@ package net.in.rrrekin.ittoolbox.configuration.nodes
 
 import com.google.common.eventbus.EventBus
 import net.in.rrrekin.ittoolbox.configuration.exceptions.InvalidConfigurationException
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventReader
 import org.yaml.snakeyaml.Yaml
 import spock.lang.Specification
 
@@ -37,12 +38,18 @@ class NodeFactoryTest extends Specification implements NetworkNodeCompareTrait {
   EventBus eventBus = Mock()
 
   def instance = new NodeFactory(eventBus)
+  def sequentialInstance = new NodeFactory(eventBus, 0)
 
   def "should validate constructor arguments"() {
     when:
     new NodeFactory(null)
     then:
     thrown NullPointerException
+
+    when:
+    new NodeFactory(null, NodeFactory.DEFAULT_PARALLEL_THRESHOLD)
+    then:
+    thrown NullPointerException
   }
 
   def "should create nodes"() {
@@ -54,6 +61,60 @@ class NodeFactoryTest extends Specification implements NetworkNodeCompareTrait {
     equal(nodes, SAMPLE_NODES)
   }
 
+  def "should read nodes from YAML events"() {
+    given:
+    def reader = new YamlEventReader(new Yaml().parse(new StringReader(new Yaml().dump(CONFIG.servers))))
+    reader.readDocumentStart()
+
+    when:
+    def nodes = instance.readNodeList(reader, PARENT_PATH)
+    reader.readDocumentEnd()
+
+    then:
+    0 * eventBus._
+    equal(nodes, SAMPLE_NODES)
+  }
+
+  def "should share property names and service descriptors between read nodes"() {
+    given:
+    def dtos = [
+      new Server('s1', 'a1', 'd1', [os: 'linux', owner: 'ops'], ['ssh', 'https:port=8443']).dtoProperties,
+      new Server('s2', 'a2', 'd2', [os: 'linux', owner: 'ops'], ['ssh', 'https:port=8443']).dtoProperties,
+      new GenericNode('n3', 'd3', [os: 'linux', owner: 'ops'], ['ssh']).dtoProperties,
+    ]
+    def reader = new YamlEventReader(new Yaml().parse(new StringReader(new Yaml().dump(dtos))))
+    reader.readDocumentStart()
+
+    when:
+    def nodes = instance.readNodeList(reader, PARENT_PATH) + instance.createNodeList(dtos, PARENT_PATH)
+
+    then:
+    0 * eventBus._
+    nodes.size() == 6
+    nodes.every { it.properties instanceof NodeProperties && it.properties == [os: 'linux', owner: 'ops'] }
+    nodes.every { it.properties.keySet()[1].is(nodes[0].properties.keySet()[1]) }
+    nodes.every { it.properties.owner.is(nodes[0].properties.owner) }
+    nodes.every { it.serviceDescriptors[0].is(nodes[0].serviceDescriptors[0]) }
+    nodes[3].serviceDescriptors[1].is(nodes[1].serviceDescriptors[1])
+  }
+
+  def "should handle invalid elements in YAML events"() {
+    given:
+    def reader = new YamlEventReader(new Yaml().parse(new StringReader(
+      new Yaml().dump([2, new Server('42').dtoProperties, "abc", [abc: 67], [type: 'Group', name: 'g', children: [[type: 'x']]]]))))
+    reader.readDocumentStart()
+
+    when:
+    def nodes = instance.readNodeList(reader, PARENT_PATH)
+
+    then:
+    2 * eventBus.post({ it.code == INVALID_OBJECT_ON_DTO_LIST && it.message.contains(PARENT_PATH) })
+    1 * eventBus.post({ it.code == CANNOT_CREATE_NETWORK_NODE && it.message.contains(PARENT_PATH + '.') })
+    1 * eventBus.post({ it.code == CANNOT_CREATE_NETWORK_NODE && it.message.contains(PARENT_PATH + '/g.') })
+    0 * eventBus._
+    equal(nodes, [new Server('42'), new GroupingNode('g', '', [], [])])
+  }
+
   def "should validate factory method arguments"() {
     when:
     instance.createNode(null, PARENT_PATH)
@@ -95,4 +156,107 @@ class NodeFactoryTest extends Specification implements NetworkNodeCompareTrait {
     0 * eventBus._
     thrown InvalidConfigurationException
   }
+
+  static List wideDtoList() {
+    def dtoList = []
+    60.times { i ->
+      def children = []
+      (i % 7 == 0 ? 40 : 5).times { j ->
+        children << (j % 9 == 4 ? [type: 'unknown', name: "x$i-$j"] : j % 13 == 6 ? "invalid $i-$j" : new Server("s$i-$j").dtoProperties)
+      }
+      if (i % 10 == 3) {
+        children << [type: 'Group', name: "sub$i", children: [[type: 'Group', name: "deep$i", children: children.clone()]]]
+      }
+      dtoList << [type: 'Group', name: "g$i", children: children, services: ['ssh']]
+      dtoList << (i % 11 == 5 ? 42 : new GenericNode("n$i").dtoProperties)
+    }
+    return dtoList
+  }
+
+  def "should build the same nodes and report the same errors in fork/join mode"() {
+    given:
+    def dtoList = wideDtoList()
+    def sequentialErrors = []
+    def parallelErrors = []
+    def postingThreads = [] as Set
+    def parallelInstance = new NodeFactory(eventBus, 8)
+
+    when:
+    def sequentialNodes = sequentialInstance.createNodeList(dtoList, PARENT_PATH)
+
+    then:
+    _ * eventBus.post(_) >> { sequentialErrors << it[0] }
+
+    when:
+    def parallelNodes = parallelInstance.createNodeList(dtoList, PARENT_PATH)
+
+    then:
+    _ * eventBus.post(_) >> {
+      parallelErrors << it[0]
+      postingThreads << Thread.currentThread()
+    }
+    equal(parallelNodes, sequentialNodes)
+    parallelNodes.size() == 115
+    sequentialErrors.size() > 20
+    parallelErrors.collect { [it.code, it.message] } == sequentialErrors.collect { [it.code, it.message] }
+    postingThreads == [Thread.currentThread()] as Set
+  }
+
+  def "should read the same nodes and report the same errors as built from DTOs"() {
+    given:
+    def dtoList = wideDtoList() + [
+      [name: 'late type', children: [[type: 'unknown']], type: 'unknown'],
+      [name: 'server with children', children: ['invalid'], type: 'Server', address: 'a'],
+      [type: 'unknown', name: 'long', description: 'x' * 60, _p: 'v', other: [1, 2], services: ['ssh']],
+    ]
+    def yaml = new Yaml().dump(dtoList)
+    def readErrors = []
+    def dtoErrors = []
+    def parallelErrors = []
+    def parallelInstance = new NodeFactory(eventBus, 8)
+    def reader = new YamlEventReader(new Yaml().parse(new StringReader(yaml)))
+    reader.readDocumentStart()
+
+    when:
+    def readNodes = parallelInstance.readNodeList(reader, PARENT_PATH)
+    reader.readDocumentEnd()
+
+    then:
+    _ * eventBus.post(_) >> { readErrors << it[0] }
+
+    when:
+    def dtoNodes = sequentialInstance.createNodeList(dtoList, PARENT_PATH)
+
+    then:
+    _ * eventBus.post(_) >> { dtoErrors << it[0] }
+
+    when:
+    def parallelNodes = parallelInstance.createNodeList(dtoList, PARENT_PATH)
+
+    then:
+    _ * eventBus.post(_) >> { parallelErrors << it[0] }
+    equal(readNodes, dtoNodes)
+    equal(parallelNodes, dtoNodes)
+    readNodes.size() == 116
+    dtoErrors.size() > 20
+    readErrors.collect { [it.code, it.message] } == dtoErrors.collect { [it.code, it.message] }
+    parallelErrors.collect { [it.code, it.message] } == dtoErrors.collect { [it.code, it.message] }
+  }
+
+  def "should use fork/join mode by default"() {
+    expect:
+    instance.@parallelThreshold == NodeFactory.DEFAULT_PARALLEL_THRESHOLD
+  }
+
+  def "should build small lists sequentially in fork/join mode"() {
+    given:
+    def parallelInstance = new NodeFactory(eventBus, NodeFactory.DEFAULT_PARALLEL_THRESHOLD)
+
+    when:
+    def nodes = parallelInstance.createNodeList(CONFIG.servers, PARENT_PATH)
+
+    then:
+    0 * eventBus._
+    equal(nodes, SAMPLE_NODES)
+  }
 }
@@ -0,0 +1,95 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes
+
+import com.google.common.eventbus.EventBus
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventReader
+import org.yaml.snakeyaml.Yaml
+import spock.lang.Requires
+import spock.lang.Specification
+
+/**
+ * Compares heap retained by nodes read by {@link NodeFactory} with nodes that keep properties in
+ * hash maps and own copies of all strings. Skipped unless started with {@code -Dbenchmark=true}.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+@Requires({ Boolean.getBoolean('benchmark') })
+class NodeFootprintBenchmark extends Specification {
+
+    static final int NODE_COUNT = 100_000
+    static final int GROUP_SIZE = 100
+    static final OPERATING_SYSTEMS = ['linux', 'windows', 'aix']
+    static final OWNERS = ['ops', 'dev', 'qa', 'network', 'security']
+
+    static String generateYaml(int nodeCount) {
+        def groups = []
+        for (int i = 0; i < nodeCount; i += GROUP_SIZE) {
+            def children = []
+            for (int j = i; j < Math.min(i + GROUP_SIZE, nodeCount); j++) {
+                def properties = [os: OPERATING_SYSTEMS[j % 3], owner: OWNERS[j % 5], rack: "r${j % 40}".toString()]
+                children << (j % 10 == 0
+                        ? new GenericNode("node-$j", "Generic node $j", properties, ['ssh', 'http:8080'])
+                        : new Server("server-$j", "10.${j >> 16 & 255}.${j >> 8 & 255}.${j & 255}", "Server $j", properties, ['ssh', 'https:port=8443']))
+            }
+            groups << new GroupingNode("group-$i", "Group $i", children, ['ping']).dtoProperties
+        }
+        return new Yaml().dump(groups)
+    }
+
+    /** Builds nodes the way they were built before, each node has own hash map and strings. */
+    static List<NetworkNode> readPlainNodes(String yaml) {
+        return (new Yaml().load(yaml) as List<Map>).collect { Map group ->
+            new GroupingNode(group.name, group.description, group.children.collect { Map dto ->
+                Map<String, String> properties = new HashMap<>()
+                dto.findAll { it.key.startsWith(NetworkNode.PROPERTIES_PREFIX) }.each {
+                    properties.put(it.key.substring(NetworkNode.PROPERTIES_PREFIX.length()), it.value)
+                }
+                dto.type == NodeType.SERVER.typeName
+                        ? new Server(dto.name, dto.address, dto.description, properties, new ArrayList<>(dto.services))
+                        : new GenericNode(dto.name, dto.description, properties, new ArrayList<>(dto.services))
+            } as List<NetworkNode>, new ArrayList<>(group.services))
+        }
+    }
+
+    static List<NetworkNode> readFactoryNodes(String yaml) {
+        def reader = new YamlEventReader(new Yaml().parse(new StringReader(yaml)))
+        reader.readDocumentStart()
+        def nodes = new NodeFactory(new EventBus()).readNodeList(reader, 'benchmark')
+        reader.readDocumentEnd()
+        return nodes
+    }
+
+    static long usedHeap() {
+        def runtime = Runtime.runtime
+        5.times {
+            System.gc()
+            Thread.sleep(100)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    static long retainedHeap(Closure<List<NetworkNode>> builder) {
+        long before = usedHeap()
+        def nodes = builder()
+        long after = usedHeap()
+        assert nodes.sum { it.childNodes.size() } == NODE_COUNT
+        return after - before
+    }
+
+    def "should retain less heap per node than nodes with hash maps"() {
+        given:
+        def yaml = generateYaml(NODE_COUNT)
+        // warm up, so that classes and pooled strings are not counted
+        readPlainNodes(yaml)
+        readFactoryNodes(yaml)
+
+        when:
+        def plain = retainedHeap { readPlainNodes(yaml) }
+        def compact = retainedHeap { readFactoryNodes(yaml) }
+        println "$NODE_COUNT nodes: hash maps ${plain.intdiv(NODE_COUNT)} B/node, " +
+                "node factory ${compact.intdiv(NODE_COUNT)} B/node"
+
+        then:
+        readFactoryNodes(yaml).collect { it.dtoProperties } == readPlainNodes(yaml).collect { it.dtoProperties }
+        compact < plain * 0.6
+    }
+}
@@ -0,0 +1,163 @@
+package net.in.rrrekin.ittoolbox.configuration.nodes
+
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodePropertiesTest extends Specification {
+
+  def "should behave like a map"() {
+    given:
+    def instance = new NodeProperties()
+
+    expect:
+    instance.isEmpty()
+    instance.get('os') == null
+
+    when:
+    def previous = instance.put('os', 'linux')
+    instance.put('owner', 'ops')
+    instance.put('rack', 'r1')
+
+    then:
+    previous == null
+    instance.size() == 3
+    instance == [os: 'linux', owner: 'ops', rack: 'r1']
+    instance.hashCode() == [os: 'linux', owner: 'ops', rack: 'r1'].hashCode()
+    instance.keySet() as List == ['os', 'owner', 'rack']
+    instance.containsKey('owner')
+    !instance.containsKey('other')
+
+    when:
+    previous = instance.put('owner', 'dev')
+
+    then:
+    previous == 'ops'
+    instance.size() == 3
+    instance.owner == 'dev'
+
+    when:
+    previous = instance.remove('owner')
+
+    then:
+    previous == 'dev'
+    instance.remove('owner') == null
+    instance.remove('other') == null
+    instance == [os: 'linux', rack: 'r1']
+    instance.keySet() as List == ['os', 'rack']
+
+    when:
+    instance.put('owner', 'ops')
+
+    then:
+    instance == [os: 'linux', owner: 'ops', rack: 'r1']
+
+    when:
+    instance.clear()
+
+    then:
+    instance.isEmpty()
+    instance == [:]
+    instance.get('os') == null
+  }
+
+  def "should modify values through entries and iterator"() {
+    given:
+    def instance = new NodeProperties([os: 'linux', owner: 'ops', rack: 'r1'])
+
+    when:
+    instance.entrySet().each { if (it.key == 'os') it.value = 'windows' }
+
+    then:
+    instance == [os: 'windows', owner: 'ops', rack: 'r1']
+
+    when:
+    def iterator = instance.entrySet().iterator()
+    iterator.next()
+    iterator.next()
+    iterator.remove()
+
+    then:
+    instance == [os: 'windows', rack: 'r1']
+    iterator.hasNext()
+    iterator.next().key == 'rack'
+    !iterator.hasNext()
+
+    when:
+    iterator.remove()
+    iterator.remove()
+
+    then:
+    thrown IllegalStateException
+    instance == [os: 'windows']
+
+    when:
+    iterator.next()
+
+    then:
+    thrown NoSuchElementException
+  }
+
+  def "should reject null keys and values"() {
+    given:
+    def instance = new NodeProperties()
+
+    when:
+    instance.put(null, 'value')
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.put('key', null)
+
+    then:
+    thrown NullPointerException
+    instance.isEmpty()
+  }
+
+  def "should share names and values between maps"() {
+    given:
+    def name = new String('owner'.toCharArray())
+    def value = new String('ops'.toCharArray())
+
+    when:
+    def first = new NodeProperties([os: 'linux', owner: 'ops'])
+    def second = new NodeProperties()
+    second.put(new String('os'.toCharArray()), new String('linux'.toCharArray()))
+    second.put(name, value)
+
+    then:
+    first == second
+    first.@schema.is(second.@schema)
+    second.keySet()[1].is first.keySet()[1]
+    second.owner.is first.owner
+  }
+
+  def "should share schema of maps extended beyond cached extensions"() {
+    given:
+    100.times { new NodeProperties([rack: 'r1', ("slot$it".toString()): 'v']) }
+
+    when:
+    def first = new NodeProperties([rack: 'r1', position: 'top'])
+    def second = new NodeProperties([rack: 'r2', position: 'bottom'])
+
+    then:
+    first.@schema.is(second.@schema)
+  }
+
+  def "should not share values of property with many distinct values"() {
+    given:
+    def maps = (0..<100).collect { new NodeProperties([serial: "sn-$it".toString()]) }
+
+    when:
+    def first = new NodeProperties([serial: 'sn-1'.toUpperCase().toLowerCase()])
+    def last = new NodeProperties([serial: 'sn-99'.toUpperCase().toLowerCase()])
+
+    then:
+    first.serial.is maps[1].serial
+    !last.serial.is(maps[99].serial)
+    last.serial == maps[99].serial
+  }
+}
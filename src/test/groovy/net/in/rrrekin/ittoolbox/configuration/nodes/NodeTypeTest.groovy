@@ -11,7 +11,7 @@ class NodeTypeTest extends Specification {
     @Unroll
     def "should define #node"() {
         expect:
-        NodeType.values().size() == 3
+        NodeType.values().size() == 4
 
         and:
         node.typeName == typeName
@@ -25,6 +25,7 @@ class NodeTypeTest extends Specification {
         NodeType.GROUP        | GroupingNode | 'Group'
         NodeType.SERVER       | Server       | 'Server'
         NodeType.GENERIC_NODE | GenericNode  | 'GenericNode'
+        NodeType.INCLUDE      | IncludeNode  | 'Include'
     }
 
     def "should return null for unknown class and typeName"() {
@@ -2,6 +2,9 @@ package net.in.rrrekin.ittoolbox.configuration.nodes
 
 import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
 import jiconfont.swing.IconFontSwing
+import net.in.rrrekin.ittoolbox.configuration.yaml.YamlEventWriter
+import org.yaml.snakeyaml.DumperOptions
+import org.yaml.snakeyaml.Yaml
 import spock.lang.Specification
 
 /**
@@ -121,6 +124,23 @@ class ServerTest extends Specification implements NetworkNodeCompareTrait {
     instance.immutableDataCopy() == new Server.Data(NAME, ADDRESS, DESCRIPTION, PROPERTIES)
   }
 
+  def "should create independent copy"() {
+    given:
+    def instance = new Server(NAME, ADDRESS, DESCRIPTION, [p1: 'v1'], ['ssh'])
+
+    when:
+    def copy = instance.deepCopy()
+    copy.properties.p1 = 'changed'
+    copy.serviceDescriptors << 'http'
+
+    then:
+    !copy.is(instance)
+    copy.name == NAME
+    copy.address == ADDRESS
+    instance.properties == [p1: 'v1']
+    instance.serviceDescriptors == ['ssh']
+  }
+
   def "immutable data copy should validate arguments"() {
     when:
     new Server.Data(null, ADDRESS, DESCRIPTION, PROPERTIES)
@@ -182,6 +202,22 @@ class ServerTest extends Specification implements NetworkNodeCompareTrait {
     equal(newInstance, instance)
   }
 
+  def "should write dto as YAML events"() {
+    given:
+    def instance = new Server(NAME, ADDRESS, DESCRIPTION, PROPERTIES, SERVICES)
+    def options = new DumperOptions(defaultFlowStyle: DumperOptions.FlowStyle.BLOCK)
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options)
+
+    when:
+    writer.startDocument()
+    instance.writeDtoProperties(writer)
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options).dump(instance.dtoProperties)
+  }
+
   def "should handle invalid dto"() {
     given:
     sampleDto[NetworkNode.SERVICES_PROPERTY] = 'not a list'
@@ -199,9 +235,6 @@ class ServerTest extends Specification implements NetworkNodeCompareTrait {
     def oldHashCode = instance.hashCode()
 
     when:
-    instance.setName("new name")
-    instance.setAddress("new address")
-    instance.setDescription("new description")
     instance.getProperties().put('abc', 'def')
     instance.getServiceDescriptors().add("cmd: restart all")
 
@@ -209,21 +242,31 @@ class ServerTest extends Specification implements NetworkNodeCompareTrait {
     instance.hashCode() == oldHashCode
   }
 
-  def "should lazily generate icon"() {
+  def "should share icon"() {
     given:
     def instance = new Server(NAME, ADDRESS, DESCRIPTION, PROPERTIES, SERVICES)
 
     expect:
-    instance.@icon == null
+    instance.getIcon().is new Server(NAME, ADDRESS, DESCRIPTION, PROPERTIES, SERVICES).getIcon()
+    instance.getIcon().is NodeIcons.of(NodeIcons.SERVER)
+  }
+
+  def "should create renamed copy"() {
+    given:
+    def instance = new Server(NAME, ADDRESS, DESCRIPTION, [p1: 'v1'], ['ssh'])
 
     when:
-    def icon = instance.getIcon()
+    def copy = instance.withName('renamed')
+    copy.properties.p1 = 'changed'
 
     then:
-    icon == instance.@icon
-
-    and:
-    icon.is instance.getIcon()
+    copy instanceof Server
+    copy.name == 'renamed'
+    copy.address == ADDRESS
+    copy.description == DESCRIPTION
+    copy.serviceDescriptors == ['ssh']
+    instance.name == NAME
+    instance.properties == [p1: 'v1']
   }
 
   def "should return HTML description of the node"() {
@@ -0,0 +1,253 @@
+package net.in.rrrekin.ittoolbox.configuration.remote
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPOutputStream
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class RemoteInventoryTest extends Specification {
+    static final LAST_MODIFIED = 'Wed, 21 Oct 2015 07:28:00 GMT'
+
+    HttpServer server
+    List<Map<String, String>> requests = []
+    String content = "s1 a1\ng1 s2 a2\ng1 s3 a3\n"
+    String entityTag = '"v1"'
+    String lastModified = null
+    boolean compress = false
+    int status = 200
+    int parsed = 0
+
+    /** Builds servers from "name address" lines and groups from "group name address" lines. */
+    RemoteInventory.Parser parser = { InputStream body ->
+        parsed++
+        def nodes = []
+        def groupChildren = [:]
+        body.newReader('UTF-8').eachLine { line ->
+            def fields = line.tokenize(' ')
+            if (fields.size() == 2) {
+                nodes << new Server(fields[0], fields[1], '', [:], [])
+            } else {
+                groupChildren.computeIfAbsent(fields[0], {
+                    nodes << it
+                    []
+                }) << new Server(fields[1], fields[2], '', [:], [])
+            }
+        }
+        nodes.collect { it instanceof String ? new GroupingNode(it, '', groupChildren[it], []) : it } as List<NetworkNode>
+    } as RemoteInventory.Parser
+
+    void setup() {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/inventory', { handle(it) })
+        server.start()
+    }
+
+    void cleanup() {
+        server.stop(0)
+    }
+
+    private void handle(HttpExchange exchange) {
+        def headers = exchange.requestHeaders
+        requests << ['If-None-Match', 'If-Modified-Since', 'Accept-Encoding'].collectEntries { [it, headers.getFirst(it)] }
+        if (status != 200) {
+            exchange.sendResponseHeaders(status, -1)
+        } else if (entityTag != null && headers.getFirst('If-None-Match') == entityTag
+                || entityTag == null && lastModified != null && headers.getFirst('If-Modified-Since') == lastModified) {
+            exchange.sendResponseHeaders(304, -1)
+        } else {
+            byte[] body = content.getBytes('UTF-8')
+            if (compress && headers.getFirst('Accept-Encoding')?.contains('gzip')) {
+                def buffer = new ByteArrayOutputStream()
+                new GZIPOutputStream(buffer).withStream { it.write(body) }
+                body = buffer.toByteArray()
+                exchange.responseHeaders.add('Content-Encoding', 'gzip')
+            }
+            if (entityTag != null) {
+                exchange.responseHeaders.add('ETag', entityTag)
+            }
+            if (lastModified != null) {
+                exchange.responseHeaders.add('Last-Modified', lastModified)
+            }
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.write(body)
+        }
+        exchange.close()
+    }
+
+    private RemoteInventory inventory() {
+        new RemoteInventory(new URL("http://localhost:${server.address.port}/inventory"))
+    }
+
+    @Unroll
+    def "should recognize remote location '#location'"() {
+        expect:
+        RemoteInventory.isRemote(location) == remote
+
+        where:
+        location                         | remote
+        'http://host/nodes.yml'          | true
+        'HTTPS://host:8443/nodes?site=1' | true
+        'nodes/site.yml'                 | false
+        '/etc/http/nodes.yml'            | false
+        'file:///tmp/nodes.yml'          | false
+    }
+
+    def "should validate arguments"() {
+        when:
+        new RemoteInventory(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        inventory().poll(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        inventory().isCurrent(null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should not parse inventory that was not modified"() {
+        given:
+        def instance = inventory()
+
+        when:
+        def changed = instance.poll(parser)
+
+        then:
+        changed
+        parsed == 1
+        instance.nodes*.name == ['s1', 'g1']
+        requests[0]['If-None-Match'] == null
+
+        when:
+        changed = instance.poll(parser)
+
+        then: "304 response costs no parsing"
+        !changed
+        parsed == 1
+        requests.size() == 2
+        requests[1]['If-None-Match'] == '"v1"'
+    }
+
+    def "should replace only changed subtrees"() {
+        given:
+        def instance = inventory()
+        instance.poll(parser)
+        def nodes = instance.nodes
+
+        when: "content is the same despite new entity tag"
+        entityTag = '"v2"'
+        def changed = instance.poll(parser)
+
+        then:
+        !changed
+        parsed == 2
+        instance.nodes.is(nodes)
+        instance.isCurrent(new ArrayList(nodes))
+
+        when:
+        content = "s1 a1\ng1 s2 a2\ng1 s3 changed\ns4 a4\n"
+        entityTag = '"v3"'
+        changed = instance.poll(parser)
+        def updated = instance.nodes
+
+        then:
+        changed
+        !instance.isCurrent(nodes)
+        updated*.name == ['s1', 'g1', 's4']
+        updated[0].is(nodes[0])
+        !updated[1].is(nodes[1])
+        updated[1].childNodes[0].is(nodes[1].childNodes[0])
+        updated[1].childNodes[1].address == 'changed'
+    }
+
+    def "should accept compressed content and use modification time"() {
+        given:
+        def instance = inventory()
+        compress = true
+        entityTag = null
+        lastModified = LAST_MODIFIED
+
+        when:
+        def changed = instance.poll(parser)
+
+        then:
+        changed
+        requests[0]['Accept-Encoding'] == 'gzip'
+        instance.nodes[1].childNodes*.address == ['a2', 'a3']
+
+        when:
+        changed = instance.poll(parser)
+
+        then:
+        !changed
+        parsed == 1
+        requests[1]['If-Modified-Since'] == LAST_MODIFIED
+        requests[1]['If-None-Match'] == null
+    }
+
+    def "should keep validators of last parsed content"() {
+        given:
+        def instance = inventory()
+        def failing = { throw new IOException('invalid content') } as RemoteInventory.Parser
+
+        when:
+        instance.poll(failing)
+
+        then:
+        thrown IOException
+        instance.nodes == null
+        instance.isCurrent([])
+
+        when:
+        def changed = instance.poll(parser)
+
+        then: "content that failed to parse is requested again"
+        changed
+        requests[1]['If-None-Match'] == null
+        instance.nodes*.name == ['s1', 'g1']
+    }
+
+    def "should report unexpected response"() {
+        given:
+        def instance = inventory()
+        status = 500
+
+        when:
+        instance.poll(parser)
+
+        then:
+        thrown IOException
+        parsed == 0
+    }
+
+    def "should be due after poll period"() {
+        given:
+        def instance = inventory()
+        def now = System.currentTimeMillis()
+
+        expect:
+        instance.isDue(now, 60_000)
+
+        when:
+        instance.poll(parser)
+
+        then:
+        !instance.isDue(now, 60_000)
+        instance.isDue(now + 120_000, 60_000)
+    }
+}
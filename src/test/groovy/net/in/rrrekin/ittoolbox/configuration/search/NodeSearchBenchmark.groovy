@@ -0,0 +1,107 @@
+package net.in.rrrekin.ittoolbox.configuration.search
+
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static net.in.rrrekin.ittoolbox.configuration.snapshot.ConfigurationSnapshotBenchmark.generateConfiguration
+
+/**
+ * Measures search of nodes in large configuration. Skipped unless started with
+ * {@code -Dbenchmark=true}.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+@Requires({ Boolean.getBoolean('benchmark') })
+class NodeSearchBenchmark extends Specification {
+
+    static final int NODE_COUNT = 100_000
+    static final int LIMIT = 1000
+    static final int ROUNDS = 20
+
+    @Shared
+    Configuration configuration = generateConfiguration(NODE_COUNT)
+    @Shared
+    NodeSearchIndex index = new NodeSearchIndex()
+
+    void setupSpec() {
+        long start = System.nanoTime()
+        index.update(configuration.networkNodes)
+        println "$NODE_COUNT nodes indexed in ${(System.nanoTime() - start).intdiv(1_000_000)} ms"
+    }
+
+    @Unroll
+    def "should find '#query' in #NODE_COUNT nodes in less than 10 ms"() {
+        given:
+        index.search(query, LIMIT)
+
+        when:
+        long start = System.nanoTime()
+        def hits = null
+        ROUNDS.times { hits = index.search(query, LIMIT) }
+        def time = (System.nanoTime() - start) / ROUNDS / 1_000_000
+        println "'$query': ${hits.size()} hits in $time ms"
+
+        then:
+        hits.size() == expectedHits
+        time < 10
+
+        where:
+        query            || expectedHits
+        'server-4242'    || 10
+        '10.0.200.'      || 230
+        'node-99990'     || 1
+        'Generic node 7' || LIMIT
+        'rack=r10'       || LIMIT
+        'ssh'            || LIMIT
+        'https'          || LIMIT
+        '9'              || LIMIT
+        'missing'        || 0
+    }
+
+    @Unroll
+    def "should find all nodes containing '#query' in #NODE_COUNT nodes in less than 10 ms"() {
+        given:
+        index.findAll(query)
+
+        when:
+        long start = System.nanoTime()
+        def found = null
+        ROUNDS.times { found = index.findAll(query) }
+        def time = (System.nanoTime() - start) / ROUNDS / 1_000_000
+        println "'$query': ${found.size()} nodes found in $time ms"
+
+        then:
+        !found.isEmpty()
+        time < 10
+
+        where:
+        query << ['server-4242', 'Generic node 7', 'ssh', 'https', '9']
+    }
+
+    def "should update index with single changed node in less than 10 ms"() {
+        given:
+        List<NetworkNode> groups = configuration.networkNodes
+        def group = groups[500] as GroupingNode
+        List<NetworkNode> children = new ArrayList<>(group.childNodes)
+        children[5] = new Server('changed-server', '10.1.1.1', 'Changed', [:], ['ssh'])
+        List<NetworkNode> changed = new ArrayList<>(groups)
+        changed[500] = new GroupingNode(group.name, group.description, children, new ArrayList<>(group.serviceDescriptors))
+
+        when:
+        long start = System.nanoTime()
+        index.update(changed)
+        def time = (System.nanoTime() - start) / 1_000_000
+        println "Single node change indexed in $time ms"
+
+        then:
+        index.search('changed-server', LIMIT)*.indexPath == [[500, 5]]
+        index.size() == NODE_COUNT + NODE_COUNT.intdiv(100)
+        time < 10
+    }
+}
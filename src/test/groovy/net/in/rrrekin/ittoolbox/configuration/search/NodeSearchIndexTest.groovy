@@ -0,0 +1,140 @@
+package net.in.rrrekin.ittoolbox.configuration.search
+
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodeSearchIndexTest extends Specification {
+
+    def s1 = new Server('web-01', '10.0.0.1', 'Front end', [os: 'linux'], ['ssh', 'https'])
+    def s2 = new Server('db-01', '10.0.1.1', 'Baza Zażółć', [os: 'aix'], ['ssh'])
+    def g1 = new GenericNode('switch', 'Core switch', [rack: 'R12'], ['telnet'])
+    def s3 = new Server('web-02', '10.0.0.2', 'Front end', [os: 'linux'], ['https:8443'])
+    def include = new IncludeNode('site', 'Remote site', 'sites/krakow.yml', [s3], [])
+    List<NetworkNode> nodes = [s1, new GroupingNode('dc', 'Data center', [s2, g1], []), include]
+
+    def instance = new NodeSearchIndex()
+
+    void setup() {
+        instance.update(nodes)
+    }
+
+    def "should validate arguments"() {
+        when:
+        instance.update(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.search(null, 10)
+
+        then:
+        thrown NullPointerException
+    }
+
+    @Unroll
+    def "should find '#query' in any field ignoring case"() {
+        expect:
+        instance.search(query, 10)*.node*.name == expected
+        instance.search(query, 10)*.indexPath == paths
+
+        where:
+        query       || expected                     | paths
+        'WEB-0'     || ['web-01', 'web-02']         | [[0], [2, 0]]
+        '10.0.1.'   || ['db-01']                    | [[1, 0]]
+        'zażółć'    || ['db-01']                    | [[1, 0]]
+        'os=linux'  || ['web-01', 'web-02']         | [[0], [2, 0]]
+        'r12'       || ['switch']                   | [[1, 1]]
+        'https'     || ['web-01', 'web-02']         | [[0], [2, 0]]
+        'krakow'    || ['site']                     | [[2]]
+        'center'    || ['dc']                       | [[1]]
+        'ss'        || ['web-01', 'db-01']          | [[0], [1, 0]]
+        'x'         || ['web-01', 'db-01', 'web-02'] | [[0], [1, 0], [2, 0]]
+        'missing'   || []                           | []
+        'linuxssh'  || []                           | []
+        ''          || []                           | []
+    }
+
+    @Unroll
+    def "should find all nodes containing '#query'"() {
+        expect:
+        (instance.findAll(query)*.name as Set) == expected as Set
+
+        where:
+        query     || expected
+        'web-0'   || ['web-01', 'web-02']
+        'SS'      || ['web-01', 'db-01']
+        'x'       || ['web-01', 'db-01', 'web-02']
+        'center'  || ['dc']
+        'missing' || []
+        ''        || []
+    }
+
+    def "should limit number of results to first nodes in tree order"() {
+        expect:
+        instance.search('e', 2)*.indexPath == [[0], [1]]
+        instance.search('10.0', 2)*.indexPath == [[0], [1, 0]]
+        instance.search('10.0', 0).isEmpty()
+        instance.size() == 6
+    }
+
+    def "should update index incrementally from new node trees"() {
+        given:
+        def s4 = new Server('web-03', '10.0.0.3', 'Front end', [os: 'linux'], ['ssh'])
+        def changed = new Server('db-01', '10.0.9.9', 'Baza Zażółć', [os: 'aix'], ['ssh'])
+
+        when: "node is changed and another one is added"
+        instance.update([s1, new GroupingNode('dc', 'Data center', [changed, g1, s4], []), include])
+
+        then:
+        instance.search('10.0.1.', 10).isEmpty()
+        instance.search('10.0.9.', 10)*.node == [changed]
+        instance.search('web', 10)*.indexPath == [[0], [1, 2], [2, 0]]
+        instance.size() == 7
+
+        when: "nodes are removed and moved"
+        instance.update([include, s1])
+
+        then:
+        instance.search('web', 10)*.indexPath == [[0, 0], [1]]
+        instance.search('switch', 10).isEmpty()
+        instance.size() == 3
+    }
+
+    def "should give the same results as full rebuild after many updates"() {
+        given:
+        def random = new Random(42)
+        List<NetworkNode> current = nodes
+
+        when:
+        500.times { step ->
+            def servers = (0..<random.nextInt(20)).collect {
+                new Server("server-${random.nextInt(30)}", "10.0.${step}.$it", "Step $step", [:], ['ssh'])
+            }
+            current = random.nextBoolean() ? [new GroupingNode('g', 'Group', servers, [])] + current.take(3) : servers
+            instance.update(current)
+        }
+        def rebuilt = new NodeSearchIndex()
+        rebuilt.update(current)
+
+        then:
+        ['server-1', '10.0.49', 'step 4', 'ssh', 'group', 'x'].every {
+            instance.search(it, 100) == rebuilt.search(it, 100)
+        }
+        instance.size() == rebuilt.size()
+    }
+
+    def "should index text of all fields separated by new lines"() {
+        expect:
+        NodeSearchIndex.textOf(s1) == 'web-01\nfront end\n10.0.0.1\nos=linux\nssh\nhttps'
+        NodeSearchIndex.textOf(include) == 'site\nremote site\nsites/krakow.yml'
+    }
+}
@@ -0,0 +1,64 @@
+package net.in.rrrekin.ittoolbox.configuration.search
+
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodeSearchServiceTest extends Specification {
+
+    static final CONFIG = new Configuration([
+            new Server('web-01', '10.0.0.1', 'Front end', [:], ['ssh']),
+            new GroupingNode('dc', 'Data center', [new Server('db-01', '10.0.1.1', 'Database', [:], ['ssh'])], [])
+    ], [:])
+    static final CONFIG_2 = new Configuration([new Server('web-02', '10.0.0.2', 'Front end', [:], ['ssh'])], [:])
+
+    def instance = new NodeSearchService()
+
+    def "should not find nodes before they are reported"() {
+        expect:
+        instance.search('web', 10).isEmpty()
+        instance.@index.size() == 0
+    }
+
+    def "should index reported nodes in background"() {
+        given:
+        def conditions = new PollingConditions(timeout: 10)
+
+        when:
+        instance.update(CONFIG.networkNodes)
+
+        then:
+        conditions.eventually {
+            assert instance.@index.size() == 3
+        }
+    }
+
+    def "should search in last reported nodes"() {
+        when:
+        instance.update(CONFIG.networkNodes)
+        def hits = instance.search('WEB', 10)
+
+        then:
+        hits == [new SearchHit([0], CONFIG.networkNodes[0])]
+
+        when:
+        hits = instance.search('10.0', 10)
+
+        then:
+        hits*.indexPath == [[0], [1, 0]]
+
+        when: "new version of nodes is reported"
+        instance.update(CONFIG_2.networkNodes)
+        hits = instance.search('web', 10)
+
+        then:
+        hits*.node == CONFIG_2.networkNodes
+        instance.findAll('WEB') == CONFIG_2.networkNodes
+        instance.@index.size() == 1
+    }
+}
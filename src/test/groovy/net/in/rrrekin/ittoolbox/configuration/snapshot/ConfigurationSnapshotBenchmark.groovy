@@ -0,0 +1,85 @@
+package net.in.rrrekin.ittoolbox.configuration.snapshot
+
+import com.google.common.eventbus.EventBus
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.ConfigurationPersistenceService
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.services.ServiceRegistry
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Compares loading and saving of configuration as YAML file and as binary snapshot. Skipped unless
+ * started with {@code -Dbenchmark=true}.
+ *
+ * @author michal.rudewicz@gmail.com
+ */
+@Requires({ Boolean.getBoolean('benchmark') })
+class ConfigurationSnapshotBenchmark extends Specification {
+
+    static final int ROUNDS = 5
+    static final int GROUP_SIZE = 100
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def serviceRegistry = new ServiceRegistry()
+    def eventBus = new EventBus()
+    def persistenceService = new ConfigurationPersistenceService(serviceRegistry, new NodeFactory(eventBus), eventBus)
+    def snapshotService = new ConfigurationSnapshotService(serviceRegistry)
+
+    static Configuration generateConfiguration(int nodeCount) {
+        List<NetworkNode> groups = []
+        for (int i = 0; i < nodeCount; i += GROUP_SIZE) {
+            List<NetworkNode> children = []
+            for (int j = i; j < Math.min(i + GROUP_SIZE, nodeCount); j++) {
+                children << (j % 10 == 0
+                        ? new GenericNode("node-$j", "Generic node $j", [rack: "r${j % 40}", owner: 'ops'], ['ssh', 'http:8080'])
+                        : new Server("server-$j", "10.${j >> 16 & 255}.${j >> 8 & 255}.${j & 255}", "Server $j", [:], ['ssh', 'https']))
+            }
+            groups << new GroupingNode("group-$i", "Group $i", children, ['ping'])
+        }
+        return new Configuration(groups, [ssh: [terminal: 'true', command: 'ssh'] as HashMap])
+    }
+
+    static long bestOf(Closure action) {
+        long best = Long.MAX_VALUE
+        ROUNDS.times {
+            long start = System.nanoTime()
+            action()
+            best = Math.min(best, System.nanoTime() - start)
+        }
+        return best.intdiv(1_000_000)
+    }
+
+    @Unroll
+    def "should load #nodeCount nodes from snapshot faster than from YAML"() {
+        given:
+        def configuration = generateConfiguration(nodeCount)
+        def configFile = temporaryFolder.newFile('config.yml')
+        def snapshotFile = new File(temporaryFolder.root, 'config.snapshot')
+
+        when:
+        def yamlSave = bestOf { persistenceService.save(configFile, configuration) }
+        def snapshotSave = bestOf { snapshotService.save(snapshotFile, FileFingerprint.of(configFile), configuration) }
+        def yamlLoad = bestOf { persistenceService.load(configFile) }
+        def snapshotLoad = bestOf { snapshotService.load(snapshotFile, FileFingerprint.of(configFile)) }
+        println "$nodeCount nodes: YAML ${configFile.length()} B, save $yamlSave ms, load $yamlLoad ms; " +
+                "snapshot ${snapshotFile.length()} B, save $snapshotSave ms, load $snapshotLoad ms"
+
+        then:
+        snapshotService.load(snapshotFile, FileFingerprint.of(configFile)) != null
+        snapshotLoad < yamlLoad
+
+        where:
+        nodeCount << [10_000, 100_000]
+    }
+}
@@ -0,0 +1,205 @@
+package net.in.rrrekin.ittoolbox.configuration.snapshot
+
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNodeCompareTrait
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.services.ServiceDefinition
+import net.in.rrrekin.ittoolbox.services.ServiceRegistry
+import net.in.rrrekin.ittoolbox.utilities.FileFingerprint
+import net.in.rrrekin.ittoolbox.utilities.LocaleUtil
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.stream.Stream
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class ConfigurationSnapshotServiceTest extends Specification implements NetworkNodeCompareTrait {
+    static final SAMPLE_NODES = [
+            new Server('s1', 'a1', '2018年1月1日 星期一 下午03时20分34秒', [:], []),
+            new GenericNode('s2', 'd2', [p1: 'vvv1'], ['vlan:1001']),
+            new GroupingNode('g4', 'zażółć gęślą jaźń', [
+                    new Server('s5', 'a5', '', [p2: 'vvv2', p3: ''], ['ssh']),
+                    new GroupingNode('g8', 'd8', [], []),
+                    new GenericNode('s6', 'd6', [:], []),
+            ], ['docker-compose:/path/to/dir']),
+            new Server('s12', 'a12', 'd12', [:], ['https:9000', 'ssh']),
+    ]
+    static final SAMPLE_MODULES = [ssh: [terminal: 'true', command: 'ssh'] as HashMap, ping: [:] as HashMap]
+    static final CONFIGURATION = new Configuration(SAMPLE_NODES, SAMPLE_MODULES)
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    ServiceDefinition service1 = Stub() {
+        getId() >> 'service1'; getConfiguration() >> 'service1 configuration'
+    }
+    ServiceRegistry serviceRegistry = Mock()
+
+    def instance = new ConfigurationSnapshotService(serviceRegistry)
+    File configFile
+    File snapshotFile
+
+    void setup() {
+        configFile = temporaryFolder.newFile('config.yml')
+        configFile.text = 'configuration file content'
+        snapshotFile = new File(temporaryFolder.root, 'config.snapshot')
+    }
+
+    void cleanup() {
+        LocaleUtil.setLocale(null)
+    }
+
+    def "should validate arguments"() {
+        when:
+        new ConfigurationSnapshotService(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.load(null, FileFingerprint.of(configFile))
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.load(snapshotFile, null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.save(null, FileFingerprint.of(configFile), CONFIGURATION)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.save(snapshotFile, null, CONFIGURATION)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.save(snapshotFile, FileFingerprint.of(configFile), null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should save and load snapshot"() {
+        given:
+        LocaleUtil.setLocale(Locale.CHINESE)
+        def fingerprint = FileFingerprint.of(configFile)
+
+        when:
+        instance.save(snapshotFile, fingerprint, CONFIGURATION)
+        LocaleUtil.setLocale(null)
+
+        then:
+        snapshotFile.isFile()
+        1 * serviceRegistry.stream() >> Stream.of(service1)
+        0 * serviceRegistry._
+
+        when:
+        def configuration = instance.load(snapshotFile, fingerprint)
+
+        then:
+        equal(configuration.networkNodes, SAMPLE_NODES)
+        configuration.modules == SAMPLE_MODULES
+        LocaleUtil.localeCode == 'zh'
+        1 * serviceRegistry.configureService('service1', 'service1 configuration')
+        0 * serviceRegistry._
+
+        and: "strings are shared between nodes"
+        configuration.networkNodes[2].childNodes[0].serviceDescriptors[0].is(configuration.networkNodes[3].serviceDescriptors[1])
+    }
+
+    def "should keep locale when it was not set"() {
+        given:
+        def fingerprint = FileFingerprint.of(configFile)
+        serviceRegistry.stream() >> { Stream.empty() }
+        instance.save(snapshotFile, fingerprint, CONFIGURATION)
+        LocaleUtil.setLocale(Locale.CHINESE)
+
+        when:
+        def configuration = instance.load(snapshotFile, fingerprint)
+
+        then:
+        configuration != null
+        LocaleUtil.localeCode == 'zh'
+    }
+
+    def "should ignore outdated snapshot"() {
+        given:
+        serviceRegistry.stream() >> { Stream.empty() }
+        instance.save(snapshotFile, FileFingerprint.of(configFile), CONFIGURATION)
+
+        when:
+        configFile.text = 'changed configuration'
+        def configuration = instance.load(snapshotFile, FileFingerprint.of(configFile))
+
+        then:
+        configuration == null
+        0 * serviceRegistry.configureService(*_)
+    }
+
+    def "should ignore missing or invalid snapshot"() {
+        given:
+        def fingerprint = FileFingerprint.of(configFile)
+        serviceRegistry.stream() >> { Stream.empty() }
+
+        expect: "missing snapshot"
+        instance.load(snapshotFile, fingerprint) == null
+
+        when: "truncated snapshot"
+        instance.save(snapshotFile, fingerprint, CONFIGURATION)
+        def bytes = snapshotFile.bytes
+        snapshotFile.bytes = bytes[0..-2] as byte[]
+
+        then:
+        instance.load(snapshotFile, fingerprint) == null
+
+        when: "extra data in snapshot"
+        snapshotFile.bytes = ((bytes as List) + [(byte) 0]) as byte[]
+
+        then:
+        instance.load(snapshotFile, fingerprint) == null
+
+        when: "unknown format"
+        snapshotFile.text = 'not a snapshot'
+
+        then:
+        instance.load(snapshotFile, fingerprint) == null
+
+        when: "valid snapshot"
+        snapshotFile.bytes = bytes
+
+        then:
+        instance.load(snapshotFile, fingerprint) != null
+    }
+
+    def "should remove snapshot that cannot be written"() {
+        given:
+        def fingerprint = FileFingerprint.of(configFile)
+        serviceRegistry.stream() >> { Stream.empty() }
+        instance.save(snapshotFile, fingerprint, CONFIGURATION)
+        NetworkNode unsupportedNode = Stub()
+
+        expect:
+        snapshotFile.exists()
+
+        when:
+        instance.save(snapshotFile, fingerprint, new Configuration([unsupportedNode], [:]))
+
+        then:
+        !snapshotFile.exists()
+        noExceptionThrown()
+    }
+}
@@ -0,0 +1,309 @@
+package net.in.rrrekin.ittoolbox.configuration.store
+
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.IncludeNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNodeCompareTrait
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodeStoreTest extends Specification implements NetworkNodeCompareTrait {
+    static final SAMPLE_MODULES = [ssh: [terminal: 'true', command: 'ssh'] as HashMap, ping: [:] as HashMap]
+    static final SAMPLE_SERVICES = [service1: 'service1 configuration', service2: '']
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    File storeFile
+    NodeStore instance
+
+    static List<NetworkNode> sampleNodes() {
+        return [
+                new Server('s1', 'a1', '2018年1月1日 星期一 下午03时20分34秒', [:], []),
+                new GenericNode('s2', 'd2', [p1: 'vvv1'], ['vlan:1001']),
+                new GroupingNode('g4', 'zażółć gęślą jaźń', [
+                        new Server('s5', 'a5', '', [p2: 'vvv2', p3: ''], ['ssh']),
+                        new GroupingNode('g8', 'd8', [], []),
+                        new GenericNode('s6', 'd6', [p1: 'vvv1'], []),
+                ], ['docker-compose:/path/to/dir']),
+                new IncludeNode('i10', 'd10', 'site.yml', [], ['ping']),
+                new Server('s12', 'a1', 'd12', [:], ['https:9000', 'ssh']),
+        ]
+    }
+
+    void setup() {
+        storeFile = new File(temporaryFolder.root, 'config' + NodeStore.FILE_EXTENSION)
+        instance = new NodeStore(storeFile)
+    }
+
+    def "should validate arguments"() {
+        when:
+        new NodeStore(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.save(null, SAMPLE_SERVICES, null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.save(new Configuration(sampleNodes(), SAMPLE_MODULES), null, null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        instance.findByProperty('p1', null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    def "should recognize store files"() {
+        expect:
+        NodeStore.isStoreFile(new File('dir/config.nodes'))
+        !NodeStore.isStoreFile(new File('dir/config.yml'))
+        !NodeStore.isStoreFile(new File('config.nodes/config.yml'))
+    }
+
+    def "should save and load nodes and settings"() {
+        given:
+        def nodes = sampleNodes()
+        nodes[3] = (nodes[3] as IncludeNode).withChildNodes([new Server('s11', 'a11', 'd11', [:], [])])
+
+        when:
+        def written = instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, 'zh')
+
+        then:
+        written
+        storeFile.isFile()
+
+        when:
+        def content = new NodeStore(storeFile).load()
+
+        then: "child nodes of include nodes are not stored"
+        content.localeCode == 'zh'
+        content.services == SAMPLE_SERVICES
+        content.modules == SAMPLE_MODULES
+        equal(content.networkNodes, sampleNodes())
+    }
+
+    def "should report missing or invalid store file"() {
+        when:
+        instance.load()
+
+        then:
+        thrown FileNotFoundException
+
+        when:
+        storeFile.text = 'not a node store'
+        instance.load()
+
+        then:
+        thrown IOException
+    }
+
+    def "should append only changed nodes"() {
+        given:
+        def nodes = sampleNodes()
+        def config = new Configuration(nodes, SAMPLE_MODULES)
+        instance.save(config, SAMPLE_SERVICES, null)
+        def fullSize = storeFile.length()
+        storeFile.setLastModified(1500000000000)
+
+        when: "nothing changed"
+        def written = instance.save(config, SAMPLE_SERVICES, null)
+
+        then:
+        !written
+        storeFile.length() == fullSize
+        storeFile.lastModified() == 1500000000000
+
+        when: "single property changed"
+        nodes[2] = nodes[2].withChildNodes([new Server('s5', 'a5', '', [p2: 'changed', p3: ''], ['ssh'])] + nodes[2].childNodes.drop(1))
+        config = new Configuration(nodes, SAMPLE_MODULES)
+        written = instance.save(config, SAMPLE_SERVICES, null)
+        def appended = storeFile.length() - fullSize
+
+        then:
+        written
+        appended > 0
+        appended < fullSize / 3
+        equal(new NodeStore(storeFile).load().networkNodes, nodes)
+
+        when: "nodes moved and removed"
+        def moved = nodes.remove(0)
+        nodes[1] = nodes[1].withChildNodes(nodes[1].childNodes.take(1) + nodes[1].childNodes.drop(2) + moved)
+        config = new Configuration(nodes, SAMPLE_MODULES)
+        written = instance.save(config, SAMPLE_SERVICES, null)
+
+        then:
+        written
+        equal(new NodeStore(storeFile).load().networkNodes, nodes)
+
+        when: "only settings changed"
+        def sizeBefore = storeFile.length()
+        written = instance.save(config, [service1: 'other'], 'pl')
+        def content = new NodeStore(storeFile).load()
+
+        then:
+        written
+        storeFile.length() - sizeBefore < fullSize / 3
+        content.services == [service1: 'other']
+        content.localeCode == 'pl'
+        equal(content.networkNodes, nodes)
+    }
+
+    def "should not rewrite nodes replaced by equal copies"() {
+        given:
+        instance.save(new Configuration(sampleNodes(), SAMPLE_MODULES), SAMPLE_SERVICES, null)
+        def size = storeFile.length()
+
+        when:
+        def loaded = instance.load()
+        def nodes = loaded.networkNodes.collect()
+        nodes[3] = (nodes[3] as IncludeNode).withChildNodes([new Server('s11', 'a11', 'd11', [:], [])], null)
+        def written = instance.save(new Configuration(nodes, loaded.modules), loaded.services, null)
+
+        then:
+        !written
+        storeFile.length() == size
+    }
+
+    def "should not give ids of nodes still in the tree to inserted nodes"() {
+        given:
+        def nodes = [new Server('s1', 'a1', 'x' * 10_000, [:], []), new Server('s2', 'a2', 'y' * 10_000, [:], [])]
+        def config = new Configuration(nodes, SAMPLE_MODULES)
+        instance.save(config, SAMPLE_SERVICES, null)
+        def size = storeFile.length()
+
+        when: "node inserted before stored ones"
+        nodes.add(0, new Server('s0'))
+        def written = instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+
+        then: "only inserted node and its next sibling are written"
+        written
+        storeFile.length() - size < 12_000
+        instance.@nodeIds[nodes[1]] == 1
+        instance.@nodeIds[nodes[2]] == 2
+        equal(new NodeStore(storeFile).load().networkNodes, nodes)
+    }
+
+    def "should find nodes in indexes"() {
+        given:
+        def nodes = sampleNodes()
+        def config = new Configuration(nodes, SAMPLE_MODULES)
+
+        when:
+        instance.save(config, SAMPLE_SERVICES, null)
+
+        then:
+        instance.findByName('s5')*.is(nodes[2].childNodes[0]) == [true]
+        instance.findByAddress('a1')*.name == ['s1', 's12']
+        instance.findByProperty('p1', 'vvv1')*.name == ['s2', 's6']
+        instance.findByProperty('p3', '')*.name == ['s5']
+        instance.findByProperty('p1', 'other').isEmpty()
+        instance.findByProperty('other', 'vvv1').isEmpty()
+        instance.findByName('unknown').isEmpty()
+
+        when:
+        nodes[1] = new GenericNode('s2', 'd2', [p1: 'other'], ['vlan:1001'])
+        nodes[0] = nodes[0].withName('renamed')
+        nodes.remove(4)
+        instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+
+        then:
+        instance.findByProperty('p1', 'vvv1')*.name == ['s6']
+        instance.findByProperty('p1', 'other')*.name == ['s2']
+        instance.findByName('s1').isEmpty()
+        instance.findByName('renamed')*.name == ['renamed']
+        instance.findByAddress('a1')*.name == ['renamed']
+
+        when:
+        def loaded = new NodeStore(storeFile)
+        def content = loaded.load()
+
+        then:
+        loaded.findByName('s6')*.is(content.networkNodes[2].childNodes[2]) == [true]
+        loaded.findByProperty('p1', 'other')*.name == ['s2']
+        loaded.findByAddress('a1')*.name == ['renamed']
+    }
+
+    def "should ignore unfinished save"() {
+        given:
+        def nodes = sampleNodes()
+        def config = new Configuration(nodes, SAMPLE_MODULES)
+        instance.save(config, SAMPLE_SERVICES, null)
+        def committed = storeFile.bytes
+        nodes[0] = new Server('s1', 'a1', 'changed', [:], [])
+        instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+        def bytes = storeFile.bytes
+
+        when: "last commit record is missing"
+        storeFile.bytes = bytes[0..-10] as byte[]
+        def store = new NodeStore(storeFile)
+        def content = store.load()
+
+        then:
+        equal(content.networkNodes, sampleNodes())
+
+        when: "record is damaged"
+        bytes[committed.length + 20] = (byte) (bytes[committed.length + 20] ^ 0x55)
+        storeFile.bytes = bytes
+        content = store.load()
+
+        then:
+        equal(content.networkNodes, sampleNodes())
+
+        when: "next save replaces records after last commit"
+        def changed = content.networkNodes.collect()
+        changed[1] = new GenericNode('s2', 'new', [p1: 'vvv1'], ['vlan:1001'])
+        store.save(new Configuration(changed, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+
+        then:
+        new NodeStore(storeFile).load().networkNodes[1].description == 'new'
+        new NodeStore(storeFile).load().networkNodes[0].description == '2018年1月1日 星期一 下午03时20分34秒'
+    }
+
+    def "should rewrite file changed by other store"() {
+        given:
+        def nodes = sampleNodes()
+        instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+        new NodeStore(storeFile).save(new Configuration(nodes.take(2), [:]), [:], null)
+
+        when:
+        nodes[0] = new Server('s1', 'a1', 'changed', [:], [])
+        instance.save(new Configuration(nodes, SAMPLE_MODULES), SAMPLE_SERVICES, null)
+        def content = new NodeStore(storeFile).load()
+
+        then:
+        equal(content.networkNodes, nodes)
+        content.modules == SAMPLE_MODULES
+    }
+
+    def "should compact file with many outdated rows"() {
+        given:
+        def server = new Server('s1', 'a1', 'd1', [:], [])
+        def config = null
+
+        when:
+        30.times {
+            config = new Configuration([new GenericNode('big', "$it" + 'x' * 10_000, [:], []), server], SAMPLE_MODULES)
+            instance.save(config, SAMPLE_SERVICES, null)
+        }
+
+        then:
+        storeFile.length() < 100_000
+        equal(new NodeStore(storeFile).load().networkNodes, config.networkNodes)
+    }
+}
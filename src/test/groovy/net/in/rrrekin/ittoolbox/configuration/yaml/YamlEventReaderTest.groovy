@@ -0,0 +1,127 @@
+package net.in.rrrekin.ittoolbox.configuration.yaml
+
+import org.yaml.snakeyaml.Yaml
+import org.yaml.snakeyaml.error.YAMLException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class YamlEventReaderTest extends Specification {
+
+  static YamlEventReader reader(String text) {
+    return new YamlEventReader(new Yaml().parse(new StringReader(text)))
+  }
+
+  def "should validate constructor arguments"() {
+    when:
+    new YamlEventReader(null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  @Unroll
+  def "should construct scalar '#text' the same way as Yaml.load"() {
+    given:
+    def instance = reader(text)
+    instance.readDocumentStart()
+
+    when:
+    def value = instance.readValue()
+    instance.readDocumentEnd()
+
+    then:
+    value == new Yaml().load(text)
+    value?.class == new Yaml().load(text)?.class
+
+    where:
+    text << ["abc", "'1.0'", "1.0", "42", "0x1F", "yes", "~", "2019-10-25", "!!str 12", "ssh:port=22"]
+  }
+
+  def "should compose collections the same way as Yaml.load"() {
+    given:
+    def text = "a: [1, two, {x: &v 3.5}]\nb:\n  c: *v\n  d: []\n"
+    def instance = reader(text)
+    instance.readDocumentStart()
+
+    when:
+    def value = instance.readValue()
+    instance.readDocumentEnd()
+
+    then:
+    value == new Yaml().load(text)
+  }
+
+  def "should navigate and skip values"() {
+    given:
+    def instance = reader("skipped: {a: [1, 2, {b: c}]}\nlist: [x, y]\nlast: z\n")
+
+    expect:
+    instance.readDocumentStart()
+    instance.isMappingStart()
+
+    when:
+    instance.readMappingStart()
+    def key1 = instance.readString()
+    instance.skipValue()
+    def key2 = instance.readString()
+    def isSequence = instance.isSequenceStart()
+    instance.readSequenceStart()
+    def elements = []
+    while (!instance.isSequenceEnd()) {
+      elements << instance.readString()
+    }
+    instance.readSequenceEnd()
+    def key3 = instance.readString()
+    def scalar = instance.isScalar()
+    def value3 = instance.readString()
+    def mappingEnd = instance.isMappingEnd()
+    instance.readMappingEnd()
+    instance.readDocumentEnd()
+
+    then:
+    key1 == 'skipped'
+    key2 == 'list'
+    isSequence
+    elements == ['x', 'y']
+    key3 == 'last'
+    scalar
+    value3 == 'z'
+    mappingEnd
+  }
+
+  def "should detect empty stream"() {
+    expect:
+    !reader('').readDocumentStart()
+    !reader('# only comment').readDocumentStart()
+  }
+
+  def "should reject unexpected structure"() {
+    when:
+    def instance = reader('[a]')
+    instance.readDocumentStart()
+    instance.readMappingStart()
+
+    then:
+    thrown YAMLException
+
+    when:
+    instance = reader('--- a\n--- b\n')
+    instance.readDocumentStart()
+    instance.readValue()
+    instance.readDocumentEnd()
+
+    then:
+    thrown YAMLException
+
+    when:
+    instance = reader('[*unknown]')
+    instance.readDocumentStart()
+    instance.readValue()
+
+    then:
+    thrown YAMLException
+  }
+}
@@ -0,0 +1,78 @@
+package net.in.rrrekin.ittoolbox.configuration.yaml
+
+import org.yaml.snakeyaml.DumperOptions
+import org.yaml.snakeyaml.Yaml
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class YamlEventWriterTest extends Specification {
+
+  static DumperOptions options() {
+    def options = new DumperOptions()
+    options.indent = 4
+    options.indicatorIndent = 2
+    options.allowUnicode = true
+    options.version = DumperOptions.Version.V1_1
+    options.defaultFlowStyle = DumperOptions.FlowStyle.BLOCK
+    return options
+  }
+
+  def "should validate constructor arguments"() {
+    when:
+    new YamlEventWriter(null, options())
+
+    then:
+    thrown NullPointerException
+
+    when:
+    new YamlEventWriter(new StringWriter(), null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  @Unroll
+  def "should write scalar '#value' the same way as Yaml.dump"() {
+    given:
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options())
+
+    when:
+    writer.startDocument()
+    writer.writeScalar(value)
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options()).dump(value)
+    new Yaml().load(output.toString()) == value
+
+    where:
+    value << ['abc', '1.0', '42', 'yes', '~', '', 'multi\nline', 'x: y', '- a', 'zażółć', '\u0001']
+  }
+
+  def "should write collections the same way as Yaml.dump"() {
+    given:
+    def output = new StringWriter()
+    def writer = new YamlEventWriter(output, options())
+    def expected = [a: '1', list: ['x', 'null'], empty: [], map: [k: 'v'], none: [:]]
+
+    when:
+    writer.startDocument()
+    writer.startMapping()
+    writer.writeEntry('a', '1')
+    writer.writeEntry('list', ['x', 'null'])
+    writer.writeEntry('empty', [])
+    writer.writeScalar('map')
+    writer.writeMapping([k: 'v'])
+    writer.writeScalar('none')
+    writer.writeMapping([:])
+    writer.endMapping()
+    writer.endDocument()
+
+    then:
+    output.toString() == new Yaml(options()).dump(expected)
+  }
+}
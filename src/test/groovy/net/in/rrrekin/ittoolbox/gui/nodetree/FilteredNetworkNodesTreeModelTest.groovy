@@ -0,0 +1,317 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree
+
+import com.google.common.eventbus.EventBus
+import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
+import jiconfont.swing.IconFontSwing
+import net.in.rrrekin.ittoolbox.configuration.Configuration
+import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService
+import net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent
+import net.in.rrrekin.ittoolbox.gui.EdtInvokeService
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.swing.JTree
+import javax.swing.event.TreeModelListener
+import javax.swing.tree.TreePath
+
+import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.OK
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class FilteredNetworkNodesTreeModelTest extends Specification {
+
+  static final CONFIGURATION = new Configuration([
+    new Server('web-01', '10.0.0.1', 'Front end', [:], ['ssh']),
+    new GroupingNode('dc', 'Data center', [
+      new Server('db-01', '10.0.1.1', 'Database', [:], ['ssh']),
+      new GroupingNode('rack', 'Rack 1', [
+        new Server('web-02', '10.0.1.2', 'Front end', [:], ['https']),
+        new GenericNode('switch', 'Core switch', [:], []),
+      ], []),
+    ], []),
+    new GenericNode('router', 'Edge router', [:], []),
+  ], [:])
+  static final ALL_NODES = ['web-01', 'dc', '  db-01', '  rack', '    web-02', '    switch', 'router']
+  static final NODE_FACTORY = new NodeFactory(new EventBus())
+
+  Configuration configuration = CONFIGURATION
+  ConfigurationManager configurationManager = Mock() {
+    getConfig() >> { configuration }
+    recordChange(_, _) >> { Configuration expected, JournalEntry entry ->
+      configuration = configuration.withChange(entry, NODE_FACTORY)
+      true
+    }
+  }
+  EventBus eventBus = Mock()
+  EdtInvokeService invokeService = Mock() {
+    runInEdt(_) >> { args -> args[0].run() }
+    runInEdtAndWait(_) >> { args -> args[0].run() }
+  }
+  TreeModelListener listener = Mock()
+  def searchService = new NodeSearchService()
+
+  def model = new NetworkNodesTreeModelFacade(configurationManager, eventBus, invokeService, searchService)
+  def instance = new FilteredNetworkNodesTreeModel(model, searchService)
+
+  void setupSpec() {
+    IconFontSwing.register(GoogleMaterialDesignIcons.getIconFont());
+  }
+
+  void setup() {
+    model.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+  }
+
+  /** Records copy of a node of the decorated model with given fields changed. */
+  void change(NetworkNode node, Map<String, Object> fields) {
+    model.nodeChanged(node, NODE_FACTORY.createNode(node.dtoProperties + fields, 'test'))
+  }
+
+  /** Gets names of nodes shown by the instance, in tree order and indented by depth. */
+  List<String> shownNodes(Object parent = instance.root, String indent = '') {
+    (0..<instance.getChildCount(parent)).collectMany { index ->
+      def child = instance.getChild(parent, index)
+      assert instance.getIndexOfChild(parent, child) == index
+      ["$indent$child.name".toString()] + shownNodes(child, indent + '  ')
+    }
+  }
+
+  def "should validate constructor arguments"() {
+    when:
+    new FilteredNetworkNodesTreeModel(null, searchService)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    new FilteredNetworkNodesTreeModel(model, null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  def "should show all nodes of decorated model when not filtered"() {
+    expect:
+    !instance.filtered
+    instance.query == ''
+    instance.root.is(model.root)
+    shownNodes() == ALL_NODES
+  }
+
+  @Unroll
+  def "should show nodes containing '#query' with their ancestors"() {
+    when:
+    instance.setQuery(query)
+
+    then:
+    shownNodes() == expected
+    instance.filtered == !query.isEmpty()
+
+    where:
+    query     || expected
+    'WEB'     || ['web-01', 'dc', '  rack', '    web-02']
+    'switch'  || ['dc', '  rack', '    switch']
+    'rack 1'  || ['dc', '  rack']
+    '10.0.1.' || ['dc', '  db-01', '  rack', '    web-02']
+    'missing' || []
+    ''        || ALL_NODES
+  }
+
+  def "should hide nodes removed by filter"() {
+    given:
+    instance.setQuery('web')
+    def dc = instance.getChild(instance.root, 1)
+
+    expect:
+    instance.getIndexOfChild(instance.root, model.getChild(model.root, 2)) == -1
+    instance.getIndexOfChild(dc, model.getChild(dc, 0)) == -1
+    instance.getIndexOfChild(dc, model.getChild(dc, 1)) == 0
+    instance.getChildCount(dc) == 1
+    instance.isLeaf(dc) == model.isLeaf(dc)
+  }
+
+  def "should reuse matches of previous queries when query is narrowed"() {
+    when:
+    instance.setQuery('w')
+    instance.setQuery('we')
+    instance.setQuery('WEB')
+
+    then:
+    instance.@filters*.query == ['web', 'we', 'w']
+    shownNodes() == ['web-01', 'dc', '  rack', '    web-02']
+
+    when: "last character is removed"
+    instance.setQuery('we')
+
+    then:
+    instance.@filters*.query == ['we', 'w']
+    shownNodes() == ['web-01', 'dc', '  rack', '    web-02']
+
+    when: "query is changed"
+    instance.setQuery('db')
+
+    then:
+    instance.@filters*.query == ['db']
+    shownNodes() == ['dc', '  db-01']
+
+    when: "filter is cleared"
+    instance.setQuery('')
+
+    then:
+    instance.@filters.isEmpty()
+    shownNodes() == ALL_NODES
+  }
+
+  def "should notify listeners about nodes hidden and shown when query changes"() {
+    given:
+    instance.addTreeModelListener(listener)
+    def dc = model.getChild(model.root, 1)
+    def rack = model.getChild(dc, 1)
+
+    when:
+    instance.setQuery('web')
+
+    then:
+    1 * listener.treeNodesRemoved({ it.source.is(instance) && it.treePath.lastPathComponent.is(model.root) && it.childIndices == [2] as int[] && it.children[0].name == 'router' })
+    1 * listener.treeNodesRemoved({ it.treePath == new TreePath([model.root, dc] as Object[]) && it.childIndices == [0] as int[] && it.children[0].name == 'db-01' })
+    1 * listener.treeNodesRemoved({ it.treePath.lastPathComponent.is(rack) && it.childIndices == [1] as int[] && it.children[0].name == 'switch' })
+    0 * _._
+
+    when:
+    instance.setQuery('WEB')
+
+    then:
+    0 * _._
+
+    when: "query is changed"
+    instance.setQuery('db')
+
+    then: "nodes below hidden groups are not reported"
+    1 * listener.treeNodesRemoved({ it.treePath.lastPathComponent.is(model.root) && it.childIndices == [0] as int[] && it.children[0].name == 'web-01' })
+    1 * listener.treeNodesRemoved({ it.treePath.lastPathComponent.is(dc) && it.childIndices == [0] as int[] && it.children[0].name == 'rack' })
+
+    then:
+    1 * listener.treeNodesInserted({ it.treePath.lastPathComponent.is(dc) && it.childIndices == [0] as int[] && it.children[0].name == 'db-01' })
+    0 * _._
+
+    when:
+    instance.removeTreeModelListener(listener)
+    instance.setQuery('')
+
+    then:
+    0 * _._
+  }
+
+  def "should keep groups expanded when query changes"() {
+    given:
+    def tree = new JTree(instance)
+    def dc = new TreePath([model.root, model.getChild(model.root, 1)] as Object[])
+    tree.expandPath(dc)
+    def shownRows = { (1..<tree.rowCount).collect { tree.getPathForRow(it).lastPathComponent.name } }
+
+    when:
+    instance.setQuery('web')
+
+    then:
+    tree.isExpanded(dc)
+    shownRows() == ['web-01', 'dc', 'rack']
+
+    when:
+    instance.setQuery('db')
+
+    then:
+    tree.isExpanded(dc)
+    shownRows() == ['dc', 'db-01']
+
+    when:
+    instance.setQuery('')
+
+    then:
+    tree.isExpanded(dc)
+    shownRows() == ['web-01', 'dc', 'db-01', 'rack', 'router']
+  }
+
+  def "should pass events of decorated model when not filtered"() {
+    given:
+    instance.addTreeModelListener(listener)
+    def node = model.getChild(model.root, 0)
+
+    when:
+    change(node, [description: 'Changed'])
+
+    then:
+    1 * listener.treeNodesChanged({
+      it.source.is(instance) && it.childIndices == [0] as int[] && it.children[0].is(model.getChild(model.root, 0))
+    })
+    0 * listener._
+    model.getChild(model.root, 0).description == 'Changed'
+  }
+
+  def "should update shown nodes when nodes change"() {
+    given:
+    instance.setQuery('web')
+    instance.addTreeModelListener(listener)
+    def web01 = model.getChild(model.root, 0)
+    def dc = model.getChild(model.root, 1)
+    def db01 = model.getChild(dc, 0)
+
+    when: "shown node changes and is still shown"
+    change(web01, [description: 'Web front end'])
+
+    then:
+    1 * listener.treeNodesChanged({ it.childIndices == [0] as int[] && it.children[0].description == 'Web front end' })
+    0 * listener._
+    shownNodes() == ['web-01', 'dc', '  rack', '    web-02']
+    and: "new version of the node keeps its number"
+    !instance.@numbers.containsKey(web01)
+    instance.@numbers.containsKey(model.getChild(model.root, 0))
+
+    when: "hidden node starts matching the query"
+    change(db01, [description: 'Web database'])
+
+    then: "new version of the parent is shown"
+    1 * listener.treeNodesChanged({ it.childIndices == [1] as int[] && it.children[0].name == 'dc' && !it.children[0].is(dc) })
+    1 * listener.treeStructureChanged({ it.treePath.lastPathComponent.is(model.getChild(model.root, 1)) })
+    0 * listener._
+    shownNodes() == ['web-01', 'dc', '  db-01', '  rack', '    web-02']
+
+    when: "shown node stops matching the query"
+    change(model.getChild(model.root, 0), [name: 'proxy-01', description: 'Proxy'])
+
+    then:
+    1 * listener.treeStructureChanged({ it.treePath.lastPathComponent.is(model.root) })
+    0 * listener._
+    shownNodes() == ['dc', '  db-01', '  rack', '    web-02']
+  }
+
+  def "should update shown nodes when configuration is reloaded"() {
+    given:
+    instance.setQuery('web')
+
+    when:
+    configuration = new Configuration([
+      new GroupingNode('dc', 'Data center', [
+        new Server('web-03', '10.0.1.3', 'Front end', [:], ['https']),
+        new GroupingNode('rack', 'Rack 1', [new GenericNode('switch', 'Core switch', [:], [])], []),
+      ], []),
+      new Server('web-01', '10.0.0.1', 'Front end', [:], ['ssh']),
+    ], [:])
+    model.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+
+    then:
+    shownNodes() == ['dc', '  web-03', 'web-01']
+
+    when:
+    instance.setQuery('')
+
+    then:
+    shownNodes() == ['dc', '  web-03', '  rack', '    switch', 'web-01']
+  }
+}
@@ -0,0 +1,73 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree
+
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+
+import javax.swing.tree.TreeModel
+import javax.swing.tree.TreePath
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NetworkNodeTreeTest extends Specification {
+
+  def s2 = new Server('s2')
+  def s3 = new Server('s3')
+  def g1 = new GroupingNode('g1', '', [s2, s3], [])
+  def root = new GroupingNode('root', '', [g1], [])
+  def newS2 = new Server('s2', '', 'new version', [:], [])
+  def newG1 = g1.withChildNodes([newS2, s3])
+  def instance = new NetworkNodeTree()
+
+  void setup() {
+    instance.model = [
+      getRoot                : { root },
+      getChild               : { parent, index -> parent.childNodes[index] },
+      getChildCount          : { parent -> parent.leaf ? 0 : parent.childNodes.size() },
+      isLeaf                 : { node -> node.leaf },
+      getIndexOfChild        : { parent, child -> parent.childNodes.indexOf(child) },
+      valueForPathChanged    : { path, value -> },
+      addTreeModelListener   : { listener -> },
+      removeTreeModelListener: { listener -> },
+    ] as TreeModel
+  }
+
+  def path(Object... nodes) {
+    new TreePath(nodes)
+  }
+
+  def "should map expanded and selected paths to their current versions"() {
+    given:
+    instance.expandPath(path(root, g1))
+    instance.selectionPaths = [path(root, g1, s2), path(root, g1, s3)] as TreePath[]
+    def newRoot = root.withChildNodes([newG1])
+    def versions = [(root): newRoot, (g1): newG1, (s2): newS2]
+    root = newRoot
+
+    when:
+    instance.updatePaths { TreePath outdated ->
+      path(outdated.path.collect { versions.getOrDefault(it, it) } as Object[])
+    }
+
+    then:
+    instance.isExpanded(path(root, newG1))
+    instance.selectionPaths as List == [path(root, newG1, newS2), path(root, newG1, s3)]
+    and: "outdated paths are forgotten"
+    !instance.getDescendantToggledPaths(path(root)).toList().contains(path(root, g1))
+  }
+
+  def "should drop paths that are no longer valid"() {
+    given:
+    instance.expandPath(path(root, g1))
+    instance.selectionPath = path(root, g1, s3)
+
+    when:
+    instance.updatePaths { TreePath outdated -> outdated.pathCount > 1 ? null : outdated }
+
+    then:
+    !instance.isExpanded(path(root, g1))
+    instance.selectionPaths == null
+    instance.getDescendantToggledPaths(path(root)).toList() == [path(root)]
+  }
+}
@@ -0,0 +1,194 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree
+
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+
+import javax.swing.tree.TreePath
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NetworkNodesTreeDiffTest extends Specification {
+
+  List<NetworkNodesTreeDiff.ListChange> changes = []
+  NetworkNodesTreeDiff.Listener listener = { changes << it } as NetworkNodesTreeDiff.Listener
+  def rootPath = new TreePath('root')
+
+  def "should not report anything for the same nodes"() {
+    given:
+    def nodes = [new Server('s1', 'a1', 'd1', [:], []), new GroupingNode('g1', 'd', [new GenericNode('n1')], [])]
+
+    when:
+    NetworkNodesTreeDiff.compare(rootPath, nodes, nodes, listener)
+    NetworkNodesTreeDiff.compare(rootPath, nodes, nodes.collect(), listener)
+
+    then:
+    changes.isEmpty()
+  }
+
+  def "should report removed, inserted and replaced nodes"() {
+    given:
+    def s1 = new Server('s1', 'a1', 'd1', [:], [])
+    def s2 = new Server('s2', 'a2', 'd2', [:], [])
+    def s3 = new Server('s3', 'a3', 'd3', [:], [])
+    def s4 = new Server('s4', 'a4', 'd4', [:], [])
+    def nodes = [s1, s2, s3, s4]
+    def newS1 = new Server('s1', 'a1', 'new description', [:], [])
+    def newS2 = new Server('s2', 'other address', 'd2', [:], [])
+    def n5 = new GenericNode('n5')
+    def updated = [newS1, newS2, s3, n5]
+
+    when:
+    NetworkNodesTreeDiff.compare(rootPath, nodes, updated, listener)
+
+    then:
+    changes.size() == 1
+    with(changes[0]) {
+      parentPath == rootPath
+      oldNodes.is nodes
+      newNodes.is updated
+      removedIndices == [1, 3] as int[]
+      removedNodes == [s2, s4] as Object[]
+      insertedIndices == [1, 3] as int[]
+      insertedNodes == [newS2, n5] as Object[]
+      replacedIndices == [0] as int[]
+      replacedNodes == [s1] as Object[]
+      replacingNodes == [newS1] as Object[]
+    }
+    and: "nodes are not modified"
+    nodes == [s1, s2, s3, s4]
+    s1.description == 'd1'
+  }
+
+  def "should match single remaining node of the same type in the same place"() {
+    given:
+    def a = new GenericNode('a')
+    def b = new GenericNode('b')
+    def c = new GenericNode('c')
+    def renamed = new GenericNode('renamed')
+
+    when:
+    NetworkNodesTreeDiff.compare(rootPath, [a, b, c], [a, renamed, c], listener)
+
+    then:
+    changes.size() == 1
+    changes[0].replacedIndices == [1] as int[]
+    changes[0].replacedNodes == [b] as Object[]
+    changes[0].replacingNodes == [renamed] as Object[]
+    changes[0].removedNodes.length == 0
+    changes[0].insertedNodes.length == 0
+
+    when: "node of other type is not matched"
+    changes.clear()
+    def server = new Server('b')
+    NetworkNodesTreeDiff.compare(rootPath, [a, b, c], [a, server, c], listener)
+
+    then:
+    changes.size() == 1
+    changes[0].removedNodes == [b] as Object[]
+    changes[0].insertedNodes == [server] as Object[]
+    changes[0].replacedNodes.length == 0
+
+    when: "node in other place is not matched"
+    changes.clear()
+    NetworkNodesTreeDiff.compare(rootPath, [a, b], [renamed, a], listener)
+
+    then:
+    changes.size() == 1
+    changes[0].removedIndices == [1] as int[]
+    changes[0].insertedIndices == [0] as int[]
+    changes[0].replacedNodes.length == 0
+  }
+
+  def "should compare child nodes of replaced groups and skip shared subtrees"() {
+    given:
+    def leaf = new Server('s2', 'a2', 'd2', [:], [])
+    def shared = new GroupingNode('shared', '', [new Server('x')], [])
+    def inner = new GroupingNode('g2', '', [leaf], [])
+    def group = new GroupingNode('g1', '', [inner, shared], [])
+    def added = new Server('s3', 'a3', 'd3', [:], [])
+    def newInner = inner.withChildNodes([leaf, added])
+    def newGroup = group.withChildNodes([newInner, shared])
+
+    when:
+    NetworkNodesTreeDiff.compare(rootPath, [group], [newGroup], listener)
+
+    then: "parents are reported before their child nodes"
+    changes*.parentPath == [
+      rootPath,
+      new TreePath(['root', newGroup] as Object[]),
+      new TreePath(['root', newGroup, newInner] as Object[]),
+    ]
+    changes[0].replacingNodes == [newGroup] as Object[]
+    changes[1].replacedIndices == [0] as int[]
+    changes[1].replacingNodes == [newInner] as Object[]
+    changes[2].insertedIndices == [1] as int[]
+    changes[2].insertedNodes == [added] as Object[]
+    changes[2].replacedNodes.length == 0
+    and: "old nodes are not modified"
+    group.childNodes == [inner, shared]
+    inner.childNodes == [leaf]
+  }
+
+  def "should keep old nodes with the same content"() {
+    given:
+    def nodes = (1..50).collect { new Server("s$it", "a$it", "d$it", [p: 'v'], ['ssh']) } +
+      new GroupingNode('g1', 'd', [new GenericNode('n1'), new Server('s2')], ['http'])
+    def reloaded = nodes*.deepCopy()
+
+    expect: "nothing is changed by reload"
+    NetworkNodesTreeDiff.merge(nodes, reloaded).is nodes
+
+    when: "one leaf among many is changed"
+    reloaded[20] = new Server('s21', 'a21', 'changed', [p: 'v'], ['ssh'])
+    def merged = NetworkNodesTreeDiff.merge(nodes, reloaded)
+    NetworkNodesTreeDiff.compare(rootPath, nodes, merged, listener)
+
+    then:
+    merged == nodes.take(20) + reloaded[20] + nodes.drop(21)
+    (0..<nodes.size()).every { it == 20 || merged[it].is(nodes[it]) }
+    changes.size() == 1
+    changes[0].replacedIndices == [20] as int[]
+    changes[0].replacingNodes == [reloaded[20]] as Object[]
+    changes[0].removedNodes.length == 0
+    changes[0].insertedNodes.length == 0
+
+    when: "child node of a group is changed"
+    changes.clear()
+    reloaded = nodes*.deepCopy()
+    reloaded[50] = reloaded[50].withChildNodes([reloaded[50].childNodes[0], new Server('s2', 's2', 'changed', [:], [])])
+    merged = NetworkNodesTreeDiff.merge(nodes, reloaded)
+    NetworkNodesTreeDiff.compare(rootPath, nodes, merged, listener)
+
+    then: "group is copied with unchanged child nodes kept"
+    merged.take(50).every { node -> nodes.any { it.is node } }
+    !merged[50].is(nodes[50])
+    merged[50].childNodes[0].is nodes[50].childNodes[0]
+    merged[50].childNodes[1].is reloaded[50].childNodes[1]
+    merged[50].serviceDescriptors == ['http']
+    changes*.replacingNodes == [[merged[50]] as Object[], [reloaded[50].childNodes[1]] as Object[]]
+    and: "lists are not modified"
+    nodes[50].childNodes[1].description == 's2'
+    reloaded[50].childNodes.every { !nodes[50].childNodes.any { old -> old.is it } }
+  }
+
+  def "should match moved nodes in order"() {
+    given:
+    def a = new GenericNode('a')
+    def b = new GenericNode('b')
+    def c = new GenericNode('c')
+
+    when:
+    NetworkNodesTreeDiff.compare(rootPath, [a, b, c], [c, a, b], listener)
+
+    then:
+    changes.size() == 1
+    changes[0].removedIndices == [2] as int[]
+    changes[0].removedNodes == [c] as Object[]
+    changes[0].insertedIndices == [0] as int[]
+    changes[0].insertedNodes == [c] as Object[]
+    changes[0].replacedNodes.length == 0
+  }
+}
@@ -5,9 +5,14 @@ import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
 import jiconfont.swing.IconFontSwing
 import net.in.rrrekin.ittoolbox.configuration.Configuration
 import net.in.rrrekin.ittoolbox.configuration.ConfigurationManager
+import net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry
 import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
 import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNodeCompareTrait
+import net.in.rrrekin.ittoolbox.configuration.nodes.NodeFactory
 import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.configuration.search.NodeSearchService
 import net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent
 import net.in.rrrekin.ittoolbox.gui.EdtInvokeService
 import spock.lang.Specification
@@ -18,6 +23,7 @@ import javax.swing.event.TreeModelEvent
 import javax.swing.event.TreeModelListener
 import javax.swing.tree.TreePath
 
+import static net.in.rrrekin.ittoolbox.configuration.journal.JournalEntry.Operation.SET_FIELDS
 import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.*
 
 /**
@@ -25,7 +31,7 @@ import static net.in.rrrekin.ittoolbox.events.ConfigurationFileSyncEvent.Code.*
  */
 
 @Stepwise
-class NetworkNodesTreeModelFacadeTest extends Specification {
+class NetworkNodesTreeModelFacadeTest extends Specification implements NetworkNodeCompareTrait {
 
   static final SAMPLE_NODES = [
     new Server('s1', 'a1', '2018年1月1日 星期一 下午03时20分34秒', [:], []),
@@ -46,29 +52,66 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     new Server('s14', 'a14', 'd14', [:], ['ftp', 'telnet']),
   ]
   static final CONFIGURATION = new Configuration(SAMPLE_NODES, [:])
+  static final NODE_FACTORY = new NodeFactory(new EventBus())
 
+  Configuration configuration = CONFIGURATION
   ConfigurationManager configurationManager = Mock() {
-    getConfig() >> CONFIGURATION
+    getConfig() >> { configuration }
   }
   EventBus eventBus = Mock()
   EdtInvokeService invokeService = Mock() {
     runInEdt(_) >> { args -> args[0].run() }
     runInEdtAndWait(_) >> { args -> args[0].run() }
   }
+  NodeSearchService searchService = Mock()
   TreeModelListener listener = Mock()
   TreeModelListener listener2 = Mock()
   TreeModelListener listener3 = Mock()
 
-  def instance = new NetworkNodesTreeModelFacade(configurationManager, eventBus, invokeService)
+  def instance = new NetworkNodesTreeModelFacade(configurationManager, eventBus, invokeService, searchService)
 
   void setupSpec() {
     IconFontSwing.register(GoogleMaterialDesignIcons.getIconFont());
   }
 
+  /** Gets node of the facade tree at index path. */
+  NetworkNode nodeAt(List<Integer> indexPath) {
+    return indexPath.inject(instance.getRoot()) { node, index -> node.childNodes[index] }
+  }
+
+  static NetworkNode sampleAt(List<Integer> indexPath) {
+    return indexPath.tail().inject(SAMPLE_NODES[indexPath.head()]) { node, index -> node.childNodes[index] }
+  }
+
+  TreePath pathTo(List<Integer> indexPath) {
+    return indexPath.inject(new TreePath(instance.getRoot())) { path, index -> path.pathByAddingChild(path.lastPathComponent.childNodes[index]) }
+  }
+
+  /** Publishes the change like configuration manager does, if configuration was not changed. */
+  boolean publish(Configuration expected, JournalEntry entry) {
+    if (!expected.is(configuration)) {
+      return false
+    }
+    configuration = configuration.withChange(entry, NODE_FACTORY)
+    return true
+  }
+
+  /** Creates copy of the node without child nodes and with given fields changed. */
+  static NetworkNode copyOf(NetworkNode node, Map<String, Object> fields) {
+    return NODE_FACTORY.createNode(node.dtoProperties + [children: []] + fields, 'test')
+  }
+
+  /** Changes description of a copy of the node at index path and records it. */
+  boolean changeDescription(List<Integer> indexPath, String description) {
+    def node = nodeAt(indexPath)
+    return instance.nodeChanged(node, copyOf(node, [description: description]))
+  }
+
   def "should properly build instance"() {
     expect:
     instance.@configurationManager.is configurationManager
     instance.@eventBus.is eventBus
+    instance.@searchService.is searchService
 
     when:
     def root = instance.getRoot()
@@ -80,16 +123,20 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
 
   def "should validate constructor arguments"() {
     when:
-    new NetworkNodesTreeModelFacade(null, eventBus, invokeService)
+    new NetworkNodesTreeModelFacade(null, eventBus, invokeService, searchService)
     then:
     thrown NullPointerException
 
     when:
-    new NetworkNodesTreeModelFacade(configurationManager, null, invokeService)
+    new NetworkNodesTreeModelFacade(configurationManager, null, invokeService, searchService)
+    then:
+    thrown NullPointerException
+    when:
+    new NetworkNodesTreeModelFacade(configurationManager, eventBus, null, searchService)
     then:
     thrown NullPointerException
     when:
-    new NetworkNodesTreeModelFacade(configurationManager, eventBus, null)
+    new NetworkNodesTreeModelFacade(configurationManager, eventBus, invokeService, null)
     then:
     thrown NullPointerException
   }
@@ -114,6 +161,8 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     when:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(code, ''))
 
+    then:
+    1 * searchService.update(SAMPLE_NODES)
     then:
     1 * listener3.treeStructureChanged({ TreeModelEvent event -> event.source == instance && event.treePath == rootPath && event.childIndices.length == 0 && event.children == null || event.children.length == 0 })
     then:
@@ -123,8 +172,11 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     0 * listener._
     0 * listener2._
     0 * listener3._
-    and:
-    instance.getRoot().getChildNodes() == SAMPLE_NODES
+    and: "published nodes are shown"
+    equal(instance.getRoot().getChildNodes(), SAMPLE_NODES)
+    !instance.getRoot().getChildNodes().is(SAMPLE_NODES)
+    instance.getRoot().getChildNodes()[0].is(SAMPLE_NODES[0])
+    instance.getRoot().getChildNodes()[3].childNodes[1].is(SAMPLE_NODES[3].childNodes[1])
 
     where:
     code | _
@@ -133,120 +185,144 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
   }
 
   @Unroll
-  def "should notify changes in particular node"() {
+  def "should record new version of node at #indexPath"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
     instance.addTreeModelListener(listener)
-    path.add(0, instance.getRoot())
-    def effectivePath = new TreePath(path as Object[])
+    def node = nodeAt(indexPath)
 
     when:
-    instance.nodeChanged(child)
+    def result = changeDescription(indexPath, 'changed')
 
     then:
-    1 * configurationManager.setDirty(true)
-    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == effectivePath && event.childIndices == ([childIndex] as int[]) && event.children == ([child] as Object[]) })
-    0 * _._
+    1 * configurationManager.recordChange(CONFIGURATION, { JournalEntry entry -> entry.operation == SET_FIELDS && entry.path == indexPath && entry.node.description == 'changed' }) >> { Configuration expected, JournalEntry entry -> publish(expected, entry) }
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event instanceof NodeTreeModelEvent && event.source == instance && event.treePath == pathTo(indexPath.dropRight(1)) && event.childIndices == ([childIndex] as int[]) && event.children == ([nodeAt(indexPath)] as Object[]) })
+    and: "ancestors are replaced by their new versions too"
+    (indexPath.size() - 1) * listener.treeNodesChanged(_)
+    0 * listener._
+    0 * configurationManager.setDirty(_)
+    and: "published node is not modified"
+    result
+    nodeAt(indexPath).description == 'changed'
+    node.is sampleAt(indexPath)
+    node.description != 'changed'
+    instance.getRoot().getChildNodes() == configuration.networkNodes
 
     where:
-    path                                             | childIndex || child
-    []                                               | 0          || SAMPLE_NODES[0]
-    []                                               | 3          || SAMPLE_NODES[3]
-    [SAMPLE_NODES[3]]                                | 2          || SAMPLE_NODES[3].childNodes[2]
-    [SAMPLE_NODES[3], SAMPLE_NODES[3].childNodes[1]] | 1          || SAMPLE_NODES[3].childNodes[1].childNodes[1]
+    childIndex | indexPath
+    0          | [0]
+    3          | [3]
+    2          | [3, 2]
+    1          | [3, 1, 1]
   }
 
-  def "should not notify for invalid nodes"() {
+  def "should not record changes of nodes not shown"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
     instance.addTreeModelListener(listener)
 
     when:
-    instance.nodeChanged(new Server('sss'))
+    def result = instance.nodeChanged(new Server('sss'), new Server('sss'))
 
     then:
-    0 * _._
+    !result
+    0 * configurationManager.recordChange(*_)
+    0 * listener._
   }
 
-  def "should not notify for invalid paths"() {
+  def "should not record changes of invalid paths"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
     instance.addTreeModelListener(listener)
 
     when:
-    instance.nodeChanged(new TreePath(['', new Server('sss')] as Object[]))
+    def result = instance.nodeChanged(new TreePath(['', new Server('sss')] as Object[]), new Server('sss'))
 
     then:
-    0 * _._
+    !result
+    0 * configurationManager.recordChange(*_)
+    0 * listener._
 
     when:
-    instance.nodeChanged(new TreePath(['', ''] as Object[]))
+    result = instance.nodeChanged(new TreePath([instance.getRoot(), new Server('sss')] as Object[]), new Server('sss'))
 
     then:
-    0 * _._
+    !result
+    0 * configurationManager.recordChange(*_)
+    0 * listener._
 
     when:
-    instance.nodeChanged(new TreePath([new Server('sss'), ''] as Object[]))
+    result = instance.nodeChanged(new TreePath([new Server('sss'), ''] as Object[]), new Server('sss'))
 
     then:
-    0 * _._
+    !result
+    0 * configurationManager.recordChange(*_)
+    0 * listener._
   }
 
-  def "should notify for rootPath"() {
+  def "should rename root node"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
     instance.addTreeModelListener(listener)
 
     when:
-    instance.nodeChanged(new TreePath(instance.getRoot()))
+    instance.nodeChanged(new TreePath(instance.getRoot()), new GroupingNode('new root'))
 
     then:
     1 * configurationManager.setDirty(true)
     1 * listener.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == null && event.childIndices == ([0] as int[]) && event.children == ([instance.getRoot()] as Object[]) })
-      0 * _._
+    0 * listener._
+    0 * configurationManager.recordChange(*_)
+    instance.getRoot().name == 'new root'
   }
 
   def "should add and remove listeners"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    configurationManager.recordChange(_, _) >> { Configuration expected, JournalEntry entry -> publish(expected, entry) }
 
     when:
-    instance.nodeChanged(SAMPLE_NODES[2])
+    changeDescription([2], 'd1')
     then:
-    1 * configurationManager.setDirty(true)
-    0 * _._
+    0 * listener._
+    0 * listener2._
+    0 * listener3._
 
     when: "add listeners"
     instance.addTreeModelListener(listener)
     instance.addTreeModelListener(listener2)
     instance.addTreeModelListener(listener3)
-    instance.nodeChanged(SAMPLE_NODES[2])
+    changeDescription([2], 'd2')
     then:
-    1 * configurationManager.setDirty(true)
     1 * listener3.treeNodesChanged(_)
     then:
     1 * listener2.treeNodesChanged(_)
     then:
     1 * listener.treeNodesChanged(_)
-    0 * _._
+    0 * listener._
+    0 * listener2._
+    0 * listener3._
 
     when: "removed listener from the middle"
     instance.removeTreeModelListener(listener2)
-    instance.nodeChanged(SAMPLE_NODES[2])
+    changeDescription([2], 'd3')
     then:
-    1 * configurationManager.setDirty(true)
     1 * listener3.treeNodesChanged(_)
     then:
     1 * listener.treeNodesChanged(_)
-    0 * _._
+    0 * listener._
+    0 * listener2._
+    0 * listener3._
 
     when: "removed rest of listeners"
     instance.removeTreeModelListener(listener)
     instance.removeTreeModelListener(listener3)
-    instance.nodeChanged(SAMPLE_NODES[2])
+    changeDescription([2], 'd4')
     then:
-    1 * configurationManager.setDirty(true)
-    0 * _._
+    0 * listener._
+    0 * listener2._
+    0 * listener3._
+    nodeAt([2]).description == 'd4'
   }
 
   @Unroll
@@ -268,25 +344,197 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     SAVED   | _
   }
 
+  def "should update only changed nodes on configuration reload"() {
+    setup:
+    def s1 = new Server('s1', 'a1', 'd1', [:], [])
+    def s2 = new Server('s2', 'a2', 'd2', [:], ['ssh'])
+    def g3 = new GroupingNode('g3', 'd3', [new GenericNode('n4')], [])
+    def newS2 = new Server('s2', 'a2', 'new d2', [:], ['ssh'])
+    def s5 = new Server('s5', 'a5', 'd5', [:], [])
+    def newConfig = new Configuration([s1, newS2, g3, s5], [:])
+    def rootPath = new TreePath(instance.getRoot())
+    configuration = new Configuration([s1, s2, g3], [:])
+
+    when:
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    instance.addTreeModelListener(listener)
+    configuration = newConfig
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+
+    then: "inserted node is added, changed node is replaced by new version"
+    1 * searchService.update(newConfig.networkNodes)
+    1 * listener.treeNodesInserted({ TreeModelEvent event -> event.source == instance && event.treePath == rootPath && event.childIndices == ([3] as int[]) && event.children == ([s5] as Object[]) })
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == rootPath && event.childIndices == ([1] as int[]) && event.children == ([newS2] as Object[]) && event.change.replacedNodes == ([s2] as Object[]) })
+    0 * listener._
+    0 * configurationManager.recordChange(*_)
+    and: "published configurations are not modified"
+    instance.getRoot().getChildNodes() == [s1, newS2, g3, s5]
+    s2.description == 'd2'
+  }
+
+  def "should report only changed node when reloaded configuration consists of new nodes"() {
+    setup:
+    def nodes = (1..200).collect { new Server("s$it", "a$it", "d$it", [:], ['ssh']) } + SAMPLE_NODES
+    def reloaded = nodes*.deepCopy()
+    reloaded[100] = new Server('s101', 'a101', 'changed', [:], ['ssh'])
+    def rootPath = new TreePath(instance.getRoot())
+    configuration = new Configuration(nodes, [:])
+    def newConfig = new Configuration(reloaded, [:])
+    Configuration merged = null
+
+    when:
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    instance.addTreeModelListener(listener)
+    configuration = newConfig
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+
+    then: "merged nodes replace equivalent reloaded configuration"
+    1 * configurationManager.replaceConfig(newConfig, _) >> { Configuration expected, Configuration equivalent ->
+      merged = equivalent
+      true
+    }
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.treePath == rootPath && event.childIndices == ([100] as int[]) && event.children == ([reloaded[100]] as Object[]) })
+    0 * listener._
+    instance.getRoot().getChildNodes() == merged.networkNodes
+    merged.networkNodes[100].is reloaded[100]
+    (0..<nodes.size()).every { it == 100 || merged.networkNodes[it].is(nodes[it]) }
+  }
+
+  def "should map paths of replaced nodes to their new versions"() {
+    setup:
+    def s2 = new Server('s2', 'a2', 'd2', [:], [])
+    def g1 = new GroupingNode('g1', 'd1', [s2], [])
+    def s4 = new Server('s4', 'a4', 'd4', [:], [])
+    def g3 = new GroupingNode('g3', 'd3', [s4], [])
+    def newS4 = new Server('s4', 'a4', 'new d4', [:], [])
+    def newG3 = g3.withChildNodes([newS4])
+    Runnable replacementListener = Mock()
+    def root = instance.getRoot()
+    configuration = new Configuration([g1, g3], [:])
+    instance.addTreeModelListener(listener)
+    instance.addReplacementListener(replacementListener)
+
+    when:
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    configuration = new Configuration([g1, newG3], [:])
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+
+    then:
+    1 * listener.treeStructureChanged(_)
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.treePath == new TreePath(root) && event.childIndices == ([1] as int[]) && event.children == ([newG3] as Object[]) })
+
+    then:
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.treePath == new TreePath([root, newG3] as Object[]) && event.childIndices == ([0] as int[]) && event.children == ([newS4] as Object[]) })
+
+    then: "unchanged group is not compared, replacement listeners are called after all changes"
+    1 * replacementListener.run()
+    0 * listener._
+    0 * replacementListener._
+    nodeAt([0]).is g1
+    g3.childNodes == [s4]
+    s4.description == 'd4'
+
+    and:
+    instance.currentPath(new TreePath([root, g3, s4] as Object[])) == new TreePath([root, newG3, newS4] as Object[])
+    instance.currentPath(new TreePath([root, g1, s2] as Object[])) == new TreePath([root, g1, s2] as Object[])
+    instance.currentPath(new TreePath([root, g1, s4] as Object[])) == null
+    instance.currentPath(new TreePath(s4)) == null
+  }
+
+  def "should record change of node replaced in meantime in its new version"() {
+    setup:
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    def g4 = nodeAt([3])
+    def renamed = copyOf(g4, [name: 'g4-renamed'])
+    def external = copyOf(g4, [description: 'external'])
+    def first = CONFIGURATION.withChange(JournalEntry.setFields([3], external), NODE_FACTORY)
+    def second = first.withChange(JournalEntry.setFields([0], new Server('s1', 'a1', 'd1', [:], [])), NODE_FACTORY)
+
+    when: "configuration changes before the change and while it is recorded"
+    configuration = first
+    def result = instance.nodeChanged(g4, renamed)
+
+    then:
+    1 * configurationManager.recordChange(first, { JournalEntry entry -> entry.path == [3] && entry.node.name == 'g4-renamed' }) >> {
+      configuration = second
+      false
+    }
+    1 * configurationManager.recordChange(second, { JournalEntry entry -> entry.path == [3] && entry.node.name == 'g4-renamed' }) >> { Configuration expected, JournalEntry entry -> publish(expected, entry) }
+    result
+    nodeAt([3]).name == 'g4-renamed'
+    nodeAt([0]).description == 'd1'
+    instance.getRoot().getChildNodes() == configuration.networkNodes
+    g4.name == 'g4'
+  }
+
+  def "should not retry change rejected by configuration manager"() {
+    setup:
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    instance.addTreeModelListener(listener)
+
+    when:
+    def result = changeDescription([0], 'changed')
+
+    then:
+    1 * configurationManager.recordChange(CONFIGURATION, _) >> false
+    !result
+    0 * listener._
+    nodeAt([0]).is SAMPLE_NODES[0]
+  }
+
+  def "should find paths and indices of nodes moved by configuration reload"() {
+    setup:
+    def newConfig = new Configuration(SAMPLE_NODES.findAll { it.name != 's2' } + new Server('s0', 'a0', 'd0', [:], []), [:])
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
+    def s2 = nodeAt([1])
+    def s9 = nodeAt([3, 1, 0])
+    def s14 = nodeAt([6])
+    instance.getIndexOfChild(nodeAt([3, 1]), s9)
+    instance.getIndexOfChild(instance.getRoot(), s2)
+    configurationManager.recordChange(_, _) >> { Configuration expected, JournalEntry entry -> publish(expected, entry) }
+
+    when:
+    configuration = newConfig
+    instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(OK, ''))
+    instance.addTreeModelListener(listener)
+    def changed = [s14, s9, s2].collect { node ->
+      instance.nodeChanged(node, copyOf(node, [description: 'changed']))
+    }
+
+    then:
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.treePath == pathTo([]) && event.childIndices == ([5] as int[]) && event.children[0].name == 's14' })
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.treePath == pathTo([2, 1]) && event.childIndices == ([0] as int[]) && event.children[0].name == 's9' })
+    2 * listener.treeNodesChanged(_)
+    0 * listener._
+    changed == [true, true, false]
+    nodeAt([5]).description == 'changed'
+    nodeAt([2, 1, 0]).description == 'changed'
+    and: "removed node is forgotten"
+    instance.getIndexOfChild(instance.getRoot(), s2) == -1
+    instance.getIndexOfChild(instance.getRoot(), nodeAt([5])) == 5
+    !instance.@index.@positions.containsKey(s2)
+    !instance.@index.@positions.containsKey(s14)
+  }
+
   @Unroll
   def "should return child node"() {
     setup:
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
 
     expect:
-    instance.getChild(parent == null ? instance.getRoot() : parent, index) == child
+    instance.getChild(parent instanceof List ? nodeAt(parent) : parent, index) == (child instanceof List ? nodeAt(child) : child)
 
     where:
-    parent                        | index || child
-    null                          | 0      | SAMPLE_NODES[0]
-    null                          | 3      | SAMPLE_NODES[3]
-    SAMPLE_NODES[3]               | 2      | SAMPLE_NODES[3].childNodes[2]
-    SAMPLE_NODES[3]               | -2     | '?'
-    SAMPLE_NODES[3]               | 7      | '?'
-    SAMPLE_NODES[3].childNodes[1] | 1      | SAMPLE_NODES[3].childNodes[1].childNodes[1]
-    SAMPLE_NODES[3].childNodes[1] | 3      | '?'
-    SAMPLE_NODES[2]               | 0      | '?'
-    'SAMPLE_NODES[3]'             | 2      | '?'
+    parent            | index || child
+    []                | 0      | [0]
+    []                | 3      | [3]
+    [3]               | 2      | [3, 2]
+    [3]               | -2     | '?'
+    [3]               | 7      | '?'
+    [3, 1]            | 1      | [3, 1, 1]
+    [3, 1]            | 3      | '?'
+    [2]               | 0      | '?'
+    'SAMPLE_NODES[3]' | 2      | '?'
   }
 
   @Unroll
@@ -314,17 +562,18 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
 
     expect:
-    instance.getIndexOfChild(instance.getRoot(), SAMPLE_NODES[3]) == 3
-    instance.getIndexOfChild(instance.getRoot(), SAMPLE_NODES[1]) == 1
-    instance.getIndexOfChild(instance.getRoot(), SAMPLE_NODES[3].childNodes[1]) == -1
-    instance.getIndexOfChild(instance.getRoot(), SAMPLE_NODES[3].childNodes[1].childNodes[2]) == -1
-    instance.getIndexOfChild(SAMPLE_NODES[3], SAMPLE_NODES[3]) == -1
-    instance.getIndexOfChild(SAMPLE_NODES[3], SAMPLE_NODES[3].childNodes[1]) == 1
-    instance.getIndexOfChild(SAMPLE_NODES[3], SAMPLE_NODES[3].childNodes[1].childNodes[2]) == -1
-    instance.getIndexOfChild(SAMPLE_NODES[3].childNodes[1], SAMPLE_NODES[3].childNodes[1].childNodes[2]) == 2
-    instance.getIndexOfChild('aa', SAMPLE_NODES[3].childNodes[1].childNodes[2]) == -1
+    instance.getIndexOfChild(instance.getRoot(), nodeAt([3])) == 3
+    instance.getIndexOfChild(instance.getRoot(), nodeAt([1])) == 1
+    instance.getIndexOfChild(instance.getRoot(), new GenericNode('s2', 'd2', [p1: 'vvv1'], ['vlan:1001'])) == -1
+    instance.getIndexOfChild(instance.getRoot(), nodeAt([3, 1])) == -1
+    instance.getIndexOfChild(instance.getRoot(), nodeAt([3, 1, 2])) == -1
+    instance.getIndexOfChild(nodeAt([3]), nodeAt([3])) == -1
+    instance.getIndexOfChild(nodeAt([3]), nodeAt([3, 1])) == 1
+    instance.getIndexOfChild(nodeAt([3]), nodeAt([3, 1, 2])) == -1
+    instance.getIndexOfChild(nodeAt([3, 1]), nodeAt([3, 1, 2])) == 2
+    instance.getIndexOfChild('aa', nodeAt([3, 1, 2])) == -1
     instance.getIndexOfChild('aa', 'ss') == -1
-    instance.getIndexOfChild(SAMPLE_NODES[3], 'ss') == -1
+    instance.getIndexOfChild(nodeAt([3]), 'ss') == -1
   }
 
   def "should not notify if changed object is not a NetworkNode"() {
@@ -337,17 +586,12 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     0 * _._
   }
 
-  // Keep this test at the end, as it modifies common configuration
   @Unroll
-  def "should notify on node value change"() {
+  def "should record new version of renamed node"() {
     setup:
     instance.addTreeModelListener(listener)
-    instance.addTreeModelListener(listener2)
-    instance.addTreeModelListener(listener3)
     instance.handleFileSynchronizationEvents(new ConfigurationFileSyncEvent(NEW, ''))
-    def fullPath = parentPath as List
-    fullPath.add(0, instance.getRoot())
-    def effectiveParentPath = new TreePath(fullPath as Object[])
+    def effectiveParentPath = pathTo(parentPath)
     def newNodeName = 'NEW NODE NAME'
     def child = effectiveParentPath.lastPathComponent.childNodes[childIndex]
 
@@ -358,25 +602,23 @@ class NetworkNodesTreeModelFacadeTest extends Specification {
     instance.valueForPathChanged(effectiveParentPath.pathByAddingChild(child), newNodeName)
 
     then:
-    1 * listener3.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == effectiveParentPath && event.childIndices == ([childIndex] as int[]) && event.children == ([child] as Object[]) })
-    then:
-    1 * listener2.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == effectiveParentPath && event.childIndices == ([childIndex] as int[]) && event.children == ([child] as Object[]) })
-    then:
-    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == effectiveParentPath && event.childIndices == ([childIndex] as int[]) && event.children == ([child] as Object[]) })
+    1 * configurationManager.recordChange(CONFIGURATION, { JournalEntry entry -> entry.operation == SET_FIELDS && entry.path == parentPath + childIndex && entry.node.name == newNodeName }) >> { Configuration expected, JournalEntry entry -> publish(expected, entry) }
+    1 * listener.treeNodesChanged({ TreeModelEvent event -> event.source == instance && event.treePath == pathTo(parentPath) && event.childIndices == ([childIndex] as int[]) && event.children[0].name == newNodeName && event.change.replacedNodes == ([child] as Object[]) })
+    parentPath.size() * listener.treeNodesChanged(_)
     0 * listener._
-    0 * listener2._
-    0 * listener3._
-    and:
-    child.name == newNodeName
+    and: "published node is not modified"
+    nodeAt(parentPath + childIndex).name == newNodeName
+    child.name != newNodeName
+    child.is sampleAt(parentPath + childIndex)
 
     where:
-    parentPath                                       | childIndex
-    []                                               | 3
-    []                                               | 0
-    []                                               | 1
-    []                                               | 5
-    [SAMPLE_NODES[3]]                                | 1
-    [SAMPLE_NODES[3]]                                | 2
-    [SAMPLE_NODES[3], SAMPLE_NODES[3].childNodes[1]] | 2
+    parentPath | childIndex
+    []         | 3
+    []         | 0
+    []         | 1
+    []         | 5
+    [3]        | 1
+    [3]        | 2
+    [3, 1]     | 2
   }
 }
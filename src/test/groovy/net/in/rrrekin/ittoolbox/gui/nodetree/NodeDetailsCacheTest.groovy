@@ -0,0 +1,166 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree
+
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import net.in.rrrekin.ittoolbox.gui.EdtInvokeService
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import javax.swing.text.Document
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodeDetailsCacheTest extends Specification {
+
+  EdtInvokeService invokeService = Mock() {
+    runInEdt(_) >> { args -> args[0].run() }
+  }
+  def conditions = new PollingConditions(timeout: 10)
+  def server = new Server('web-01', '10.0.0.1', 'Front end', [:], ['ssh'])
+  List<Document> rendered = new CopyOnWriteArrayList<>()
+
+  def instance = new NodeDetailsCache(invokeService)
+
+  static String textOf(Document document) {
+    document.getText(0, document.length)
+  }
+
+  def "should validate arguments"() {
+    when:
+    new NodeDetailsCache(null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.render(null, {})
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.render(server, null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.prefetch(null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.invalidate(null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  def "should render node details in background and cache them"() {
+    when:
+    instance.render(server) { rendered << it }
+
+    then:
+    conditions.eventually {
+      assert rendered.size() == 1
+    }
+    textOf(rendered[0]).contains('web-01')
+    textOf(rendered[0]).contains('Front end')
+
+    when: "node is rendered again"
+    instance.render(server) { rendered << it }
+
+    then: "cached document is used immediately"
+    rendered.size() == 2
+    rendered[1].is rendered[0]
+  }
+
+  def "should render node again when it changes"() {
+    given:
+    def state = [name: 'root']
+    def node = new GroupingNode('root') {
+      @Override
+      String toHtml() {
+        "<h1>${state.name}</h1>"
+      }
+    }
+    instance.render(node) { rendered << it }
+    conditions.eventually {
+      assert rendered.size() == 1
+    }
+
+    when: "node is changed in place, like the root node"
+    state.name = 'Changed'
+    instance.invalidate(node)
+    instance.render(node) { rendered << it }
+
+    then:
+    conditions.eventually {
+      assert rendered.size() == 2
+    }
+    !rendered[1].is(rendered[0])
+    textOf(rendered[1]).contains('Changed')
+  }
+
+  def "should not pass details of node that changed while they were rendered"() {
+    given:
+    List<Runnable> edtQueue = new CopyOnWriteArrayList<>()
+    EdtInvokeService queueingInvokeService = Mock() {
+      runInEdt(_) >> { args -> edtQueue << args[0] }
+    }
+    def queueingInstance = new NodeDetailsCache(queueingInvokeService)
+
+    when:
+    queueingInstance.render(server) { rendered << it }
+    conditions.eventually {
+      assert edtQueue.size() == 1
+    }
+    queueingInstance.invalidate(server)
+    edtQueue[0].run()
+
+    then:
+    rendered.isEmpty()
+  }
+
+  def "should not cache details of node that changed while they were rendered"() {
+    given:
+    def node = new Server('web-02', '10.0.0.2', 'Back end', [:], []) {
+      @Override
+      String toHtml() {
+        instance.invalidate(this)
+        super.toHtml()
+      }
+    }
+
+    when:
+    instance.prefetch(node)
+    instance.render(server) { rendered << it }
+
+    then: "tasks are run in order"
+    conditions.eventually {
+      assert rendered.size() == 1
+    }
+    instance.@cache.getIfPresent(node) == null
+    instance.@cache.getIfPresent(server) != null
+  }
+
+  def "should prefetch node details"() {
+    when:
+    instance.prefetch(server)
+
+    then:
+    conditions.eventually {
+      assert instance.@cache.size() == 1
+    }
+
+    when:
+    instance.render(server) { rendered << it }
+
+    then:
+    rendered.size() == 1
+    textOf(rendered[0]).contains('web-01')
+  }
+}
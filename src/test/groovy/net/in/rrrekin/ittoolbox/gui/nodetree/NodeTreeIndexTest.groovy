@@ -0,0 +1,131 @@
+package net.in.rrrekin.ittoolbox.gui.nodetree
+
+import net.in.rrrekin.ittoolbox.configuration.nodes.GenericNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.GroupingNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.NetworkNode
+import net.in.rrrekin.ittoolbox.configuration.nodes.Server
+import spock.lang.Specification
+
+import javax.swing.tree.TreePath
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class NodeTreeIndexTest extends Specification {
+
+  def s1 = new Server('s1', 'a1', 'd1', [:], [])
+  def n3 = new GenericNode('n3')
+  def s4 = new Server('s4', 'a4', 'd4', [:], [])
+  def g2 = new GroupingNode('g2', 'd2', [n3, s4], [])
+  List<NetworkNode> rootNodes = [s1, g2]
+  /** Root node with child nodes changed in place, like the root node of the node tree. */
+  def root = new GroupingNode('root') {
+    @Override
+    List<NetworkNode> getChildNodes() {
+      rootNodes
+    }
+  }
+
+  def instance = new NodeTreeIndex(root)
+
+  def "should validate arguments"() {
+    when:
+    new NodeTreeIndex(null)
+
+    then:
+    thrown NullPointerException
+
+    when:
+    instance.pathTo(null)
+
+    then:
+    thrown NullPointerException
+  }
+
+  def "should find index of child and index child nodes of the parent"() {
+    expect:
+    instance.size() == 0
+    instance.indexOf(g2, s4) == 1
+    instance.size() == 2
+    instance.indexOf(root, g2) == 1
+    instance.indexOf(root, s4) == -1
+    instance.indexOf(g2, g2) == -1
+    instance.indexOf(g2, 'not a node') == -1
+    instance.size() == 4
+  }
+
+  def "should build paths of recorded nodes"() {
+    when:
+    instance.record(root, 1, g2)
+    instance.record(g2, 1, s4)
+
+    then:
+    instance.pathTo(s4) == new TreePath([root, g2, s4] as Object[])
+    instance.pathTo(root) == new TreePath(root)
+    instance.pathTo(n3) == null
+  }
+
+  def "should not return outdated positions"() {
+    given:
+    instance.indexChildren(root)
+    instance.indexChildren(g2)
+
+    when:
+    rootNodes.remove(0)
+
+    then:
+    instance.pathTo(s4) == null
+    instance.pathTo(s1) == null
+    instance.indexOf(root, s1) == -1
+
+    when:
+    instance.indexChildren(root)
+
+    then:
+    instance.pathTo(s4) == new TreePath([root, g2, s4] as Object[])
+    instance.indexOf(root, g2) == 0
+  }
+
+  def "should forget removed subtrees"() {
+    given:
+    instance.indexChildren(root)
+    instance.indexChildren(g2)
+
+    when:
+    rootNodes.remove(g2)
+    instance.forget([g2] as Object[])
+
+    then:
+    instance.size() == 1
+    instance.pathTo(s1) == new TreePath([root, s1] as Object[])
+  }
+
+  def "should forget replaced node and index child nodes shared with its new version"() {
+    given:
+    def newG2 = g2.withChildNodes([n3, s4])
+    instance.indexChildren(root)
+    instance.indexChildren(g2)
+
+    when:
+    rootNodes[1] = newG2
+    instance.replace(g2, newG2)
+    instance.indexChildren(root)
+
+    then:
+    instance.pathTo(s4) == new TreePath([root, newG2, s4] as Object[])
+    instance.pathTo(g2) == null
+    instance.size() == 4
+  }
+
+  def "should forget all positions"() {
+    given:
+    instance.indexChildren(root)
+
+    when:
+    instance.clear()
+
+    then:
+    instance.size() == 0
+    instance.pathTo(s1) == null
+  }
+}
@@ -0,0 +1,69 @@
+package net.in.rrrekin.ittoolbox.utilities
+
+import com.google.common.hash.Hashing
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class FileFingerprintTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def "should calculate fingerprint of the file"() {
+        given:
+        def file = temporaryFolder.newFile()
+        file.text = 'zażółć gęślą jaźń'
+        file.setLastModified(1500000000000)
+
+        when:
+        def fingerprint = FileFingerprint.of(file)
+
+        then:
+        fingerprint.size == file.length()
+        fingerprint.lastModified == 1500000000000
+        fingerprint.hash == Hashing.sha256().hashString('zażółć gęślą jaźń', StandardCharsets.UTF_8)
+        fingerprint == FileFingerprint.of(file)
+    }
+
+    def "should detect changes of the file"() {
+        given:
+        def file = temporaryFolder.newFile()
+        file.text = 'abc'
+        file.setLastModified(1500000000000)
+        def fingerprint = FileFingerprint.of(file)
+
+        when: "content changed without change of size and time"
+        file.text = 'abd'
+        file.setLastModified(1500000000000)
+
+        then:
+        FileFingerprint.of(file) != fingerprint
+
+        when: "only modification time changed"
+        file.text = 'abc'
+        file.setLastModified(1500000001000)
+
+        then:
+        FileFingerprint.of(file) != fingerprint
+    }
+
+    def "should fail for missing file"() {
+        when:
+        FileFingerprint.of(new File(temporaryFolder.root, 'missing'))
+
+        then:
+        thrown IOException
+
+        when:
+        FileFingerprint.of(null)
+
+        then:
+        thrown NullPointerException
+    }
+}
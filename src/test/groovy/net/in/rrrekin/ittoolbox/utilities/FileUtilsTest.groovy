@@ -0,0 +1,216 @@
+package net.in.rrrekin.ittoolbox.utilities
+
+import com.google.common.hash.Hashing
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.attribute.PosixFilePermissions
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class FileUtilsTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def "should compare file content"() {
+        given:
+        def file = new File(temporaryFolder.root, 'file.txt')
+
+        expect: "missing file"
+        !FileUtils.hasContent(file, 'abc'.bytes)
+
+        when:
+        file.text = 'abc'
+
+        then:
+        FileUtils.hasContent(file, 'abc'.bytes)
+        !FileUtils.hasContent(file, 'abd'.bytes)
+        !FileUtils.hasContent(file, 'abcd'.bytes)
+        !FileUtils.hasContent(temporaryFolder.root, 'abc'.bytes)
+    }
+
+    def "should create and replace file"() {
+        given:
+        def file = new File(temporaryFolder.root, 'file.txt')
+
+        when:
+        FileUtils.writeAtomically(file, 'zażółć'.getBytes('UTF-8'))
+
+        then:
+        file.getText('UTF-8') == 'zażółć'
+
+        when:
+        FileUtils.writeAtomically(file, 'gęślą jaźń'.getBytes('UTF-8'))
+
+        then:
+        file.getText('UTF-8') == 'gęślą jaźń'
+        temporaryFolder.root.list() as List == ['file.txt']
+    }
+
+    def "should write streamed content atomically"() {
+        given:
+        def file = temporaryFolder.newFile('file.txt')
+        file.text = 'old'
+
+        when:
+        FileUtils.writeContentAtomically(file) { it.write('new'.bytes) }
+
+        then:
+        file.text == 'new'
+
+        when:
+        FileUtils.writeContentAtomically(file) {
+            it.write('partial'.bytes)
+            throw new IOException('failed')
+        }
+
+        then:
+        thrown IOException
+        file.text == 'new'
+        temporaryFolder.root.list() as List == ['file.txt']
+    }
+
+    @Requires({ FileSystems.default.supportedFileAttributeViews().contains('posix') })
+    def "should replace file only if streamed content changes"() {
+        given:
+        def file = new File(temporaryFolder.root, 'file.txt')
+
+        expect: "missing file is created"
+        FileUtils.writeContentAtomicallyIfChanged(file, { it.write('abc'.bytes) })
+        file.text == 'abc'
+
+        when: "content is the same"
+        def modified = file.lastModified() - 10000
+        file.setLastModified(modified)
+        def written = FileUtils.writeContentAtomicallyIfChanged(file, { it.write('abc'.bytes); it.close() })
+
+        then: "file is not touched and temporary file is removed"
+        !written
+        file.lastModified() == modified
+        temporaryFolder.root.list() as List == ['file.txt']
+
+        when: "content is changed"
+        written = FileUtils.writeContentAtomicallyIfChanged(file, { it.write('abd'.bytes); it.close() })
+
+        then:
+        written
+        file.text == 'abd'
+        temporaryFolder.root.list() as List == ['file.txt']
+    }
+
+    def "should compare streamed content with known hash before creating temporary file"() {
+        given:
+        def file = temporaryFolder.newFile('file.txt')
+        file.text = 'abc'
+        def hash = Hashing.sha256().hashBytes('abc'.bytes)
+        def listings = []
+
+        when: "content is the same"
+        def written = FileUtils.writeContentAtomicallyIfChanged(file, hash, {
+            listings << (temporaryFolder.root.list() as List)
+            it.write('abc'.bytes)
+        })
+
+        then: "content is streamed only once, without temporary file"
+        !written
+        listings == [['file.txt']]
+
+        when: "file of other size is replaced even if known hash matches"
+        file.text = 'abcd'
+        written = FileUtils.writeContentAtomicallyIfChanged(file, hash, { it.write('abc'.bytes) })
+
+        then:
+        written
+        file.text == 'abc'
+
+        when: "content is changed"
+        written = FileUtils.writeContentAtomicallyIfChanged(file, hash, { it.write('abd'.bytes) })
+
+        then:
+        written
+        file.text == 'abd'
+        temporaryFolder.root.list() as List == ['file.txt']
+    }
+
+    def "should preserve file permissions"() {
+        given:
+        def file = temporaryFolder.newFile('file.txt')
+        Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString('rw-r-----'))
+
+        when:
+        FileUtils.writeAtomically(file, 'abc'.bytes)
+
+        then:
+        file.text == 'abc'
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())) == 'rw-r-----'
+    }
+
+    def "should not replace directory"() {
+        given:
+        def directory = temporaryFolder.newFolder('dir')
+
+        when:
+        FileUtils.writeAtomically(directory, 'abc'.bytes)
+
+        then:
+        thrown IOException
+        directory.isDirectory()
+        temporaryFolder.root.list() as List == ['dir']
+    }
+
+    def "should fail when directory does not exist"() {
+        when:
+        FileUtils.writeAtomically(new File(temporaryFolder.root, 'missing/file.txt'), 'abc'.bytes)
+
+        then:
+        thrown IOException
+    }
+
+    def "should validate arguments"() {
+        when:
+        FileUtils.writeAtomically(null, 'abc'.bytes)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.writeAtomically(temporaryFolder.newFile(), null)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.writeContentAtomically(temporaryFolder.newFile(), null)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.writeContentAtomicallyIfChanged(null, {})
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.writeContentAtomicallyIfChanged(temporaryFolder.newFile(), null)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.writeContentAtomicallyIfChanged(temporaryFolder.newFile(), null, null)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.hasContent(null, 'abc'.bytes)
+        then:
+        thrown NullPointerException
+
+        when:
+        FileUtils.hasContent(temporaryFolder.newFile(), null)
+        then:
+        thrown NullPointerException
+    }
+}
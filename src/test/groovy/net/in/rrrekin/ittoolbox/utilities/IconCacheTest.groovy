@@ -0,0 +1,30 @@
+package net.in.rrrekin.ittoolbox.utilities
+
+import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons
+import jiconfont.swing.IconFontSwing
+import spock.lang.Specification
+
+import java.awt.Color
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class IconCacheTest extends Specification {
+
+    void setupSpec() {
+        IconFontSwing.register(GoogleMaterialDesignIcons.getIconFont())
+    }
+
+    def "should share font icons of the same glyph, size and colour"() {
+        when:
+        def icon = IconCache.glyph(GoogleMaterialDesignIcons.COMPUTER, 20)
+
+        then:
+        icon.iconWidth == 20
+        icon.is IconCache.glyph(GoogleMaterialDesignIcons.COMPUTER, 20)
+        icon.is IconCache.glyph(GoogleMaterialDesignIcons.COMPUTER, 20, IconCache.DEFAULT_COLOR)
+        !icon.is(IconCache.glyph(GoogleMaterialDesignIcons.COMPUTER, 24))
+        !icon.is(IconCache.glyph(GoogleMaterialDesignIcons.COMPUTER, 20, Color.RED))
+        !icon.is(IconCache.glyph(GoogleMaterialDesignIcons.FOLDER, 20))
+    }
+}
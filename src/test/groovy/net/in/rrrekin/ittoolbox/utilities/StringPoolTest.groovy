@@ -0,0 +1,57 @@
+package net.in.rrrekin.ittoolbox.utilities
+
+import spock.lang.Specification
+
+/**
+ * @author michal.rudewicz@gmail.com
+ */
+class StringPoolTest extends Specification {
+
+    def "should return shared instance of short strings"() {
+        given:
+        def first = new String('https:port=8443'.toCharArray())
+        def second = new String('https:port=8443'.toCharArray())
+
+        expect:
+        !first.is(second)
+        StringPool.intern(first).is StringPool.intern(second)
+        StringPool.intern(second) == 'https:port=8443'
+    }
+
+    def "should not pool long strings"() {
+        given:
+        def value = 'x' * (StringPool.MAX_POOLED_LENGTH + 1)
+
+        expect:
+        StringPool.intern(value).is value
+    }
+
+    def "should create list of shared strings"() {
+        given:
+        def ssh = new String('ssh'.toCharArray())
+        def values = [ssh, new String('ssh'.toCharArray()), 'http']
+
+        when:
+        def response = StringPool.internAll(values)
+
+        then:
+        response == values
+        response instanceof ArrayList
+        response[0].is response[1]
+        response[0].is StringPool.intern(ssh)
+    }
+
+    def "should validate arguments"() {
+        when:
+        StringPool.intern(null)
+
+        then:
+        thrown NullPointerException
+
+        when:
+        StringPool.internAll(null)
+
+        then:
+        thrown NullPointerException
+    }
+}